@@ -1,14 +1,25 @@
 package cn.adonis.trader.framework;
 
+import cn.adonis.trader.framework.indicator.IndicatorCache;
+import cn.adonis.trader.framework.loader.CandleCursor;
 import cn.adonis.trader.framework.loader.SeriesLoader;
+import cn.adonis.trader.framework.loader.StreamingSeriesLoader;
 import cn.adonis.trader.framework.model.*;
+import cn.adonis.trader.framework.strategy.ForkableStrategy;
 import cn.adonis.trader.framework.strategy.InitializeStrategy;
+import cn.adonis.trader.framework.strategy.PrecomputeStrategy;
+import cn.adonis.trader.framework.strategy.ResumableStrategy;
 import cn.adonis.trader.framework.strategy.TradingStrategy;
 import cn.adonis.trader.framework.util.BigDecimalUtil;
+import cn.adonis.trader.framework.util.FixedPoint;
+import cn.adonis.trader.framework.util.SeriesUtil;
 import com.google.common.collect.Lists;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,51 +30,244 @@ public class BackTest {
 
     private final SeriesLoader seriesLoader;
 
+    private final StreamingSeriesLoader streamingSeriesLoader;
+
+    private final TimeInterval lookback; // 流式回测时保留的历史数据范围
+
     private final BackTestParameter parameter;
 
+    private final Path checkpointFile;
+
+    private final List<String> checkpointPackages; // 读取checkpoint时另外允许反序列化的包
+
+    private final IndicatorCache indicatorCache;
+
     public static Builder builder() {
         return new Builder();
     }
 
-    private BackTest(TradingStrategy tradingStrategy, SeriesLoader seriesLoader, BackTestParameter parameter) {
+    private BackTest(TradingStrategy tradingStrategy, SeriesLoader seriesLoader,
+                     StreamingSeriesLoader streamingSeriesLoader, TimeInterval lookback, BackTestParameter parameter,
+                     Path checkpointFile, List<String> checkpointPackages, IndicatorCache indicatorCache) {
         this.tradingStrategy = tradingStrategy;
         this.seriesLoader = seriesLoader;
+        this.streamingSeriesLoader = streamingSeriesLoader;
+        this.lookback = lookback;
         this.parameter = parameter;
+        this.checkpointFile = checkpointFile;
+        this.checkpointPackages = checkpointPackages;
+        this.indicatorCache = indicatorCache;
     }
 
     public BackTestResult run() throws Exception {
+        if (streamingSeriesLoader != null) {
+            return runStreaming();
+        }
+        if (checkpointFile != null && Files.exists(checkpointFile)) {
+            return resume(Checkpoint.load(checkpointFile, checkpointPackages));
+        }
+
+        // 1. 加载数据，只加载 [startTime - warmUpInterval, endTime]
+        TimeSeries<Candle> originalData = limitRange(seriesLoader.load(parameter.getLoadStartTime(), parameter.getEndTime()));
+
+        // 2. 创建tradingContext对象，预先计算指标列，初始化策略
+        TradingContext tradingContext = prepare(originalData);
 
-        // 1. 加载数据
-        TimeSeries<Candle> originalData = seriesLoader.load();
+        // 3. 运行策略
+        fit(tradingStrategy, tradingContext, 0, originalData.getSeries().size());
 
-        // 2. 创建tradingContext对象
+        BackTestResult result = buildResult(originalData, tradingContext);
+        saveCheckpoint(originalData, tradingContext, tradingStrategy, null);
+        return result;
+    }
+
+    /**
+     * 从checkpoint继续运行：只加载 [恢复点 - warmUpInterval, endTime] 的数据，恢复状态后从恢复点之后的K线开始运行
+     * warmUpInterval为null时与首次运行一样加载全部历史，结果不变，只是不会减少加载的数据
+     * 结果中的交易、结算和收益与完整运行一致，originalData只包含本次加载的数据
+     */
+    private BackTestResult resume(Checkpoint checkpoint) throws Exception {
+        checkpoint.check(parameter);
+        ResumableStrategy resumedStrategy = checkpoint.getTradingStrategy();
+        if (resumedStrategy instanceof PrecomputeStrategy) {
+            throw new BackTestException("PrecomputeStrategy can not be resumed from a checkpoint");
+        }
+
+        // 1. 加载恢复点之前warmUpInterval范围内的历史和新数据
+        LocalDateTime loadStartTime = parameter.getLoadStartTime();
+        if (parameter.getWarmUpInterval() != null) {
+            LocalDateTime resumeLoadStartTime = checkpoint.getTime().minusSeconds(parameter.getWarmUpInterval().toSeconds());
+            if (loadStartTime == null || resumeLoadStartTime.isAfter(loadStartTime)) {
+                loadStartTime = resumeLoadStartTime;
+            }
+        }
+        TimeSeries<Candle> originalData = seriesLoader.load(loadStartTime, parameter.getEndTime())
+                .range(loadStartTime, parameter.getEndTime());
+        // 部分SeriesLoader按开头两根K线推断周期，窗口从收盘前开始时会推断错误，沿用原来的周期
+        if (checkpoint.getTimeInterval() != null && !checkpoint.getTimeInterval().equals(originalData.getTimeInterval())) {
+            originalData = TimeSeries.create(originalData.getSeries(), checkpoint.getTimeInterval());
+        }
+
+        // 2. 恢复tradingContext和策略
         TradingContext tradingContext = TradingContext.builder()
                 .setOriginalData(originalData)
                 .setParameter(parameter)
+                .setIndicatorCache(indicatorCache)
+                .setState(checkpoint.getState())
                 .build();
+        resumedStrategy.resume(tradingContext);
+
+        // 3. 运行恢复点之后的K线
+        int from = originalData.range(null, checkpoint.getTime()).getSeries().size();
+        fit(resumedStrategy, tradingContext, from, originalData.getSeries().size());
 
-        // 3. 初始化策略
+        BackTestResult result = buildResult(originalData, tradingContext);
+        saveCheckpoint(originalData, tradingContext, resumedStrategy, checkpoint.getTime());
+        return result;
+    }
+
+    private void saveCheckpoint(TimeSeries<Candle> originalData, TradingContext tradingContext, TradingStrategy strategy,
+                                LocalDateTime previousTime) throws Exception {
+        if (checkpointFile == null) {
+            return;
+        }
+        Candle last = SeriesUtil.getLast(originalData.getSeries().getDataList());
+        LocalDateTime time = last == null ? previousTime : last.getTime();
+        if (time == null) {
+            return;
+        }
+        Checkpoint.of(time, parameter, originalData.getTimeInterval(), tradingContext, (ResumableStrategy) strategy)
+                .save(checkpointFile);
+    }
+
+    /**
+     * 运行至time(包含)后暂停，返回此时的快照，可从快照分叉出多个后续场景，共同的前缀只计算一次
+     * 策略需实现 {@link ForkableStrategy}，不支持流式回测
+     *
+     * @param time
+     * @return
+     * @throws Exception
+     */
+    public BackTestSnapshot runUntil(LocalDateTime time) throws Exception {
+        if (streamingSeriesLoader != null) {
+            throw new BackTestException("snapshot is not supported in streaming back test");
+        }
+        if (!(tradingStrategy instanceof ForkableStrategy)) {
+            throw new BackTestException("the strategy should implement ForkableStrategy");
+        }
+        TimeSeries<Candle> originalData = limitRange(seriesLoader.load(parameter.getLoadStartTime(), parameter.getEndTime()));
+        TradingContext tradingContext = prepare(originalData);
+        int end = originalData.range(null, time).getSeries().size();
+        fit(tradingStrategy, tradingContext, 0, end);
+        return new BackTestSnapshot(originalData, end, tradingContext, (ForkableStrategy) tradingStrategy);
+    }
+
+    private TradingContext prepare(TimeSeries<Candle> originalData) {
+        TradingContext tradingContext = TradingContext.builder()
+                .setOriginalData(originalData)
+                .setParameter(parameter)
+                .setIndicatorCache(indicatorCache)
+                .build();
+
+        // 预先计算指标列
+        if (tradingStrategy instanceof PrecomputeStrategy) {
+            PrecomputedColumns.Builder builder = PrecomputedColumns.builder();
+            ((PrecomputeStrategy) tradingStrategy).precompute(builder);
+            tradingContext.setPrecomputedColumns(builder.build(originalData));
+        }
+
+        // 初始化策略
         if (tradingStrategy instanceof InitializeStrategy) {
             ((InitializeStrategy) tradingStrategy).init(tradingContext);
         }
+        return tradingContext;
+    }
+
+    /**
+     * 依次处理originalData中 [from, to) 的K线
+     */
+    static void fit(TradingStrategy tradingStrategy, TradingContext tradingContext, int from, int to) {
+        List<Candle> candles = tradingContext.getOriginalData().getSeries().getDataList();
+        LocalDateTime startTime = tradingContext.getParameter().getStartTime();
+        for (int i = from; i < to; i++) {
+            tradingContext.setBarIndex(i);
+            Candle candle = candles.get(i);
+            if (candle.getTime().isBefore(startTime)) {
+                tradingStrategy.preFit(candle, tradingContext);
+            } else {
+                tradingStrategy.fit(candle, tradingContext);
+            }
+        }
+    }
+
+    /**
+     * 流式回测：逐根读取K线，只在内存中保留lookback范围内的历史数据
+     * 结果中的originalData为最后一个窗口的数据
+     *
+     * @return
+     * @throws Exception
+     */
+    private BackTestResult runStreaming() throws Exception {
+        if (tradingStrategy instanceof PrecomputeStrategy) {
+            throw new BackTestException("precompute is not supported in streaming back test");
+        }
+        try (CandleCursor cursor = streamingSeriesLoader.open()) {
+            CandleWindow window = CandleWindow.create(lookback, cursor.getTimeInterval(), cursor.getName());
+            TradingContext tradingContext = TradingContext.builder()
+                    .setOriginalDataWindow(window)
+                    .setParameter(parameter)
+                    .setIndicatorCache(indicatorCache)
+                    .build();
+
+            if (tradingStrategy instanceof InitializeStrategy) {
+                ((InitializeStrategy) tradingStrategy).init(tradingContext);
+            }
+
+            LocalDateTime loadStartTime = parameter.getLoadStartTime();
+            while (cursor.hasNext()) {
+                Candle candle = cursor.next();
+                if (loadStartTime != null && candle.getTime().isBefore(loadStartTime)) {
+                    continue;
+                }
+                if (parameter.getEndTime() != null && candle.getTime().isAfter(parameter.getEndTime())) {
+                    break;
+                }
+                window.add(candle);
+                fit(candle, tradingContext);
+            }
+
+            return buildResult(window.getTimeSeries(), tradingContext);
+        }
+    }
+
+    /**
+     * SeriesLoader可能不支持按范围加载，这里再截取一次
+     */
+    private TimeSeries<Candle> limitRange(TimeSeries<Candle> timeSeries) {
+        LocalDateTime loadStartTime = parameter.getLoadStartTime();
+        LocalDateTime endTime = parameter.getEndTime();
+        if (loadStartTime == null && endTime == null) {
+            return timeSeries;
+        }
+        return timeSeries.range(loadStartTime, endTime);
+    }
 
-        // 4. 运行策略
-        originalData.getSeries().getDataList()
-                .forEach(candle -> {
-                    if (candle.getTime().isBefore(parameter.getStartTime())) {
-                        tradingStrategy.preFit(candle, tradingContext);
-                    } else {
-                        tradingStrategy.fit(candle, tradingContext);
-                    }
-                });
+    private void fit(Candle candle, TradingContext tradingContext) {
+        if (candle.getTime().isBefore(parameter.getStartTime())) {
+            tradingStrategy.preFit(candle, tradingContext);
+        } else {
+            tradingStrategy.fit(candle, tradingContext);
+        }
+    }
 
-        // 4. 结算
+    static BackTestResult buildResult(TimeSeries<Candle> originalData, TradingContext tradingContext) {
+        // 1. 结算
         List<Settlement> settlements = settle(tradingContext);
 
-        // 5. 计算总收益
+        // 2. 计算总收益
         BigDecimal profit = calculateProfit(settlements);
 
-        // 6. 封装结果
+        // 3. 封装结果
         BackTestResult backTestResult = new BackTestResult();
         backTestResult.setProfit(profit);
         backTestResult.setOriginalData(originalData);
@@ -73,7 +277,7 @@ public class BackTest {
         return backTestResult;
     }
 
-    private BigDecimal calculateProfit(List<Settlement> settlements) {
+    private static BigDecimal calculateProfit(List<Settlement> settlements) {
         // 卖出 - 买入
         // 直接累和计数的是(买入 - 卖出)，因此需要取反
         return settlements.stream()
@@ -81,17 +285,30 @@ public class BackTest {
                 .reduce(BigDecimal::add).orElse(BigDecimal.ZERO).setScale(2, RoundingMode.HALF_UP);
     }
 
-    private List<Settlement> settle(TradingContext tradingContext) {
-        BigDecimal holdVolume = BigDecimal.ZERO;
-        BigDecimal profit = BigDecimal.ZERO;
-
+    private static List<Settlement> settle(TradingContext tradingContext) {
+        if (tradingContext.isFixedPoint()) {
+            return settleFixedPoint(tradingContext);
+        }
         BigDecimal lever = Optional.ofNullable(tradingContext.getParameter())
                 .map(BackTestParameter::getTradingFee)
                 .map(TradingFee::getLever)
                 .orElse(BigDecimal.ONE);
+        return settle(tradingContext.getTransactions(), lever);
+    }
+
+    /**
+     * 按交易记录结算，每次持仓归零时生成一条Settlement，收益 = -(价格 * 数量之和) * 杠杆
+     *
+     * @param transactions 按时间顺序
+     * @param lever        杠杆
+     * @return
+     */
+    public static List<Settlement> settle(List<Transaction> transactions, BigDecimal lever) {
+        BigDecimal holdVolume = BigDecimal.ZERO;
+        BigDecimal profit = BigDecimal.ZERO;
 
         List<Settlement> settlements = Lists.newArrayList();
-        for (Transaction transaction : tradingContext.getTransactions()) {
+        for (Transaction transaction : transactions) {
             holdVolume = holdVolume.add(transaction.getVolume());
             profit = profit.add(transaction.getPrice().multiply(transaction.getVolume()));
             // 平仓时计算收益
@@ -104,13 +321,75 @@ public class BackTest {
         return settlements;
     }
 
+    /**
+     * 与 {@link #settle} 相同的计算，使用交易中记录的定点数，只在平仓时创建Settlement
+     * 持仓归零的判断与equalsZero一致：累加的数额中有小数位数不为0的，即使数值为0也不算平仓
+     */
+    private static List<Settlement> settleFixedPoint(TradingContext tradingContext) {
+        final int scale = tradingContext.getFixedPointScale();
+        long holdVolume = 0;
+        int holdVolumeScale = 0;
+        long profit = 0;
+
+        long lever = FixedPoint.of(Optional.ofNullable(tradingContext.getParameter().getTradingFee())
+                .map(TradingFee::getLever)
+                .orElse(BigDecimal.ONE), scale);
+
+        List<Settlement> settlements = Lists.newArrayList();
+        for (Transaction transaction : tradingContext.getTransactions()) {
+            long volume = transaction.getFixedVolume(scale);
+            holdVolume = Math.addExact(holdVolume, volume);
+            holdVolumeScale = Math.max(holdVolumeScale, transaction.getVolumeScale());
+            profit = Math.addExact(profit, FixedPoint.multiply(transaction.getFixedPrice(scale), volume, scale));
+            // 平仓时计算收益
+            if (holdVolume == 0 && holdVolumeScale == 0) {
+                settlements.add(Settlement.of(FixedPoint.toBigDecimal(FixedPoint.multiply(-profit, lever, scale), scale), transaction.getTime()));
+                profit = 0;
+            }
+        }
+        return settlements;
+    }
+
     public static class Builder {
         private TradingStrategy tradingStrategy;
         private SeriesLoader seriesLoader;
+        private StreamingSeriesLoader streamingSeriesLoader;
+        private TimeInterval lookback;
         private BackTestParameter parameter;
+        private Path checkpointFile;
+        private final List<String> checkpointPackages = Lists.newArrayList();
+        private IndicatorCache indicatorCache = IndicatorCache.getDefault();
 
         public BackTest build() {
-            return new BackTest(tradingStrategy, seriesLoader, parameter);
+            if (seriesLoader == null && streamingSeriesLoader == null) {
+                throw new BackTestException("series loader is required");
+            }
+            if (streamingSeriesLoader != null && lookback == null) {
+                throw new BackTestException("lookback is required for streaming series loader");
+            }
+            if (checkpointFile != null) {
+                if (streamingSeriesLoader != null) {
+                    throw new BackTestException("checkpoint is not supported in streaming back test");
+                }
+                if (!(tradingStrategy instanceof ResumableStrategy)) {
+                    throw new BackTestException("the strategy should implement ResumableStrategy");
+                }
+                // 预计算列在恢复时只能基于缩短的数据重新计算，开头部分与完整运行不一致
+                if (tradingStrategy instanceof PrecomputeStrategy) {
+                    throw new BackTestException("PrecomputeStrategy can not be saved in a checkpoint");
+                }
+                if (parameter != null && Checkpoint.nameOf(parameter.getIntraBarPath()) == null) {
+                    throw new BackTestException("intra bar path should be one of the IntraBarPath constants or a named class to be saved in a checkpoint");
+                }
+            }
+            List<String> packages = Lists.newArrayList(checkpointPackages);
+            if (tradingStrategy != null && tradingStrategy.getClass().getName().lastIndexOf('.') > 0) {
+                // 策略所在的包默认允许
+                String className = tradingStrategy.getClass().getName();
+                packages.add(className.substring(0, className.lastIndexOf('.')));
+            }
+            return new BackTest(tradingStrategy, seriesLoader, streamingSeriesLoader, lookback, parameter,
+                    checkpointFile, packages, indicatorCache);
         }
 
         public Builder setTradingStrategy(TradingStrategy tradingStrategy) {
@@ -123,9 +402,62 @@ public class BackTest {
             return this;
         }
 
+        /**
+         * 流式加载数据，设置后忽略seriesLoader
+         *
+         * @param streamingSeriesLoader
+         * @param lookback 策略需要访问的最长历史范围
+         * @return
+         */
+        public Builder setStreamingSeriesLoader(StreamingSeriesLoader streamingSeriesLoader, TimeInterval lookback) {
+            this.streamingSeriesLoader = streamingSeriesLoader;
+            this.lookback = lookback;
+            return this;
+        }
+
         public Builder setParameter(BackTestParameter parameter) {
             this.parameter = parameter;
             return this;
         }
+
+        /**
+         * 策略预先计算指标列时使用的缓存，默认为全局的 {@link IndicatorCache#getDefault()}
+         * 数据只回测一次时(如蒙特卡洛重建的序列)缓存不会命中，设为null逐根计算，避免挤掉其他数据的指标列
+         *
+         * @param indicatorCache
+         * @return
+         */
+        public Builder setIndicatorCache(IndicatorCache indicatorCache) {
+            this.indicatorCache = indicatorCache;
+            return this;
+        }
+
+        /**
+         * 文件存在时从中保存的checkpoint继续运行，此时使用checkpoint中的策略，忽略setTradingStrategy设置的策略；
+         * 运行结束后把新的checkpoint写入该文件
+         * 继续运行时只加载恢复点之前warmUpInterval范围内的历史，warmUpInterval需覆盖策略和指标用到的历史范围，结果才与完整运行一致；
+         * warmUpInterval为null时加载全部历史，结果同样一致，但不会减少加载的数据
+         * 继续运行时的initialFunds、overspendRate、tradingFee、intraBarPath及startTime需与写入时相同，endTime可以延后
+         * 不支持 {@link PrecomputeStrategy}
+         *
+         * @param checkpointFile
+         * @return
+         */
+        public Builder setCheckpointFile(Path checkpointFile) {
+            this.checkpointFile = checkpointFile;
+            return this;
+        }
+
+        /**
+         * 读取checkpoint时只反序列化框架、JDK基础类型及策略所在包中的类
+         * 策略的状态引用了其他包中的类时在此添加
+         *
+         * @param packageName 包名，包含子包
+         * @return
+         */
+        public Builder addCheckpointPackage(String packageName) {
+            this.checkpointPackages.add(packageName);
+            return this;
+        }
     }
 }
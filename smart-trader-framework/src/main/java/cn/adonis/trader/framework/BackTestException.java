@@ -13,6 +13,11 @@ public class BackTestException extends RuntimeException {
         this.msg = msg;
     }
 
+    public BackTestException(String msg, Throwable cause) {
+        super(msg, cause);
+        this.msg = msg;
+    }
+
     public String getMsg() {
         return msg;
     }
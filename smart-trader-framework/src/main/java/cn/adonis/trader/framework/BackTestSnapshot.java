@@ -0,0 +1,127 @@
+package cn.adonis.trader.framework;
+
+import cn.adonis.trader.framework.model.BackTestResult;
+import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.model.TimeSeries;
+import cn.adonis.trader.framework.model.TradingContext;
+import cn.adonis.trader.framework.strategy.ForkableStrategy;
+import cn.adonis.trader.framework.strategy.TradingStrategy;
+import com.google.common.collect.Lists;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * 回测运行到某根K线后的快照，由 {@link BackTest#runUntil(LocalDateTime)} 创建
+ * 快照本身不再运行，每个分叉复制TradingContext(交易记录写时复制)和策略状态后从下一根K线继续运行至结束，分叉之间互不影响，可并行
+ *
+ * <pre>
+ * BackTestSnapshot snapshot = backTest.runUntil(time);
+ * List&lt;BackTestResult&gt; results = snapshot.&lt;AverageStrategy&gt;fork(Arrays.asList(
+ *         s -&gt; s.fork(),
+ *         s -&gt; s.fork(parameterWithAnotherStopLoss)));
+ * </pre>
+ */
+public class BackTestSnapshot {
+
+    private final TimeSeries<Candle> originalData;
+    private final int nextIndex; // 分叉后从该下标的K线开始运行
+    private final TradingContext tradingContext;
+    private final ForkableStrategy tradingStrategy;
+
+    BackTestSnapshot(TimeSeries<Candle> originalData, int nextIndex, TradingContext tradingContext, ForkableStrategy tradingStrategy) {
+        this.originalData = originalData;
+        this.nextIndex = nextIndex;
+        this.tradingContext = tradingContext;
+        this.tradingStrategy = tradingStrategy;
+    }
+
+    /**
+     * @return 快照时最后处理的K线的时间，一根都未处理时为null
+     */
+    public LocalDateTime getTime() {
+        return nextIndex == 0 ? null : originalData.getSeries().getDataList().get(nextIndex - 1).getTime();
+    }
+
+    /**
+     * @return 快照时的状态，只读，修改会影响之后的分叉
+     */
+    public TradingContext getTradingContext() {
+        return tradingContext;
+    }
+
+    /**
+     * 用策略的副本继续运行至结束
+     *
+     * @return
+     */
+    public BackTestResult resume() {
+        return run(tradingStrategy.fork());
+    }
+
+    /**
+     * 在当前线程中依次运行各分叉
+     */
+    public <S extends ForkableStrategy> List<BackTestResult> fork(List<? extends Function<? super S, ? extends TradingStrategy>> branches) {
+        return fork(branches, 1);
+    }
+
+    /**
+     * 并行运行各分叉
+     *
+     * @param branches    以快照中的策略为参数(只读)，返回该分叉运行的策略，通常为 s.fork() 或 s.fork(新参数)，不能返回快照中的策略本身
+     * @param parallelism 并行数
+     * @param <S>         快照中的策略类型
+     * @return 按branches顺序的结果，包含快照之前的交易
+     */
+    @SuppressWarnings("unchecked")
+    public <S extends ForkableStrategy> List<BackTestResult> fork(List<? extends Function<? super S, ? extends TradingStrategy>> branches,
+                                                                  int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        BackTestResult[] results = new BackTestResult[branches.size()];
+        List<RecursiveAction> tasks = Lists.newArrayListWithCapacity(branches.size());
+        for (int i = 0; i < branches.size(); i++) {
+            final int index = i;
+            tasks.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    TradingStrategy strategy = branches.get(index).apply((S) tradingStrategy);
+                    if (strategy == null || strategy == tradingStrategy) {
+                        throw new BackTestException("branch " + index + " should return a forked strategy");
+                    }
+                    results[index] = run(strategy);
+                }
+            });
+        }
+        if (parallelism == 1) {
+            tasks.forEach(RecursiveAction::invoke);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        invokeAll(tasks);
+                    }
+                });
+            } finally {
+                pool.shutdown();
+            }
+        }
+        List<BackTestResult> list = Lists.newArrayList();
+        Collections.addAll(list, results);
+        return list;
+    }
+
+    private BackTestResult run(TradingStrategy strategy) {
+        TradingContext forked = tradingContext.fork();
+        BackTest.fit(strategy, forked, nextIndex, originalData.getSeries().size());
+        return BackTest.buildResult(originalData, forked);
+    }
+}
@@ -0,0 +1,232 @@
+package cn.adonis.trader.framework;
+
+import cn.adonis.trader.framework.model.BackTestParameter;
+import cn.adonis.trader.framework.model.IntraBarPath;
+import cn.adonis.trader.framework.model.TimeInterval;
+import cn.adonis.trader.framework.model.TradingContext;
+import cn.adonis.trader.framework.model.TradingFee;
+import cn.adonis.trader.framework.strategy.ResumableStrategy;
+import com.google.common.collect.Sets;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 回测结束时的状态：最后处理的K线时间、TradingContext的状态、策略及其指标的状态
+ * 追加新数据后从checkpoint继续运行，只需加载恢复点之前warmUpInterval范围内的历史和新数据，结果与完整重新运行一致
+ * 读取时只允许反序列化框架、JDK基础类型及调用方指定包中的类
+ */
+public class Checkpoint implements Serializable {
+
+    private static final long serialVersionUID = 2L;
+
+    // 框架之外允许反序列化的包(不含子包)及类
+    private static final Set<String> ALLOWED_PACKAGES = Collections.unmodifiableSet(
+            Sets.newHashSet("java.lang", "java.math", "java.time", "java.util"));
+    private static final Set<String> ALLOWED_CLASSES = Collections.singleton("java.util.concurrent.TimeUnit");
+    private static final String FRAMEWORK_PACKAGE = "cn.adonis.trader.framework";
+
+    private final LocalDateTime time; // 最后处理的K线时间
+    // 影响交易和结算的回测参数，恢复时校验
+    private final LocalDateTime startTime;
+    private final BigDecimal initialFunds;
+    private final BigDecimal overspendRate;
+    private final BigDecimal fee;
+    private final BigDecimal lever;
+    private final String intraBarPath;
+    private final TimeInterval timeInterval; // K线周期，恢复时加载的数据沿用该周期，避免从窗口开头重新推断出错
+    private final TradingContext.State state;
+    private final ResumableStrategy tradingStrategy;
+
+    static Checkpoint of(LocalDateTime time, BackTestParameter parameter, TimeInterval timeInterval,
+                         TradingContext tradingContext, ResumableStrategy tradingStrategy) {
+        return new Checkpoint(time, parameter, timeInterval, tradingContext.saveState(), tradingStrategy);
+    }
+
+    private Checkpoint(LocalDateTime time, BackTestParameter parameter, TimeInterval timeInterval,
+                       TradingContext.State state, ResumableStrategy tradingStrategy) {
+        this.time = time;
+        this.startTime = parameter.getStartTime();
+        this.initialFunds = parameter.getInitialFunds();
+        this.overspendRate = parameter.getOverspendRate();
+        this.fee = parameter.getTradingFee() == null ? null : parameter.getTradingFee().getFee();
+        this.lever = parameter.getTradingFee() == null ? null : parameter.getTradingFee().getLever();
+        this.intraBarPath = nameOf(parameter.getIntraBarPath());
+        this.timeInterval = timeInterval;
+        this.state = state;
+        this.tradingStrategy = tradingStrategy;
+    }
+
+    /**
+     * 从文件读取，只允许框架及JDK基础类型
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static Checkpoint load(Path file) throws IOException {
+        return load(file, Collections.emptySet());
+    }
+
+    /**
+     * 从文件读取
+     *
+     * @param file
+     * @param allowedPackages 另外允许反序列化的包(含子包)，如自定义策略及其参数所在的包
+     * @return
+     * @throws IOException
+     */
+    public static Checkpoint load(Path file, Collection<String> allowedPackages) throws IOException {
+        try (ObjectInputStream in = new FilteredObjectInputStream(new BufferedInputStream(Files.newInputStream(file)), allowedPackages)) {
+            return (Checkpoint) in.readObject();
+        } catch (ClassNotFoundException | ClassCastException | InvalidClassException e) {
+            throw new BackTestException("invalid checkpoint file: " + file, e);
+        }
+    }
+
+    /**
+     * 检查恢复时的回测参数与写入checkpoint时一致，endTime及warmUpInterval可以不同
+     *
+     * @param parameter
+     */
+    void check(BackTestParameter parameter) {
+        check("start time", startTime, parameter.getStartTime());
+        check("initial funds", initialFunds, parameter.getInitialFunds());
+        check("overspend rate", overspendRate, parameter.getOverspendRate());
+        TradingFee tradingFee = parameter.getTradingFee();
+        check("trading fee", fee, tradingFee == null ? null : tradingFee.getFee());
+        check("lever", lever, tradingFee == null ? null : tradingFee.getLever());
+        check("intra bar path", intraBarPath, nameOf(parameter.getIntraBarPath()));
+        if (parameter.getEndTime() != null && parameter.getEndTime().isBefore(time)) {
+            throw new BackTestException("end time is before the checkpoint " + time);
+        }
+    }
+
+    private static void check(String name, Object saved, Object current) {
+        boolean equal = saved instanceof BigDecimal && current instanceof BigDecimal
+                ? ((BigDecimal) saved).compareTo((BigDecimal) current) == 0
+                : Objects.equals(saved, current);
+        if (!equal) {
+            throw new BackTestException(name + " of the checkpoint " + saved + " does not match the parameter " + current);
+        }
+    }
+
+    /**
+     * 价格路径通常是lambda，无法序列化，按名称记录：内置路径为常量名，其他为类名
+     * lambda的类名每次运行都可能不同，返回null
+     *
+     * @param intraBarPath
+     * @return
+     */
+    static String nameOf(IntraBarPath intraBarPath) {
+        if (intraBarPath == IntraBarPath.OPEN_HIGH_LOW_CLOSE) {
+            return "OPEN_HIGH_LOW_CLOSE";
+        }
+        if (intraBarPath == IntraBarPath.OPEN_LOW_HIGH_CLOSE) {
+            return "OPEN_LOW_HIGH_CLOSE";
+        }
+        if (intraBarPath == IntraBarPath.NEAREST_FIRST) {
+            return "NEAREST_FIRST";
+        }
+        if (intraBarPath == null || intraBarPath.getClass().isSynthetic()) {
+            return null;
+        }
+        return intraBarPath.getClass().getName();
+    }
+
+    /**
+     * 写入文件，先写临时文件再替换，中途失败不会破坏原有的checkpoint
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void save(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeObject(this);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public LocalDateTime getTime() {
+        return time;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public TimeInterval getTimeInterval() {
+        return timeInterval;
+    }
+
+    TradingContext.State getState() {
+        return state;
+    }
+
+    ResumableStrategy getTradingStrategy() {
+        return tradingStrategy;
+    }
+
+    /**
+     * 按类名白名单反序列化，拒绝其他类及动态代理
+     */
+    private static final class FilteredObjectInputStream extends ObjectInputStream {
+        private final Set<String> allowedPackages;
+
+        private FilteredObjectInputStream(InputStream in, Collection<String> allowedPackages) throws IOException {
+            super(in);
+            this.allowedPackages = Sets.newHashSet(allowedPackages);
+            this.allowedPackages.add(FRAMEWORK_PACKAGE);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (!isAllowed(desc.getName())) {
+                throw new InvalidClassException(desc.getName(), "class is not allowed in checkpoint");
+            }
+            return super.resolveClass(desc);
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(String[] interfaces) throws IOException {
+            throw new InvalidClassException("proxy class is not allowed in checkpoint");
+        }
+
+        private boolean isAllowed(String name) {
+            // 数组按元素类型判断，如 [J、[Ljava.lang.String;
+            String className = name;
+            if (className.startsWith("[")) {
+                className = className.substring(className.lastIndexOf('[') + 1);
+                if (!className.startsWith("L")) {
+                    return true;
+                }
+                className = className.substring(1, className.length() - 1);
+            }
+            int lastDot = className.lastIndexOf('.');
+            String packageName = lastDot < 0 ? "" : className.substring(0, lastDot);
+            if (ALLOWED_PACKAGES.contains(packageName) || ALLOWED_CLASSES.contains(className)) {
+                return true;
+            }
+            for (String allowed : allowedPackages) {
+                if (packageName.equals(allowed) || packageName.startsWith(allowed + ".")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
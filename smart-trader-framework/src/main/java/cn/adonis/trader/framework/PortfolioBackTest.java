@@ -0,0 +1,241 @@
+package cn.adonis.trader.framework;
+
+import cn.adonis.trader.framework.loader.SeriesLoader;
+import cn.adonis.trader.framework.model.*;
+import cn.adonis.trader.framework.strategy.InitializeStrategy;
+import cn.adonis.trader.framework.strategy.PrecomputeStrategy;
+import cn.adonis.trader.framework.strategy.TradingStrategy;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 多品种组合回测：每个品种有自己的数据、策略和TradingContext(持仓、交易记录)，资金共用一个账户
+ * 各品种的K线按时间用小顶堆做k路归并后依次交给对应品种的策略，不复制原始数据；同一时间的K线按品种添加顺序处理
+ *
+ * <pre>
+ * PortfolioResult result = PortfolioBackTest.builder()
+ *         .setParameter(parameter)
+ *         .addSymbol("rb", rbLoader, AverageStrategy.newAverageStrategy(p))
+ *         .addSymbol("au", auLoader, AverageStrategy.newAverageStrategy(p), FuturesTradingFee.of("1000", "0.08"))
+ *         .build()
+ *         .run();
+ * </pre>
+ */
+public class PortfolioBackTest {
+
+    private final List<Symbol> symbols;
+
+    private final BackTestParameter parameter;
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private PortfolioBackTest(List<Symbol> symbols, BackTestParameter parameter) {
+        this.symbols = symbols;
+        this.parameter = parameter;
+    }
+
+    public PortfolioResult run() throws Exception {
+        // 1. 共享的资金账户
+        Account account = Account.of(parameter);
+
+        // 2. 加载数据，创建各品种的tradingContext
+        List<TimeSeries<Candle>> originalDataList = Lists.newArrayListWithCapacity(symbols.size());
+        List<TradingContext> tradingContexts = Lists.newArrayListWithCapacity(symbols.size());
+        for (Symbol symbol : symbols) {
+            TimeSeries<Candle> originalData = symbol.seriesLoader.load(parameter.getLoadStartTime(), parameter.getEndTime())
+                    .range(parameter.getLoadStartTime(), parameter.getEndTime());
+            BackTestParameter symbolParameter = symbol.tradingFee == null ? parameter
+                    : parameter.toBuilder().setTradingFee(symbol.tradingFee).build();
+            TradingContext tradingContext = TradingContext.builder()
+                    .setOriginalData(originalData)
+                    .setParameter(symbolParameter)
+                    .setAccount(account)
+                    .build();
+            originalDataList.add(originalData);
+            tradingContexts.add(tradingContext);
+        }
+
+        // 3. 预先计算指标列、初始化策略
+        for (int i = 0; i < symbols.size(); i++) {
+            TradingStrategy tradingStrategy = symbols.get(i).tradingStrategy;
+            TradingContext tradingContext = tradingContexts.get(i);
+            if (tradingStrategy instanceof PrecomputeStrategy) {
+                PrecomputedColumns.Builder builder = PrecomputedColumns.builder();
+                ((PrecomputeStrategy) tradingStrategy).precompute(builder);
+                tradingContext.setPrecomputedColumns(builder.build(originalDataList.get(i)));
+            }
+            if (tradingStrategy instanceof InitializeStrategy) {
+                ((InitializeStrategy) tradingStrategy).init(tradingContext);
+            }
+        }
+
+        // 4. 按时间归并各品种的K线并运行策略
+        PriorityQueue<Cursor> heap = new PriorityQueue<>(Math.max(1, symbols.size()), Cursor.ORDER);
+        for (int i = 0; i < symbols.size(); i++) {
+            Cursor cursor = new Cursor(i, originalDataList.get(i));
+            if (cursor.hasNext()) {
+                heap.add(cursor);
+            }
+        }
+        while (!heap.isEmpty()) {
+            Cursor cursor = heap.poll();
+            TradingStrategy tradingStrategy = symbols.get(cursor.symbolIndex).tradingStrategy;
+            TradingContext tradingContext = tradingContexts.get(cursor.symbolIndex);
+            tradingContext.setBarIndex(cursor.position);
+            Candle candle = cursor.candles.get(cursor.position);
+            if (candle.getTime().isBefore(parameter.getStartTime())) {
+                tradingStrategy.preFit(candle, tradingContext);
+            } else {
+                tradingStrategy.fit(candle, tradingContext);
+            }
+            cursor.advance();
+            if (cursor.hasNext()) {
+                heap.add(cursor);
+            }
+        }
+
+        // 5. 各品种分别结算，汇总收益
+        Map<String, BackTestResult> results = Maps.newLinkedHashMap();
+        List<Settlement> settlements = Lists.newArrayList();
+        BigDecimal profit = BigDecimal.ZERO;
+        for (int i = 0; i < symbols.size(); i++) {
+            BackTestResult result = BackTest.buildResult(originalDataList.get(i), tradingContexts.get(i));
+            results.put(symbols.get(i).name, result);
+            settlements.addAll(result.getSettlements());
+            profit = profit.add(result.getProfit());
+        }
+        // 稳定排序，同一时间按品种顺序
+        settlements.sort(Comparator.comparing(Settlement::getTime));
+        return new PortfolioResult(profit.setScale(2, RoundingMode.HALF_UP), results, settlements, account.getSurplusFunds());
+    }
+
+    private static final class Symbol {
+        private final String name;
+        private final SeriesLoader seriesLoader;
+        private final TradingStrategy tradingStrategy;
+        private final TradingFee tradingFee; // 为null时使用共用参数中的手续费
+
+        private Symbol(String name, SeriesLoader seriesLoader, TradingStrategy tradingStrategy, TradingFee tradingFee) {
+            this.name = name;
+            this.seriesLoader = seriesLoader;
+            this.tradingStrategy = tradingStrategy;
+            this.tradingFee = tradingFee;
+        }
+    }
+
+    /**
+     * 一个品种的读取位置，按当前K线时间(秒)排序，时间相同时按品种顺序
+     */
+    private static final class Cursor {
+        private static final Comparator<Cursor> ORDER = (a, b) -> {
+            int result = Long.compare(a.seconds, b.seconds);
+            return result != 0 ? result : Integer.compare(a.symbolIndex, b.symbolIndex);
+        };
+
+        private final int symbolIndex;
+        private final TimeSeries<Candle> series;
+        private final List<Candle> candles;
+        private final int size;
+        private int position;
+        private long seconds;
+
+        private Cursor(int symbolIndex, TimeSeries<Candle> series) {
+            this.symbolIndex = symbolIndex;
+            this.series = series;
+            this.candles = series.getSeries().getDataList();
+            this.size = candles.size();
+            if (size > 0) {
+                this.seconds = series.getSeconds(0);
+            }
+        }
+
+        private boolean hasNext() {
+            return position < size;
+        }
+
+        private void advance() {
+            if (++position < size) {
+                long next = series.getSeconds(position);
+                if (next < seconds) {
+                    throw new BackTestException("series is not sorted by time at index " + position);
+                }
+                seconds = next;
+            }
+        }
+    }
+
+    public static class Builder {
+        private final List<Symbol> symbols = Lists.newArrayList();
+        private BackTestParameter parameter;
+
+        public PortfolioBackTest build() {
+            if (parameter == null) {
+                throw new BackTestException("parameter is required");
+            }
+            if (parameter.getStartTime() == null) {
+                throw new BackTestException("start time is required");
+            }
+            if (symbols.isEmpty()) {
+                throw new BackTestException("at least one symbol is required");
+            }
+            return new PortfolioBackTest(Lists.newArrayList(symbols), parameter);
+        }
+
+        /**
+         * 组合共用的参数，初始资金为整个账户的资金
+         *
+         * @param parameter
+         * @return
+         */
+        public Builder setParameter(BackTestParameter parameter) {
+            this.parameter = parameter;
+            return this;
+        }
+
+        /**
+         * 添加品种，使用parameter中的手续费
+         *
+         * @param name            品种名，不能重复
+         * @param seriesLoader
+         * @param tradingStrategy 策略有状态，每个品种需使用不同的实例
+         * @return
+         */
+        public Builder addSymbol(String name, SeriesLoader seriesLoader, TradingStrategy tradingStrategy) {
+            return addSymbol(name, seriesLoader, tradingStrategy, null);
+        }
+
+        /**
+         * 添加品种
+         *
+         * @param name            品种名，不能重复
+         * @param seriesLoader
+         * @param tradingStrategy 策略有状态，每个品种需使用不同的实例
+         * @param tradingFee      该品种的乘数和保证金比例，为null时使用parameter中的手续费
+         * @return
+         */
+        public Builder addSymbol(String name, SeriesLoader seriesLoader, TradingStrategy tradingStrategy, TradingFee tradingFee) {
+            if (seriesLoader == null || tradingStrategy == null) {
+                throw new BackTestException("series loader and trading strategy are required: " + name);
+            }
+            for (Symbol symbol : symbols) {
+                if (symbol.name.equals(name)) {
+                    throw new BackTestException("duplicate symbol: " + name);
+                }
+                if (symbol.tradingStrategy == tradingStrategy) {
+                    throw new BackTestException("trading strategy instance is shared by " + symbol.name + " and " + name);
+                }
+            }
+            symbols.add(new Symbol(name, seriesLoader, tradingStrategy, tradingFee));
+            return this;
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package cn.adonis.trader.framework.indicator;
 
 import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.model.CandleColumnSeries;
+import cn.adonis.trader.framework.model.CandleColumns;
+import cn.adonis.trader.framework.model.Series;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -19,5 +22,24 @@ public class Average {
         return sum.divide(BigDecimal.valueOf(candleList.size()), 2, BigDecimal.ROUND_HALF_UP);
     }
 
+    /**
+     * 计算收盘价均值，列存储的序列直接累加收盘价列
+     *
+     * @param series
+     * @return
+     */
+    public static BigDecimal calculateClose(Series<Candle> series) {
+        if (!(series instanceof CandleColumnSeries) || series.size() == 0) {
+            return calculate(series.getDataList(), Candle::getClose);
+        }
+        CandleColumnSeries columnSeries = (CandleColumnSeries) series;
+        CandleColumns columns = columnSeries.getColumns();
+        long sum = 0;
+        for (int i = columnSeries.getFromIndex(); i < columnSeries.getToIndex(); i++) {
+            sum += columns.getClose(i);
+        }
+        return BigDecimal.valueOf(sum, columns.getScale()).divide(BigDecimal.valueOf(series.size()), 2, BigDecimal.ROUND_HALF_UP);
+    }
+
 
 }
@@ -0,0 +1,56 @@
+package cn.adonis.trader.framework.indicator;
+
+import cn.adonis.trader.framework.model.Candle;
+
+/**
+ * 平均真实波幅(Wilder平滑)
+ * 真实波幅 = max(high - low, |high - 前收盘|, |low - 前收盘|)，第一根为 high - low
+ */
+public class AverageTrueRange implements Indicator {
+
+    private final int n;
+
+    private double previousClose = Double.NaN;
+    private int count;
+    private double value;
+
+    public static AverageTrueRange of(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n must be positive");
+        }
+        return new AverageTrueRange(n);
+    }
+
+    private AverageTrueRange(int n) {
+        this.n = n;
+    }
+
+    @Override
+    public void update(Candle candle) {
+        update(candle.getHigh().doubleValue(), candle.getLow().doubleValue(), candle.getClose().doubleValue());
+    }
+
+    public void update(double high, double low, double close) {
+        double trueRange = high - low;
+        if (!Double.isNaN(previousClose)) {
+            trueRange = Math.max(trueRange, Math.max(Math.abs(high - previousClose), Math.abs(low - previousClose)));
+        }
+        previousClose = close;
+        if (count < n) {
+            value += trueRange / n;
+            count++;
+            return;
+        }
+        value = (value * (n - 1) + trueRange) / n;
+    }
+
+    @Override
+    public double value() {
+        return isReady() ? value : Double.NaN;
+    }
+
+    @Override
+    public boolean isReady() {
+        return count >= n;
+    }
+}
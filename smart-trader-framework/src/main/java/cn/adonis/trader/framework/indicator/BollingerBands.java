@@ -0,0 +1,53 @@
+package cn.adonis.trader.framework.indicator;
+
+import cn.adonis.trader.framework.model.Candle;
+
+/**
+ * 布林带：中轨为n周期均值，上下轨为中轨 ± k倍标准差
+ * value()为中轨
+ */
+public class BollingerBands implements Indicator {
+
+    private final double k;
+    private final StandardDeviation standardDeviation;
+
+    public static BollingerBands of(int n, double k) {
+        return of(n, k, PriceInput.CLOSE);
+    }
+
+    public static BollingerBands of(int n, double k, PriceInput input) {
+        return new BollingerBands(n, k, input);
+    }
+
+    private BollingerBands(int n, double k, PriceInput input) {
+        this.k = k;
+        this.standardDeviation = StandardDeviation.of(n, input);
+    }
+
+    @Override
+    public void update(Candle candle) {
+        standardDeviation.update(candle);
+    }
+
+    public void update(double price) {
+        standardDeviation.update(price);
+    }
+
+    @Override
+    public double value() {
+        return standardDeviation.getMean();
+    }
+
+    @Override
+    public boolean isReady() {
+        return standardDeviation.isReady();
+    }
+
+    public double getUpper() {
+        return standardDeviation.getMean() + k * standardDeviation.value();
+    }
+
+    public double getLower() {
+        return standardDeviation.getMean() - k * standardDeviation.value();
+    }
+}
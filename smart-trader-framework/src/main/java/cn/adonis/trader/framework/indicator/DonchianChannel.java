@@ -0,0 +1,50 @@
+package cn.adonis.trader.framework.indicator;
+
+import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.util.SlidingWindowExtremum;
+
+/**
+ * 唐奇安通道：最近n根K线的最高价和最低价，value()为中轨
+ */
+public class DonchianChannel implements Indicator {
+
+    private final SlidingWindowExtremum highest;
+    private final SlidingWindowExtremum lowest;
+
+    public static DonchianChannel of(int n) {
+        return new DonchianChannel(n);
+    }
+
+    private DonchianChannel(int n) {
+        this.highest = SlidingWindowExtremum.max(n);
+        this.lowest = SlidingWindowExtremum.min(n);
+    }
+
+    @Override
+    public void update(Candle candle) {
+        update(candle.getHigh().doubleValue(), candle.getLow().doubleValue());
+    }
+
+    public void update(double high, double low) {
+        highest.add(high);
+        lowest.add(low);
+    }
+
+    @Override
+    public double value() {
+        return isReady() ? (getUpper() + getLower()) / 2 : Double.NaN;
+    }
+
+    @Override
+    public boolean isReady() {
+        return highest.isFull();
+    }
+
+    public double getUpper() {
+        return isReady() ? highest.get() : Double.NaN;
+    }
+
+    public double getLower() {
+        return isReady() ? lowest.get() : Double.NaN;
+    }
+}
@@ -0,0 +1,115 @@
+package cn.adonis.trader.framework.indicator;
+
+/**
+ * 固定容量的double环形缓冲区，维护窗口内的和，以及按Welford方法更新的均值和离差平方和
+ * 累加误差通过定期重新求和消除
+ */
+final class DoubleWindow {
+
+    // 依赖窗口递推的指标按相同间隔重新求和
+    static final int RESUM_INTERVAL = 1 << 16;
+
+    private final double[] values;
+    private int head; // 下一个写入位置
+    private int size;
+    private double sum;
+    private double mean;
+    private double m2; // 离差平方和
+    private int updatesSinceResum;
+
+    DoubleWindow(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.values = new double[capacity];
+    }
+
+    /**
+     * 追加一个值，窗口已满时移除最早的值
+     *
+     * @return 被移除的值，未满时为NaN
+     */
+    double add(double value) {
+        double evicted = Double.NaN;
+        if (size == values.length) {
+            // 窗口大小不变，用新值替换最早的值
+            evicted = values[head];
+            sum += value - evicted;
+            double oldMean = mean;
+            mean += (value - evicted) / size;
+            m2 += (value - evicted) * (value - mean + evicted - oldMean);
+        } else {
+            size++;
+            sum += value;
+            double delta = value - mean;
+            mean += delta / size;
+            m2 += delta * (value - mean);
+        }
+        values[head] = value;
+        head = (head + 1) % values.length;
+
+        if (++updatesSinceResum >= RESUM_INTERVAL) {
+            resum();
+        }
+        return evicted;
+    }
+
+    private void resum() {
+        sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += get(i);
+        }
+        mean = sum / size;
+        m2 = 0;
+        for (int i = 0; i < size; i++) {
+            double deviation = get(i) - mean;
+            m2 += deviation * deviation;
+        }
+        updatesSinceResum = 0;
+    }
+
+    /**
+     * @param index 0为最早的值
+     */
+    double get(int index) {
+        int start = size == values.length ? head : 0;
+        return values[(start + index) % values.length];
+    }
+
+    boolean isFull() {
+        return size == values.length;
+    }
+
+    int size() {
+        return size;
+    }
+
+    double sum() {
+        return sum;
+    }
+
+    double mean() {
+        return size == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * 线性加权和，最早的值权重为1，最近的值权重为size，O(n)
+     */
+    double weightedSum() {
+        double weightedSum = 0;
+        for (int i = 0; i < size; i++) {
+            weightedSum += (i + 1) * get(i);
+        }
+        return weightedSum;
+    }
+
+    /**
+     * 总体方差
+     */
+    double variance() {
+        if (size == 0) {
+            return Double.NaN;
+        }
+        return Math.max(m2 / size, 0);
+    }
+}
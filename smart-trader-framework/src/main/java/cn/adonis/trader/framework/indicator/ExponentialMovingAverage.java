@@ -0,0 +1,61 @@
+package cn.adonis.trader.framework.indicator;
+
+import cn.adonis.trader.framework.model.Candle;
+
+/**
+ * 指数移动平均，alpha = 2 / (n + 1)，以前n个值的简单平均作为初始值
+ */
+public class ExponentialMovingAverage implements Indicator {
+
+    private final int n;
+    private final double alpha;
+    private final PriceInput input;
+
+    private int count;
+    private double sum; // 前n个值的和，用于初始值
+    private double value = Double.NaN;
+
+    public static ExponentialMovingAverage of(int n) {
+        return of(n, PriceInput.CLOSE);
+    }
+
+    public static ExponentialMovingAverage of(int n, PriceInput input) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n must be positive");
+        }
+        return new ExponentialMovingAverage(n, input);
+    }
+
+    private ExponentialMovingAverage(int n, PriceInput input) {
+        this.n = n;
+        this.alpha = 2.0 / (n + 1);
+        this.input = input;
+    }
+
+    @Override
+    public void update(Candle candle) {
+        update(input.of(candle));
+    }
+
+    public void update(double price) {
+        if (count < n) {
+            sum += price;
+            count++;
+            if (count == n) {
+                value = sum / n;
+            }
+            return;
+        }
+        value += alpha * (price - value);
+    }
+
+    @Override
+    public double value() {
+        return value;
+    }
+
+    @Override
+    public boolean isReady() {
+        return count >= n;
+    }
+}
@@ -0,0 +1,48 @@
+package cn.adonis.trader.framework.indicator;
+
+import cn.adonis.trader.framework.model.Candle;
+
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 增量计算的指标，每根K线调用一次update，O(1)
+ * 各指标的update(double)不分配对象；update(Candle)经 {@link PriceInput} 由BigDecimal.doubleValue()转换，
+ * 未缩放值小于2^52的价格走直接相除的快速路径，同样不分配对象
+ * 指标值使用double，未就绪时为NaN
+ */
+public interface Indicator {
+
+    /**
+     * 按时间顺序逐根更新
+     *
+     * @param candle
+     */
+    void update(Candle candle);
+
+    /**
+     * @return 当前值，数据不足时为NaN
+     */
+    double value();
+
+    /**
+     * @return 数据是否足够计算出value
+     */
+    boolean isReady();
+
+    /**
+     * 转为 {@link cn.adonis.trader.framework.model.PrecomputedColumns} 的列计算函数，每次调用factory创建新的指标
+     *
+     * @param factory
+     * @return
+     */
+    static Supplier<ToDoubleFunction<Candle>> column(Supplier<? extends Indicator> factory) {
+        return () -> {
+            Indicator indicator = factory.get();
+            return candle -> {
+                indicator.update(candle);
+                return indicator.value();
+            };
+        };
+    }
+}
@@ -0,0 +1,172 @@
+package cn.adonis.trader.framework.indicator;
+
+import cn.adonis.trader.framework.model.Series;
+import cn.adonis.trader.framework.model.TimeInterval;
+import cn.adonis.trader.framework.model.TimeSeries;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * 预先计算好的指标列的缓存，key为(底层数据, 区间, 周期, 指标参数)，底层数据按对象identity区分
+ * 同一份数据上截取的相同区间(如WalkForward、MonteCarlo每次截取的窗口)即使是不同的Series对象也能命中
+ * 指标列与序列下标一一对应且不可变，可在多次回测、多个线程间共享；按列的总长度限制大小
+ * 缓存只弱引用底层数据，数据被回收后对应的列在下次访问缓存时移除
+ */
+public class IndicatorCache {
+
+    // 默认缓存的最大数据点数，long列每个点8字节，约40MB；可通过系统属性调整
+    private static final String MAXIMUM_POINTS_PROPERTY = "smart-trader.indicator-cache.maximum-points";
+    private static final long DEFAULT_MAXIMUM_POINTS = 5_000_000L;
+
+    private static final IndicatorCache DEFAULT = create(Long.getLong(MAXIMUM_POINTS_PROPERTY, DEFAULT_MAXIMUM_POINTS));
+
+    private final Cache<Key, Object> cache;
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+    public static IndicatorCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param maximumPoints 缓存的最大数据点数(所有列长度之和)
+     * @return
+     */
+    public static IndicatorCache create(long maximumPoints) {
+        return new IndicatorCache(maximumPoints);
+    }
+
+    private IndicatorCache(long maximumPoints) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maximumPoints)
+                .weigher((Key key, Object value) -> value.getClass().isArray() ? Math.max(1, Array.getLength(value)) : 1)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 同一个key并发计算时只会计算一次
+     *
+     * @param series 指标所基于的序列
+     * @param spec   指标类型及参数，需实现equals/hashCode，如 {@link MovingAverage.Type}
+     * @param column 计算指标列
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V get(TimeSeries<?> series, Object spec, Supplier<V> column) {
+        removeCollected();
+        try {
+            return (V) cache.get(new Key(series, spec, collected), column::get);
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * 移除底层数据已被回收的列
+     */
+    private void removeCollected() {
+        Reference<?> reference;
+        while ((reference = collected.poll()) != null) {
+            cache.invalidate(((StorageReference) reference).key);
+        }
+    }
+
+    /**
+     * 把底层数据为storage的key放入回收队列，模拟数据被回收，仅用于测试
+     */
+    void enqueueCollected(Object storage) {
+        for (Key key : cache.asMap().keySet()) {
+            if (key.storage.get() == storage) {
+                key.storage.enqueue();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        removeCollected();
+        return cache.size();
+    }
+
+    /**
+     * 命中、未命中、加载及淘汰次数
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private static final class Key {
+        private final StorageReference storage;
+        private final int from;
+        private final int to;
+        private final TimeInterval timeInterval;
+        private final Object spec;
+        private final int hash;
+
+        private Key(TimeSeries<?> timeSeries, Object spec, ReferenceQueue<Object> queue) {
+            Series<?> series = timeSeries.getSeries();
+            Object storage = series.getStorage();
+            this.storage = new StorageReference(storage, queue, this);
+            this.from = series.getStorageOffset();
+            this.to = from + series.size();
+            this.timeInterval = timeSeries.getTimeInterval();
+            this.spec = spec;
+            int hash = System.identityHashCode(storage);
+            hash = 31 * hash + from;
+            hash = 31 * hash + to;
+            hash = 31 * hash + (timeInterval == null ? 0 : timeInterval.hashCode());
+            this.hash = 31 * hash + spec.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+
+            Key key = (Key) o;
+
+            Object referent = storage.get();
+            return referent != null && referent == key.storage.get() && from == key.from && to == key.to
+                    && (timeInterval == null ? key.timeInterval == null : timeInterval.equals(key.timeInterval))
+                    && spec.equals(key.spec);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * 底层数据被回收后进入队列，通过key从缓存中移除
+     */
+    private static final class StorageReference extends WeakReference<Object> {
+        private final Key key;
+
+        private StorageReference(Object storage, ReferenceQueue<Object> queue, Key key) {
+            super(storage, queue);
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package cn.adonis.trader.framework.indicator;
+
+import cn.adonis.trader.framework.model.Candle;
+
+/**
+ * 指数平滑异同移动平均线
+ * macd = EMA(fast) - EMA(slow)，signal = EMA(macd, signal)，histogram = macd - signal
+ * value()为macd
+ */
+public class MACD implements Indicator {
+
+    private final PriceInput input;
+    private final ExponentialMovingAverage fast;
+    private final ExponentialMovingAverage slow;
+    private final ExponentialMovingAverage signal;
+
+    public static MACD of(int fast, int slow, int signal) {
+        return of(fast, slow, signal, PriceInput.CLOSE);
+    }
+
+    public static MACD of(int fast, int slow, int signal, PriceInput input) {
+        if (fast >= slow) {
+            throw new IllegalArgumentException("fast period must be less than slow period");
+        }
+        return new MACD(fast, slow, signal, input);
+    }
+
+    private MACD(int fast, int slow, int signal, PriceInput input) {
+        this.input = input;
+        this.fast = ExponentialMovingAverage.of(fast);
+        this.slow = ExponentialMovingAverage.of(slow);
+        this.signal = ExponentialMovingAverage.of(signal);
+    }
+
+    @Override
+    public void update(Candle candle) {
+        update(input.of(candle));
+    }
+
+    public void update(double price) {
+        fast.update(price);
+        slow.update(price);
+        if (slow.isReady()) {
+            signal.update(fast.value() - slow.value());
+        }
+    }
+
+    @Override
+    public double value() {
+        return slow.isReady() ? fast.value() - slow.value() : Double.NaN;
+    }
+
+    /**
+     * macd和signal都就绪
+     */
+    @Override
+    public boolean isReady() {
+        return signal.isReady();
+    }
+
+    public double getSignal() {
+        return signal.value();
+    }
+
+    public double getHistogram() {
+        return isReady() ? value() - signal.value() : Double.NaN;
+    }
+}
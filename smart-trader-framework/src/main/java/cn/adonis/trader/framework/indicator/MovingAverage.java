@@ -1,64 +1,296 @@
 package cn.adonis.trader.framework.indicator;
 
+import cn.adonis.trader.framework.BackTestException;
 import cn.adonis.trader.framework.model.*;
+import cn.adonis.trader.framework.util.ForkableList;
 import cn.adonis.trader.framework.util.SeriesUtil;
 import cn.adonis.trader.framework.util.TimeUtil;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
 
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
-import java.util.SortedSet;
 
 
-public class MovingAverage {
+public class MovingAverage implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private final Type type;
-    private final TimeSeries<Candle> series;
-    private final SortedSet<TimeDataPoint> dataList = Sets.newTreeSet();
+    // 与数据关联的部分不序列化，从checkpoint恢复后通过rebind关联新加载的序列
+    private final transient TimeSeries<Candle> originalSeries;
+    private transient TimeSeries<Candle> series; // 按type周期重采样后的序列，按需生成
+
+    // 环形缓冲区：最近 n - 1 个已结束周期的收盘价及其累加和
+    private final BigDecimal[] closedPrices;
+    private int head;
+    private int count;
+    private BigDecimal closedSum = BigDecimal.ZERO;
+
+    // 当前周期
+    private LocalDateTime currentPeriod;
+    private BigDecimal currentClose;
+
+    // 预先计算的结果(2位小数的unscaled值)，与originalSeries的下标一一对应，为null时逐根计算
+    private final transient long[] column;
 
-    private MovingAverage(Type type, TimeSeries<Candle> series) {
+    private ForkableList<TimeDataPoint> dataList;
+    private int retainCount; // 大于0时dataList只保留最近的结果，流式回测时不随历史长度增长
+
+    private MovingAverage(Type type, TimeSeries<Candle> originalSeries, long[] column) {
         this.type = type;
+        this.originalSeries = originalSeries;
+        this.column = column;
+        this.closedPrices = new BigDecimal[Math.max(type.getN() - 1, 0)];
+        this.dataList = new ForkableList<>();
+    }
+
+    private MovingAverage(MovingAverage source, TimeSeries<Candle> originalSeries, TimeSeries<Candle> series, long[] column) {
+        this.type = source.type;
+        this.originalSeries = originalSeries;
         this.series = series;
+        this.column = column;
+        this.closedPrices = source.closedPrices.clone();
+        this.head = source.head;
+        this.count = source.count;
+        this.closedSum = source.closedSum;
+        this.currentPeriod = source.currentPeriod;
+        this.currentClose = source.currentClose;
+        this.dataList = source.dataList.fork();
+        this.retainCount = source.retainCount;
+    }
+
+    /**
+     * @return 状态相同的副本，已有的计算结果与原对象共享，之后互不影响
+     */
+    public MovingAverage copy() {
+        return new MovingAverage(this, originalSeries, series, column);
+    }
+
+    /**
+     * 关联新加载的序列，已有的计算状态保留，用于从checkpoint恢复后继续计算
+     * cache为null时从保留的状态逐根计算，与完整运行一致；
+     * 使用缓存时对新序列重新预计算，新序列需包含足够的历史(至少 n - 1 个周期)，恢复点之后的结果才与完整运行一致
+     *
+     * @param originalSeries 新加载的序列
+     * @param cache          为null时逐根计算
+     * @return
+     */
+    public MovingAverage rebind(TimeSeries<Candle> originalSeries, IndicatorCache cache) {
+        checkInterval(originalSeries, type);
+        long[] newColumn = null;
+        if (cache != null && originalSeries.getSeries().size() > 0) {
+            newColumn = cache.get(originalSeries, type, () -> precompute(originalSeries, type));
+        }
+        return new MovingAverage(this, originalSeries, null, newColumn);
     }
 
     public static MovingAverage create(TimeSeries<Candle> originalSeries, Type type) {
-        return new MovingAverage(type, SeriesUtil.changeInterval(originalSeries, type.getTimeInterval(), SeriesUtil.MERGE_CANDLE_USE_CLOSED));
+        checkInterval(originalSeries, type);
+        return new MovingAverage(type, originalSeries, null);
     }
 
+    /**
+     * 使用缓存中预先计算好的结果，同一序列、同一Type只计算一次，可在多次回测间共享
+     * 序列为空时(如流式回测)退化为逐根计算
+     *
+     * @param originalSeries
+     * @param type
+     * @param cache          为null时逐根计算
+     * @return
+     */
+    public static MovingAverage create(TimeSeries<Candle> originalSeries, Type type, IndicatorCache cache) {
+        checkInterval(originalSeries, type);
+        if (cache == null || originalSeries.getSeries().size() == 0) {
+            return new MovingAverage(type, originalSeries, null);
+        }
+        long[] column = cache.get(originalSeries, type, () -> precompute(originalSeries, type));
+        return new MovingAverage(type, originalSeries, column);
+    }
+
+    private static void checkInterval(TimeSeries<Candle> originalSeries, Type type) {
+        if (originalSeries.getTimeInterval() != null && type.getTimeInterval().toSeconds() < originalSeries.getTimeInterval().toSeconds()) {
+            throw new BackTestException("can not change timeSeries interval");
+        }
+    }
+
+    private static long[] precompute(TimeSeries<Candle> originalSeries, Type type) {
+        MovingAverage movingAverage = new MovingAverage(type, originalSeries, null);
+        List<Candle> candleList = originalSeries.getSeries().getDataList();
+        long[] column = new long[candleList.size()];
+        for (int i = 0; i < column.length; i++) {
+            column[i] = movingAverage.compute(candleList.get(i)).getValue().unscaledValue().longValueExact();
+        }
+        return column;
+    }
+
+    /**
+     * 单独计算某根K线的均值，结果与逐根add相同
+     * 从当前candle所在周期向前依次定位之前 n - 1 个周期的最后一根K线(即周期收盘价)，不重新采样
+     *
+     * @param series        基础周期的序列
+     * @param currentCandle
+     * @param type
+     * @return
+     */
     public static TimeDataPoint calculate(TimeSeries<Candle> series, Candle currentCandle, Type type) {
-        // 截取当前candle前的 n - 1 个
-        TimeSeries<Candle> subSeries = SeriesUtil.changeInterval(series, type.getTimeInterval(), SeriesUtil.MERGE_CANDLE_USE_CLOSED)
-                .subSeries(Candle.createFindKey(TimeUtil.alignByInterval(currentCandle.getTime(), series.getTimeInterval())), type.getN() - 1);
-        List<Candle> candleList = Lists.newArrayList(subSeries.getSeries().getDataList());
+        List<Candle> candleList = Lists.newArrayList();
+        LocalDateTime periodStart = TimeUtil.alignByInterval(currentCandle.getTime(), type.getTimeInterval());
+        for (int i = 0; i < type.getN() - 1; i++) {
+            Candle periodClose = SeriesUtil.getLast(series.range(null, periodStart.minusSeconds(1)).getSeries().getDataList());
+            if (periodClose == null) {
+                break;
+            }
+            candleList.add(periodClose);
+            periodStart = TimeUtil.alignByInterval(periodClose.getTime(), type.getTimeInterval());
+        }
+        // 之前的周期不足 n - 1 个时只使用当前candle
+        if (candleList.size() < type.getN() - 1) {
+            candleList.clear();
+        }
 
         // 添加当前candle
         candleList.add(currentCandle);
         return TimeDataPoint.of(Average.calculate(candleList, Candle::getClose), currentCandle.getTime());
     }
 
+    /**
+     * 当前candle与之前 n - 1 个周期收盘价的均值，之前的周期不足 n - 1 个时为当前收盘价
+     * 每根K线O(1)：跨入新周期时把上一周期的收盘价放入环形缓冲区，并更新累加和
+     *
+     * @param currentCandle 需按时间顺序逐根添加
+     * @return
+     */
     public TimeDataPoint add(Candle currentCandle) {
-        TimeSeries<Candle> subSeries = series.subSeries(Candle.createFindKey(TimeUtil.alignByInterval(currentCandle.getTime(), series.getTimeInterval())), type.getN() - 1);
-        List<Candle> candleList = Lists.newArrayList(subSeries.getSeries().getDataList());
-        // 添加当前candle
-        candleList.add(currentCandle);
-        TimeDataPoint data = TimeDataPoint.of(Average.calculate(candleList, Candle::getClose), currentCandle.getTime());
-        dataList.add(data);
+        TimeDataPoint data = column == null ? compute(currentCandle) : lookup(currentCandle);
+        // 同一时间只保留第一次计算的结果
+        TimeDataPoint last = SeriesUtil.getLast(dataList);
+        if (last == null || currentCandle.getTime().isAfter(last.getTime())) {
+            dataList.add(data);
+            trim();
+        }
+        return data;
+    }
+
+    /**
+     * 超过 2 * retainCount 个时只保留最近retainCount个，均摊O(1)
+     * 换成新列表，不影响共享原有元素的fork
+     */
+    private void trim() {
+        int size = dataList.size();
+        if (retainCount <= 0 || size < retainCount * 2) {
+            return;
+        }
+        ForkableList<TimeDataPoint> retained = new ForkableList<>();
+        retained.addAll(dataList.subList(size - retainCount, size));
+        dataList = retained;
+    }
+
+    /**
+     * 从预先计算的结果中读取，candle不在序列中时单独计算
+     */
+    private TimeDataPoint lookup(Candle currentCandle) {
+        int index = originalSeries.indexOf(currentCandle.getTime());
+        if (index < 0) {
+            return calculate(originalSeries, currentCandle, type);
+        }
+        return TimeDataPoint.of(BigDecimal.valueOf(column[index], 2), currentCandle.getTime());
+    }
+
+    private TimeDataPoint compute(Candle currentCandle) {
+        LocalDateTime period = TimeUtil.alignByInterval(currentCandle.getTime(), type.getTimeInterval());
+        if (currentPeriod != null && period.isBefore(currentPeriod)) {
+            throw new BackTestException("candles must be in ascending time order: " + currentCandle.getTime());
+        }
+        if (currentPeriod != null && period.isAfter(currentPeriod)) {
+            closePeriod(currentClose);
+        }
+        currentPeriod = period;
+        currentClose = currentCandle.getClose();
+
+        TimeDataPoint data;
+        if (count < closedPrices.length) {
+            data = TimeDataPoint.of(currentClose.divide(BigDecimal.ONE, 2, BigDecimal.ROUND_HALF_UP), currentCandle.getTime());
+        } else {
+            data = TimeDataPoint.of(closedSum.add(currentClose).divide(BigDecimal.valueOf(count + 1), 2, BigDecimal.ROUND_HALF_UP), currentCandle.getTime());
+        }
         return data;
     }
 
+    private void closePeriod(BigDecimal close) {
+        if (closedPrices.length == 0) {
+            return;
+        }
+        if (count == closedPrices.length) {
+            closedSum = closedSum.subtract(closedPrices[head]);
+        } else {
+            count++;
+        }
+        closedPrices[head] = close;
+        closedSum = closedSum.add(close);
+        head = (head + 1) % closedPrices.length;
+    }
+
+    /**
+     * 使用预先计算的结果时不维护环形缓冲区，写入checkpoint前按已处理的K线重新逐根计算一遍，恢复后可逐根继续计算
+     */
+    private Object writeReplace() {
+        TimeDataPoint last = SeriesUtil.getLast(dataList);
+        if (column == null || last == null) {
+            return this;
+        }
+        MovingAverage replay = new MovingAverage(type, originalSeries, null);
+        for (Candle candle : originalSeries.range(null, last.getTime()).getSeries().getDataList()) {
+            replay.compute(candle);
+        }
+        replay.dataList.addAll(dataList);
+        replay.retainCount = retainCount;
+        return replay;
+    }
+
     public Type getType() {
         return type;
     }
 
+    /**
+     * @return 按type周期重采样的OHLC序列，首次调用时生成
+     */
     public TimeSeries<Candle> getSeries() {
+        if (series == null) {
+            series = Resampler.resample(originalSeries, type.getTimeInterval());
+        }
         return series;
     }
 
-    public SortedSet<TimeDataPoint> getDataList() {
-        return dataList;
+    /**
+     * 限制保留的计算结果个数，流式回测中只读取最近几个结果的策略用来避免dataList无限增长
+     *
+     * @param retainCount 至少保留的个数，0表示全部保留
+     */
+    public void setRetainCount(int retainCount) {
+        if (retainCount < 0) {
+            throw new BackTestException("retain count must not be negative: " + retainCount);
+        }
+        this.retainCount = retainCount;
+        trim();
+    }
+
+    public int getRetainCount() {
+        return retainCount;
     }
 
-    public static class Type {
+    /**
+     * @return 按时间顺序的计算结果，只读；设置了retainCount时只包含最近的部分结果
+     */
+    public List<TimeDataPoint> getDataList() {
+        return Collections.unmodifiableList(dataList);
+    }
+
+    public static class Type implements Serializable {
+        private static final long serialVersionUID = 1L;
+
         private final int n;
         private final TimeInterval timeInterval;
 
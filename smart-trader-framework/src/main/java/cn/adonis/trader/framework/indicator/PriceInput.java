@@ -0,0 +1,47 @@
+package cn.adonis.trader.framework.indicator;
+
+import cn.adonis.trader.framework.model.Candle;
+
+/**
+ * 指标使用的价格
+ */
+public enum PriceInput {
+    OPEN {
+        @Override
+        public double of(Candle candle) {
+            return candle.getOpen().doubleValue();
+        }
+    },
+    CLOSE {
+        @Override
+        public double of(Candle candle) {
+            return candle.getClose().doubleValue();
+        }
+    },
+    HIGH {
+        @Override
+        public double of(Candle candle) {
+            return candle.getHigh().doubleValue();
+        }
+    },
+    LOW {
+        @Override
+        public double of(Candle candle) {
+            return candle.getLow().doubleValue();
+        }
+    },
+    MEDIAN { // (high + low) / 2
+        @Override
+        public double of(Candle candle) {
+            return (candle.getHigh().doubleValue() + candle.getLow().doubleValue()) / 2;
+        }
+    },
+    TYPICAL { // (high + low + close) / 3
+        @Override
+        public double of(Candle candle) {
+            return (candle.getHigh().doubleValue() + candle.getLow().doubleValue() + candle.getClose().doubleValue()) / 3;
+        }
+    };
+
+    public abstract double of(Candle candle);
+}
@@ -0,0 +1,74 @@
+package cn.adonis.trader.framework.indicator;
+
+import cn.adonis.trader.framework.model.Candle;
+
+/**
+ * 相对强弱指标(Wilder平滑)，取值0~100
+ * 前n次涨跌取简单平均，之后 avg' = (avg * (n - 1) + change) / n
+ */
+public class RelativeStrengthIndex implements Indicator {
+
+    private final int n;
+    private final PriceInput input;
+
+    private double previousPrice = Double.NaN;
+    private int count; // 已累计的涨跌次数
+    private double averageGain;
+    private double averageLoss;
+
+    public static RelativeStrengthIndex of(int n) {
+        return of(n, PriceInput.CLOSE);
+    }
+
+    public static RelativeStrengthIndex of(int n, PriceInput input) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n must be positive");
+        }
+        return new RelativeStrengthIndex(n, input);
+    }
+
+    private RelativeStrengthIndex(int n, PriceInput input) {
+        this.n = n;
+        this.input = input;
+    }
+
+    @Override
+    public void update(Candle candle) {
+        update(input.of(candle));
+    }
+
+    public void update(double price) {
+        if (Double.isNaN(previousPrice)) {
+            previousPrice = price;
+            return;
+        }
+        double change = price - previousPrice;
+        previousPrice = price;
+        double gain = change > 0 ? change : 0;
+        double loss = change < 0 ? -change : 0;
+        if (count < n) {
+            averageGain += gain / n;
+            averageLoss += loss / n;
+            count++;
+            return;
+        }
+        averageGain = (averageGain * (n - 1) + gain) / n;
+        averageLoss = (averageLoss * (n - 1) + loss) / n;
+    }
+
+    @Override
+    public double value() {
+        if (!isReady()) {
+            return Double.NaN;
+        }
+        if (averageLoss == 0) {
+            return averageGain == 0 ? 50 : 100;
+        }
+        return 100 - 100 / (1 + averageGain / averageLoss);
+    }
+
+    @Override
+    public boolean isReady() {
+        return count >= n;
+    }
+}
@@ -0,0 +1,228 @@
+package cn.adonis.trader.framework.indicator;
+
+import cn.adonis.trader.framework.BackTestException;
+import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.model.Series;
+import cn.adonis.trader.framework.model.TimeInterval;
+import cn.adonis.trader.framework.model.TimeSeries;
+import cn.adonis.trader.framework.util.TimeUtil;
+import com.google.common.collect.Lists;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 流式重采样：逐根接收基础周期的K线，一次遍历同时合成多个更大周期的OHLC K线
+ *
+ * <pre>
+ * Resampler resampler = Resampler.create();
+ * Resampler.Frame daily = resampler.addFrame(TimeInterval.ONE_DAY);
+ * daily.addListener(ema::update); // 每根日线完成时更新指标
+ * ...
+ * resampler.update(candle);
+ * daily.getForming(); // 当天尚未完成的K线
+ * </pre>
+ */
+public class Resampler {
+
+    private final List<Frame> frames = Lists.newArrayList();
+
+    public static Resampler create() {
+        return new Resampler();
+    }
+
+    private Resampler() {
+    }
+
+    /**
+     * 把整个序列重采样为更大周期的OHLC K线，周期相同时返回原序列
+     *
+     * @param timeSeries   按时间有序
+     * @param timeInterval 新的周期
+     * @return
+     */
+    public static TimeSeries<Candle> resample(TimeSeries<Candle> timeSeries, TimeInterval timeInterval) {
+        if (timeSeries.getTimeInterval() != null && timeInterval.toSeconds() < timeSeries.getTimeInterval().toSeconds()) {
+            throw new BackTestException("can not change timeSeries interval");
+        } else if (timeSeries.getTimeInterval() != null && timeInterval.toSeconds() == timeSeries.getTimeInterval().toSeconds()) {
+            return timeSeries;
+        }
+        Frame frame = new Frame(timeInterval, Integer.MAX_VALUE);
+        for (Candle candle : timeSeries.getSeries().getDataList()) {
+            frame.update(candle);
+        }
+        frame.complete();
+        // completed在此新建且有序，不再修改，直接转移给Series
+        return TimeSeries.create(Series.adopt(frame.completed, timeSeries.getSeries().getName()), timeInterval);
+    }
+
+    /**
+     * 添加一个周期，已完成的K线全部保留
+     *
+     * @param timeInterval
+     * @return
+     */
+    public Frame addFrame(TimeInterval timeInterval) {
+        return addFrame(timeInterval, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 添加一个周期
+     *
+     * @param timeInterval
+     * @param capacity     最多保留的已完成K线数
+     * @return
+     */
+    public Frame addFrame(TimeInterval timeInterval, int capacity) {
+        Frame frame = new Frame(timeInterval, capacity);
+        frames.add(frame);
+        return frame;
+    }
+
+    /**
+     * 按时间顺序逐根合并进所有周期
+     *
+     * @param candle
+     */
+    public void update(Candle candle) {
+        for (Frame frame : frames) {
+            frame.update(candle);
+        }
+    }
+
+    /**
+     * 数据结束时调用，把所有周期正在形成的K线作为已完成K线输出
+     * 之后只能继续添加更晚周期的K线，已完成周期内的K线会被拒绝
+     */
+    public void flush() {
+        for (Frame frame : frames) {
+            frame.complete();
+        }
+    }
+
+    public List<Frame> getFrames() {
+        return Collections.unmodifiableList(frames);
+    }
+
+    public static class Frame {
+        private final TimeInterval timeInterval;
+        private final int capacity;
+        private final List<Candle> completed = Lists.newArrayList();
+        private final List<Consumer<Candle>> listeners = Lists.newArrayList();
+        private int head; // completed中有效数据的起点，超出capacity时前移
+
+        // 正在形成的K线
+        private long period = Long.MIN_VALUE;
+        private long completedPeriod = Long.MIN_VALUE; // 最近一根已完成K线的周期
+        private BigDecimal open;
+        private BigDecimal high;
+        private BigDecimal low;
+        private BigDecimal close;
+        private BigDecimal volume;
+        private long tradeCount;
+        private Candle forming; // 缓存，update后失效
+
+        private Frame(TimeInterval timeInterval, int capacity) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("capacity must be positive");
+            }
+            this.timeInterval = timeInterval;
+            this.capacity = capacity;
+        }
+
+        /**
+         * K线完成时回调
+         *
+         * @param listener
+         * @return
+         */
+        public Frame addListener(Consumer<Candle> listener) {
+            listeners.add(listener);
+            return this;
+        }
+
+        private void update(Candle candle) {
+            long candlePeriod = TimeUtil.toSeconds(candle.getTime()) / timeInterval.toSeconds();
+            if (candlePeriod < period) {
+                throw new BackTestException("candles must be in ascending time order: " + candle.getTime());
+            }
+            if (candlePeriod <= completedPeriod) {
+                // flush后同一周期的K线不能再合并进已输出的K线，也不能生成重复的K线
+                throw new BackTestException("period already completed: " + candle.getTime());
+            }
+            if (candlePeriod > period) {
+                complete();
+                period = candlePeriod;
+                open = candle.getOpen();
+                high = candle.getHigh();
+                low = candle.getLow();
+                volume = BigDecimal.ZERO;
+                tradeCount = 0;
+            } else {
+                if (candle.getHigh().compareTo(high) > 0) {
+                    high = candle.getHigh();
+                }
+                if (candle.getLow().compareTo(low) < 0) {
+                    low = candle.getLow();
+                }
+            }
+            close = candle.getClose();
+            if (candle.getVolume() != null && candle.getVolume().signum() != 0) {
+                volume = volume.add(candle.getVolume());
+            }
+            tradeCount += candle.getTradeCount();
+            forming = null;
+        }
+
+        private void complete() {
+            Candle candle = getForming();
+            if (candle == null) {
+                return;
+            }
+            completed.add(candle);
+            if (completed.size() - head > capacity) {
+                head++;
+                if (head > completed.size() / 2) {
+                    completed.subList(0, head).clear();
+                    head = 0;
+                }
+            }
+            completedPeriod = period;
+            period = Long.MIN_VALUE;
+            forming = null;
+            for (Consumer<Candle> listener : listeners) {
+                listener.accept(candle);
+            }
+        }
+
+        /**
+         * @return 正在形成的K线，时间为周期起点，尚无数据时为null
+         */
+        public Candle getForming() {
+            if (forming == null && period != Long.MIN_VALUE) {
+                forming = Candle.create(open, close, high, low, TimeUtil.toLocalDateTime(period * timeInterval.toSeconds()), volume, tradeCount);
+            }
+            return forming;
+        }
+
+        /**
+         * @return 已完成的K线，按时间升序，只读
+         */
+        public List<Candle> getCompleted() {
+            return Collections.unmodifiableList(completed.subList(head, completed.size()));
+        }
+
+        /**
+         * @return 最近一根已完成的K线，没有时为null
+         */
+        public Candle getLastCompleted() {
+            return completed.size() > head ? completed.get(completed.size() - 1) : null;
+        }
+
+        public TimeInterval getTimeInterval() {
+            return timeInterval;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package cn.adonis.trader.framework.indicator;
+
+import cn.adonis.trader.framework.model.Candle;
+
+/**
+ * 简单移动平均，最近n根K线的均值
+ */
+public class SimpleMovingAverage implements Indicator {
+
+    private final PriceInput input;
+    private final DoubleWindow window;
+
+    public static SimpleMovingAverage of(int n) {
+        return of(n, PriceInput.CLOSE);
+    }
+
+    public static SimpleMovingAverage of(int n, PriceInput input) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n must be positive");
+        }
+        return new SimpleMovingAverage(n, input);
+    }
+
+    private SimpleMovingAverage(int n, PriceInput input) {
+        this.input = input;
+        this.window = new DoubleWindow(n);
+    }
+
+    @Override
+    public void update(Candle candle) {
+        update(input.of(candle));
+    }
+
+    public void update(double price) {
+        window.add(price);
+    }
+
+    @Override
+    public double value() {
+        return isReady() ? window.mean() : Double.NaN;
+    }
+
+    @Override
+    public boolean isReady() {
+        return window.isFull();
+    }
+}
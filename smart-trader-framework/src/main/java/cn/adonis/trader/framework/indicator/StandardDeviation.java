@@ -0,0 +1,51 @@
+package cn.adonis.trader.framework.indicator;
+
+import cn.adonis.trader.framework.model.Candle;
+
+/**
+ * 最近n个值的总体标准差，窗口内的离差平方和按Welford方法递推
+ */
+public class StandardDeviation implements Indicator {
+
+    private final PriceInput input;
+    private final DoubleWindow window;
+
+    public static StandardDeviation of(int n) {
+        return of(n, PriceInput.CLOSE);
+    }
+
+    public static StandardDeviation of(int n, PriceInput input) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n must be positive");
+        }
+        return new StandardDeviation(n, input);
+    }
+
+    private StandardDeviation(int n, PriceInput input) {
+        this.input = input;
+        this.window = new DoubleWindow(n);
+    }
+
+    @Override
+    public void update(Candle candle) {
+        update(input.of(candle));
+    }
+
+    public void update(double price) {
+        window.add(price);
+    }
+
+    @Override
+    public double value() {
+        return isReady() ? Math.sqrt(window.variance()) : Double.NaN;
+    }
+
+    @Override
+    public boolean isReady() {
+        return window.isFull();
+    }
+
+    public double getMean() {
+        return isReady() ? window.mean() : Double.NaN;
+    }
+}
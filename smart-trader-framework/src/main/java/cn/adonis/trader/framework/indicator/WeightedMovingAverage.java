@@ -0,0 +1,64 @@
+package cn.adonis.trader.framework.indicator;
+
+import cn.adonis.trader.framework.model.Candle;
+
+/**
+ * 线性加权移动平均，最近一根权重为n，最早一根权重为1
+ * 加权和的递推：numerator' = numerator - sum + n * price，与窗口的和按相同间隔重新求和
+ */
+public class WeightedMovingAverage implements Indicator {
+
+    private final int n;
+    private final double totalWeight;
+    private final PriceInput input;
+    private final DoubleWindow window;
+    private double numerator;
+    private int updatesSinceResum;
+
+    public static WeightedMovingAverage of(int n) {
+        return of(n, PriceInput.CLOSE);
+    }
+
+    public static WeightedMovingAverage of(int n, PriceInput input) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n must be positive");
+        }
+        return new WeightedMovingAverage(n, input);
+    }
+
+    private WeightedMovingAverage(int n, PriceInput input) {
+        this.n = n;
+        this.totalWeight = n * (n + 1) / 2.0;
+        this.input = input;
+        this.window = new DoubleWindow(n);
+    }
+
+    @Override
+    public void update(Candle candle) {
+        update(input.of(candle));
+    }
+
+    public void update(double price) {
+        if (window.isFull()) {
+            numerator += n * price - window.sum();
+        } else {
+            numerator += (window.size() + 1) * price;
+        }
+        window.add(price);
+
+        if (++updatesSinceResum >= DoubleWindow.RESUM_INTERVAL) {
+            numerator = window.weightedSum();
+            updatesSinceResum = 0;
+        }
+    }
+
+    @Override
+    public double value() {
+        return isReady() ? numerator / totalWeight : Double.NaN;
+    }
+
+    @Override
+    public boolean isReady() {
+        return window.isFull();
+    }
+}
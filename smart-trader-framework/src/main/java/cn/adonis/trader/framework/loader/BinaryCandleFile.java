@@ -0,0 +1,328 @@
+package cn.adonis.trader.framework.loader;
+
+import cn.adonis.trader.framework.BackTestException;
+import cn.adonis.trader.framework.model.ArrayCandleColumns;
+import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.model.CandleColumns;
+import cn.adonis.trader.framework.model.TimeInterval;
+import cn.adonis.trader.framework.model.TimeSeries;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 二进制列式K线文件，所有数值为大端序
+ *
+ * <pre>
+ * header(64字节):
+ *   0  magic       8字节 "STCANDLE"
+ *   8  version     int
+ *   12 scale       int    价格小数位数
+ *   16 count       long   K线数量
+ *   24 interval    long   时间间隔毫秒数，-1表示未知
+ *   32 indexStride int    稀疏索引间隔
+ *   36 indexCount  int    稀疏索引条数
+ *   40 nameLength  int    序列名称字节数(UTF-8)
+ *   44 volumeScale int    成交量小数位数(version 2)
+ *   48 columnFlags int    可选列，见 VOLUME、TRADE_COUNT、ORIGINAL_SCALES(version 2)
+ *   52 保留
+ * name:   nameLength字节，补齐到8字节
+ * index:  indexCount个long，第i条为第 i * indexStride 根K线的时间
+ * 列数据: time、open、close、high、low 各count个long，时间为epoch秒，价格为按scale放大后的整数
+ *         之后按columnFlags依次为 volume、tradeCount、originalScales 各count个long
+ *         originalScales记录每个值原来的小数位数(见 {@link CandleColumns#getOriginalScales(int)})，读出的K线与写入时相等
+ * </pre>
+ */
+final class BinaryCandleFile {
+
+    private static final byte[] MAGIC = "STCANDLE".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+    private static final int INDEX_STRIDE = 1024;
+    private static final int COLUMN_COUNT = 5;
+
+    // 可选列
+    private static final int VOLUME = 1;
+    private static final int TRADE_COUNT = 1 << 1;
+    private static final int ORIGINAL_SCALES = 1 << 2;
+
+    private BinaryCandleFile() {
+    }
+
+    static void write(TimeSeries<Candle> timeSeries, Path target) throws IOException {
+        CandleColumns columns = ArrayCandleColumns.of(timeSeries.getSeries().getDataList());
+        int count = columns.size();
+        byte[] name = timeSeries.getSeries().getName() == null ? new byte[0] : timeSeries.getSeries().getName().getBytes(StandardCharsets.UTF_8);
+        int indexCount = (count + INDEX_STRIDE - 1) / INDEX_STRIDE;
+        long interval = timeSeries.getTimeInterval() == null ? -1 : timeSeries.getTimeInterval().toMilliseconds();
+        int columnFlags = VOLUME | TRADE_COUNT | (columns.hasOriginalScales() ? ORIGINAL_SCALES : 0);
+
+        try (OutputStream outputStream = Files.newOutputStream(target);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream, 1 << 16))) {
+            out.write(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(columns.getScale());
+            out.writeLong(count);
+            out.writeLong(interval);
+            out.writeInt(INDEX_STRIDE);
+            out.writeInt(indexCount);
+            out.writeInt(name.length);
+            out.writeInt(columns.getVolumeScale());
+            out.writeInt(columnFlags);
+            out.write(new byte[HEADER_SIZE - 52]);
+            out.write(name);
+            out.write(new byte[padding(name.length)]);
+
+            for (int i = 0; i < count; i += INDEX_STRIDE) {
+                out.writeLong(columns.getTime(i));
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeLong(columns.getTime(i));
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeLong(columns.getOpen(i));
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeLong(columns.getClose(i));
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeLong(columns.getHigh(i));
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeLong(columns.getLow(i));
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeLong(columns.getVolume(i));
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeLong(columns.getTradeCount(i));
+            }
+            if (columns.hasOriginalScales()) {
+                for (int i = 0; i < count; i++) {
+                    out.writeLong(columns.getOriginalScales(i));
+                }
+            }
+        }
+    }
+
+    static MappedColumns open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header, 0);
+            header.flip();
+
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new BackTestException("not a binary candle file: " + path);
+            }
+            int version = header.getInt();
+            if (version != 1 && version != VERSION) {
+                throw new BackTestException("unsupported binary candle file version: " + version);
+            }
+            int scale = header.getInt();
+            long count = header.getLong();
+            long interval = header.getLong();
+            int indexStride = header.getInt();
+            int indexCount = header.getInt();
+            int nameLength = header.getInt();
+            // version 1只有价格列
+            int volumeScale = version == 1 ? 0 : header.getInt();
+            int columnFlags = version == 1 ? 0 : header.getInt();
+            int columnCount = COLUMN_COUNT + Integer.bitCount(columnFlags & (VOLUME | TRADE_COUNT | ORIGINAL_SCALES));
+            if (count * 8 > Integer.MAX_VALUE) {
+                throw new BackTestException("binary candle file is too large: " + path);
+            }
+
+            ByteBuffer nameBuffer = ByteBuffer.allocate(nameLength);
+            readFully(channel, nameBuffer, HEADER_SIZE);
+            String name = new String(nameBuffer.array(), StandardCharsets.UTF_8);
+
+            long indexOffset = HEADER_SIZE + nameLength + padding(nameLength);
+            ByteBuffer indexBuffer = ByteBuffer.allocate(indexCount * 8);
+            readFully(channel, indexBuffer, indexOffset);
+            indexBuffer.flip();
+            long[] index = new long[indexCount];
+            indexBuffer.asLongBuffer().get(index);
+
+            long columnSize = count * 8;
+            long columnOffset = indexOffset + indexCount * 8L;
+            if (channel.size() < columnOffset + columnSize * columnCount) {
+                throw new BackTestException("binary candle file is truncated: " + path);
+            }
+            LongBuffer[] columns = new LongBuffer[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                columns[i] = channel.map(FileChannel.MapMode.READ_ONLY, columnOffset + columnSize * i, columnSize).asLongBuffer();
+            }
+            int next = COLUMN_COUNT;
+            LongBuffer volume = (columnFlags & VOLUME) != 0 ? columns[next++] : null;
+            LongBuffer tradeCount = (columnFlags & TRADE_COUNT) != 0 ? columns[next++] : null;
+            LongBuffer originalScales = (columnFlags & ORIGINAL_SCALES) != 0 ? columns[next] : null;
+            return new MappedColumns(name, interval < 0 ? null : TimeInterval.millis(interval), scale,
+                    (int) count, indexStride, index, columns, volumeScale, volume, tradeCount, originalScales);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new BackTestException("binary candle file is truncated");
+            }
+        }
+    }
+
+    private static int padding(int length) {
+        return (8 - length % 8) % 8;
+    }
+
+    /**
+     * 映射到内存的列数据，查找时先在稀疏索引上定位块，再在块内二分
+     */
+    static final class MappedColumns implements CandleColumns {
+        private final String name;
+        private final TimeInterval timeInterval;
+        private final int scale;
+        private final int size;
+        private final int indexStride;
+        private final long[] index;
+        private final LongBuffer time;
+        private final LongBuffer open;
+        private final LongBuffer close;
+        private final LongBuffer high;
+        private final LongBuffer low;
+        private final int volumeScale;
+        private final LongBuffer volume;
+        private final LongBuffer tradeCount;
+        private final LongBuffer originalScales;
+
+        private MappedColumns(String name, TimeInterval timeInterval, int scale, int size,
+                              int indexStride, long[] index, LongBuffer[] columns,
+                              int volumeScale, LongBuffer volume, LongBuffer tradeCount, LongBuffer originalScales) {
+            this.name = name;
+            this.timeInterval = timeInterval;
+            this.scale = scale;
+            this.size = size;
+            this.indexStride = indexStride;
+            this.index = index;
+            this.time = columns[0];
+            this.open = columns[1];
+            this.close = columns[2];
+            this.high = columns[3];
+            this.low = columns[4];
+            this.volumeScale = volumeScale;
+            this.volume = volume;
+            this.tradeCount = tradeCount;
+            this.originalScales = originalScales;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        TimeInterval getTimeInterval() {
+            return timeInterval;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int getScale() {
+            return scale;
+        }
+
+        @Override
+        public long getTime(int i) {
+            return time.get(i);
+        }
+
+        @Override
+        public long getOpen(int i) {
+            return open.get(i);
+        }
+
+        @Override
+        public long getClose(int i) {
+            return close.get(i);
+        }
+
+        @Override
+        public long getHigh(int i) {
+            return high.get(i);
+        }
+
+        @Override
+        public long getLow(int i) {
+            return low.get(i);
+        }
+
+        @Override
+        public long getVolume(int i) {
+            return volume == null ? 0 : volume.get(i);
+        }
+
+        @Override
+        public int getVolumeScale() {
+            return volumeScale;
+        }
+
+        @Override
+        public long getTradeCount(int i) {
+            return tradeCount == null ? 0 : tradeCount.get(i);
+        }
+
+        @Override
+        public boolean hasOriginalScales() {
+            return originalScales != null;
+        }
+
+        @Override
+        public long getOriginalScales(int i) {
+            return originalScales.get(i);
+        }
+
+        @Override
+        public int lowerBound(long t, int from, int to) {
+            // 稀疏索引中小于t的条数
+            int position = Arrays.binarySearch(index, t);
+            int k = position >= 0 ? position : -position - 1;
+            return clamp(CandleColumns.super.lowerBound(t, blockStart(k), blockEnd(k)), from, to);
+        }
+
+        @Override
+        public int upperBound(long t, int from, int to) {
+            // 稀疏索引中小于等于t的条数
+            int position = Arrays.binarySearch(index, t);
+            int k = position >= 0 ? position + 1 : -position - 1;
+            return clamp(CandleColumns.super.upperBound(t, blockStart(k), blockEnd(k)), from, to);
+        }
+
+        /**
+         * 前k条索引满足条件时，结果一定在 ((k - 1) * stride, k * stride] 之间
+         */
+        private int blockStart(int k) {
+            return k == 0 ? 0 : (k - 1) * indexStride + 1;
+        }
+
+        private int blockEnd(int k) {
+            return k >= index.length ? size : k * indexStride;
+        }
+
+        private static int clamp(int value, int from, int to) {
+            return Math.max(from, Math.min(value, to));
+        }
+    }
+}
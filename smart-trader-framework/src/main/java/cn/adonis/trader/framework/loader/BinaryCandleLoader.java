@@ -0,0 +1,69 @@
+package cn.adonis.trader.framework.loader;
+
+import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.model.CandleColumnSeries;
+import cn.adonis.trader.framework.model.TimeSeries;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * 加载二进制列式K线文件，只需映射文件并读取文件头，无需解析
+ * 文件通过 {@link #convert(SeriesLoader, String)} 一次性生成
+ */
+public class BinaryCandleLoader implements CacheableSeriesLoader, StreamingSeriesLoader {
+
+    private final Path path;
+
+    private BinaryCandleLoader(Path path) {
+        this.path = path;
+    }
+
+    public static BinaryCandleLoader newBinaryCandleLoader(String path) {
+        return new BinaryCandleLoader(Paths.get(path));
+    }
+
+    /**
+     * 将任意数据源(如CSVLoader)转换为二进制列式文件
+     *
+     * @param source     数据源
+     * @param targetPath 目标文件
+     * @return 目标文件的加载器
+     * @throws Exception
+     */
+    public static BinaryCandleLoader convert(SeriesLoader source, String targetPath) throws Exception {
+        Path target = Paths.get(targetPath);
+        BinaryCandleFile.write(source.load(), target);
+        return new BinaryCandleLoader(target);
+    }
+
+    @Override
+    public TimeSeries<Candle> load() throws IOException {
+        BinaryCandleFile.MappedColumns columns = BinaryCandleFile.open(path);
+        return TimeSeries.create(CandleColumnSeries.create(columns, columns.getName()), columns.getTimeInterval());
+    }
+
+    @Override
+    public Object getCacheKey() throws IOException {
+        return Arrays.asList(BinaryCandleLoader.class, FileIdentity.of(path));
+    }
+
+    /**
+     * 在时间列上二分查找范围，返回共享映射数据的区间
+     */
+    @Override
+    public TimeSeries<Candle> load(LocalDateTime startTime, LocalDateTime endTime) throws IOException {
+        return load().range(startTime, endTime);
+    }
+
+    @Override
+    public CandleCursor open() throws IOException {
+        BinaryCandleFile.MappedColumns columns = BinaryCandleFile.open(path);
+        Iterator<Candle> iterator = CandleColumnSeries.create(columns, columns.getName()).getDataList().iterator();
+        return IteratorCandleCursor.of(iterator, null, columns.getName(), columns.getTimeInterval());
+    }
+}
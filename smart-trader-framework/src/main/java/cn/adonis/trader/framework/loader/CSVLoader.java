@@ -1,6 +1,7 @@
 package cn.adonis.trader.framework.loader;
 
 import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.model.CandleColumnSeries;
 import cn.adonis.trader.framework.model.Series;
 import cn.adonis.trader.framework.model.TimeInterval;
 import cn.adonis.trader.framework.model.TimeSeries;
@@ -11,19 +12,25 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-public class CSVLoader implements SeriesLoader {
+public class CSVLoader implements CacheableSeriesLoader, StreamingSeriesLoader {
+
+    private static final String NAME = "价格";
 
     private final String path;
     private final Map<Candle.Schema, Column<?>> schemaMap;
+    private int parallelism; // 大于0时使用内存映射并行解析
+    private boolean columnar; // 加载结果转为基本类型数组存储
 
     private CSVLoader(String path) {
         this.path = path;
@@ -43,70 +50,188 @@ public class CSVLoader implements SeriesLoader {
         return this;
     }
 
+    /**
+     * 使用内存映射并行解析，并行度为可用CPU数
+     *
+     * @return
+     */
+    public CSVLoader parallel() {
+        return parallel(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 使用内存映射并行解析：文件按换行切分成块，在ForkJoinPool上并行解析，数字和时间直接从字节解析
+     *
+     * @param parallelism 并行度
+     * @return
+     */
+    public CSVLoader parallel(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * 加载结果以基本类型数组按列存储(见 {@link CandleColumnSeries})，适合长期持有或缓存的大数据量序列
+     *
+     * @return
+     */
+    public CSVLoader columnar() {
+        this.columnar = true;
+        return this;
+    }
+
 
     @Override
     public TimeSeries<Candle> load() throws IOException {
+        return load(null, null);
+    }
+
+    /**
+     * 文件标识(路径、大小、修改时间) + 列定义 + 存储方式，并行与否不影响结果
+     */
+    @Override
+    public Object getCacheKey() throws IOException {
+        return Arrays.asList(CSVLoader.class, FileIdentity.of(Paths.get(path)), Maps.newHashMap(schemaMap), columnar);
+    }
+
+    /**
+     * 读取时先解析时间列，范围外的行不再解析价格
+     *
+     * @param startTime >=，为null时不限制
+     * @param endTime   <=，为null时不限制
+     * @return
+     * @throws IOException
+     */
+    @Override
+    public TimeSeries<Candle> load(LocalDateTime startTime, LocalDateTime endTime) throws IOException {
         final int maxColumnIndex = getMaxColumnIndex();
-        List<Candle> candleList = Files.lines(Paths.get(path))
+        List<Candle> candleList;
+        if (parallelism > 0) {
+            candleList = new MappedCSVReader<>(Paths.get(path), parallelism, maxColumnIndex + 1,
+                    row -> parseCandle(row, startTime, endTime)).read();
+        } else {
+            try (Stream<Candle> candleStream = lines(startTime, endTime)) {
+                candleList = candleStream.collect(Collectors.toList());
+            }
+        }
+
+        TimeInterval timeInterval = null;
+        if (candleList.size() >= 2) {
+            timeInterval = IteratorCandleCursor.inferTimeInterval(candleList.get(0), candleList.get(1));
+        }
+        Series<Candle> series = Series.create(candleList, NAME);
+        if (columnar) {
+            series = CandleColumnSeries.copyOf(series);
+        }
+        return TimeSeries.create(series, timeInterval);
+    }
+
+    /**
+     * 逐行读取，不缓存整个文件，数据需按时间升序排列
+     *
+     * @return
+     * @throws IOException
+     */
+    @Override
+    public CandleCursor open() throws IOException {
+        Stream<Candle> candleStream = lines(null, null);
+        return IteratorCandleCursor.inferInterval(candleStream.iterator(), candleStream::close, NAME);
+    }
+
+    private Stream<Candle> lines(LocalDateTime startTime, LocalDateTime endTime) throws IOException {
+        final int maxColumnIndex = getMaxColumnIndex();
+        return Files.lines(Paths.get(path))
                 .filter(StringUtils::isNotBlank)
                 .map(String::trim)
                 .map(s -> StringUtils.split(s, ","))
-                .filter(array -> array.length >= maxColumnIndex)
-                .map(this::parseCandle)
-                .collect(Collectors.toList());
+                .filter(array -> array.length > maxColumnIndex)
+                .map(array -> parseCandle(array, startTime, endTime))
+                .filter(Objects::nonNull);
+    }
 
-        TimeInterval timeInterval = null;
-        if (candleList.size() >= 2) {
-            Candle first = candleList.get(0);
-            Candle second = candleList.get(1);
-            Duration duration = Duration.between(first.getTime(), second.getTime());
-            timeInterval = TimeInterval.millis(duration.toMillis());
-        }
-        return TimeSeries.create(Series.create(candleList, "价格"), timeInterval);
-    }
-
-    private Candle parseCandle(String[] array) {
-        Optional<Column> openColumn = Optional.ofNullable(schemaMap.get(Candle.Schema.OPEN_PRICE));
-        Optional<Column> closeColumn = Optional.ofNullable(schemaMap.get(Candle.Schema.CLOSE_PRICE));
-        Optional<Column> highColumn = Optional.ofNullable(schemaMap.get(Candle.Schema.HIGH_PRICE));
-        Optional<Column> lowColumn = Optional.ofNullable(schemaMap.get(Candle.Schema.LOW_PRICE));
-        Optional<Column> timeColumn = Optional.ofNullable(schemaMap.get(Candle.Schema.TIME));
-
-        BigDecimal open = (BigDecimal) openColumn.map(column -> column.getValue(array)).orElse(BigDecimal.ZERO);
-        BigDecimal close = (BigDecimal) closeColumn.map(column -> column.getValue(array)).orElse(BigDecimal.ZERO);
-        BigDecimal high = (BigDecimal) highColumn.map(column -> column.getValue(array)).orElse(BigDecimal.ZERO);
-        BigDecimal low = (BigDecimal) lowColumn.map(column -> column.getValue(array)).orElse(BigDecimal.ZERO);
-        LocalDateTime time = (LocalDateTime) timeColumn.map(column -> column.getValue(array)).orElse(null);
+    /**
+     * 解析一行数据，时间不在 [startTime, endTime] 内时返回null
+     */
+    private Candle parseCandle(String[] array, LocalDateTime startTime, LocalDateTime endTime) {
+        Optional<Column<?>> timeColumn = Optional.ofNullable(schemaMap.get(Candle.Schema.TIME));
+        LocalDateTime time = (LocalDateTime) timeColumn.<Object>map(column -> column.getValue(array)).orElse(null);
+        if (!inRange(time, startTime, endTime)) {
+            return null;
+        }
+
+        Optional<Column<?>> openColumn = Optional.ofNullable(schemaMap.get(Candle.Schema.OPEN_PRICE));
+        Optional<Column<?>> closeColumn = Optional.ofNullable(schemaMap.get(Candle.Schema.CLOSE_PRICE));
+        Optional<Column<?>> highColumn = Optional.ofNullable(schemaMap.get(Candle.Schema.HIGH_PRICE));
+        Optional<Column<?>> lowColumn = Optional.ofNullable(schemaMap.get(Candle.Schema.LOW_PRICE));
+
+        BigDecimal open = (BigDecimal) openColumn.<Object>map(column -> column.getValue(array)).orElse(BigDecimal.ZERO);
+        BigDecimal close = (BigDecimal) closeColumn.<Object>map(column -> column.getValue(array)).orElse(BigDecimal.ZERO);
+        BigDecimal high = (BigDecimal) highColumn.<Object>map(column -> column.getValue(array)).orElse(BigDecimal.ZERO);
+        BigDecimal low = (BigDecimal) lowColumn.<Object>map(column -> column.getValue(array)).orElse(BigDecimal.ZERO);
+        return Candle.create(open, close, high, low, time);
+    }
+
+    private Candle parseCandle(MappedCSVReader.Row row, LocalDateTime startTime, LocalDateTime endTime) {
+        LocalDateTime time = getValue(row, Candle.Schema.TIME, null);
+        if (!inRange(time, startTime, endTime)) {
+            return null;
+        }
+        BigDecimal open = getValue(row, Candle.Schema.OPEN_PRICE, BigDecimal.ZERO);
+        BigDecimal close = getValue(row, Candle.Schema.CLOSE_PRICE, BigDecimal.ZERO);
+        BigDecimal high = getValue(row, Candle.Schema.HIGH_PRICE, BigDecimal.ZERO);
+        BigDecimal low = getValue(row, Candle.Schema.LOW_PRICE, BigDecimal.ZERO);
         return Candle.create(open, close, high, low, time);
     }
 
+    private static boolean inRange(LocalDateTime time, LocalDateTime startTime, LocalDateTime endTime) {
+        if (time == null) {
+            return true;
+        }
+        return (startTime == null || !time.isBefore(startTime)) && (endTime == null || !time.isAfter(endTime));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T getValue(MappedCSVReader.Row row, Candle.Schema schema, T defaultValue) {
+        Column<T> column = (Column<T>) schemaMap.get(schema);
+        return column == null ? defaultValue : column.getValue(row);
+    }
+
     public static class Column<T> {
         private final int index;
         private final Function<String, T> mapper;
+        private final FieldParser<T> fieldParser; // 直接从字节解析，可为null
+        private final String description; // 描述解析方式，用于判断两列是否相同，为null时按mapper判断
 
         public static <T> Column<T> of(int index, Function<String, T> mapper) {
-            return new Column<>(index, mapper);
+            return new Column<>(index, mapper, null, null);
         }
 
         public static Column<BigDecimal> ofBigDecimal(int index) {
-            return new Column<>(index, BigDecimal::new);
+            return new Column<>(index, BigDecimal::new, FieldParser.BIG_DECIMAL, "BigDecimal");
         }
 
         public static Column<LocalDateTime> ofTime(int index) {
-            return new Column<>(index, s -> LocalDateTime.parse(s, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+            return ofTime(index, "yyyy-MM-dd HH:mm:ss");
         }
 
         public static Column<LocalDateTime> ofTime(int index, String dateTimePattern) {
-            return new Column<>(index, s -> LocalDateTime.parse(s, DateTimeFormatter.ofPattern(dateTimePattern)));
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern(dateTimePattern);
+            return new Column<>(index, s -> LocalDateTime.parse(s, formatter), FieldParser.ofTimePattern(dateTimePattern),
+                    "LocalDateTime:" + dateTimePattern);
         }
 
         public int getIndex() {
             return index;
         }
 
-        private Column(int index, Function<String, T> mapper) {
+        private Column(int index, Function<String, T> mapper, FieldParser<T> fieldParser, String description) {
             this.index = index;
             this.mapper = mapper;
+            this.fieldParser = fieldParser;
+            this.description = description;
         }
 
         public T parseValue(String str) {
@@ -116,5 +241,32 @@ public class CSVLoader implements SeriesLoader {
         public T getValue(String[] line) {
             return mapper.apply(line[index]);
         }
+
+        T getValue(MappedCSVReader.Row row) {
+            return row.get(index, fieldParser, mapper);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+
+            Column<?> column = (Column<?>) o;
+
+            if (index != column.index)
+                return false;
+            if (description == null || column.description == null)
+                return mapper == column.mapper;
+            return description.equals(column.description);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = index;
+            result = 31 * result + (description != null ? description.hashCode() : System.identityHashCode(mapper));
+            return result;
+        }
     }
 }
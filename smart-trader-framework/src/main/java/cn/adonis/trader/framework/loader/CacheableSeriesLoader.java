@@ -0,0 +1,17 @@
+package cn.adonis.trader.framework.loader;
+
+
+/**
+ * 可缓存的数据加载，相同cacheKey加载出的数据相同
+ */
+public interface CacheableSeriesLoader extends SeriesLoader {
+
+    /**
+     * 标识数据来源及解析方式，需实现equals和hashCode
+     *
+     * @return
+     * @throws Exception
+     */
+    Object getCacheKey() throws Exception;
+
+}
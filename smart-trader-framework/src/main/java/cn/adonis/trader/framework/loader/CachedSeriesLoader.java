@@ -0,0 +1,40 @@
+package cn.adonis.trader.framework.loader;
+
+import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.model.TimeSeries;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * 带缓存的数据加载，相同数据源、相同列定义、相同时间范围只解析一次
+ */
+public class CachedSeriesLoader implements SeriesLoader {
+
+    private final CacheableSeriesLoader seriesLoader;
+    private final SeriesCache seriesCache;
+
+    public static CachedSeriesLoader of(CacheableSeriesLoader seriesLoader) {
+        return new CachedSeriesLoader(seriesLoader, SeriesCache.getDefault());
+    }
+
+    public static CachedSeriesLoader of(CacheableSeriesLoader seriesLoader, SeriesCache seriesCache) {
+        return new CachedSeriesLoader(seriesLoader, seriesCache);
+    }
+
+    private CachedSeriesLoader(CacheableSeriesLoader seriesLoader, SeriesCache seriesCache) {
+        this.seriesLoader = seriesLoader;
+        this.seriesCache = seriesCache;
+    }
+
+    @Override
+    public TimeSeries<Candle> load() throws Exception {
+        return load(null, null);
+    }
+
+    @Override
+    public TimeSeries<Candle> load(LocalDateTime startTime, LocalDateTime endTime) throws Exception {
+        Object key = Arrays.asList(seriesLoader.getCacheKey(), startTime, endTime);
+        return seriesCache.get(key, () -> seriesLoader.load(startTime, endTime));
+    }
+}
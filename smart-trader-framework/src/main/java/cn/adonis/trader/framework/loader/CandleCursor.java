@@ -0,0 +1,23 @@
+package cn.adonis.trader.framework.loader;
+
+import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.model.TimeInterval;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * 按时间顺序逐根读取K线，使用完毕后需关闭
+ */
+public interface CandleCursor extends Iterator<Candle>, AutoCloseable {
+
+    /**
+     * 数据的时间间隔，未知时返回null
+     */
+    TimeInterval getTimeInterval();
+
+    String getName();
+
+    @Override
+    void close() throws IOException;
+}
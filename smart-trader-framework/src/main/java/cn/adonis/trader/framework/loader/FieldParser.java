@@ -0,0 +1,130 @@
+package cn.adonis.trader.framework.loader;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+
+/**
+ * 直接从字节解析字段，不创建中间字符串
+ * 无法处理时返回null，由调用方回退到基于字符串的解析
+ *
+ * @param <T>
+ */
+interface FieldParser<T> {
+
+    T parse(ByteBuffer buffer, int start, int end);
+
+    /**
+     * 解析形如 -123.45 的十进制数，结果与 new BigDecimal(String) 一致（含scale）
+     */
+    FieldParser<BigDecimal> BIG_DECIMAL = (buffer, start, end) -> {
+        int i = start;
+        boolean negative = false;
+        if (i < end) {
+            byte sign = buffer.get(i);
+            if (sign == '-' || sign == '+') {
+                negative = sign == '-';
+                i++;
+            }
+        }
+        long unscaled = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                // 超过18位可能溢出long，交给BigDecimal处理
+                if (++digits > 18) {
+                    return null;
+                }
+                unscaled = unscaled * 10 + (b - '0');
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (b == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                return null;
+            }
+        }
+        if (digits == 0) {
+            return null;
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+    };
+
+    /**
+     * 根据时间格式生成定宽时间解析器，仅支持 yyyy MM dd HH mm ss 及非字母分隔符
+     *
+     * @param pattern
+     * @return 不支持的格式返回null
+     */
+    static FieldParser<LocalDateTime> ofTimePattern(String pattern) {
+        int length = pattern.length();
+        // 每个位置对应的字段：0为分隔符，其余为字段字母
+        char[] fields = new char[length];
+        boolean hasHour = false;
+        int i = 0;
+        while (i < length) {
+            char c = pattern.charAt(i);
+            int j = i;
+            while (j < length && pattern.charAt(j) == c) {
+                j++;
+            }
+            int width = j - i;
+            if (Character.isLetter(c)) {
+                boolean supported = (c == 'y' && width == 4)
+                        || ((c == 'M' || c == 'd' || c == 'H' || c == 'm' || c == 's') && width == 2);
+                if (!supported) {
+                    return null;
+                }
+                hasHour |= c == 'H';
+            } else if (c == '\'') {
+                return null;
+            }
+            for (int k = i; k < j; k++) {
+                fields[k] = Character.isLetter(c) ? c : 0;
+            }
+            i = j;
+        }
+        if (!hasHour || pattern.indexOf("yyyy") < 0 || pattern.indexOf("MM") < 0 || pattern.indexOf("dd") < 0) {
+            return null;
+        }
+
+        return (buffer, start, end) -> {
+            if (end - start != length) {
+                return null;
+            }
+            int year = 0, month = 0, day = 0, hour = 0, minute = 0, second = 0;
+            for (int k = 0; k < length; k++) {
+                byte b = buffer.get(start + k);
+                char field = fields[k];
+                if (field == 0) {
+                    if (b != pattern.charAt(k)) {
+                        return null;
+                    }
+                    continue;
+                }
+                if (b < '0' || b > '9') {
+                    return null;
+                }
+                int digit = b - '0';
+                switch (field) {
+                    case 'y': year = year * 10 + digit; break;
+                    case 'M': month = month * 10 + digit; break;
+                    case 'd': day = day * 10 + digit; break;
+                    case 'H': hour = hour * 10 + digit; break;
+                    case 'm': minute = minute * 10 + digit; break;
+                    default: second = second * 10 + digit; break;
+                }
+            }
+            try {
+                return LocalDateTime.of(year, month, day, hour, minute, second);
+            } catch (DateTimeException e) {
+                // 非法日期交由DateTimeFormatter处理，保持与原解析一致
+                return null;
+            }
+        };
+    }
+}
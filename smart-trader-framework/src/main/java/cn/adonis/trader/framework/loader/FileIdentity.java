@@ -0,0 +1,55 @@
+package cn.adonis.trader.framework.loader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 文件标识，文件被修改后(大小或修改时间变化)标识随之变化
+ */
+final class FileIdentity {
+
+    private final Path path;
+    private final long size;
+    private final long lastModified;
+
+    static FileIdentity of(Path path) throws IOException {
+        Path realPath = path.toRealPath();
+        return new FileIdentity(realPath, Files.size(realPath), Files.getLastModifiedTime(realPath).toMillis());
+    }
+
+    private FileIdentity(Path path, long size, long lastModified) {
+        this.path = path;
+        this.size = size;
+        this.lastModified = lastModified;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+
+        FileIdentity that = (FileIdentity) o;
+
+        if (size != that.size)
+            return false;
+        if (lastModified != that.lastModified)
+            return false;
+        return path.equals(that.path);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = path.hashCode();
+        result = 31 * result + (int) (size ^ (size >>> 32));
+        result = 31 * result + (int) (lastModified ^ (lastModified >>> 32));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return path + "(" + size + " bytes, modified at " + lastModified + ")";
+    }
+}
@@ -0,0 +1,86 @@
+package cn.adonis.trader.framework.loader;
+
+import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.model.TimeInterval;
+import com.google.common.collect.Lists;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+
+/**
+ * 基于Iterator的CandleCursor，时间间隔未知时预读前两根K线推断
+ */
+class IteratorCandleCursor implements CandleCursor {
+
+    private final Iterator<Candle> iterator;
+    private final Closeable resource;
+    private final String name;
+    private final LinkedList<Candle> peeked = Lists.newLinkedList();
+    private final TimeInterval timeInterval;
+
+    static IteratorCandleCursor of(Iterator<Candle> iterator, Closeable resource, String name, TimeInterval timeInterval) {
+        return new IteratorCandleCursor(iterator, resource, name, timeInterval);
+    }
+
+    static IteratorCandleCursor inferInterval(Iterator<Candle> iterator, Closeable resource, String name) {
+        return new IteratorCandleCursor(iterator, resource, name, null);
+    }
+
+    private IteratorCandleCursor(Iterator<Candle> iterator, Closeable resource, String name, TimeInterval timeInterval) {
+        this.iterator = iterator;
+        this.resource = resource;
+        this.name = name;
+        if (timeInterval == null) {
+            while (peeked.size() < 2 && iterator.hasNext()) {
+                peeked.add(iterator.next());
+            }
+            timeInterval = peeked.size() < 2 ? null : inferTimeInterval(peeked.get(0), peeked.get(1));
+        }
+        this.timeInterval = timeInterval;
+    }
+
+    /**
+     * 以前两根K线的时间差作为时间间隔
+     */
+    static TimeInterval inferTimeInterval(Candle first, Candle second) {
+        Duration duration = Duration.between(first.getTime(), second.getTime());
+        return TimeInterval.millis(duration.toMillis());
+    }
+
+    @Override
+    public TimeInterval getTimeInterval() {
+        return timeInterval;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !peeked.isEmpty() || iterator.hasNext();
+    }
+
+    @Override
+    public Candle next() {
+        if (!peeked.isEmpty()) {
+            return peeked.removeFirst();
+        }
+        if (!iterator.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return iterator.next();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (resource != null) {
+            resource.close();
+        }
+    }
+}
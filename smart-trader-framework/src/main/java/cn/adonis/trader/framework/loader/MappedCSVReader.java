@@ -0,0 +1,300 @@
+package cn.adonis.trader.framework.loader;
+
+import com.google.common.collect.Lists;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * 内存映射读取CSV：按换行切分成若干块，在ForkJoinPool上并行解析后按文件顺序合并
+ * rowMapper返回null的行会被跳过
+ * 需要按顺序处理、可提前结束的读取使用 {@link #openSequential(Path, int)}
+ */
+class MappedCSVReader<T> {
+
+    // 单块最大字节数，保证每块都能用int寻址
+    private static final long MAX_CHUNK_SIZE = 256L * 1024 * 1024;
+
+    private final Path path;
+    private final int parallelism;
+    private final int minFieldCount;
+    private final Function<Row, T> rowMapper;
+
+    MappedCSVReader(Path path, int parallelism, int minFieldCount, Function<Row, T> rowMapper) {
+        this.path = path;
+        this.parallelism = parallelism;
+        this.minFieldCount = minFieldCount;
+        this.rowMapper = rowMapper;
+    }
+
+    List<T> read() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return Lists.newArrayList();
+            }
+            long[] boundaries = split(channel, size);
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                return pool.invoke(new ChunkTask(channel, boundaries, 0, boundaries.length - 1));
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * 按文件顺序逐行读取，不并行、不缓存结果，可随时关闭以提前结束
+     *
+     * @param path
+     * @param minFieldCount 字段数不足的行跳过
+     * @return
+     * @throws IOException
+     */
+    static RowCursor openSequential(Path path, int minFieldCount) throws IOException {
+        return new RowCursor(FileChannel.open(path, StandardOpenOption.READ), minFieldCount);
+    }
+
+    /**
+     * 计算各块起止位置，每个边界都位于换行符之后
+     */
+    private long[] split(FileChannel channel, long size) throws IOException {
+        int chunkCount = (int) Math.max(parallelism * 4L, (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+        chunkCount = (int) Math.min(chunkCount, Math.max(1, size / 4096));
+
+        List<Long> boundaries = Lists.newArrayList(0L);
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        for (int i = 1; i < chunkCount; i++) {
+            long position = Math.max(size * i / chunkCount, boundaries.get(boundaries.size() - 1));
+            long boundary = nextLineStart(channel, position, size, probe);
+            if (boundary > boundaries.get(boundaries.size() - 1) && boundary < size) {
+                boundaries.add(boundary);
+            }
+        }
+        boundaries.add(size);
+        return boundaries.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private long nextLineStart(FileChannel channel, long position, long size, ByteBuffer probe) throws IOException {
+        long offset = position - 1;
+        while (offset < size) {
+            probe.clear();
+            int read = channel.read(probe, Math.max(offset, 0));
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return Math.max(offset, 0) + i + 1;
+                }
+            }
+            offset = Math.max(offset, 0) + read;
+        }
+        return size;
+    }
+
+    private List<T> parseChunk(FileChannel channel, long start, long end) {
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new IllegalStateException("can not map csv file " + path, e);
+        }
+        int limit = buffer.limit();
+        List<T> result = Lists.newArrayListWithExpectedSize(limit / 48);
+        Row row = new Row(buffer);
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (row.tokenize(lineStart, lineEnd) >= minFieldCount) {
+                T value = rowMapper.apply(row);
+                if (value != null) {
+                    result.add(value);
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        return result;
+    }
+
+    private class ChunkTask extends RecursiveTask<List<T>> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long[] boundaries;
+        private final int from;
+        private final int to;
+
+        ChunkTask(FileChannel channel, long[] boundaries, int from, int to) {
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<T> compute() {
+            if (to - from == 1) {
+                return parseChunk(channel, boundaries[from], boundaries[to]);
+            }
+            int middle = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(channel, boundaries, from, middle);
+            ChunkTask right = new ChunkTask(channel, boundaries, middle, to);
+            right.fork();
+            List<T> result = left.compute();
+            result.addAll(right.join());
+            return result;
+        }
+    }
+
+    /**
+     * 顺序读取的游标：每次映射不超过MAX_CHUNK_SIZE的一段，只处理到其中最后一个换行符，剩余部分从下一段开始
+     * next()返回true后通过getRow()读取当前行，Row在下一次next()前有效
+     */
+    static final class RowCursor implements Closeable {
+        private final FileChannel channel;
+        private final long size;
+        private final int minFieldCount;
+
+        private long regionStart; // 下一段在文件中的起点
+        private ByteBuffer buffer;
+        private Row row;
+        private int lineStart;
+        private int limit; // 当前段中完整行的结尾
+
+        private RowCursor(FileChannel channel, int minFieldCount) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.minFieldCount = minFieldCount;
+        }
+
+        boolean next() throws IOException {
+            while (true) {
+                if (buffer == null || lineStart >= limit) {
+                    if (!mapNextRegion()) {
+                        return false;
+                    }
+                }
+                int lineEnd = lineStart;
+                while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                    lineEnd++;
+                }
+                int fieldCount = row.tokenize(lineStart, lineEnd);
+                lineStart = lineEnd + 1;
+                if (fieldCount >= minFieldCount) {
+                    return true;
+                }
+            }
+        }
+
+        Row getRow() {
+            return row;
+        }
+
+        private boolean mapNextRegion() throws IOException {
+            if (regionStart >= size) {
+                return false;
+            }
+            long length = Math.min(MAX_CHUNK_SIZE, size - regionStart);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, length);
+            int end = (int) length;
+            if (regionStart + length < size) {
+                while (end > 0 && mapped.get(end - 1) != '\n') {
+                    end--;
+                }
+                if (end == 0) {
+                    throw new IOException("line longer than " + MAX_CHUNK_SIZE + " bytes");
+                }
+            }
+            buffer = mapped;
+            row = new Row(mapped);
+            lineStart = 0;
+            limit = end;
+            regionStart += end;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * 一行数据的字段位置，每个块复用同一个对象
+     * 字段切分规则与 StringUtils.split(line.trim(), ",") 一致：去掉首尾空白，连续的逗号视为一个分隔符
+     */
+    static final class Row {
+        private final ByteBuffer buffer;
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private int count;
+
+        private Row(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private int tokenize(int lineStart, int lineEnd) {
+            while (lineStart < lineEnd && (buffer.get(lineStart) & 0xff) <= ' ') {
+                lineStart++;
+            }
+            while (lineEnd > lineStart && (buffer.get(lineEnd - 1) & 0xff) <= ' ') {
+                lineEnd--;
+            }
+            count = 0;
+            int i = lineStart;
+            while (i < lineEnd) {
+                while (i < lineEnd && buffer.get(i) == ',') {
+                    i++;
+                }
+                if (i == lineEnd) {
+                    break;
+                }
+                int tokenStart = i;
+                while (i < lineEnd && buffer.get(i) != ',') {
+                    i++;
+                }
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                    ends = Arrays.copyOf(ends, count * 2);
+                }
+                starts[count] = tokenStart;
+                ends[count] = i;
+                count++;
+            }
+            return count;
+        }
+
+        <V> V get(int index, FieldParser<V> parser, Function<String, V> fallback) {
+            if (parser != null) {
+                V value = parser.parse(buffer, starts[index], ends[index]);
+                if (value != null) {
+                    return value;
+                }
+            }
+            return fallback.apply(getString(index));
+        }
+
+        String getString(int index) {
+            byte[] bytes = new byte[ends[index] - starts[index]];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buffer.get(starts[index] + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
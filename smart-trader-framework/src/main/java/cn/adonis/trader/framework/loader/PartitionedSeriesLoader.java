@@ -0,0 +1,163 @@
+package cn.adonis.trader.framework.loader;
+
+import cn.adonis.trader.framework.BackTestException;
+import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.model.Series;
+import cn.adonis.trader.framework.model.TimeInterval;
+import cn.adonis.trader.framework.model.TimeSeries;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * 按天分区的数据，每天一个文件
+ * 加载时只打开与时间范围重叠的分区，分区内再由各自的SeriesLoader跳过范围外的数据
+ * 夜盘K线通常存放在下一个交易日的文件中，分区日期与K线日期不一致，因此按sessionOffsetDays向两侧放宽要打开的分区
+ * 分区索引在第一次加载时建立并缓存，之后新增的文件需调用 {@link #refresh()}
+ *
+ * <pre>
+ * PartitionedSeriesLoader.newPartitionedSeriesLoader("/data/T", "yyyy/yyyyMMdd'.csv'",
+ *         path -> CSVLoader.newCSVLoader(path).addColumnSchema(...));
+ * </pre>
+ */
+public class PartitionedSeriesLoader implements SeriesLoader {
+
+    // 默认按前后各1天放宽分区范围，覆盖夜盘存放在下一交易日文件中的情况；可通过系统属性调整
+    private static final String SESSION_OFFSET_DAYS_PROPERTY = "smart-trader.partition.session-offset-days";
+    private static final long DEFAULT_SESSION_OFFSET_DAYS = 1L;
+
+    private final Path root;
+    private final DateTimeFormatter partitionFormatter;
+    private final Function<String, SeriesLoader> partitionLoaderFactory;
+
+    private long sessionOffsetDays = Long.getLong(SESSION_OFFSET_DAYS_PROPERTY, DEFAULT_SESSION_OFFSET_DAYS);
+
+    // 分区日期 -> 文件，建立后不再修改，refresh时整体替换
+    private volatile NavigableMap<LocalDate, Path> partitions;
+
+    /**
+     * @param root                   根目录
+     * @param partitionPattern       分区文件相对于根目录的路径格式，以'/'分隔目录，如 yyyy/yyyyMMdd'.csv'
+     * @param partitionLoaderFactory 根据分区文件路径创建加载器
+     * @return
+     */
+    public static PartitionedSeriesLoader newPartitionedSeriesLoader(String root, String partitionPattern,
+                                                                     Function<String, SeriesLoader> partitionLoaderFactory) {
+        return new PartitionedSeriesLoader(Paths.get(root), DateTimeFormatter.ofPattern(partitionPattern), partitionLoaderFactory);
+    }
+
+    private PartitionedSeriesLoader(Path root, DateTimeFormatter partitionFormatter, Function<String, SeriesLoader> partitionLoaderFactory) {
+        this.root = root;
+        this.partitionFormatter = partitionFormatter;
+        this.partitionLoaderFactory = partitionLoaderFactory;
+    }
+
+    /**
+     * 分区日期与其中K线日期的最大差值，如夜盘存放在下一交易日的文件中时为1，跨周末或长假时需要更大
+     * 按此向两侧多打开的分区由各分区的load(startTime, endTime)精确过滤
+     *
+     * @param sessionOffsetDays 天数，不能为负
+     * @return
+     */
+    public PartitionedSeriesLoader setSessionOffsetDays(long sessionOffsetDays) {
+        if (sessionOffsetDays < 0) {
+            throw new BackTestException("session offset days must not be negative: " + sessionOffsetDays);
+        }
+        this.sessionOffsetDays = sessionOffsetDays;
+        return this;
+    }
+
+    /**
+     * 重新扫描根目录，分区文件有增删时调用
+     */
+    public void refresh() throws IOException {
+        partitions = listPartitions();
+    }
+
+    @Override
+    public TimeSeries<Candle> load() throws Exception {
+        return load(null, null);
+    }
+
+    @Override
+    public TimeSeries<Candle> load(LocalDateTime startTime, LocalDateTime endTime) throws Exception {
+        NavigableMap<LocalDate, Path> overlapping = getPartitions();
+        if (startTime != null) {
+            overlapping = overlapping.tailMap(startTime.toLocalDate().minusDays(sessionOffsetDays), true);
+        }
+        if (endTime != null) {
+            overlapping = overlapping.headMap(endTime.toLocalDate().plusDays(sessionOffsetDays), true);
+        }
+
+        List<Candle> candleList = Lists.newArrayList();
+        TimeInterval timeInterval = null;
+        String name = null;
+        for (Map.Entry<LocalDate, Path> partition : overlapping.entrySet()) {
+            TimeSeries<Candle> timeSeries = partitionLoaderFactory.apply(partition.getValue().toString()).load(startTime, endTime);
+            List<Candle> partitionList = timeSeries.getSeries().getDataList();
+            // 各分区内有序，分区之间按日期首尾相接，只需检查接缝处
+            if (!candleList.isEmpty() && !partitionList.isEmpty()
+                    && !partitionList.get(0).getTime().isAfter(candleList.get(candleList.size() - 1).getTime())) {
+                throw new BackTestException("partition overlaps the previous one: " + partition.getValue());
+            }
+            candleList.addAll(partitionList);
+            if (timeInterval == null) {
+                timeInterval = timeSeries.getTimeInterval();
+            }
+            if (name == null) {
+                name = timeSeries.getSeries().getName();
+            }
+        }
+
+        if (timeInterval == null && candleList.size() >= 2) {
+            timeInterval = IteratorCandleCursor.inferTimeInterval(candleList.get(0), candleList.get(1));
+        }
+        return TimeSeries.create(Series.adopt(candleList, name), timeInterval);
+    }
+
+    private NavigableMap<LocalDate, Path> getPartitions() throws IOException {
+        NavigableMap<LocalDate, Path> current = partitions;
+        if (current == null) {
+            // 并发的首次加载可能各扫描一次，结果相同
+            current = listPartitions();
+            partitions = current;
+        }
+        return current;
+    }
+
+    /**
+     * 列出根目录下所有能按分区格式解析出日期的文件，只读取目录不打开文件
+     *
+     * @return 按日期排序
+     * @throws IOException
+     */
+    private NavigableMap<LocalDate, Path> listPartitions() throws IOException {
+        TreeMap<LocalDate, Path> partitions = Maps.newTreeMap();
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.filter(Files::isRegularFile).forEach(path -> {
+                String relativePath = root.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+                try {
+                    partitions.put(LocalDate.parse(relativePath, partitionFormatter), path);
+                } catch (DateTimeParseException e) {
+                    // 不属于分区的文件
+                }
+            });
+        }
+        return Collections.unmodifiableNavigableMap(partitions);
+    }
+}
@@ -0,0 +1,79 @@
+package cn.adonis.trader.framework.loader;
+
+import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.model.TimeSeries;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 已解析数据的缓存，按K线数量限制大小，超出时淘汰最近最少使用的数据
+ * TimeSeries不可变，可在多次回测、多个线程间共享
+ */
+public class SeriesCache {
+
+    // 默认缓存的最大K线数，每根Candle对象约300字节，列存储时为40字节；可通过系统属性调整
+    private static final String MAXIMUM_CANDLES_PROPERTY = "smart-trader.series-cache.maximum-candles";
+    private static final long DEFAULT_MAXIMUM_CANDLES = 1_000_000L;
+
+    private static final SeriesCache DEFAULT = create(Long.getLong(MAXIMUM_CANDLES_PROPERTY, DEFAULT_MAXIMUM_CANDLES));
+
+    private final Cache<Object, TimeSeries<Candle>> cache;
+
+    public static SeriesCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param maximumCandles 缓存的最大K线数
+     * @return
+     */
+    public static SeriesCache create(long maximumCandles) {
+        return new SeriesCache(maximumCandles);
+    }
+
+    private SeriesCache(long maximumCandles) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maximumCandles)
+                .weigher((Object key, TimeSeries<Candle> value) -> Math.max(1, value.getSeries().size()))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 同一个key并发加载时只会加载一次，加载时抛出的异常原样抛出
+     */
+    TimeSeries<Candle> get(Object key, Callable<TimeSeries<Candle>> loader) throws Exception {
+        try {
+            return cache.get(key, loader);
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * 命中、未命中、加载及淘汰次数
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
@@ -3,9 +3,23 @@ package cn.adonis.trader.framework.loader;
 import cn.adonis.trader.framework.model.Candle;
 import cn.adonis.trader.framework.model.TimeSeries;
 
+import java.time.LocalDateTime;
 
 public interface SeriesLoader {
 
     TimeSeries<Candle> load() throws Exception;
 
+    /**
+     * 只加载 [startTime, endTime] 范围内的数据
+     * 默认加载全部数据，实现类可在读取时跳过范围外的数据
+     *
+     * @param startTime >=，为null时不限制
+     * @param endTime   <=，为null时不限制
+     * @return
+     * @throws Exception
+     */
+    default TimeSeries<Candle> load(LocalDateTime startTime, LocalDateTime endTime) throws Exception {
+        return load();
+    }
+
 }
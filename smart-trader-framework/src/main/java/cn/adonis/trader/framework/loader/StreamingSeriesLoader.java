@@ -0,0 +1,11 @@
+package cn.adonis.trader.framework.loader;
+
+
+/**
+ * 流式数据加载，不需要一次性构建完整的TimeSeries
+ */
+public interface StreamingSeriesLoader {
+
+    CandleCursor open() throws Exception;
+
+}
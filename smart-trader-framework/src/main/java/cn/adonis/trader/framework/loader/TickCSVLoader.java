@@ -0,0 +1,248 @@
+package cn.adonis.trader.framework.loader;
+
+import cn.adonis.trader.framework.BackTestException;
+import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.model.Series;
+import cn.adonis.trader.framework.model.TimeInterval;
+import cn.adonis.trader.framework.model.TimeSeries;
+import cn.adonis.trader.framework.util.TimeUtil;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.math.LongMath;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * 读取逐笔成交数据(时间、价格、成交量)，单次遍历聚合成指定周期的K线
+ * 每根K线只保存常数大小的中间状态，不缓存成交数据；成交数据需按时间升序排列
+ * 字段切分规则与 {@link CSVLoader} 相同，数字和时间直接从字节解析
+ */
+public class TickCSVLoader implements CacheableSeriesLoader, StreamingSeriesLoader {
+
+    private static final String NAME = "价格";
+
+    private final String path;
+    private final TimeInterval timeInterval;
+    private final Map<Schema, CSVLoader.Column<?>> schemaMap;
+
+    private TickCSVLoader(String path, TimeInterval timeInterval) {
+        this.path = path;
+        this.timeInterval = timeInterval;
+        this.schemaMap = Maps.newHashMap();
+    }
+
+    /**
+     * @param path         文件路径
+     * @param timeInterval 聚合后的K线周期
+     * @return
+     */
+    public static TickCSVLoader newTickCSVLoader(String path, TimeInterval timeInterval) {
+        return new TickCSVLoader(path, timeInterval);
+    }
+
+    public TickCSVLoader addColumnSchema(Schema schema, CSVLoader.Column<?> column) {
+        this.schemaMap.put(schema, column);
+        return this;
+    }
+
+    public int getMaxColumnIndex() {
+        return schemaMap.values().stream().map(CSVLoader.Column::getIndex).max(Integer::compareTo).orElse(0);
+    }
+
+    @Override
+    public TimeSeries<Candle> load() throws IOException {
+        return load(null, null);
+    }
+
+    /**
+     * 先解析时间，范围外的成交不再解析价格和成交量，遇到第一笔晚于endTime的成交即停止读取
+     *
+     * @param startTime >=，为null时不限制
+     * @param endTime   <=，为null时不限制
+     * @return
+     * @throws IOException
+     */
+    @Override
+    public TimeSeries<Candle> load(LocalDateTime startTime, LocalDateTime endTime) throws IOException {
+        List<Candle> candleList = Lists.newArrayList();
+        try (CandleCursor cursor = open(startTime, endTime)) {
+            cursor.forEachRemaining(candleList::add);
+        }
+        // 聚合时已检查时间升序
+        return TimeSeries.create(Series.adopt(candleList, NAME), timeInterval);
+    }
+
+    @Override
+    public CandleCursor open() throws IOException {
+        return open(null, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private CandleCursor open(LocalDateTime startTime, LocalDateTime endTime) throws IOException {
+        CSVLoader.Column<LocalDateTime> timeColumn = (CSVLoader.Column<LocalDateTime>) schemaMap.get(Schema.TIME);
+        CSVLoader.Column<BigDecimal> priceColumn = (CSVLoader.Column<BigDecimal>) schemaMap.get(Schema.PRICE);
+        CSVLoader.Column<BigDecimal> sizeColumn = (CSVLoader.Column<BigDecimal>) schemaMap.get(Schema.SIZE);
+        if (timeColumn == null || priceColumn == null) {
+            throw new BackTestException("time and price column of tick are required");
+        }
+        MappedCSVReader.RowCursor rows = MappedCSVReader.openSequential(Paths.get(path), getMaxColumnIndex() + 1);
+        CandleAggregator aggregator = new CandleAggregator(rows, timeColumn, priceColumn, sizeColumn, startTime, endTime);
+        return IteratorCandleCursor.of(aggregator, rows, NAME, timeInterval);
+    }
+
+    @Override
+    public Object getCacheKey() throws IOException {
+        return Arrays.asList(TickCSVLoader.class, FileIdentity.of(Paths.get(path)), Maps.newHashMap(schemaMap), timeInterval);
+    }
+
+    /**
+     * 把成交依次合并进当前K线，跨入下一周期时输出当前K线
+     * 直接从字节读取字段，不为每笔成交创建中间对象；成交量按unscaled long累加
+     */
+    private class CandleAggregator implements Iterator<Candle> {
+        private final MappedCSVReader.RowCursor rows;
+        private final CSVLoader.Column<LocalDateTime> timeColumn;
+        private final CSVLoader.Column<BigDecimal> priceColumn;
+        private final CSVLoader.Column<BigDecimal> sizeColumn;
+        private final LocalDateTime startTime;
+        private final LocalDateTime endTime;
+
+        // 当前K线的状态
+        private LocalDateTime barTime;
+        private LocalDateTime barEnd; // 下一周期的开始时间
+        private BigDecimal open;
+        private BigDecimal high;
+        private BigDecimal low;
+        private BigDecimal close;
+        private long volume; // unscaled
+        private int volumeScale;
+        private long tradeCount;
+
+        private LocalDateTime lastTime;
+        private boolean finished;
+        private Candle next;
+
+        private CandleAggregator(MappedCSVReader.RowCursor rows, CSVLoader.Column<LocalDateTime> timeColumn,
+                                 CSVLoader.Column<BigDecimal> priceColumn, CSVLoader.Column<BigDecimal> sizeColumn,
+                                 LocalDateTime startTime, LocalDateTime endTime) {
+            this.rows = rows;
+            this.timeColumn = timeColumn;
+            this.priceColumn = priceColumn;
+            this.sizeColumn = sizeColumn;
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = aggregate();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Candle next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Candle candle = next;
+            next = null;
+            return candle;
+        }
+
+        private Candle aggregate() throws IOException {
+            while (!finished && rows.next()) {
+                MappedCSVReader.Row row = rows.getRow();
+                LocalDateTime time = timeColumn.getValue(row);
+                if (lastTime != null && time.isBefore(lastTime)) {
+                    throw new BackTestException("ticks must be in ascending time order: " + time);
+                }
+                lastTime = time;
+                if (startTime != null && time.isBefore(startTime)) {
+                    continue;
+                }
+                if (endTime != null && time.isAfter(endTime)) {
+                    // 成交按时间升序，之后的都在范围外
+                    finished = true;
+                    break;
+                }
+
+                Candle completed = null;
+                if (barTime != null && !time.isBefore(barEnd)) {
+                    completed = buildCandle();
+                    barTime = null;
+                }
+                BigDecimal price = priceColumn.getValue(row);
+                if (barTime == null) {
+                    barTime = TimeUtil.alignByInterval(time, timeInterval);
+                    barEnd = barTime.plusSeconds(timeInterval.toSeconds());
+                    open = high = low = price;
+                    volume = 0;
+                    volumeScale = 0;
+                    tradeCount = 0;
+                }
+                if (price.compareTo(high) > 0) {
+                    high = price;
+                }
+                if (price.compareTo(low) < 0) {
+                    low = price;
+                }
+                close = price;
+                if (sizeColumn != null) {
+                    addVolume(sizeColumn.getValue(row));
+                }
+                tradeCount++;
+                if (completed != null) {
+                    return completed;
+                }
+            }
+            if (barTime != null) {
+                Candle last = buildCandle();
+                barTime = null;
+                return last;
+            }
+            return null;
+        }
+
+        /**
+         * 按两者中较大的scale对齐后累加，超出long范围时报错
+         */
+        private void addVolume(BigDecimal size) {
+            try {
+                long unscaled = size.unscaledValue().longValueExact();
+                int scale = size.scale();
+                if (scale > volumeScale) {
+                    volume = Math.multiplyExact(volume, LongMath.checkedPow(10, scale - volumeScale));
+                    volumeScale = scale;
+                } else if (scale < volumeScale) {
+                    unscaled = Math.multiplyExact(unscaled, LongMath.checkedPow(10, volumeScale - scale));
+                }
+                volume = Math.addExact(volume, unscaled);
+            } catch (ArithmeticException e) {
+                throw new BackTestException("tick volume overflow at " + lastTime);
+            }
+        }
+
+        private Candle buildCandle() {
+            return Candle.create(open, close, high, low, barTime, BigDecimal.valueOf(volume, volumeScale), tradeCount);
+        }
+    }
+
+    public enum Schema {
+        TIME, PRICE, SIZE
+    }
+}
@@ -0,0 +1,79 @@
+package cn.adonis.trader.framework.model;
+
+import cn.adonis.trader.framework.util.FixedPoint;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * 资金账户，记录剩余资金
+ * 单品种回测时每个TradingContext独占一个账户，组合回测时各品种的TradingContext共享同一个账户
+ */
+public class Account implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private BigDecimal surplusFunds; // 剩余资金
+
+    // 定点数模式下以long为准，BigDecimal只在读取时按需转换
+    private final int fixedPointScale;
+    private long fixedSurplusFunds;
+
+    public static Account of(BackTestParameter parameter) {
+        return new Account(parameter);
+    }
+
+    private Account(BackTestParameter parameter) {
+        this.surplusFunds = parameter.getInitialFunds();
+        if (parameter.isFixedPoint()) {
+            this.fixedPointScale = parameter.getFixedPointScale();
+            this.fixedSurplusFunds = FixedPoint.of(parameter.getInitialFunds(), fixedPointScale);
+        } else {
+            this.fixedPointScale = -1;
+        }
+    }
+
+    private Account(Account source) {
+        this.surplusFunds = source.surplusFunds;
+        this.fixedPointScale = source.fixedPointScale;
+        this.fixedSurplusFunds = source.fixedSurplusFunds;
+    }
+
+    /**
+     * @return 资金相同的新账户
+     */
+    public Account copy() {
+        return new Account(this);
+    }
+
+    public boolean isFixedPoint() {
+        return fixedPointScale >= 0;
+    }
+
+    public int getFixedPointScale() {
+        return fixedPointScale;
+    }
+
+    public BigDecimal getSurplusFunds() {
+        if (surplusFunds == null) {
+            surplusFunds = FixedPoint.toBigDecimal(fixedSurplusFunds, fixedPointScale);
+        }
+        return surplusFunds;
+    }
+
+    public void setSurplusFunds(BigDecimal surplusFunds) {
+        this.surplusFunds = surplusFunds;
+        if (isFixedPoint()) {
+            this.fixedSurplusFunds = FixedPoint.of(surplusFunds, fixedPointScale);
+        }
+    }
+
+    public long getFixedSurplusFunds() {
+        return fixedSurplusFunds;
+    }
+
+    public void setFixedSurplusFunds(long fixedSurplusFunds) {
+        this.fixedSurplusFunds = fixedSurplusFunds;
+        this.surplusFunds = null;
+    }
+}
@@ -0,0 +1,193 @@
+package cn.adonis.trader.framework.model;
+
+import cn.adonis.trader.framework.util.TimeUtil;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 堆内基于基本类型数组的列存储，每根K线占40字节
+ * 价格统一放大到所有价格中最大的小数位数，成交量、成交笔数、原来的小数位数只在需要时才分配数组
+ */
+public final class ArrayCandleColumns implements CandleColumns {
+
+    static final byte NULL_SCALE = Byte.MIN_VALUE;
+
+    private final int scale;
+    private final long[] time;
+    private final long[] open;
+    private final long[] close;
+    private final long[] high;
+    private final long[] low;
+
+    private final int volumeScale;
+    private final long[] volume; // 全部为0时为null
+    private final long[] tradeCount; // 全部为0时为null
+    private final long[] originalScales; // 所有值的小数位数都与列一致时为null
+
+    public static ArrayCandleColumns of(List<Candle> candleList) {
+        int size = candleList.size();
+        int scale = 0;
+        int volumeScale = 0;
+        boolean hasVolume = false;
+        boolean hasTradeCount = false;
+        for (Candle candle : candleList) {
+            scale = Math.max(scale, Math.max(Math.max(scaleOf(candle.getOpen()), scaleOf(candle.getClose())),
+                    Math.max(scaleOf(candle.getHigh()), scaleOf(candle.getLow()))));
+            volumeScale = Math.max(volumeScale, scaleOf(candle.getVolume()));
+            hasVolume |= candle.getVolume() != null && candle.getVolume().signum() != 0;
+            hasTradeCount |= candle.getTradeCount() != 0;
+        }
+
+        long[] time = new long[size];
+        long[] open = new long[size];
+        long[] close = new long[size];
+        long[] high = new long[size];
+        long[] low = new long[size];
+        long[] volume = hasVolume ? new long[size] : null;
+        long[] tradeCount = hasTradeCount ? new long[size] : null;
+        long[] originalScales = null;
+        // 成交量全部为0时按scale为0的BigDecimal.ZERO比较
+        long uniformScales = packScales(scale, scale, scale, scale, hasVolume ? volumeScale : 0);
+        for (int i = 0; i < size; i++) {
+            Candle candle = candleList.get(i);
+            time[i] = TimeUtil.toSeconds(candle.getTime());
+            open[i] = unscaled(candle.getOpen(), scale);
+            close[i] = unscaled(candle.getClose(), scale);
+            high[i] = unscaled(candle.getHigh(), scale);
+            low[i] = unscaled(candle.getLow(), scale);
+            if (volume != null) {
+                volume[i] = unscaled(candle.getVolume(), volumeScale);
+            }
+            if (tradeCount != null) {
+                tradeCount[i] = candle.getTradeCount();
+            }
+            long scales = packScales(originalScale(candle.getOpen()), originalScale(candle.getClose()),
+                    originalScale(candle.getHigh()), originalScale(candle.getLow()), originalScale(candle.getVolume()));
+            if (originalScales == null && scales != uniformScales) {
+                originalScales = new long[size];
+                for (int j = 0; j < i; j++) {
+                    originalScales[j] = uniformScales;
+                }
+            }
+            if (originalScales != null) {
+                originalScales[i] = scales;
+            }
+        }
+        return new ArrayCandleColumns(scale, time, open, close, high, low, hasVolume ? volumeScale : 0, volume, tradeCount, originalScales);
+    }
+
+    /**
+     * 直接使用给定的数组，不复制，调用方不能再修改
+     * 多个序列可共享同一个时间列
+     */
+    public static ArrayCandleColumns wrap(int scale, long[] time, long[] open, long[] close, long[] high, long[] low) {
+        return new ArrayCandleColumns(scale, time, open, close, high, low, 0, null, null, null);
+    }
+
+    private ArrayCandleColumns(int scale, long[] time, long[] open, long[] close, long[] high, long[] low,
+                               int volumeScale, long[] volume, long[] tradeCount, long[] originalScales) {
+        this.scale = scale;
+        this.time = time;
+        this.open = open;
+        this.close = close;
+        this.high = high;
+        this.low = low;
+        this.volumeScale = volumeScale;
+        this.volume = volume;
+        this.tradeCount = tradeCount;
+        this.originalScales = originalScales;
+    }
+
+    private static int scaleOf(BigDecimal value) {
+        return value == null ? 0 : Math.max(value.scale(), 0);
+    }
+
+    private static int originalScale(BigDecimal value) {
+        if (value == null) {
+            return NULL_SCALE;
+        }
+        if (value.scale() <= NULL_SCALE || value.scale() > Byte.MAX_VALUE) {
+            throw new ArithmeticException("scale out of range: " + value);
+        }
+        return value.scale();
+    }
+
+    private static long packScales(int open, int close, int high, int low, int volume) {
+        return (open & 0xffL) | (close & 0xffL) << 8 | (high & 0xffL) << 16 | (low & 0xffL) << 24 | (volume & 0xffL) << 32;
+    }
+
+    /**
+     * 从 {@link CandleColumns#getOriginalScales(int)} 中取出第field个值的小数位数
+     */
+    static int unpackScale(long scales, int field) {
+        return (byte) (scales >>> (field * 8));
+    }
+
+    private static long unscaled(BigDecimal value, int scale) {
+        if (value == null) {
+            return 0;
+        }
+        return value.setScale(scale, BigDecimal.ROUND_UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    @Override
+    public int size() {
+        return time.length;
+    }
+
+    @Override
+    public int getScale() {
+        return scale;
+    }
+
+    @Override
+    public long getTime(int index) {
+        return time[index];
+    }
+
+    @Override
+    public long getOpen(int index) {
+        return open[index];
+    }
+
+    @Override
+    public long getClose(int index) {
+        return close[index];
+    }
+
+    @Override
+    public long getHigh(int index) {
+        return high[index];
+    }
+
+    @Override
+    public long getLow(int index) {
+        return low[index];
+    }
+
+    @Override
+    public long getVolume(int index) {
+        return volume == null ? 0 : volume[index];
+    }
+
+    @Override
+    public int getVolumeScale() {
+        return volumeScale;
+    }
+
+    @Override
+    public long getTradeCount(int index) {
+        return tradeCount == null ? 0 : tradeCount[index];
+    }
+
+    @Override
+    public boolean hasOriginalScales() {
+        return originalScales != null;
+    }
+
+    @Override
+    public long getOriginalScales(int index) {
+        return originalScales[index];
+    }
+}
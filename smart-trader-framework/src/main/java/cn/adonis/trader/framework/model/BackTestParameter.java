@@ -1,7 +1,10 @@
 package cn.adonis.trader.framework.model;
 
+import cn.adonis.trader.framework.util.FixedPoint;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.Optional;
 
 public class BackTestParameter {
@@ -18,6 +21,12 @@ public class BackTestParameter {
 
     private final LocalDateTime endTime;
 
+    private final TimeInterval warmUpInterval; // 预热区间，startTime之前只加载该范围的数据，为null时加载全部历史
+
+    private final Integer fixedPointScale; // 定点数小数位数，为null时使用BigDecimal计算持仓、资金和结算
+
+    private final IntraBarPath intraBarPath; // 挂单撮合时K线内的价格路径
+
     public static Builder builder() {
         return new Builder();
     }
@@ -26,13 +35,17 @@ public class BackTestParameter {
     private BackTestParameter(BigDecimal initialFunds, TradingFee tradingFee,
                               boolean throwExceptionIfSurplusFundsUnqualified,
                               BigDecimal overspendRate, LocalDateTime startTime,
-                              LocalDateTime endTime) {
+                              LocalDateTime endTime, TimeInterval warmUpInterval,
+                              Integer fixedPointScale, IntraBarPath intraBarPath) {
         this.initialFunds = initialFunds;
         this.tradingFee = tradingFee;
         this.throwExceptionIfSurplusFundsUnqualified = throwExceptionIfSurplusFundsUnqualified;
         this.overspendRate = overspendRate;
         this.startTime = startTime;
         this.endTime = endTime;
+        this.warmUpInterval = warmUpInterval;
+        this.fixedPointScale = fixedPointScale;
+        this.intraBarPath = intraBarPath;
     }
 
     public BigDecimal getInitialFunds() {
@@ -59,6 +72,51 @@ public class BackTestParameter {
         return endTime;
     }
 
+    public TimeInterval getWarmUpInterval() {
+        return warmUpInterval;
+    }
+
+    public boolean isFixedPoint() {
+        return fixedPointScale != null;
+    }
+
+    public Integer getFixedPointScale() {
+        return fixedPointScale;
+    }
+
+    public IntraBarPath getIntraBarPath() {
+        return intraBarPath;
+    }
+
+    /**
+     * 需要加载数据的起始时间，为null时加载全部历史
+     *
+     * @return
+     */
+    public LocalDateTime getLoadStartTime() {
+        if (warmUpInterval == null || startTime == null) {
+            return null;
+        }
+        return startTime.minus(warmUpInterval.toMilliseconds(), ChronoUnit.MILLIS);
+    }
+
+    /**
+     * @return 以当前参数为初始值的builder，用于派生只修改部分参数(如起止时间)的新参数
+     */
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        builder.initialFunds = initialFunds.toPlainString();
+        builder.tradingFee = tradingFee;
+        builder.overspendRate = overspendRate.toPlainString();
+        builder.throwExceptionIfSurplusFundsUnqualified = throwExceptionIfSurplusFundsUnqualified;
+        builder.startTime = startTime;
+        builder.endTime = endTime;
+        builder.warmUpInterval = warmUpInterval;
+        builder.fixedPointScale = fixedPointScale;
+        builder.intraBarPath = intraBarPath;
+        return builder;
+    }
+
     public static class Builder{
         private String initialFunds;
         private TradingFee tradingFee;
@@ -66,6 +124,9 @@ public class BackTestParameter {
         private boolean throwExceptionIfSurplusFundsUnqualified;
         private LocalDateTime startTime;
         private LocalDateTime endTime;
+        private TimeInterval warmUpInterval;
+        private Integer fixedPointScale;
+        private IntraBarPath intraBarPath = IntraBarPath.NEAREST_FIRST;
 
         public Builder setInitialFunds(String initialFunds) {
             this.initialFunds = initialFunds;
@@ -97,11 +158,39 @@ public class BackTestParameter {
             return this;
         }
 
+        public Builder setWarmUpInterval(TimeInterval warmUpInterval) {
+            this.warmUpInterval = warmUpInterval;
+            return this;
+        }
+
+        /**
+         * 使用定点数计算持仓、资金和结算
+         * scale不小于价格与手续费的小数位数之和时，结果与BigDecimal计算完全一致，否则每次乘法按HALF_UP舍入
+         *
+         * @param fixedPointScale 小数位数，0~18
+         * @return
+         */
+        public Builder setFixedPointScale(int fixedPointScale) {
+            FixedPoint.factor(fixedPointScale);
+            this.fixedPointScale = fixedPointScale;
+            return this;
+        }
+
+        /**
+         * @param intraBarPath 挂单撮合时K线内的价格路径，默认 {@link IntraBarPath#NEAREST_FIRST}
+         * @return
+         */
+        public Builder setIntraBarPath(IntraBarPath intraBarPath) {
+            this.intraBarPath = intraBarPath;
+            return this;
+        }
+
         public BackTestParameter build() {
             return new BackTestParameter(Optional.ofNullable(initialFunds).map(BigDecimal::new).orElse(BigDecimal.ZERO),
                     tradingFee, throwExceptionIfSurplusFundsUnqualified,
                     Optional.ofNullable(overspendRate).map(BigDecimal::new).orElse(BigDecimal.ZERO),
-                    startTime, endTime);
+                    startTime, endTime, warmUpInterval, fixedPointScale,
+                    Optional.ofNullable(intraBarPath).orElse(IntraBarPath.NEAREST_FIRST));
         }
     }
 }
@@ -69,15 +69,16 @@ public class BackTestResult {
         List<String> priceStrList = originalData.getSeries().stream().map(Candle::getClose).map(b -> b.setScale(2, RoundingMode.HALF_UP)).map(b -> b.stripTrailingZeros().toPlainString()).collect(Collectors.toList());
         BigDecimal high = originalData.getSeries().stream().map(Candle::getClose).max(BigDecimal::compareTo).get();
         BigDecimal low = originalData.getSeries().stream().map(Candle::getClose).min(BigDecimal::compareTo).get();
-        Map<LocalDateTime, Transaction> timeTransactionMap = transactions.stream().collect(Collectors.toMap(Transaction::getTime, t -> t));
+        // 挂单成交时同一根K线可能有多笔交易
+        Map<LocalDateTime, BigDecimal> timeVolumeMap = transactions.stream().collect(Collectors.toMap(Transaction::getTime, Transaction::getVolume, BigDecimal::add));
 
         // 持仓对齐
         BigDecimal holdVolume = BigDecimal.ZERO;
         List<String> holdVolumeStrList = Lists.newArrayListWithCapacity(originalData.getSeries().size());
         for (Candle candle : originalData.getSeries().getDataList()) {
-            Transaction transaction = timeTransactionMap.get(candle.getTime());
-            if (transaction != null) {
-                holdVolume = holdVolume.add(transaction.getVolume());
+            BigDecimal volume = timeVolumeMap.get(candle.getTime());
+            if (volume != null) {
+                holdVolume = holdVolume.add(volume);
             }
             holdVolumeStrList.add(holdVolume.stripTrailingZeros().toPlainString());
         }
@@ -85,11 +86,11 @@ public class BackTestResult {
         // 收益对齐
         BigDecimal profit = BigDecimal.ZERO;
         List<String> settlementStrList = Lists.newArrayListWithCapacity(settlements.size());
-        Map<LocalDateTime, Settlement> timeSettlementMap = settlements.stream().collect(Collectors.toMap(Settlement::getTime, s -> s));
+        Map<LocalDateTime, BigDecimal> timeProfitMap = settlements.stream().collect(Collectors.toMap(Settlement::getTime, Settlement::getProfit, BigDecimal::add));
         for (Candle candle : originalData.getSeries().getDataList()) {
-            Settlement settlement = timeSettlementMap.get(candle.getTime());
-            if (settlement != null) {
-                profit = profit.add(settlement.getProfit());
+            BigDecimal settlementProfit = timeProfitMap.get(candle.getTime());
+            if (settlementProfit != null) {
+                profit = profit.add(settlementProfit);
             }
             settlementStrList.add(profit.stripTrailingZeros().toPlainString());
         }
@@ -1,28 +1,56 @@
 package cn.adonis.trader.framework.model;
 
+import cn.adonis.trader.framework.util.FixedPoint;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 public final class Candle extends TimeDataPoint {
 
+	private static final long serialVersionUID = 1L;
+
 	private final BigDecimal open;
 	private final BigDecimal high;
 	private final BigDecimal low;
+	private final BigDecimal volume; // 成交量
+	private final long tradeCount; // 成交笔数
+	private transient FixedPoint.Exact fixedClose; // 定点数收盘价，首次使用时转换
 
 
 	public static Candle create(BigDecimal open, BigDecimal close, BigDecimal high, BigDecimal low, LocalDateTime time) {
 		return new Candle(open, close, high, low, time);
 	}
 
+	public static Candle create(BigDecimal open, BigDecimal close, BigDecimal high, BigDecimal low, LocalDateTime time,
+								BigDecimal volume, long tradeCount) {
+		return new Candle(open, close, high, low, time, volume, tradeCount);
+	}
+
 	public static Candle createFindKey(LocalDateTime time) {
 		return create(null, null, null, null, time);
 	}
 
 	public Candle(BigDecimal open, BigDecimal close, BigDecimal high, BigDecimal low, LocalDateTime time) {
+		this(open, close, high, low, time, BigDecimal.ZERO, 0);
+	}
+
+	public Candle(BigDecimal open, BigDecimal close, BigDecimal high, BigDecimal low, LocalDateTime time,
+				  BigDecimal volume, long tradeCount) {
 		super(close, time);
 		this.open = open;
 		this.high = high;
 		this.low = low;
+		this.volume = volume;
+		this.tradeCount = tradeCount;
+	}
+
+	/**
+	 * 列存储创建的K线直接带上收盘价的定点数，不再从BigDecimal转换
+	 */
+	Candle(BigDecimal open, BigDecimal close, BigDecimal high, BigDecimal low, LocalDateTime time,
+		   BigDecimal volume, long tradeCount, FixedPoint.Exact fixedClose) {
+		this(open, close, high, low, time, volume, tradeCount);
+		this.fixedClose = fixedClose;
 	}
 
 	public BigDecimal getOpen() {
@@ -41,10 +69,34 @@ public final class Candle extends TimeDataPoint {
 		return low;
 	}
 
+	/**
+	 * @param scale 定点数小数位数
+	 * @return 收盘价的定点数，同一根K线只转换一次
+	 */
+	public long getFixedClose(int scale) {
+		FixedPoint.Exact exact = fixedClose;
+		if (exact == null) {
+			exact = FixedPoint.Exact.of(value);
+			if (exact == null) {
+				return FixedPoint.of(value, scale);
+			}
+			fixedClose = exact;
+		}
+		return exact.to(scale);
+	}
+
 	public LocalDateTime getTime() {
 		return time;
 	}
 
+	public BigDecimal getVolume() {
+		return volume;
+	}
+
+	public long getTradeCount() {
+		return tradeCount;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o)
@@ -67,6 +119,6 @@ public final class Candle extends TimeDataPoint {
 	}
 
 	public Candle modifyTime(LocalDateTime time) {
-		return Candle.create(getOpen(), getClose(), getHigh(), getLow(), time);
+		return Candle.create(getOpen(), getClose(), getHigh(), getLow(), time, getVolume(), getTradeCount());
 	}
 }
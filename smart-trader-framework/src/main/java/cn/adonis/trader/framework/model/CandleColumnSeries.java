@@ -0,0 +1,158 @@
+package cn.adonis.trader.framework.model;
+
+import cn.adonis.trader.framework.BackTestException;
+import cn.adonis.trader.framework.util.FixedPoint;
+import cn.adonis.trader.framework.util.TimeUtil;
+
+import java.math.BigDecimal;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * 基于列存储的K线序列，Candle对象仅在访问时创建
+ * find、subSeries直接在时间列上二分查找，返回共享同一份列数据的区间
+ */
+public class CandleColumnSeries extends Series<Candle> {
+
+    private final CandleColumns columns;
+    private final int from;
+    private final int to;
+
+    public static CandleColumnSeries create(CandleColumns columns, String name) {
+        return new CandleColumnSeries(columns, 0, columns.size(), name);
+    }
+
+    /**
+     * 复制为堆内列存储
+     *
+     * @param series 有序的K线序列
+     * @return
+     */
+    public static CandleColumnSeries copyOf(Series<Candle> series) {
+        if (series instanceof CandleColumnSeries) {
+            return (CandleColumnSeries) series;
+        }
+        return create(ArrayCandleColumns.of(series.getDataList()), series.getName());
+    }
+
+    private CandleColumnSeries(CandleColumns columns, int from, int to, String name) {
+        super(new CandleList(columns, from, to), name);
+        this.columns = columns;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public Series<Candle> find(Candle startX, Candle endX) {
+        int start = startX == null ? from : columns.lowerBound(TimeUtil.toSeconds(startX.getTime()), from, to);
+        int end = endX == null ? to : columns.upperBound(TimeUtil.toSeconds(endX.getTime()), start, to);
+        return new CandleColumnSeries(columns, start, end, getName());
+    }
+
+    @Override
+    public Series<Candle> subSeries(Candle point, int beforeCount) {
+        long time = TimeUtil.toSeconds(point.getTime());
+        int index = columns.lowerBound(time, from, to);
+        if (index == to || columns.getTime(index) != time) {
+            throw new BackTestException("can not find point index");
+        }
+        int startIndex = index - beforeCount;
+        if (startIndex < from) {
+            return new CandleColumnSeries(columns, index, index, getName());
+        }
+        return new CandleColumnSeries(columns, startIndex, index, getName());
+    }
+
+    @Override
+    public Series<Candle> slice(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", size: " + size());
+        }
+        return new CandleColumnSeries(columns, from + fromIndex, from + toIndex, getName());
+    }
+
+    @Override
+    public Object getStorage() {
+        return columns;
+    }
+
+    @Override
+    public int getStorageOffset() {
+        return from;
+    }
+
+    public CandleColumns getColumns() {
+        return columns;
+    }
+
+    /**
+     * 当前区间在columns中的起始下标(包含)
+     */
+    public int getFromIndex() {
+        return from;
+    }
+
+    /**
+     * 当前区间在columns中的结束下标(不包含)
+     */
+    public int getToIndex() {
+        return to;
+    }
+
+    private static class CandleList extends AbstractList<Candle> implements RandomAccess {
+        private final CandleColumns columns;
+        private final int from;
+        private final int size;
+
+        private CandleList(CandleColumns columns, int from, int to) {
+            this.columns = columns;
+            this.from = from;
+            this.size = to - from;
+        }
+
+        @Override
+        public Candle get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+            }
+            int i = from + index;
+            int scale = columns.getScale();
+            int volumeScale = columns.getVolumeScale();
+            if (!columns.hasOriginalScales()) {
+                return new Candle(BigDecimal.valueOf(columns.getOpen(i), scale),
+                        BigDecimal.valueOf(columns.getClose(i), scale),
+                        BigDecimal.valueOf(columns.getHigh(i), scale),
+                        BigDecimal.valueOf(columns.getLow(i), scale),
+                        TimeUtil.toLocalDateTime(columns.getTime(i)),
+                        BigDecimal.valueOf(columns.getVolume(i), volumeScale),
+                        columns.getTradeCount(i),
+                        scale <= FixedPoint.MAX_SCALE ? FixedPoint.Exact.of(columns.getClose(i), scale) : null);
+            }
+            long scales = columns.getOriginalScales(i);
+            return Candle.create(restore(columns.getOpen(i), scale, scales, 0),
+                    restore(columns.getClose(i), scale, scales, 1),
+                    restore(columns.getHigh(i), scale, scales, 2),
+                    restore(columns.getLow(i), scale, scales, 3),
+                    TimeUtil.toLocalDateTime(columns.getTime(i)),
+                    restore(columns.getVolume(i), volumeScale, scales, 4),
+                    columns.getTradeCount(i));
+        }
+
+        /**
+         * 恢复为原来的小数位数，使列存储前后的BigDecimal相等
+         */
+        private static BigDecimal restore(long unscaled, int scale, long scales, int field) {
+            int originalScale = ArrayCandleColumns.unpackScale(scales, field);
+            if (originalScale == ArrayCandleColumns.NULL_SCALE) {
+                return null;
+            }
+            BigDecimal value = BigDecimal.valueOf(unscaled, scale);
+            return originalScale == scale ? value : value.setScale(originalScale, BigDecimal.ROUND_UNNECESSARY);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
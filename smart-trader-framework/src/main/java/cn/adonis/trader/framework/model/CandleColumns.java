@@ -0,0 +1,89 @@
+package cn.adonis.trader.framework.model;
+
+/**
+ * 按列存储的K线数据
+ * 时间为epoch秒（按TimeUtil.TIME_ZONE换算），价格为按scale放大后的long
+ */
+public interface CandleColumns {
+
+    int size();
+
+    /**
+     * 价格的小数位数
+     */
+    int getScale();
+
+    long getTime(int index);
+
+    long getOpen(int index);
+
+    long getClose(int index);
+
+    long getHigh(int index);
+
+    long getLow(int index);
+
+    /**
+     * 成交量，按 {@link #getVolumeScale()} 放大，无成交量列时为0
+     */
+    default long getVolume(int index) {
+        return 0;
+    }
+
+    default int getVolumeScale() {
+        return 0;
+    }
+
+    default long getTradeCount(int index) {
+        return 0;
+    }
+
+    /**
+     * 是否记录了每个值原来的小数位数，为false时所有价格的小数位数均为getScale()，成交量均为getVolumeScale()
+     */
+    default boolean hasOriginalScales() {
+        return false;
+    }
+
+    /**
+     * open、close、high、low、volume原来的小数位数，由低到高每个占一个字节(有符号)，-128表示该值为null
+     * 只在 {@link #hasOriginalScales()} 为true时有效
+     */
+    default long getOriginalScales(int index) {
+        return 0;
+    }
+
+    /**
+     * [from, to)中第一个时间 >= time 的下标，不存在时返回to
+     */
+    default int lowerBound(long time, int from, int to) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getTime(middle) < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * [from, to)中第一个时间 > time 的下标，不存在时返回to
+     */
+    default int upperBound(long time, int from, int to) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getTime(middle) <= time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,72 @@
+package cn.adonis.trader.framework.model;
+
+import cn.adonis.trader.framework.BackTestException;
+import com.google.common.collect.Lists;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * 流式回测时保留的最近一段K线，只保留 [最新时间 - lookback, 最新时间] 范围内的数据
+ */
+public class CandleWindow {
+
+    private final TimeInterval lookback;
+    private final TimeInterval timeInterval;
+    private final String name;
+    // 只在末尾追加，窗口为 [head, candles.size())；已生成的Series视图共享这份数据，淘汰过半时换用新的列表
+    private List<Candle> candles = Lists.newArrayList();
+    private int head;
+
+    private TimeSeries<Candle> timeSeries; // 缓存当前窗口对应的TimeSeries，add后失效
+
+    public static CandleWindow create(TimeInterval lookback, TimeInterval timeInterval, String name) {
+        if (lookback == null) {
+            throw new BackTestException("lookback of candle window is required");
+        }
+        return new CandleWindow(lookback, timeInterval, name);
+    }
+
+    private CandleWindow(TimeInterval lookback, TimeInterval timeInterval, String name) {
+        this.lookback = lookback;
+        this.timeInterval = timeInterval;
+        this.name = name;
+    }
+
+    /**
+     * 追加一根K线并移除超出lookback的旧数据
+     *
+     * @param candle 时间必须晚于窗口中最新的K线
+     */
+    public void add(Candle candle) {
+        if (head < candles.size() && !candle.getTime().isAfter(candles.get(candles.size() - 1).getTime())) {
+            throw new BackTestException("candles must be in ascending time order: " + candle.getTime());
+        }
+        candles.add(candle);
+        LocalDateTime earliest = candle.getTime().minus(lookback.toMilliseconds(), ChronoUnit.MILLIS);
+        while (candles.get(head).getTime().isBefore(earliest)) {
+            head++;
+        }
+        if (head > candles.size() / 2) {
+            candles = Lists.newArrayList(candles.subList(head, candles.size()));
+            head = 0;
+        }
+        timeSeries = null;
+    }
+
+    public int size() {
+        return candles.size() - head;
+    }
+
+    public TimeSeries<Candle> getTimeSeries() {
+        if (timeSeries == null) {
+            timeSeries = TimeSeries.create(Series.view(candles, head, candles.size(), name), timeInterval);
+        }
+        return timeSeries;
+    }
+
+    public TimeInterval getLookback() {
+        return lookback;
+    }
+}
@@ -2,14 +2,22 @@ package cn.adonis.trader.framework.model;
 
 
 import cn.adonis.trader.framework.util.BigDecimalUtil;
+import cn.adonis.trader.framework.util.FixedPoint;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 
-public class Decision {
+public class Decision implements Serializable {
 
-    private final BigDecimal volume;
+    private static final long serialVersionUID = 1L;
+
+    private BigDecimal volume; // 定点数创建时按需转换
     private final Reason reason;
 
+    // 定点数数额，BigDecimal创建时首次使用才转换
+    private FixedPoint.Exact fixedVolume;
+    private final int volumeScale; // 对应BigDecimal的小数位数
+
     public static Decision DO_NOTHING = of(BigDecimal.ZERO, null);
 
     public static Decision buy(BigDecimal volume, Reason reason) {
@@ -21,27 +29,78 @@ public class Decision {
     }
 
     public static Decision of(BigDecimal volume, Reason reason) {
-        return new Decision(volume, reason);
+        return new Decision(volume, null, volume.scale(), reason);
+    }
+
+    /**
+     * 直接以定点数创建，不经过BigDecimal
+     *
+     * @param volume      定点数数额
+     * @param scale       定点数小数位数
+     * @param volumeScale 对应BigDecimal的小数位数，{@link #getVolume()}按此位数返回
+     * @param reason
+     * @return
+     */
+    public static Decision ofFixed(long volume, int scale, int volumeScale, Reason reason) {
+        return new Decision(null, FixedPoint.Exact.of(volume, scale), volumeScale, reason);
     }
 
-    private Decision(BigDecimal volume, Reason reason) {
+    private Decision(BigDecimal volume, FixedPoint.Exact fixedVolume, int volumeScale, Reason reason) {
         this.volume = volume;
+        this.fixedVolume = fixedVolume;
+        this.volumeScale = volumeScale;
         this.reason = reason;
     }
 
     public BigDecimal getVolume() {
+        if (volume == null) {
+            volume = BigDecimal.valueOf(fixedVolume.to(volumeScale), volumeScale);
+        }
         return volume;
     }
 
+    /**
+     * @param scale 定点数小数位数
+     * @return 定点数数额，同一个Decision只转换一次
+     */
+    public long getFixedVolume(int scale) {
+        FixedPoint.Exact exact = fixedVolume;
+        if (exact == null) {
+            exact = FixedPoint.Exact.of(volume);
+            if (exact == null) {
+                return FixedPoint.of(volume, scale);
+            }
+            fixedVolume = exact;
+        }
+        return exact.to(scale);
+    }
+
+    /**
+     * @return 对应BigDecimal的小数位数
+     */
+    public int getVolumeScale() {
+        return volumeScale;
+    }
+
     public boolean isBuy() {
+        if (volume == null) {
+            return fixedVolume.signum() > 0;
+        }
         return BigDecimalUtil.greaterThanZero(volume);
     }
 
     public boolean isSell() {
+        if (volume == null) {
+            return fixedVolume.signum() < 0;
+        }
         return BigDecimalUtil.lessThanZero(volume);
     }
 
     public boolean doNoting() {
+        if (volume == null) {
+            // 与equalsZero一致，小数位数不为0时不相等
+            return fixedVolume.signum() == 0 && volumeScale == 0;
+        }
         return BigDecimalUtil.equalsZero(volume);
     }
 
@@ -0,0 +1,37 @@
+package cn.adonis.trader.framework.model;
+
+import java.math.BigDecimal;
+
+/**
+ * K线内的价格路径模型，挂单按路径依次撮合
+ * 路径的第一个点为开盘价，最后一个点为收盘价，相邻两点之间价格单调变化
+ */
+public interface IntraBarPath {
+
+    /**
+     * 开盘 -&gt; 最高 -&gt; 最低 -&gt; 收盘
+     */
+    IntraBarPath OPEN_HIGH_LOW_CLOSE = candle -> new BigDecimal[]{candle.getOpen(), candle.getHigh(), candle.getLow(), candle.getClose()};
+
+    /**
+     * 开盘 -&gt; 最低 -&gt; 最高 -&gt; 收盘
+     */
+    IntraBarPath OPEN_LOW_HIGH_CLOSE = candle -> new BigDecimal[]{candle.getOpen(), candle.getLow(), candle.getHigh(), candle.getClose()};
+
+    /**
+     * 先到达离开盘价较近的极值，距离相同时先到最高价
+     */
+    IntraBarPath NEAREST_FIRST = candle -> {
+        BigDecimal toHigh = candle.getHigh().subtract(candle.getOpen());
+        BigDecimal toLow = candle.getOpen().subtract(candle.getLow());
+        return toHigh.compareTo(toLow) <= 0
+                ? OPEN_HIGH_LOW_CLOSE.of(candle)
+                : OPEN_LOW_HIGH_CLOSE.of(candle);
+    };
+
+    /**
+     * @param candle
+     * @return 按时间顺序经过的价格
+     */
+    BigDecimal[] of(Candle candle);
+}
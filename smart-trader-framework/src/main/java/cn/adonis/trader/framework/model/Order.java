@@ -0,0 +1,154 @@
+package cn.adonis.trader.framework.model;
+
+import cn.adonis.trader.framework.BackTestException;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 挂单，提交到 {@link OrderBook} 后从下一根K线开始按K线内的价格路径撮合
+ * 数量和方向由decision决定，买入为正，卖出为负
+ * <ul>
+ * <li>LIMIT：买单价格不高于limitPrice时成交，卖单价格不低于limitPrice时成交</li>
+ * <li>STOP：买单价格不低于stopPrice时触发，卖单价格不高于stopPrice时触发，触发后按触发价成交</li>
+ * <li>STOP_LIMIT：按STOP的条件触发，触发后变为limitPrice的LIMIT单</li>
+ * </ul>
+ * 开盘即满足条件(跳空)时按开盘价成交
+ */
+public class Order implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Type type;
+    private final Decision decision;
+    private final BigDecimal limitPrice;
+    private final BigDecimal stopPrice;
+
+    private long id;
+    private Status status = Status.NEW;
+    private boolean triggered; // STOP_LIMIT是否已触发
+    private BigDecimal fillPrice;
+    private LocalDateTime fillTime;
+
+    public static Order limit(Decision decision, BigDecimal limitPrice) {
+        return new Order(Type.LIMIT, decision, limitPrice, null);
+    }
+
+    public static Order stop(Decision decision, BigDecimal stopPrice) {
+        return new Order(Type.STOP, decision, null, stopPrice);
+    }
+
+    public static Order stopLimit(Decision decision, BigDecimal stopPrice, BigDecimal limitPrice) {
+        return new Order(Type.STOP_LIMIT, decision, limitPrice, stopPrice);
+    }
+
+    private Order(Type type, Decision decision, BigDecimal limitPrice, BigDecimal stopPrice) {
+        if (decision == null || decision.doNoting()) {
+            throw new BackTestException("order volume must not be zero");
+        }
+        if ((type != Type.STOP && limitPrice == null) || (type != Type.LIMIT && stopPrice == null)) {
+            throw new BackTestException("price is required for " + type + " order");
+        }
+        this.type = type;
+        this.decision = decision;
+        this.limitPrice = limitPrice;
+        this.stopPrice = stopPrice;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Decision getDecision() {
+        return decision;
+    }
+
+    public BigDecimal getVolume() {
+        return decision.getVolume();
+    }
+
+    public boolean isBuy() {
+        return decision.isBuy();
+    }
+
+    public BigDecimal getLimitPrice() {
+        return limitPrice;
+    }
+
+    public BigDecimal getStopPrice() {
+        return stopPrice;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isOpen() {
+        return status == Status.OPEN;
+    }
+
+    /**
+     * @return 是否按限价撮合：LIMIT单或已触发的STOP_LIMIT单
+     */
+    public boolean isLimit() {
+        return type == Type.LIMIT || (type == Type.STOP_LIMIT && triggered);
+    }
+
+    public boolean isTriggered() {
+        return triggered;
+    }
+
+    public BigDecimal getFillPrice() {
+        return fillPrice;
+    }
+
+    public LocalDateTime getFillTime() {
+        return fillTime;
+    }
+
+    Order copy() {
+        Order copy = new Order(type, decision, limitPrice, stopPrice);
+        copy.id = id;
+        copy.status = status;
+        copy.triggered = triggered;
+        copy.fillPrice = fillPrice;
+        copy.fillTime = fillTime;
+        return copy;
+    }
+
+    void open(long id) {
+        this.id = id;
+        this.status = Status.OPEN;
+    }
+
+    void trigger() {
+        this.triggered = true;
+    }
+
+    void fill(BigDecimal price, LocalDateTime time) {
+        this.status = Status.FILLED;
+        this.fillPrice = price;
+        this.fillTime = time;
+    }
+
+    void close(Status status) {
+        this.status = status;
+    }
+
+    public enum Type {
+        LIMIT, STOP, STOP_LIMIT;
+    }
+
+    public enum Status {
+        NEW, // 未提交
+        OPEN, // 挂单中
+        FILLED,
+        CANCELED,
+        REJECTED; // 资金不足等原因成交失败
+    }
+}
@@ -0,0 +1,280 @@
+package cn.adonis.trader.framework.model;
+
+import cn.adonis.trader.framework.BackTestException;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 挂单簿，按价格索引未成交的挂单
+ * 撮合时沿K线内的价格路径逐段推进，每段只从索引中取出价格落在该段范围内的挂单，成本为 O(log n + 成交数)，不遍历全部挂单
+ * 取出的挂单放入事件队列，按路径上到达的先后(价格)及提交顺序依次成交
+ */
+public class OrderBook implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 成交回调，按成交价更新持仓和资金
+     */
+    public interface FillHandler {
+        /**
+         * @return false表示成交失败(如资金不足)，挂单被拒绝
+         */
+        boolean fill(Order order, BigDecimal price);
+    }
+
+    // 价格 -> 该价位的挂单，按提交顺序
+    private final TreeMap<BigDecimal, Set<Order>> buyLimits = Maps.newTreeMap();
+    private final TreeMap<BigDecimal, Set<Order>> sellLimits = Maps.newTreeMap();
+    private final TreeMap<BigDecimal, Set<Order>> buyStops = Maps.newTreeMap();
+    private final TreeMap<BigDecimal, Set<Order>> sellStops = Maps.newTreeMap();
+
+    private final Map<Long, Order> openOrders = Maps.newLinkedHashMap();
+    private long nextId = 1;
+
+    /**
+     * 提交挂单，从下一根K线开始撮合
+     * 在撮合回调中提交的挂单从回调时的成交价继续撮合：已满足条件的(如可立即成交的限价单)按该价格立即成交，
+     * 其余的在当前段剩余的路径及之后的段上撮合
+     *
+     * @param order
+     * @return 订单号
+     */
+    public long submit(Order order) {
+        if (order.getStatus() != Order.Status.NEW) {
+            throw new BackTestException("order has been submitted: " + order.getId());
+        }
+        order.open(nextId++);
+        openOrders.put(order.getId(), order);
+        index(order);
+        return order.getId();
+    }
+
+    /**
+     * @param id 订单号
+     * @return 是否撤单成功，已成交或已撤销的挂单返回false
+     */
+    public boolean cancel(long id) {
+        Order order = openOrders.remove(id);
+        if (order == null) {
+            return false;
+        }
+        unindex(order);
+        order.close(Order.Status.CANCELED);
+        return true;
+    }
+
+    /**
+     * @return 包含全部挂单副本的新挂单簿，之后与原挂单簿互不影响
+     */
+    public OrderBook copy() {
+        OrderBook copy = new OrderBook();
+        copy.nextId = nextId;
+        for (Order order : openOrders.values()) {
+            Order orderCopy = order.copy();
+            copy.openOrders.put(orderCopy.getId(), orderCopy);
+            copy.index(orderCopy);
+        }
+        return copy;
+    }
+
+    public void cancelAll() {
+        for (Order order : Lists.newArrayList(openOrders.values())) {
+            cancel(order.getId());
+        }
+    }
+
+    public Collection<Order> getOpenOrders() {
+        return Collections.unmodifiableCollection(openOrders.values());
+    }
+
+    public int size() {
+        return openOrders.size();
+    }
+
+    public boolean isEmpty() {
+        return openOrders.isEmpty();
+    }
+
+    /**
+     * 按K线内的价格路径撮合挂单
+     *
+     * @param candle
+     * @param path    价格路径模型
+     * @param handler 成交回调
+     */
+    public void match(Candle candle, IntraBarPath path, FillHandler handler) {
+        if (openOrders.isEmpty()) {
+            return;
+        }
+        BigDecimal[] points = path.of(candle);
+        // 开盘时已满足条件的挂单按开盘价成交
+        matchAt(points[0], candle, handler);
+        for (int i = 1; i < points.length && !openOrders.isEmpty(); i++) {
+            int direction = points[i].compareTo(points[i - 1]);
+            if (direction != 0) {
+                matchSegment(points[i - 1], points[i], direction > 0, candle, handler);
+            }
+        }
+    }
+
+    /**
+     * 价格为price时已满足条件的挂单，全部按price成交，按提交顺序处理
+     */
+    private void matchAt(BigDecimal price, Candle candle, FillHandler handler) {
+        PriorityQueue<Event> events = new PriorityQueue<>(Event.BY_SEQUENCE);
+        collect(buyLimits.tailMap(price, true), price, events);
+        collect(sellLimits.headMap(price, true), price, events);
+        collect(buyStops.headMap(price, true), price, events);
+        collect(sellStops.tailMap(price, true), price, events);
+        process(events, price, 0, candle, handler);
+    }
+
+    /**
+     * 价格从from单调变化到to，(from, to] 内的挂单按到达的先后成交
+     * 上涨时卖出限价单和买入止损单被触及，下跌时买入限价单和卖出止损单被触及
+     */
+    private void matchSegment(BigDecimal from, BigDecimal to, boolean up, Candle candle, FillHandler handler) {
+        PriorityQueue<Event> events;
+        if (up) {
+            events = new PriorityQueue<>(Event.ASCENDING);
+            collectAtOwnPrice(sellLimits.subMap(from, false, to, true), events);
+            collectAtOwnPrice(buyStops.subMap(from, false, to, true), events);
+        } else {
+            events = new PriorityQueue<>(Event.DESCENDING);
+            collectAtOwnPrice(buyLimits.subMap(to, true, from, false), events);
+            collectAtOwnPrice(sellStops.subMap(to, true, from, false), events);
+        }
+        process(events, to, up ? 1 : -1, candle, handler);
+    }
+
+    private void collect(NavigableMap<BigDecimal, Set<Order>> range, BigDecimal price, PriorityQueue<Event> events) {
+        for (Set<Order> orders : range.values()) {
+            for (Order order : orders) {
+                events.add(new Event(order, price, true));
+            }
+        }
+        range.clear();
+    }
+
+    private void collectAtOwnPrice(NavigableMap<BigDecimal, Set<Order>> range, PriorityQueue<Event> events) {
+        for (Map.Entry<BigDecimal, Set<Order>> entry : range.entrySet()) {
+            for (Order order : entry.getValue()) {
+                events.add(new Event(order, entry.getKey(), false));
+            }
+        }
+        range.clear();
+    }
+
+    /**
+     * 依次处理事件：限价单和止损单成交，STOP_LIMIT触发后若触发价满足限价则立即成交，否则作为限价单继续挂单
+     *
+     * @param to        当前段的终点
+     * @param direction 当前段的方向，1为上涨，-1为下跌，0表示只撮合price上已满足条件的挂单(开盘)
+     */
+    private void process(PriorityQueue<Event> events, BigDecimal to, int direction, Candle candle, FillHandler handler) {
+        while (!events.isEmpty()) {
+            Event event = events.poll();
+            Order order = event.order;
+            // 回调中可能已撤单
+            if (!order.isOpen()) {
+                continue;
+            }
+            BigDecimal price = event.price;
+            if (order.getType() == Order.Type.STOP_LIMIT && !order.isTriggered()) {
+                order.trigger();
+                boolean marketable = order.isBuy()
+                        ? price.compareTo(order.getLimitPrice()) <= 0
+                        : price.compareTo(order.getLimitPrice()) >= 0;
+                if (!marketable) {
+                    index(order);
+                    schedule(order, price, to, direction, events);
+                    continue;
+                }
+            } else if (!event.atPrice && order.isLimit()) {
+                price = order.getLimitPrice();
+            }
+            openOrders.remove(order.getId());
+            long firstSubmitted = nextId;
+            if (handler.fill(order, price)) {
+                order.fill(price, candle.getTime());
+            } else {
+                order.close(Order.Status.REJECTED);
+            }
+            // 回调中提交的挂单从当前成交价继续撮合
+            for (long id = firstSubmitted; id < nextId; id++) {
+                Order submitted = openOrders.get(id);
+                if (submitted != null) {
+                    schedule(submitted, price, to, direction, events);
+                }
+            }
+        }
+    }
+
+    /**
+     * 价格为price时已满足条件的挂单按price成交；否则若在当前段剩余的 (price, to] 内会被到达，按到达的价格成交
+     * 加入事件队列的挂单从索引中移除，其余的留在索引中由之后的段撮合
+     */
+    private void schedule(Order order, BigDecimal price, BigDecimal to, int direction, PriorityQueue<Event> events) {
+        BigDecimal orderPrice = order.isLimit() ? order.getLimitPrice() : order.getStopPrice();
+        // 卖出限价单和买入止损单在上涨时到达，买入限价单和卖出止损单在下跌时到达
+        boolean reachedRising = order.isLimit() != order.isBuy();
+        if (reachedRising ? orderPrice.compareTo(price) <= 0 : orderPrice.compareTo(price) >= 0) {
+            unindex(order);
+            events.add(new Event(order, price, true));
+        } else if (reachedRising ? direction > 0 && orderPrice.compareTo(to) <= 0 : direction < 0 && orderPrice.compareTo(to) >= 0) {
+            unindex(order);
+            events.add(new Event(order, orderPrice, false));
+        }
+    }
+
+    private void index(Order order) {
+        BigDecimal price = order.isLimit() ? order.getLimitPrice() : order.getStopPrice();
+        book(order).computeIfAbsent(price, k -> Sets.newLinkedHashSet()).add(order);
+    }
+
+    private void unindex(Order order) {
+        TreeMap<BigDecimal, Set<Order>> book = book(order);
+        BigDecimal price = order.isLimit() ? order.getLimitPrice() : order.getStopPrice();
+        Set<Order> orders = book.get(price);
+        if (orders != null && orders.remove(order) && orders.isEmpty()) {
+            book.remove(price);
+        }
+    }
+
+    private TreeMap<BigDecimal, Set<Order>> book(Order order) {
+        if (order.isLimit()) {
+            return order.isBuy() ? buyLimits : sellLimits;
+        }
+        return order.isBuy() ? buyStops : sellStops;
+    }
+
+    private static final class Event {
+        private static final Comparator<Event> BY_SEQUENCE = Comparator.comparingLong(e -> e.order.getId());
+        private static final Comparator<Event> ASCENDING = Comparator.<Event, BigDecimal>comparing(e -> e.price).thenComparing(BY_SEQUENCE);
+        private static final Comparator<Event> DESCENDING = Comparator.<Event, BigDecimal>comparing(e -> e.price).reversed().thenComparing(BY_SEQUENCE);
+
+        private final Order order;
+        private final BigDecimal price; // 到达该挂单的价格
+        private final boolean atPrice; // 按price成交(跳空或提交时已满足条件)，否则限价单按限价成交
+
+        private Event(Order order, BigDecimal price, boolean atPrice) {
+            this.order = order;
+            this.price = price;
+            this.atPrice = atPrice;
+        }
+    }
+}
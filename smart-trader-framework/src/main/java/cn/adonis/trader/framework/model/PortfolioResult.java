@@ -0,0 +1,57 @@
+package cn.adonis.trader.framework.model;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 组合回测结果，各品种分别结算，资金共用一个账户
+ */
+public class PortfolioResult {
+
+    private final BigDecimal profit;
+    private final Map<String, BackTestResult> results;
+    private final List<Settlement> settlements;
+    private final BigDecimal surplusFunds;
+
+    public PortfolioResult(BigDecimal profit, Map<String, BackTestResult> results, List<Settlement> settlements,
+                           BigDecimal surplusFunds) {
+        this.profit = profit;
+        this.results = results;
+        this.settlements = settlements;
+        this.surplusFunds = surplusFunds;
+    }
+
+    /**
+     * @return 各品种收益之和
+     */
+    public BigDecimal getProfit() {
+        return profit;
+    }
+
+    /**
+     * @return 品种 -&gt; 该品种的回测结果，按添加顺序，只读
+     */
+    public Map<String, BackTestResult> getResults() {
+        return Collections.unmodifiableMap(results);
+    }
+
+    public BackTestResult getResult(String symbol) {
+        return results.get(symbol);
+    }
+
+    /**
+     * @return 所有品种的平仓记录，按时间顺序，同一时间按品种添加顺序，只读
+     */
+    public List<Settlement> getSettlements() {
+        return Collections.unmodifiableList(settlements);
+    }
+
+    /**
+     * @return 回测结束时账户的剩余资金(未平仓的保证金不计入)
+     */
+    public BigDecimal getSurplusFunds() {
+        return surplusFunds;
+    }
+}
@@ -0,0 +1,205 @@
+package cn.adonis.trader.framework.model;
+
+import cn.adonis.trader.framework.BackTestException;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 回测开始前对整个序列预先计算的指标列，第i个值只依赖前i根K线，策略按K线下标读取
+ * 每列按固定长度分块，用fork/join并行计算；每块从起点之前warmUp根K线开始喂数据，块首的值由相同的K线算出
+ * 维护累加和的指标(如SMA、标准差)在块内从0开始累加，与整列顺序计算相比只有浮点舍入上的差别，不保证逐位相等
+ * 分块只取决于chunkSize，与并行度无关，结果可复现
+ *
+ * <pre>
+ * PrecomputedColumns columns = PrecomputedColumns.builder()
+ *         .add("sma20", Indicator.column(() -&gt; SimpleMovingAverage.of(20)), 19)
+ *         .add("ema20", Indicator.column(() -&gt; ExponentialMovingAverage.of(20))) // 依赖全部历史，整列顺序计算
+ *         .build(series);
+ * columns.get("sma20", index);
+ * </pre>
+ */
+public class PrecomputedColumns {
+
+    private static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    private final int size;
+    private final Map<String, double[]> columns;
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private PrecomputedColumns(int size, Map<String, double[]> columns) {
+        this.size = size;
+        this.columns = columns;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(String name) {
+        return columns.containsKey(name);
+    }
+
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(columns.keySet());
+    }
+
+    /**
+     * @param name  列名
+     * @param index K线在序列中的下标
+     * @return
+     */
+    public double get(String name, int index) {
+        double[] column = columns.get(name);
+        if (column == null) {
+            throw new BackTestException("precomputed column not found: " + name);
+        }
+        return column[index];
+    }
+
+    private static final class ColumnSpec {
+        private final String name;
+        private final Supplier<? extends ToDoubleFunction<Candle>> calculator;
+        private final int warmUp; // <0表示依赖全部历史，不分块
+
+        private ColumnSpec(String name, Supplier<? extends ToDoubleFunction<Candle>> calculator, int warmUp) {
+            this.name = name;
+            this.calculator = calculator;
+            this.warmUp = warmUp;
+        }
+    }
+
+    /**
+     * 计算一列中的 [from, to)，从 from - warmUp 开始喂数据
+     */
+    private static final class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ColumnSpec spec;
+        private final List<Candle> candles;
+        private final double[] column;
+        private final int from;
+        private final int to;
+
+        private ChunkTask(ColumnSpec spec, List<Candle> candles, double[] column, int from, int to) {
+            this.spec = spec;
+            this.candles = candles;
+            this.column = column;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            ToDoubleFunction<Candle> calculator = spec.calculator.get();
+            int start = spec.warmUp < 0 ? 0 : Math.max(0, from - spec.warmUp);
+            for (int i = start; i < to; i++) {
+                double value = calculator.applyAsDouble(candles.get(i));
+                if (i >= from) {
+                    column[i] = value;
+                }
+            }
+        }
+    }
+
+    public static class Builder {
+        private final List<ColumnSpec> specs = Lists.newArrayList();
+        private int chunkSize = DEFAULT_CHUNK_SIZE;
+        private int parallelism; // <=0时使用ForkJoinPool.commonPool()
+
+        /**
+         * 添加依赖全部历史的列(如EMA、RSI)，整列在一个任务中顺序计算
+         *
+         * @param name       列名
+         * @param calculator 每个任务调用一次，创建按时间顺序逐根计算的函数
+         * @return
+         */
+        public Builder add(String name, Supplier<? extends ToDoubleFunction<Candle>> calculator) {
+            return add(name, calculator, -1);
+        }
+
+        /**
+         * 添加只依赖最近warmUp + 1根K线的列(如SMA、布林带、唐奇安通道)，可分块并行计算
+         *
+         * @param name       列名
+         * @param calculator 每个任务调用一次，创建按时间顺序逐根计算的函数
+         * @param warmUp     计算一个值所需的之前的K线数，如n周期SMA为n - 1
+         * @return
+         */
+        public Builder add(String name, Supplier<? extends ToDoubleFunction<Candle>> calculator, int warmUp) {
+            for (ColumnSpec spec : specs) {
+                if (spec.name.equals(name)) {
+                    throw new BackTestException("duplicate precomputed column: " + name);
+                }
+            }
+            specs.add(new ColumnSpec(name, calculator, warmUp));
+            return this;
+        }
+
+        public Builder setChunkSize(int chunkSize) {
+            if (chunkSize <= 0) {
+                throw new IllegalArgumentException("chunkSize must be positive");
+            }
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        public Builder setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return specs.isEmpty();
+        }
+
+        public PrecomputedColumns build(TimeSeries<Candle> series) {
+            List<Candle> candles = series.getSeries().getDataList();
+            int size = candles.size();
+            Map<String, double[]> columns = Maps.newLinkedHashMap();
+            List<ChunkTask> tasks = Lists.newArrayList();
+            for (ColumnSpec spec : specs) {
+                double[] column = new double[size];
+                columns.put(spec.name, column);
+                if (spec.warmUp < 0) {
+                    tasks.add(new ChunkTask(spec, candles, column, 0, size));
+                    continue;
+                }
+                for (int from = 0; from < size; from += chunkSize) {
+                    tasks.add(new ChunkTask(spec, candles, column, from, Math.min(size, from + chunkSize)));
+                }
+            }
+
+            RecursiveAction root = new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            };
+            if (parallelism > 0) {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    pool.invoke(root);
+                } finally {
+                    pool.shutdown();
+                }
+            } else {
+                ForkJoinPool.commonPool().invoke(root);
+            }
+            return new PrecomputedColumns(size, columns);
+        }
+    }
+}
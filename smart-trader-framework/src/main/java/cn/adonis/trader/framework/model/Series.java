@@ -16,20 +16,45 @@ public class Series<T extends CoordinatePoint> {
         return new Series<>(Lists.newArrayList(dataList), name, true);
     }
 
+    /**
+     * 不排序，调用方需保证dataList有序
+     */
     public static <T extends CoordinatePoint> Series<T> createUncheck(List<T> dataList, String name) {
+        return new Series<>(dataList == null ? null : Lists.newArrayList(dataList), name, false);
+    }
+
+    /**
+     * 不排序、不复制，dataList的所有权转移给Series：调用方需保证其有序，之后不能再修改或对外暴露
+     */
+    public static <T extends CoordinatePoint> Series<T> adopt(List<T> dataList, String name) {
         return new Series<>(dataList, name, false);
     }
 
+    /**
+     * 共享root中 [from, to) 区间的只读视图，root只允许在末尾追加
+     */
+    static <T extends CoordinatePoint> Series<T> view(List<T> root, int from, int to, String name) {
+        return new Series<>(new RangeList<>(root, from, to), name);
+    }
+
     protected Series(List<T> dataList, String name, boolean needSort) {
         if (dataList == null) {
             dataList = Collections.emptyList();
         }
-        dataList = new ArrayList<>(dataList);
         if (needSort) {
-            Collections.sort(dataList);
-            check(dataList);
+            sortAndCheck(dataList);
         }
-        this.dataList = Collections.unmodifiableList(dataList);
+        this.dataList = new RangeList<>(dataList, 0, dataList.size());
+        this.name = name;
+    }
+
+    /**
+     * 供子类直接使用已有的数据视图，不复制、不排序
+     * @param dataList 有序且不可变
+     * @param name
+     */
+    protected Series(List<T> dataList, String name) {
+        this.dataList = dataList;
         this.name = name;
     }
 
@@ -52,7 +77,7 @@ public class Series<T extends CoordinatePoint> {
             end = end >= 0 ? end + 1 : Math.abs(end + 1);
         }
 
-        return createUncheck(dataList.subList(start, end), name);
+        return slice(start, Math.max(start, end));
     }
 
     /**
@@ -68,9 +93,19 @@ public class Series<T extends CoordinatePoint> {
         }
         int startIndex = index - beforeCount;
         if (startIndex < 0) {
-            return createUncheck(Collections.emptyList(), name);
+            return slice(index, index);
         }
-        return createUncheck(dataList.subList(startIndex, index), name);
+        return slice(startIndex, index);
+    }
+
+    /**
+     * 按下标截取，与当前Series共享数据
+     * @param fromIndex 包含
+     * @param toIndex 不包含
+     * @return
+     */
+    public Series<T> slice(int fromIndex, int toIndex) {
+        return new Series<>(dataList.subList(fromIndex, toIndex), name);
     }
 
     public int size() {
@@ -81,18 +116,86 @@ public class Series<T extends CoordinatePoint> {
         return dataList.stream();
     }
 
-    private void check(List<T> dataList) {
-        Set<T> dataSet = new HashSet<>(dataList);
-        if (dataSet.size() != dataList.size()) {
-            throw new BackTestException("dataList has duplicate x point");
+    /**
+     * 一次遍历检查是否严格递增，无序时才排序，排序后相邻比较即可发现重复
+     */
+    private static <T extends CoordinatePoint> void sortAndCheck(List<T> dataList) {
+        if (!isStrictlyAscending(dataList)) {
+            Collections.sort(dataList);
+            if (!isStrictlyAscending(dataList)) {
+                throw new BackTestException("dataList has duplicate x point");
+            }
+        }
+    }
+
+    private static <T extends CoordinatePoint> boolean isStrictlyAscending(List<T> dataList) {
+        for (int i = 1; i < dataList.size(); i++) {
+            if (dataList.get(i - 1).compareTo(dataList.get(i)) >= 0) {
+                return false;
+            }
         }
+        return true;
     }
 
     public List<T> getDataList() {
         return dataList;
     }
 
+    /**
+     * 底层数据，同一份数据上截取出的Series返回同一个对象，与 {@link #getStorageOffset()} 一起标识截取的区间
+     * 底层数据只允许在末尾追加，已有区间的内容不变
+     */
+    public Object getStorage() {
+        return dataList instanceof RangeList ? ((RangeList<T>) dataList).root : dataList;
+    }
+
+    /**
+     * @return 第一个点在 {@link #getStorage()} 中的下标
+     */
+    public int getStorageOffset() {
+        return dataList instanceof RangeList ? ((RangeList<T>) dataList).from : 0;
+    }
+
     public String getName() {
         return name;
     }
+
+    /**
+     * root中 [from, to) 区间的只读视图，subList不会嵌套，始终直接引用root
+     */
+    private static final class RangeList<T> extends AbstractList<T> implements RandomAccess {
+        private final List<T> root;
+        private final int from;
+        private final int size;
+
+        private RangeList(List<T> root, int from, int to) {
+            if (from < 0 || to > root.size() || from > to) {
+                throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + root.size());
+            }
+            this.root = root;
+            this.from = from;
+            this.size = to - from;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+            }
+            return root.get(from + index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public List<T> subList(int fromIndex, int toIndex) {
+            if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+                throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", size: " + size);
+            }
+            return new RangeList<>(root, from + fromIndex, from + toIndex);
+        }
+    }
 }
@@ -1,10 +1,14 @@
 package cn.adonis.trader.framework.model;
 import cn.adonis.trader.framework.util.TimeUtil;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
-public class TimeDataPoint implements CoordinatePoint {
+public class TimeDataPoint implements CoordinatePoint, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
     protected final BigDecimal value;
     protected final LocalDateTime time;
 
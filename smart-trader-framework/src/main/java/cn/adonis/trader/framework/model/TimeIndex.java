@@ -0,0 +1,149 @@
+package cn.adonis.trader.framework.model;
+
+import java.util.function.IntToLongFunction;
+
+/**
+ * 固定周期序列的时间索引，由时间直接算出下标
+ * 连续的K线(相邻时间差恰好为一个周期)组成一段，缺失的K线(休市、停牌)只增加一段；
+ * 再按时间分桶记录每个桶起点所在的段，查找时先定位桶，再在段内按周期计算偏移
+ */
+final class TimeIndex {
+
+    private final long interval; // 周期秒数
+
+    // 段表：每段的起始时间(epoch秒)、起始下标、长度
+    private final long[] segmentStartTime;
+    private final int[] segmentStartIndex;
+    private final int[] segmentLength;
+
+    // 桶表：bucket[i] 为时间 firstTime + i * bucketWidth 所在(或之前最近)的段
+    private final long bucketWidth;
+    private final int[] bucket;
+
+    /**
+     * @param times    第i个点的epoch秒，严格递增
+     * @param size     点数
+     * @param interval 周期秒数
+     * @return 时间不按周期对齐导致段数超过点数一半时返回null，此时二分查找更合适
+     */
+    static TimeIndex build(IntToLongFunction times, int size, long interval) {
+        if (size == 0 || interval <= 0) {
+            return null;
+        }
+        int segmentCount = 1;
+        long previous = times.applyAsLong(0);
+        for (int i = 1; i < size; i++) {
+            long time = times.applyAsLong(i);
+            if (time - previous != interval) {
+                segmentCount++;
+            }
+            previous = time;
+        }
+        if (size > 1 && segmentCount > size / 2) {
+            return null;
+        }
+
+        long[] segmentStartTime = new long[segmentCount];
+        int[] segmentStartIndex = new int[segmentCount];
+        int[] segmentLength = new int[segmentCount];
+        int segment = 0;
+        segmentStartTime[0] = times.applyAsLong(0);
+        previous = segmentStartTime[0];
+        for (int i = 1; i < size; i++) {
+            long time = times.applyAsLong(i);
+            if (time - previous != interval) {
+                segmentLength[segment] = i - segmentStartIndex[segment];
+                segment++;
+                segmentStartTime[segment] = time;
+                segmentStartIndex[segment] = i;
+            }
+            previous = time;
+        }
+        segmentLength[segment] = size - segmentStartIndex[segment];
+        return new TimeIndex(interval, segmentStartTime, segmentStartIndex, segmentLength, previous);
+    }
+
+    private TimeIndex(long interval, long[] segmentStartTime, int[] segmentStartIndex, int[] segmentLength, long lastTime) {
+        this.interval = interval;
+        this.segmentStartTime = segmentStartTime;
+        this.segmentStartIndex = segmentStartIndex;
+        this.segmentLength = segmentLength;
+
+        // 桶数与段数相同，平均每个桶内不超过一个段起点
+        long firstTime = segmentStartTime[0];
+        int segmentCount = segmentStartTime.length;
+        this.bucketWidth = Math.max(interval, (lastTime - firstTime) / segmentCount + 1);
+        int bucketCount = (int) ((lastTime - firstTime) / bucketWidth) + 1;
+        this.bucket = new int[bucketCount];
+        int segment = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            long bucketStart = firstTime + i * bucketWidth;
+            while (segment + 1 < segmentCount && segmentStartTime[segment + 1] <= bucketStart) {
+                segment++;
+            }
+            bucket[i] = segment;
+        }
+    }
+
+    /**
+     * @return 时间恰好等于time的点的下标，不存在时返回-1
+     */
+    int indexOf(long time) {
+        int segment = segmentOf(time);
+        if (segment < 0) {
+            return -1;
+        }
+        long offset = time - segmentStartTime[segment];
+        if (offset % interval != 0 || offset / interval >= segmentLength[segment]) {
+            return -1;
+        }
+        return segmentStartIndex[segment] + (int) (offset / interval);
+    }
+
+    /**
+     * @return 第一个时间 >= time 的下标，都小于time时返回size
+     */
+    int lowerBound(long time) {
+        int segment = segmentOf(time);
+        if (segment < 0) {
+            return 0;
+        }
+        long offset = time - segmentStartTime[segment];
+        long position = offset / interval + (offset % interval == 0 ? 0 : 1);
+        if (position >= segmentLength[segment]) {
+            return segmentStartIndex[segment] + segmentLength[segment];
+        }
+        return segmentStartIndex[segment] + (int) position;
+    }
+
+    /**
+     * @return 第一个时间 > time 的下标，都不大于time时返回size
+     */
+    int upperBound(long time) {
+        int segment = segmentOf(time);
+        if (segment < 0) {
+            return 0;
+        }
+        long position = (time - segmentStartTime[segment]) / interval + 1;
+        if (position >= segmentLength[segment]) {
+            return segmentStartIndex[segment] + segmentLength[segment];
+        }
+        return segmentStartIndex[segment] + (int) position;
+    }
+
+    /**
+     * @return 起始时间 <= time 的最后一段，time早于第一个点时返回-1
+     */
+    private int segmentOf(long time) {
+        long firstTime = segmentStartTime[0];
+        if (time < firstTime) {
+            return -1;
+        }
+        long bucketIndex = (time - firstTime) / bucketWidth;
+        int segment = bucketIndex >= bucket.length ? bucket[bucket.length - 1] : bucket[(int) bucketIndex];
+        while (segment + 1 < segmentStartTime.length && segmentStartTime[segment + 1] <= time) {
+            segment++;
+        }
+        return segment;
+    }
+}
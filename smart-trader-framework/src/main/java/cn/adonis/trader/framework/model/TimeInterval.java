@@ -1,8 +1,11 @@
 package cn.adonis.trader.framework.model;
 
+import java.io.Serializable;
 import java.util.concurrent.TimeUnit;
 
-public class TimeInterval {
+public class TimeInterval implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     public static final TimeInterval ONE_DAY = TimeInterval.days(1);
     public static final TimeInterval FIVE_MINUTES = TimeInterval.minutes(5);
@@ -71,4 +74,9 @@ public class TimeInterval {
         result = 31 * result + (unit != null ? unit.hashCode() : 0);
         return result;
     }
+
+    @Override
+    public String toString() {
+        return duration + " " + unit;
+    }
 }
@@ -5,12 +5,21 @@ import cn.adonis.trader.framework.util.TimeUtil;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntToLongFunction;
 
 public class TimeSeries<T extends TimeDataPoint> {
 
     private final Series<T> series;
     private final TimeInterval timeInterval;
 
+    // 时间索引在查找次数足以抵消构建成本后才构建，短生命周期的序列(如流式回测的窗口)只用二分查找
+    // 多个线程可同时查找：计数原子递增，索引在锁内构建一次，通过volatile发布(TimeIndex的字段均为final)
+    private volatile TimeIndex timeIndex;
+    private volatile boolean timeIndexUnavailable;
+    private final AtomicInteger lookupCount = new AtomicInteger();
+
     private TimeSeries(Series<T> series, TimeInterval timeInterval) {
         this.series = series;
         this.timeInterval = timeInterval;
@@ -24,6 +33,131 @@ public class TimeSeries<T extends TimeDataPoint> {
         return new TimeSeries<>(series, timeInterval);
     }
 
+    /**
+     * @param time
+     * @return 时间恰好等于time的点的下标，不存在时返回-1
+     */
+    public int indexOf(LocalDateTime time) {
+        long seconds = TimeUtil.toSeconds(time);
+        TimeIndex index = getTimeIndex();
+        if (index != null) {
+            return index.indexOf(seconds);
+        }
+        int position = lowerBound(times(), series.size(), seconds);
+        return position < series.size() && times().applyAsLong(position) == seconds ? position : -1;
+    }
+
+    /**
+     * 截取 [from, to] 范围内的数据，与当前序列共享数据
+     *
+     * @param from >=，为null时不限制
+     * @param to   <=，为null时不限制
+     * @return
+     */
+    public TimeSeries<T> range(LocalDateTime from, LocalDateTime to) {
+        int size = series.size();
+        TimeIndex index = getTimeIndex();
+        int start = 0;
+        int end = size;
+        if (from != null) {
+            long seconds = TimeUtil.toSeconds(from);
+            start = index != null ? index.lowerBound(seconds) : lowerBound(times(), size, seconds);
+        }
+        if (to != null) {
+            long seconds = TimeUtil.toSeconds(to);
+            end = index != null ? index.upperBound(seconds) : upperBound(times(), size, seconds);
+        }
+        if (start == 0 && end == size) {
+            return this;
+        }
+        return new TimeSeries<>(series.slice(start, Math.max(start, end)), timeInterval);
+    }
+
+    private TimeIndex getTimeIndex() {
+        if (timeIndex != null || timeIndexUnavailable) {
+            return timeIndex;
+        }
+        int size = series.size();
+        if (timeInterval == null || lookupCount.incrementAndGet() < buildThreshold(size)) {
+            return null;
+        }
+        synchronized (this) {
+            if (timeIndex == null && !timeIndexUnavailable) {
+                TimeIndex index = TimeIndex.build(times(), size, timeInterval.toSeconds());
+                if (index == null) {
+                    timeIndexUnavailable = true;
+                }
+                timeIndex = index;
+            }
+        }
+        return timeIndex;
+    }
+
+    /**
+     * 构建成本约为size，二分查找成本约为log2(size)，查找次数达到 size / log2(size) 时构建索引
+     */
+    static int buildThreshold(int size) {
+        return size / (32 - Integer.numberOfLeadingZeros(size | 1));
+    }
+
+    /**
+     * 仅用于测试
+     */
+    boolean isTimeIndexBuilt() {
+        return timeIndex != null;
+    }
+
+    /**
+     * @param index 数据点下标
+     * @return 数据点的时间(秒)，列式序列直接读取时间列，不创建对象
+     */
+    public long getSeconds(int index) {
+        if (series instanceof CandleColumnSeries) {
+            CandleColumnSeries columnSeries = (CandleColumnSeries) series;
+            return columnSeries.getColumns().getTime(columnSeries.getFromIndex() + index);
+        }
+        return TimeUtil.toSeconds(series.getDataList().get(index).getTime());
+    }
+
+    private IntToLongFunction times() {
+        if (series instanceof CandleColumnSeries) {
+            CandleColumnSeries columnSeries = (CandleColumnSeries) series;
+            CandleColumns columns = columnSeries.getColumns();
+            int from = columnSeries.getFromIndex();
+            return i -> columns.getTime(from + i);
+        }
+        List<T> dataList = series.getDataList();
+        return i -> TimeUtil.toSeconds(dataList.get(i).getTime());
+    }
+
+    private static int lowerBound(IntToLongFunction times, int size, long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times.applyAsLong(mid) < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int upperBound(IntToLongFunction times, int size, long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times.applyAsLong(mid) <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
     public Series<T> getSeries() {
         return series;
     }
@@ -1,85 +1,444 @@
 package cn.adonis.trader.framework.model;
 
+import cn.adonis.trader.framework.BackTestException;
+import cn.adonis.trader.framework.indicator.IndicatorCache;
+import cn.adonis.trader.framework.util.FixedPoint;
+import cn.adonis.trader.framework.util.ForkableList;
 
+import com.google.common.collect.Lists;
+
+import java.io.Serializable;
 import java.math.BigDecimal;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 public class TradingContext {
 
     private final TimeSeries<Candle> originalData;
 
+    private final CandleWindow originalDataWindow; // 流式回测时代替originalData
+
     private final BackTestParameter parameter;
 
-    private BigDecimal surplusFunds; // 剩余资金
+    private final IndicatorCache indicatorCache; // 策略预先计算指标时使用，为null时不缓存
+
+    private final Account account; // 资金账户，组合回测时各品种共享
+
+    private final OrderBook orderBook; // 未成交的挂单
 
-    private final List<Transaction> transactions; // 交易
+    private final ForkableList<Transaction> transactions; // 交易，fork时共享已有记录
 
     private BigDecimal holdVolumes;  // 持有数
 
     private Candle entryPoint; // 建仓点
 
+    // 自建仓起收盘价最高、最低的K线，相同价格取最早的一根
+    private Candle highestSinceEntry;
+    private Candle lowestSinceEntry;
+
+    // 定点数模式下持仓和资金以long为准，BigDecimal只在读取时按需转换
+    private final int fixedPointScale;
+    private long fixedHoldVolumes;
+    private int holdVolumeScale; // 持仓数对应BigDecimal的小数位数，与BigDecimal累加结果一致
+    private final long fixedFee; // 每手保证金系数
+    private final long fixedOverspendLimit; // 允许的最大超支金额
+
+    // 预先计算的指标列及当前K线在originalData中的下标
+    private PrecomputedColumns precomputedColumns;
+    private int barIndex = -1;
+
     public static Builder builder() {
         return new Builder();
     }
 
-    private TradingContext(TimeSeries<Candle> originalData, BackTestParameter parameter) {
+    private TradingContext(TimeSeries<Candle> originalData, CandleWindow originalDataWindow, BackTestParameter parameter,
+                           IndicatorCache indicatorCache, Account account, State state) {
         this.originalData = originalData;
+        this.originalDataWindow = originalDataWindow;
         this.parameter = parameter;
+        this.indicatorCache = indicatorCache;
 
         // 初始化过程参数
-        this.transactions = new ArrayList<>();
+        this.transactions = new ForkableList<>();
+        this.orderBook = state == null ? new OrderBook() : state.orderBook;
         this.holdVolumes = BigDecimal.ZERO;
-        this.surplusFunds = parameter.getInitialFunds();
+        if (state != null) {
+            account = state.account;
+            this.transactions.addAll(state.transactions);
+            this.entryPoint = state.entryPoint;
+            this.highestSinceEntry = state.highestSinceEntry;
+            this.lowestSinceEntry = state.lowestSinceEntry;
+        }
+        this.account = account == null ? Account.of(parameter) : account;
+        if (this.account.isFixedPoint() != parameter.isFixedPoint()
+                || (parameter.isFixedPoint() && this.account.getFixedPointScale() != parameter.getFixedPointScale())) {
+            throw new BackTestException("fixed point scale of the account does not match the parameter");
+        }
+
+        if (parameter.isFixedPoint()) {
+            this.fixedPointScale = parameter.getFixedPointScale();
+            this.fixedHoldVolumes = 0;
+            if (state != null) {
+                this.holdVolumes = null;
+                this.fixedHoldVolumes = state.fixedHoldVolumes;
+                this.holdVolumeScale = state.holdVolumeScale;
+            }
+            this.fixedFee = parameter.getTradingFee() == null ? 0 : FixedPoint.of(parameter.getTradingFee().getFee(), fixedPointScale);
+            BigDecimal overspendRate = Optional.ofNullable(parameter.getOverspendRate()).orElse(BigDecimal.ZERO);
+            this.fixedOverspendLimit = FixedPoint.of(parameter.getInitialFunds().multiply(overspendRate), fixedPointScale);
+        } else {
+            this.fixedPointScale = -1;
+            this.fixedFee = 0;
+            this.fixedOverspendLimit = 0;
+            if (state != null) {
+                this.holdVolumes = state.holdVolumes;
+            }
+        }
+    }
+
+    private TradingContext(TradingContext source) {
+        this.originalData = source.originalData;
+        this.originalDataWindow = null;
+        this.parameter = source.parameter;
+        this.indicatorCache = source.indicatorCache;
+        this.account = source.account.copy();
+        this.orderBook = source.orderBook.copy();
+        this.transactions = source.transactions.fork();
+        this.holdVolumes = source.holdVolumes;
+        this.entryPoint = source.entryPoint;
+        this.highestSinceEntry = source.highestSinceEntry;
+        this.lowestSinceEntry = source.lowestSinceEntry;
+        this.fixedPointScale = source.fixedPointScale;
+        this.fixedHoldVolumes = source.fixedHoldVolumes;
+        this.holdVolumeScale = source.holdVolumeScale;
+        this.fixedFee = source.fixedFee;
+        this.fixedOverspendLimit = source.fixedOverspendLimit;
+        this.precomputedColumns = source.precomputedColumns;
+        this.barIndex = source.barIndex;
     }
 
+    /**
+     * 复制当前状态，用于从回测中途分叉出多个后续场景
+     * 原始数据、参数、预计算列只读共享，交易记录写时复制，资金账户和挂单复制一份，之后与原对象互不影响
+     * 组合回测中共享的账户也会被复制，不支持流式回测
+     *
+     * @return
+     */
+    public TradingContext fork() {
+        if (originalDataWindow != null) {
+            throw new BackTestException("fork is not supported in streaming back test");
+        }
+        return new TradingContext(this);
+    }
+
+    /**
+     * 保存资金、持仓、建仓点、交易记录和挂单，用于写入checkpoint，之后从 {@link Builder#setState(State)} 恢复
+     * 不包含原始数据、参数和预计算列
+     *
+     * @return
+     */
+    public State saveState() {
+        return new State(this);
+    }
+
+    /**
+     * 原始数据，流式回测时只包含lookback范围内的最近数据
+     *
+     * @return
+     */
     public TimeSeries<Candle> getOriginalData() {
+        if (originalDataWindow != null) {
+            return originalDataWindow.getTimeSeries();
+        }
         return originalData;
     }
 
+    /**
+     * @return 是否为流式回测，流式回测时策略只应保留有限的历史状态
+     */
+    public boolean isStreaming() {
+        return originalDataWindow != null;
+    }
+
     public BackTestParameter getParameter() {
         return parameter;
     }
 
+    /**
+     * @return 缓存预先计算的指标列，为null时策略应逐根计算
+     */
+    public IndicatorCache getIndicatorCache() {
+        return indicatorCache;
+    }
+
+    public Account getAccount() {
+        return account;
+    }
+
     public BigDecimal getSurplusFunds() {
-        return surplusFunds;
+        return account.getSurplusFunds();
     }
 
     public void setSurplusFunds(BigDecimal surplusFunds) {
-        this.surplusFunds = surplusFunds;
+        account.setSurplusFunds(surplusFunds);
     }
 
     public BigDecimal getHoldVolumes() {
+        if (holdVolumes == null) {
+            // 按BigDecimal累加时的小数位数返回，与非定点数模式相等
+            holdVolumes = BigDecimal.valueOf(FixedPoint.rescale(fixedHoldVolumes, fixedPointScale, holdVolumeScale), holdVolumeScale);
+        }
         return holdVolumes;
     }
 
     public void setHoldVolumes(BigDecimal holdVolumes) {
         this.holdVolumes = holdVolumes;
+        if (isFixedPoint()) {
+            this.fixedHoldVolumes = FixedPoint.of(holdVolumes, fixedPointScale);
+            this.holdVolumeScale = holdVolumes.scale();
+        }
+    }
+
+    public boolean isFixedPoint() {
+        return fixedPointScale >= 0;
+    }
+
+    public int getFixedPointScale() {
+        return fixedPointScale;
+    }
+
+    public long getFixedSurplusFunds() {
+        return account.getFixedSurplusFunds();
+    }
+
+    public void setFixedSurplusFunds(long fixedSurplusFunds) {
+        account.setFixedSurplusFunds(fixedSurplusFunds);
+    }
+
+    public long getFixedHoldVolumes() {
+        return fixedHoldVolumes;
     }
 
+    /**
+     * @param fixedHoldVolumes 定点数持仓数
+     * @param holdVolumeScale  对应BigDecimal的小数位数
+     */
+    public void setFixedHoldVolumes(long fixedHoldVolumes, int holdVolumeScale) {
+        this.fixedHoldVolumes = fixedHoldVolumes;
+        this.holdVolumeScale = holdVolumeScale;
+        this.holdVolumes = null;
+    }
+
+    /**
+     * @return 定点数模式下持仓数对应BigDecimal的小数位数
+     */
+    public int getHoldVolumeScale() {
+        return holdVolumeScale;
+    }
+
+    public long getFixedFee() {
+        return fixedFee;
+    }
+
+    public long getFixedOverspendLimit() {
+        return fixedOverspendLimit;
+    }
+
+    /**
+     * 交易记录在fork之间写时复制共享，只能通过 {@link #addTransaction(Transaction)} 追加
+     *
+     * @return 按时间顺序的交易记录，只读
+     */
     public List<Transaction> getTransactions() {
-        return transactions;
+        return Collections.unmodifiableList(transactions);
     }
 
     public void addTransaction(Transaction transaction) {
         this.transactions.add(transaction);
     }
 
+    public OrderBook getOrderBook() {
+        return orderBook;
+    }
+
+    /**
+     * 提交挂单，从下一根K线开始撮合
+     *
+     * @param order
+     * @return 订单号
+     */
+    public long submitOrder(Order order) {
+        return orderBook.submit(order);
+    }
+
+    public boolean cancelOrder(long id) {
+        return orderBook.cancel(id);
+    }
+
     public Candle getEntryPoint() {
         return entryPoint;
     }
 
+    /**
+     * 设置建仓点，同时重置自建仓起的最高、最低点
+     *
+     * @param entryPoint
+     */
     public void setEntryPoint(Candle entryPoint) {
         this.entryPoint = entryPoint;
+        this.highestSinceEntry = entryPoint;
+        this.lowestSinceEntry = entryPoint;
+    }
+
+    /**
+     * 建仓后每根K线调用一次，O(1)更新自建仓起的最高、最低点
+     *
+     * @param candle
+     */
+    public void updateSinceEntry(Candle candle) {
+        if (entryPoint == null || candle.getTime().isBefore(entryPoint.getTime())) {
+            return;
+        }
+        if (candle.getClose().compareTo(highestSinceEntry.getClose()) > 0) {
+            highestSinceEntry = candle;
+        }
+        if (candle.getClose().compareTo(lowestSinceEntry.getClose()) < 0) {
+            lowestSinceEntry = candle;
+        }
+    }
+
+    /**
+     * @return 自建仓起(包含建仓点)收盘价最高的K线
+     */
+    public Optional<Candle> getHighestSinceEntry() {
+        return Optional.ofNullable(highestSinceEntry);
+    }
+
+    /**
+     * @return 自建仓起(包含建仓点)收盘价最低的K线
+     */
+    public Optional<Candle> getLowestSinceEntry() {
+        return Optional.ofNullable(lowestSinceEntry);
+    }
+
+    /**
+     * 预计算的列不直接暴露给策略，只能通过 {@link #getPrecomputed(String, int)} 读取不晚于当前K线的值
+     *
+     * @param precomputedColumns
+     */
+    public void setPrecomputedColumns(PrecomputedColumns precomputedColumns) {
+        this.precomputedColumns = precomputedColumns;
+    }
+
+    /**
+     * 回测循环在处理每根K线前设置
+     *
+     * @param barIndex
+     */
+    public void setBarIndex(int barIndex) {
+        this.barIndex = barIndex;
+    }
+
+    /**
+     * @return 当前K线在originalData中的下标，未开始时为-1
+     */
+    public int getBarIndex() {
+        return barIndex;
+    }
+
+    /**
+     * @return 当前K线的预计算值
+     */
+    public double getPrecomputed(String name) {
+        return getPrecomputed(name, barIndex);
+    }
+
+    /**
+     * @param name  列名
+     * @param index K线下标，不能超过当前K线，防止读取未来数据
+     * @return
+     */
+    public double getPrecomputed(String name, int index) {
+        if (precomputedColumns == null) {
+            throw new BackTestException("no precomputed columns, the strategy should implement PrecomputeStrategy");
+        }
+        if (index > barIndex) {
+            throw new BackTestException("look-ahead: reading bar " + index + " at bar " + barIndex);
+        }
+        if (index < 0) {
+            throw new BackTestException("bar index out of range: " + index);
+        }
+        return precomputedColumns.get(name, index);
+    }
+
+    /**
+     * TradingContext中随回测推进而变化的状态
+     */
+    public static final class State implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final Account account;
+        private final BigDecimal holdVolumes;
+        private final long fixedHoldVolumes;
+        private final int holdVolumeScale;
+        private final Candle entryPoint;
+        private final Candle highestSinceEntry;
+        private final Candle lowestSinceEntry;
+        private final List<Transaction> transactions;
+        private final OrderBook orderBook;
+
+        private State(TradingContext tradingContext) {
+            this.account = tradingContext.account.copy();
+            this.holdVolumes = tradingContext.getHoldVolumes();
+            this.fixedHoldVolumes = tradingContext.fixedHoldVolumes;
+            this.holdVolumeScale = tradingContext.holdVolumeScale;
+            this.entryPoint = tradingContext.entryPoint;
+            this.highestSinceEntry = tradingContext.highestSinceEntry;
+            this.lowestSinceEntry = tradingContext.lowestSinceEntry;
+            this.transactions = Lists.newArrayList(tradingContext.transactions);
+            this.orderBook = tradingContext.orderBook.copy();
+        }
+
+        private State(State source) {
+            this.account = source.account.copy();
+            this.holdVolumes = source.holdVolumes;
+            this.fixedHoldVolumes = source.fixedHoldVolumes;
+            this.holdVolumeScale = source.holdVolumeScale;
+            this.entryPoint = source.entryPoint;
+            this.highestSinceEntry = source.highestSinceEntry;
+            this.lowestSinceEntry = source.lowestSinceEntry;
+            this.transactions = source.transactions;
+            this.orderBook = source.orderBook.copy();
+        }
+
+        /**
+         * 同一状态可多次恢复，每次恢复使用账户和挂单的副本
+         */
+        private State copy() {
+            return new State(this);
+        }
     }
 
     public static class Builder {
         private TimeSeries<Candle> originalData;
 
+        private CandleWindow originalDataWindow;
+
         private BackTestParameter parameter;
 
+        private IndicatorCache indicatorCache = IndicatorCache.getDefault();
+
+        private Account account;
+
+        private State state;
+
         public TradingContext build() {
-            return new TradingContext(this.originalData, this.parameter);
+            if (state != null && account != null) {
+                throw new BackTestException("account can not be set when restoring state");
+            }
+            return new TradingContext(this.originalData, this.originalDataWindow, this.parameter, this.indicatorCache, this.account,
+                    this.state == null ? null : this.state.copy());
         }
 
         public Builder setOriginalData(TimeSeries<Candle> originalData) {
@@ -87,9 +446,47 @@ public class TradingContext {
             return this;
         }
 
+        public Builder setOriginalDataWindow(CandleWindow originalDataWindow) {
+            this.originalDataWindow = originalDataWindow;
+            return this;
+        }
+
         public Builder setParameter(BackTestParameter parameter) {
             this.parameter = parameter;
             return this;
         }
+
+        /**
+         * 默认使用全局的 {@link IndicatorCache#getDefault()}
+         *
+         * @param indicatorCache 为null时不缓存，适用于只回测一次的数据
+         * @return
+         */
+        public Builder setIndicatorCache(IndicatorCache indicatorCache) {
+            this.indicatorCache = indicatorCache;
+            return this;
+        }
+
+        /**
+         * 共享的资金账户，不设置时按parameter的初始资金新建
+         *
+         * @param account
+         * @return
+         */
+        public Builder setAccount(Account account) {
+            this.account = account;
+            return this;
+        }
+
+        /**
+         * 从 {@link TradingContext#saveState()} 保存的状态恢复
+         *
+         * @param state
+         * @return
+         */
+        public Builder setState(State state) {
+            this.state = state;
+            return this;
+        }
     }
 }
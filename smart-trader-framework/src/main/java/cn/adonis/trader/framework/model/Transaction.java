@@ -1,17 +1,26 @@
 package cn.adonis.trader.framework.model;
 
 import cn.adonis.trader.framework.util.BigDecimalUtil;
+import cn.adonis.trader.framework.util.FixedPoint;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
-public class Transaction {
+public class Transaction implements Serializable {
 
-    private final BigDecimal volume; // 数额
+    private static final long serialVersionUID = 1L;
+
+    private BigDecimal volume; // 数额，定点数成交时按需转换
     private final BigDecimal price; // 单价
     private final LocalDateTime time;// 交易时间
     private final Decision decision;
 
+    // 定点数成交时的数额和单价，fixedPointScale为-1表示没有
+    private final int fixedPointScale;
+    private final long fixedVolume;
+    private final long fixedPrice;
+
 
     public static Builder builder() {
         return new Builder();
@@ -22,16 +31,56 @@ public class Transaction {
     }
 
     public Transaction(BigDecimal volume, BigDecimal price, LocalDateTime time, Decision decision) {
+        this(volume, price, time, decision, -1, 0, 0);
+    }
+
+    private Transaction(BigDecimal volume, BigDecimal price, LocalDateTime time, Decision decision,
+                        int fixedPointScale, long fixedVolume, long fixedPrice) {
         this.volume = volume;
         this.price = price;
         this.time = time;
         this.decision = decision;
+        this.fixedPointScale = fixedPointScale;
+        this.fixedVolume = fixedVolume;
+        this.fixedPrice = fixedPrice;
     }
 
     public BigDecimal getVolume() {
+        if (volume == null && decision != null) {
+            volume = decision.getVolume();
+        }
         return volume;
     }
 
+    /**
+     * @param scale 定点数小数位数
+     * @return 定点数数额，按相同scale成交的交易直接返回
+     */
+    public long getFixedVolume(int scale) {
+        if (fixedPointScale == scale) {
+            return fixedVolume;
+        }
+        return decision != null && volume == null ? decision.getFixedVolume(scale) : FixedPoint.of(volume, scale);
+    }
+
+    /**
+     * @param scale 定点数小数位数
+     * @return 定点数单价，按相同scale成交的交易直接返回
+     */
+    public long getFixedPrice(int scale) {
+        if (fixedPointScale == scale) {
+            return fixedPrice;
+        }
+        return FixedPoint.of(price, scale);
+    }
+
+    /**
+     * @return 数额对应BigDecimal的小数位数
+     */
+    public int getVolumeScale() {
+        return volume == null && decision != null ? decision.getVolumeScale() : volume.scale();
+    }
+
     public BigDecimal getPrice() {
         return price;
     }
@@ -49,9 +98,12 @@ public class Transaction {
         private BigDecimal price;
         private LocalDateTime time;
         private Decision decision;
+        private int fixedPointScale = -1;
+        private long fixedVolume;
+        private long fixedPrice;
 
         public Transaction build() {
-            return new Transaction(volume, price, time, decision);
+            return new Transaction(volume, price, time, decision, fixedPointScale, fixedVolume, fixedPrice);
         }
 
         public Builder setVolume(BigDecimal volume) {
@@ -73,6 +125,16 @@ public class Transaction {
             this.decision = decision;
             return this;
         }
+
+        /**
+         * 定点数成交，未设置volume时数额取decision的数额
+         */
+        public Builder setFixedPoint(int scale, long fixedVolume, long fixedPrice) {
+            this.fixedPointScale = scale;
+            this.fixedVolume = fixedVolume;
+            this.fixedPrice = fixedPrice;
+            return this;
+        }
     }
 
     public enum Type {
@@ -80,7 +142,10 @@ public class Transaction {
     }
 
     public Type getType() {
-        BigDecimalUtil.CompareResult compareResult = BigDecimalUtil.compare(volume, BigDecimal.ZERO);
+        if (fixedPointScale >= 0) {
+            return fixedVolume > 0 ? Type.BUY : fixedVolume < 0 ? Type.SELL : Type.DO_NOTHING;
+        }
+        BigDecimalUtil.CompareResult compareResult = BigDecimalUtil.compare(getVolume(), BigDecimal.ZERO);
         switch (compareResult) {
             case GREATER: return Type.BUY;
             case LESS: return Type.SELL;
@@ -0,0 +1,76 @@
+package cn.adonis.trader.framework.optimizer;
+
+import org.apache.commons.math3.stat.StatUtils;
+
+import java.util.Arrays;
+
+/**
+ * 一组模拟结果的经验分布
+ */
+public class Distribution {
+
+    private final double[] sorted;
+
+    static Distribution of(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return new Distribution(sorted);
+    }
+
+    private Distribution(double[] sorted) {
+        this.sorted = sorted;
+    }
+
+    public int size() {
+        return sorted.length;
+    }
+
+    public double getMean() {
+        return StatUtils.mean(sorted);
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(StatUtils.variance(sorted));
+    }
+
+    public double getMin() {
+        return sorted.length == 0 ? Double.NaN : sorted[0];
+    }
+
+    public double getMax() {
+        return sorted.length == 0 ? Double.NaN : sorted[sorted.length - 1];
+    }
+
+    /**
+     * @param percent 百分位，(0, 100]
+     * @return
+     */
+    public double getPercentile(double percent) {
+        return StatUtils.percentile(sorted, percent);
+    }
+
+    /**
+     * @return 小于threshold的比例，如收益分布中亏损的概率
+     */
+    public double getProbabilityBelow(double threshold) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < threshold) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        int count = low;
+        return sorted.length == 0 ? Double.NaN : (double) count / sorted.length;
+    }
+
+    /**
+     * @return 升序排列的全部值
+     */
+    public double[] getValues() {
+        return sorted.clone();
+    }
+}
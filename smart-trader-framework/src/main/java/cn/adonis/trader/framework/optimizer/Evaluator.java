@@ -0,0 +1,93 @@
+package cn.adonis.trader.framework.optimizer;
+
+import cn.adonis.trader.framework.BackTest;
+import cn.adonis.trader.framework.BackTestException;
+import cn.adonis.trader.framework.loader.SeriesLoader;
+import cn.adonis.trader.framework.model.BackTestParameter;
+import cn.adonis.trader.framework.model.BackTestResult;
+import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.model.TimeSeries;
+import cn.adonis.trader.framework.strategy.TradingStrategy;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * 在同一份已加载的数据上并发回测，供各优化器共用
+ * 策略有状态，每次回测通过strategyFactory创建新的策略
+ */
+final class Evaluator<P> implements AutoCloseable {
+
+    private final SeriesLoader sharedLoader;
+    private final BackTestParameter backTestParameter;
+    private final Function<? super P, ? extends TradingStrategy> strategyFactory;
+    private final ForkJoinPool pool;
+
+    /**
+     * 加载一次数据，所有回测共享同一个序列，也因此共享IndicatorCache中的指标列
+     */
+    static <P> Evaluator<P> open(SeriesLoader seriesLoader, BackTestParameter backTestParameter,
+                                 Function<? super P, ? extends TradingStrategy> strategyFactory, int parallelism) throws Exception {
+        TimeSeries<Candle> series = seriesLoader.load(backTestParameter.getLoadStartTime(), backTestParameter.getEndTime());
+        return new Evaluator<>(() -> series, backTestParameter, strategyFactory, parallelism);
+    }
+
+    private Evaluator(SeriesLoader sharedLoader, BackTestParameter backTestParameter,
+                      Function<? super P, ? extends TradingStrategy> strategyFactory, int parallelism) {
+        this.sharedLoader = sharedLoader;
+        this.backTestParameter = backTestParameter;
+        this.strategyFactory = strategyFactory;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    Performance evaluate(P parameter) {
+        try {
+            BackTestResult result = BackTest.builder()
+                    .setSeriesLoader(sharedLoader)
+                    .setParameter(backTestParameter)
+                    .setTradingStrategy(strategyFactory.apply(parameter))
+                    .build()
+                    .run();
+            return Performance.of(result, backTestParameter);
+        } catch (BackTestException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new BackTestException("back test failed", e);
+        }
+    }
+
+    /**
+     * 在线程池中并发执行 task(0) ... task(count - 1)，全部完成后返回
+     */
+    void forEach(int count, IntConsumer task) {
+        List<RecursiveAction> tasks = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+            tasks.add(new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    task.accept(index);
+                }
+            });
+        }
+        pool.invoke(new RecursiveAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,164 @@
+package cn.adonis.trader.framework.optimizer;
+
+/**
+ * 高斯过程回归，RBF核，作为贝叶斯优化的代理模型
+ * y先标准化，长度尺度从候选值中按边际似然选取；样本数为几百时直接Cholesky分解即可
+ */
+final class GaussianProcess {
+
+    private static final double NOISE = 1e-6; // 对角线上的噪声，保证正定
+    private static final double[] LENGTH_SCALES = {0.05, 0.1, 0.2, 0.4, 0.8};
+
+    private final double[][] x;
+    private final double lengthScale;
+    private final double[][] cholesky; // 下三角
+    private final double[] alpha; // K^-1 * y
+    private final double mean;
+    private final double std;
+    private final double logLikelihood;
+
+    /**
+     * @param x 样本点，各维度已归一化到[0, 1]
+     * @param y 样本值
+     * @return 边际似然最大的长度尺度对应的模型
+     */
+    static GaussianProcess fit(double[][] x, double[] y) {
+        double lengthScaleFactor = Math.sqrt(Math.max(1, x.length == 0 ? 1 : x[0].length));
+        GaussianProcess best = null;
+        for (double lengthScale : LENGTH_SCALES) {
+            GaussianProcess model = fit(x, y, lengthScale * lengthScaleFactor);
+            if (best == null || model.logLikelihood > best.logLikelihood) {
+                best = model;
+            }
+        }
+        return best;
+    }
+
+    static GaussianProcess fit(double[][] x, double[] y, double lengthScale) {
+        return new GaussianProcess(x, y, lengthScale);
+    }
+
+    private GaussianProcess(double[][] x, double[] y, double lengthScale) {
+        int n = x.length;
+        this.x = x;
+        this.lengthScale = lengthScale;
+
+        double sum = 0;
+        for (double value : y) {
+            sum += value;
+        }
+        this.mean = n == 0 ? 0 : sum / n;
+        double squares = 0;
+        for (double value : y) {
+            squares += (value - mean) * (value - mean);
+        }
+        double variance = n == 0 ? 0 : squares / n;
+        this.std = variance > 0 ? Math.sqrt(variance) : 1;
+
+        double[] standardized = new double[n];
+        for (int i = 0; i < n; i++) {
+            standardized[i] = (y[i] - mean) / std;
+        }
+
+        double[][] k = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                k[i][j] = kernel(x[i], x[j]);
+                k[j][i] = k[i][j];
+            }
+            k[i][i] += NOISE;
+        }
+        this.cholesky = decompose(k);
+        this.alpha = solveTransposed(cholesky, solve(cholesky, standardized));
+
+        double logDeterminant = 0;
+        double fit = 0;
+        for (int i = 0; i < n; i++) {
+            logDeterminant += Math.log(cholesky[i][i]);
+            fit += standardized[i] * alpha[i];
+        }
+        this.logLikelihood = -0.5 * fit - logDeterminant - 0.5 * n * Math.log(2 * Math.PI);
+    }
+
+    /**
+     * @return {均值, 标准差}
+     */
+    double[] predict(double[] point) {
+        int n = x.length;
+        double[] k = new double[n];
+        double mu = 0;
+        for (int i = 0; i < n; i++) {
+            k[i] = kernel(point, x[i]);
+            mu += k[i] * alpha[i];
+        }
+        double[] v = solve(cholesky, k);
+        double variance = 1;
+        for (double value : v) {
+            variance -= value * value;
+        }
+        return new double[]{mean + std * mu, std * Math.sqrt(Math.max(variance, 0))};
+    }
+
+    private double kernel(double[] a, double[] b) {
+        double distance = 0;
+        for (int i = 0; i < a.length; i++) {
+            double d = a[i] - b[i];
+            distance += d * d;
+        }
+        return Math.exp(-distance / (2 * lengthScale * lengthScale));
+    }
+
+    /**
+     * Cholesky分解，舍入误差导致对角线出现非正数时按NOISE截断
+     */
+    private static double[][] decompose(double[][] a) {
+        int n = a.length;
+        double[][] l = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = a[i][j];
+                for (int k = 0; k < j; k++) {
+                    sum -= l[i][k] * l[j][k];
+                }
+                if (i == j) {
+                    l[i][i] = Math.sqrt(Math.max(sum, NOISE));
+                } else {
+                    l[i][j] = sum / l[j][j];
+                }
+            }
+        }
+        return l;
+    }
+
+    /**
+     * 解 L * x = b
+     */
+    private static double[] solve(double[][] l, double[] b) {
+        int n = b.length;
+        double[] result = new double[n];
+        for (int i = 0; i < n; i++) {
+            double sum = b[i];
+            for (int k = 0; k < i; k++) {
+                sum -= l[i][k] * result[k];
+            }
+            result[i] = sum / l[i][i];
+        }
+        return result;
+    }
+
+    /**
+     * 解 L^T * x = b
+     */
+    private static double[] solveTransposed(double[][] l, double[] b) {
+        int n = b.length;
+        double[] result = new double[n];
+        for (int i = n - 1; i >= 0; i--) {
+            double sum = b[i];
+            for (int k = i + 1; k < n; k++) {
+                sum -= l[k][i] * result[k];
+            }
+            result[i] = sum / l[i][i];
+        }
+        return result;
+    }
+}
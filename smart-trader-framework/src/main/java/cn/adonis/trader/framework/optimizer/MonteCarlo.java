@@ -0,0 +1,398 @@
+package cn.adonis.trader.framework.optimizer;
+
+import cn.adonis.trader.framework.BackTest;
+import cn.adonis.trader.framework.BackTestException;
+import cn.adonis.trader.framework.indicator.IndicatorCache;
+import cn.adonis.trader.framework.loader.SeriesLoader;
+import cn.adonis.trader.framework.model.*;
+import cn.adonis.trader.framework.strategy.TradingStrategy;
+import cn.adonis.trader.framework.util.Statistics;
+import com.google.common.collect.Lists;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+/**
+ * 蒙特卡洛稳健性检验：对原始回测做大量随机扰动，统计收益和最大回撤的分布
+ * <ul>
+ * <li>BLOCK_BOOTSTRAP：按块有放回地重抽样K线相对前一收盘价的涨跌幅，重建价格序列后重新回测，保留时间及预热区间的数据</li>
+ * <li>TRADE_SHUFFLE：打乱原始回测中每笔完整交易(开仓到平仓)的先后顺序，收益不变，考察回撤</li>
+ * <li>PRICE_JITTER：每笔成交价随机偏移若干个最小变动价位后重新结算</li>
+ * </ul>
+ * 数据只加载一次，原始数据、涨跌幅等只读共享；重建的序列各不相同，回测时不使用指标缓存；每次模拟使用由seed依次拆分(split)出的独立随机数流，结果与线程调度无关
+ */
+public class MonteCarlo {
+
+    public enum Mode {
+        BLOCK_BOOTSTRAP,
+        TRADE_SHUFFLE,
+        PRICE_JITTER
+    }
+
+    private final SeriesLoader seriesLoader;
+    private final BackTestParameter backTestParameter;
+    private final Supplier<? extends TradingStrategy> strategyFactory;
+    private final Mode mode;
+    private final int runs;
+    private final int blockSize;
+    private final BigDecimal tick;
+    private final int maxTicks;
+    private final long seed;
+    private final int parallelism;
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private MonteCarlo(Builder builder) {
+        this.seriesLoader = builder.seriesLoader;
+        this.backTestParameter = builder.backTestParameter;
+        this.strategyFactory = builder.strategyFactory;
+        this.mode = builder.mode;
+        this.runs = builder.runs;
+        this.blockSize = builder.blockSize;
+        this.tick = builder.tick;
+        this.maxTicks = builder.maxTicks;
+        this.seed = builder.seed;
+        this.parallelism = builder.parallelism;
+    }
+
+    public MonteCarloResult run() throws Exception {
+        TimeSeries<Candle> series = seriesLoader.load(backTestParameter.getLoadStartTime(), backTestParameter.getEndTime())
+                .range(backTestParameter.getLoadStartTime(), backTestParameter.getEndTime());
+        BackTestResult base = backTest(series, IndicatorCache.getDefault());
+        Performance basePerformance = Performance.of(base, backTestParameter);
+
+        Simulation simulation;
+        switch (mode) {
+            case BLOCK_BOOTSTRAP:
+                simulation = new BlockBootstrap(series);
+                break;
+            case TRADE_SHUFFLE:
+                simulation = new TradeShuffle(base);
+                break;
+            case PRICE_JITTER:
+                simulation = new PriceJitter(base);
+                break;
+            default:
+                throw new BackTestException("unsupported mode: " + mode);
+        }
+
+        // 在当前线程中依次拆分，每次模拟的随机数流固定
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[runs];
+        for (int i = 0; i < runs; i++) {
+            randoms[i] = root.split();
+        }
+
+        double[] profits = new double[runs];
+        double[] maxDrawdowns = new double[runs];
+        double[] maxDrawdownRates = new double[runs];
+        List<RecursiveAction> tasks = Lists.newArrayListWithCapacity(runs);
+        for (int i = 0; i < runs; i++) {
+            final int index = i;
+            tasks.add(new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    double[] settlementProfits = simulation.simulate(randoms[index]);
+                    double[] drawdown = drawdown(settlementProfits);
+                    double profit = 0;
+                    for (double settlementProfit : settlementProfits) {
+                        profit += settlementProfit;
+                    }
+                    profits[index] = profit;
+                    maxDrawdowns[index] = -drawdown[0];
+                    maxDrawdownRates[index] = -drawdown[1];
+                }
+            });
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        } finally {
+            pool.shutdown();
+        }
+        return new MonteCarloResult(mode, basePerformance, profits, maxDrawdowns, maxDrawdownRates);
+    }
+
+    private BackTestResult backTest(TimeSeries<Candle> series, IndicatorCache indicatorCache) {
+        try {
+            return BackTest.builder()
+                    .setSeriesLoader(() -> series)
+                    .setParameter(backTestParameter)
+                    .setIndicatorCache(indicatorCache)
+                    .setTradingStrategy(strategyFactory.get())
+                    .build()
+                    .run();
+        } catch (BackTestException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new BackTestException("back test failed", e);
+        }
+    }
+
+    /**
+     * 按每次平仓的收益计算净值曲线的最大回撤
+     */
+    private double[] drawdown(double[] settlementProfits) {
+        double[] equities = new double[settlementProfits.length + 1];
+        equities[0] = backTestParameter.getInitialFunds().doubleValue();
+        for (int i = 0; i < settlementProfits.length; i++) {
+            equities[i + 1] = equities[i] + settlementProfits[i];
+        }
+        return Statistics.drawdown(equities);
+    }
+
+    private static double[] toProfits(List<Settlement> settlements) {
+        double[] profits = new double[settlements.size()];
+        for (int i = 0; i < profits.length; i++) {
+            profits[i] = settlements.get(i).getProfit().doubleValue();
+        }
+        return profits;
+    }
+
+    private interface Simulation {
+        /**
+         * @return 按时间顺序每次平仓的收益
+         */
+        double[] simulate(SplittableRandom random);
+    }
+
+    /**
+     * 重建的序列与原始序列共享时间列，价格为新的long列
+     */
+    private final class BlockBootstrap implements Simulation {
+        private final ArrayCandleColumns base;
+        private final long[] time;
+        private final int from; // 从该下标起重抽样，之前(预热区间)保持原样
+        // 第j根K线的开高低收相对第j-1根收盘价的比例
+        private final double[] openRatio;
+        private final double[] highRatio;
+        private final double[] lowRatio;
+        private final double[] closeRatio;
+        private final TimeInterval timeInterval;
+        private final String name;
+
+        private BlockBootstrap(TimeSeries<Candle> series) {
+            List<Candle> candles = series.getSeries().getDataList();
+            int size = candles.size();
+            if (size < 2) {
+                throw new BackTestException("not enough data for bootstrap");
+            }
+            this.base = ArrayCandleColumns.of(candles);
+            this.time = new long[size];
+            for (int i = 0; i < size; i++) {
+                time[i] = base.getTime(i);
+            }
+            int startIndex = backTestParameter.getStartTime() == null ? 0
+                    : size - series.range(backTestParameter.getStartTime(), null).getSeries().size();
+            this.from = Math.max(1, startIndex);
+            this.openRatio = new double[size];
+            this.highRatio = new double[size];
+            this.lowRatio = new double[size];
+            this.closeRatio = new double[size];
+            for (int j = 1; j < size; j++) {
+                double previousClose = base.getClose(j - 1);
+                openRatio[j] = base.getOpen(j) / previousClose;
+                highRatio[j] = base.getHigh(j) / previousClose;
+                lowRatio[j] = base.getLow(j) / previousClose;
+                closeRatio[j] = base.getClose(j) / previousClose;
+            }
+            this.timeInterval = series.getTimeInterval();
+            this.name = series.getSeries().getName();
+        }
+
+        @Override
+        public double[] simulate(SplittableRandom random) {
+            int size = time.length;
+            long[] open = new long[size];
+            long[] high = new long[size];
+            long[] low = new long[size];
+            long[] close = new long[size];
+            for (int i = 0; i < from; i++) {
+                open[i] = base.getOpen(i);
+                high[i] = base.getHigh(i);
+                low[i] = base.getLow(i);
+                close[i] = base.getClose(i);
+            }
+            // 块的起点在 [1, size - length] 中均匀选取
+            int length = Math.min(blockSize, size - 1);
+            long previousClose = close[from - 1];
+            int i = from;
+            while (i < size) {
+                int start = 1 + random.nextInt(size - length);
+                for (int k = 0; k < length && i < size; k++, i++) {
+                    int j = start + k;
+                    open[i] = Math.round(previousClose * openRatio[j]);
+                    high[i] = Math.round(previousClose * highRatio[j]);
+                    low[i] = Math.round(previousClose * lowRatio[j]);
+                    close[i] = Math.round(previousClose * closeRatio[j]);
+                    previousClose = close[i];
+                }
+            }
+            CandleColumnSeries variant = CandleColumnSeries.create(
+                    ArrayCandleColumns.wrap(base.getScale(), time, open, close, high, low), name);
+            // 重建的序列只回测一次，不使用缓存
+            return toProfits(backTest(TimeSeries.create(variant, timeInterval), null).getSettlements());
+        }
+    }
+
+    private static final class TradeShuffle implements Simulation {
+        private final double[] profits;
+
+        private TradeShuffle(BackTestResult base) {
+            this.profits = toProfits(base.getSettlements());
+        }
+
+        @Override
+        public double[] simulate(SplittableRandom random) {
+            double[] shuffled = profits.clone();
+            for (int i = shuffled.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                double temp = shuffled[i];
+                shuffled[i] = shuffled[j];
+                shuffled[j] = temp;
+            }
+            return shuffled;
+        }
+    }
+
+    private final class PriceJitter implements Simulation {
+        private final List<Transaction> transactions;
+        private final BigDecimal lever;
+
+        private PriceJitter(BackTestResult base) {
+            if (tick == null || maxTicks <= 0) {
+                throw new BackTestException("tick and max ticks are required for price jitter");
+            }
+            this.transactions = base.getTransactions();
+            this.lever = Optional.ofNullable(backTestParameter.getTradingFee())
+                    .map(TradingFee::getLever)
+                    .orElse(BigDecimal.ONE);
+        }
+
+        @Override
+        public double[] simulate(SplittableRandom random) {
+            List<Transaction> jittered = Lists.newArrayListWithCapacity(transactions.size());
+            for (Transaction transaction : transactions) {
+                int ticks = random.nextInt(2 * maxTicks + 1) - maxTicks;
+                jittered.add(new Transaction(transaction.getVolume(),
+                        transaction.getPrice().add(tick.multiply(BigDecimal.valueOf(ticks))),
+                        transaction.getTime(), transaction.getDecision()));
+            }
+            return toProfits(BackTest.settle(jittered, lever));
+        }
+    }
+
+    public static class Builder {
+        private SeriesLoader seriesLoader;
+        private BackTestParameter backTestParameter;
+        private Supplier<? extends TradingStrategy> strategyFactory;
+        private Mode mode = Mode.BLOCK_BOOTSTRAP;
+        private int runs = 1000;
+        private int blockSize = 48;
+        private BigDecimal tick;
+        private int maxTicks;
+        private long seed;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        public MonteCarlo build() {
+            if (seriesLoader == null) {
+                throw new BackTestException("series loader is required");
+            }
+            if (backTestParameter == null) {
+                throw new BackTestException("back test parameter is required");
+            }
+            if (strategyFactory == null) {
+                throw new BackTestException("strategy factory is required");
+            }
+            return new MonteCarlo(this);
+        }
+
+        public Builder setSeriesLoader(SeriesLoader seriesLoader) {
+            this.seriesLoader = seriesLoader;
+            return this;
+        }
+
+        public Builder setBackTestParameter(BackTestParameter backTestParameter) {
+            this.backTestParameter = backTestParameter;
+            return this;
+        }
+
+        /**
+         * @param strategyFactory 每次回测调用一次，需返回新的策略实例
+         * @return
+         */
+        public Builder setStrategyFactory(Supplier<? extends TradingStrategy> strategyFactory) {
+            this.strategyFactory = strategyFactory;
+            return this;
+        }
+
+        public Builder setMode(Mode mode) {
+            this.mode = mode;
+            return this;
+        }
+
+        /**
+         * @param runs 模拟次数，默认1000
+         * @return
+         */
+        public Builder setRuns(int runs) {
+            if (runs <= 0) {
+                throw new IllegalArgumentException("runs must be positive");
+            }
+            this.runs = runs;
+            return this;
+        }
+
+        /**
+         * @param blockSize BLOCK_BOOTSTRAP每块的K线数，保留块内的自相关，默认48
+         * @return
+         */
+        public Builder setBlockSize(int blockSize) {
+            if (blockSize <= 0) {
+                throw new IllegalArgumentException("blockSize must be positive");
+            }
+            this.blockSize = blockSize;
+            return this;
+        }
+
+        /**
+         * @param tick     最小变动价位
+         * @param maxTicks PRICE_JITTER时成交价在 [-maxTicks, maxTicks] 个价位内均匀偏移
+         * @return
+         */
+        public Builder setPriceJitter(String tick, int maxTicks) {
+            this.tick = new BigDecimal(tick);
+            this.maxTicks = maxTicks;
+            return this;
+        }
+
+        public Builder setSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Builder setParallelism(int parallelism) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("parallelism must be positive");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package cn.adonis.trader.framework.optimizer;
+
+/**
+ * 蒙特卡洛模拟结果：原始回测的表现及各次模拟的收益、最大回撤分布
+ */
+public class MonteCarloResult {
+
+    private final MonteCarlo.Mode mode;
+    private final Performance basePerformance;
+    private final Distribution profit;
+    private final Distribution maxDrawdown;
+    private final Distribution maxDrawdownRate;
+
+    MonteCarloResult(MonteCarlo.Mode mode, Performance basePerformance, double[] profits, double[] maxDrawdowns, double[] maxDrawdownRates) {
+        this.mode = mode;
+        this.basePerformance = basePerformance;
+        this.profit = Distribution.of(profits);
+        this.maxDrawdown = Distribution.of(maxDrawdowns);
+        this.maxDrawdownRate = Distribution.of(maxDrawdownRates);
+    }
+
+    public MonteCarlo.Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return 原始数据上的回测表现
+     */
+    public Performance getBasePerformance() {
+        return basePerformance;
+    }
+
+    public Distribution getProfit() {
+        return profit;
+    }
+
+    /**
+     * @return 最大回撤金额的分布，非负
+     */
+    public Distribution getMaxDrawdown() {
+        return maxDrawdown;
+    }
+
+    /**
+     * @return 最大回撤比例的分布，非负
+     */
+    public Distribution getMaxDrawdownRate() {
+        return maxDrawdownRate;
+    }
+}
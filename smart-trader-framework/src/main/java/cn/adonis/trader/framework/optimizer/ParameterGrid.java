@@ -0,0 +1,150 @@
+package cn.adonis.trader.framework.optimizer;
+
+import cn.adonis.trader.framework.BackTestException;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 参数网格：每个维度是一组候选值，所有维度的笛卡尔积为全部参数组合
+ * 组合按下标按需生成，不预先展开
+ *
+ * <pre>
+ * ParameterGrid&lt;AverageStrategy.Parameter.Builder, AverageStrategy.Parameter&gt; grid = ParameterGrid
+ *         .create(() -&gt; AverageStrategy.Parameter.builder().setEnterVolumes("5"), AverageStrategy.Parameter.Builder::build)
+ *         .addAxis("avgInterval", Arrays.asList(TimeInterval.days(5), TimeInterval.days(10)), AverageStrategy.Parameter.Builder::setAvgInterval)
+ *         .addAxis("stopLoss", Arrays.asList("0.3", "0.5"), AverageStrategy.Parameter.Builder::setStopLoss);
+ * </pre>
+ *
+ * @param <B> 参数的builder
+ * @param <P> 参数
+ */
+public class ParameterGrid<B, P> {
+
+    private final Supplier<B> builderFactory;
+    private final Function<B, P> build;
+    private final List<Axis<B, ?>> axes = Lists.newArrayList();
+
+    public static <B, P> ParameterGrid<B, P> create(Supplier<B> builderFactory, Function<B, P> build) {
+        return new ParameterGrid<>(builderFactory, build);
+    }
+
+    private ParameterGrid(Supplier<B> builderFactory, Function<B, P> build) {
+        this.builderFactory = builderFactory;
+        this.build = build;
+    }
+
+    /**
+     * @param name   维度名
+     * @param values 候选值
+     * @param setter 把值设置到builder上
+     * @return
+     */
+    public <V> ParameterGrid<B, P> addAxis(String name, List<V> values, BiConsumer<B, ? super V> setter) {
+        if (values.isEmpty()) {
+            throw new BackTestException("axis " + name + " has no value");
+        }
+        axes.add(new Axis<>(name, Lists.newArrayList(values), setter));
+        return this;
+    }
+
+    /**
+     * @return 组合数，超过long范围时抛出异常
+     */
+    public long size() {
+        long size = 1;
+        for (Axis<B, ?> axis : axes) {
+            try {
+                size = Math.multiplyExact(size, axis.values.size());
+            } catch (ArithmeticException e) {
+                throw new BackTestException("too many parameter combinations", e);
+            }
+        }
+        return size;
+    }
+
+    public int getAxisCount() {
+        return axes.size();
+    }
+
+    /**
+     * @return 第axis个维度的候选值个数
+     */
+    public int getAxisSize(int axis) {
+        return axes.get(axis).values.size();
+    }
+
+    /**
+     * @param index 组合下标，最后一个维度变化最快
+     * @return
+     */
+    public P get(long index) {
+        return get(coordinatesOf(index));
+    }
+
+    /**
+     * @param coordinates 每个维度上候选值的下标
+     * @return
+     */
+    public P get(int[] coordinates) {
+        B builder = builderFactory.get();
+        for (int i = 0; i < axes.size(); i++) {
+            axes.get(i).apply(builder, coordinates[i]);
+        }
+        return build.apply(builder);
+    }
+
+    public int[] coordinatesOf(long index) {
+        int[] coordinates = new int[axes.size()];
+        long remainder = index;
+        for (int i = axes.size() - 1; i >= 0; i--) {
+            int axisSize = axes.get(i).values.size();
+            coordinates[i] = (int) (remainder % axisSize);
+            remainder /= axisSize;
+        }
+        return coordinates;
+    }
+
+    public long indexOf(int[] coordinates) {
+        long index = 0;
+        for (int i = 0; i < axes.size(); i++) {
+            index = index * axes.get(i).values.size() + coordinates[i];
+        }
+        return index;
+    }
+
+    /**
+     * @return 组合中各维度的取值，按维度添加顺序
+     */
+    public Map<String, Object> getValues(long index) {
+        int[] coordinates = coordinatesOf(index);
+        Map<String, Object> result = Maps.newLinkedHashMap();
+        for (int i = 0; i < axes.size(); i++) {
+            Axis<B, ?> axis = axes.get(i);
+            result.put(axis.name, axis.values.get(coordinates[i]));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static final class Axis<B, V> {
+        private final String name;
+        private final List<V> values;
+        private final BiConsumer<B, ? super V> setter;
+
+        private Axis(String name, List<V> values, BiConsumer<B, ? super V> setter) {
+            this.name = name;
+            this.values = values;
+            this.setter = setter;
+        }
+
+        private void apply(B builder, int valueIndex) {
+            setter.accept(builder, values.get(valueIndex));
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package cn.adonis.trader.framework.optimizer;
+
+import cn.adonis.trader.framework.BackTestException;
+import cn.adonis.trader.framework.loader.SeriesLoader;
+import cn.adonis.trader.framework.model.BackTestParameter;
+import cn.adonis.trader.framework.strategy.TradingStrategy;
+import com.google.common.collect.Lists;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * 参数遍历：数据只加载一次，各组参数在work-stealing线程池中并发回测
+ * 策略有状态，每次回测通过strategyFactory创建新的策略，TradingContext也各自独立
+ *
+ * <pre>
+ * List&lt;SweepResult&lt;AverageStrategy.Parameter&gt;&gt; ranked = ParameterSweep.&lt;AverageStrategy.Parameter&gt;builder()
+ *         .setSeriesLoader(seriesLoader)
+ *         .setBackTestParameter(backTestParameter)
+ *         .setStrategyFactory(AverageStrategy::newAverageStrategy)
+ *         .setParameterGrid(grid)
+ *         .setListener(result -&gt; System.out.println(result.getPerformance().getProfit()))
+ *         .build()
+ *         .run();
+ * </pre>
+ *
+ * @param <P> 策略参数
+ */
+public class ParameterSweep<P> {
+
+    private final SeriesLoader seriesLoader;
+    private final BackTestParameter backTestParameter;
+    private final Function<? super P, ? extends TradingStrategy> strategyFactory;
+    private final IntFunction<P> parameters;
+    private final int size;
+    private final int parallelism;
+    private final Comparator<Performance> comparator;
+    private final Consumer<? super SweepResult<P>> listener;
+
+    public static <P> Builder<P> builder() {
+        return new Builder<>();
+    }
+
+    private ParameterSweep(SeriesLoader seriesLoader, BackTestParameter backTestParameter,
+                           Function<? super P, ? extends TradingStrategy> strategyFactory,
+                           IntFunction<P> parameters, int size, int parallelism,
+                           Comparator<Performance> comparator, Consumer<? super SweepResult<P>> listener) {
+        this.seriesLoader = seriesLoader;
+        this.backTestParameter = backTestParameter;
+        this.strategyFactory = strategyFactory;
+        this.parameters = parameters;
+        this.size = size;
+        this.parallelism = parallelism;
+        this.comparator = comparator;
+        this.listener = listener;
+    }
+
+    /**
+     * @return 全部结果，按comparator排序，较优的在前
+     * @throws Exception
+     */
+    public List<SweepResult<P>> run() throws Exception {
+        // 各任务只写自己的下标，forEach返回后全部可见
+        List<SweepResult<P>> ranked = Lists.newArrayList(Collections.nCopies(size, null));
+        try (Evaluator<P> evaluator = Evaluator.open(seriesLoader, backTestParameter, strategyFactory, parallelism)) {
+            evaluator.forEach(size, index -> {
+                P parameter = parameters.apply(index);
+                SweepResult<P> result = SweepResult.of(index, parameter, evaluator.evaluate(parameter));
+                ranked.set(index, result);
+                if (listener != null) {
+                    synchronized (listener) {
+                        listener.accept(result);
+                    }
+                }
+            });
+        }
+
+        ranked.sort(Comparator.comparing(SweepResult::getPerformance, comparator));
+        return ranked;
+    }
+
+    public static class Builder<P> {
+        private SeriesLoader seriesLoader;
+        private BackTestParameter backTestParameter;
+        private Function<? super P, ? extends TradingStrategy> strategyFactory;
+        private IntFunction<P> parameters;
+        private int size;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private Comparator<Performance> comparator = Performance.BY_PROFIT;
+        private Consumer<? super SweepResult<P>> listener;
+
+        public ParameterSweep<P> build() {
+            if (seriesLoader == null) {
+                throw new BackTestException("series loader is required");
+            }
+            if (backTestParameter == null) {
+                throw new BackTestException("back test parameter is required");
+            }
+            if (strategyFactory == null) {
+                throw new BackTestException("strategy factory is required");
+            }
+            if (parameters == null) {
+                throw new BackTestException("parameters are required");
+            }
+            return new ParameterSweep<>(seriesLoader, backTestParameter, strategyFactory, parameters, size, parallelism, comparator, listener);
+        }
+
+        public Builder<P> setSeriesLoader(SeriesLoader seriesLoader) {
+            this.seriesLoader = seriesLoader;
+            return this;
+        }
+
+        public Builder<P> setBackTestParameter(BackTestParameter backTestParameter) {
+            this.backTestParameter = backTestParameter;
+            return this;
+        }
+
+        /**
+         * @param strategyFactory 每次回测调用一次，需返回新的策略实例
+         * @return
+         */
+        public Builder<P> setStrategyFactory(Function<? super P, ? extends TradingStrategy> strategyFactory) {
+            this.strategyFactory = strategyFactory;
+            return this;
+        }
+
+        public Builder<P> setParameters(List<P> parameters) {
+            List<P> copy = Lists.newArrayList(parameters);
+            this.parameters = copy::get;
+            this.size = copy.size();
+            return this;
+        }
+
+        public Builder<P> setParameterGrid(ParameterGrid<?, P> grid) {
+            // 穷举只适用于较小的网格，组合过多时用SearchOptimizer
+            long gridSize = grid.size();
+            if (gridSize > Integer.MAX_VALUE) {
+                throw new BackTestException("too many parameter combinations to sweep: " + gridSize);
+            }
+            this.parameters = grid::get;
+            this.size = (int) gridSize;
+            return this;
+        }
+
+        /**
+         * @param parallelism 并发回测数，默认为CPU核数
+         * @return
+         */
+        public Builder<P> setParallelism(int parallelism) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("parallelism must be positive");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * @param comparator 排序方式，较优的在前，默认按收益
+         * @return
+         */
+        public Builder<P> setComparator(Comparator<Performance> comparator) {
+            this.comparator = comparator;
+            return this;
+        }
+
+        /**
+         * 用于显示进度，按完成的先后回调，此时还没有排序；排序后的结果只能从 {@link ParameterSweep#run()} 的返回值获得
+         *
+         * @param listener 每组参数回测完成时回调，调用是串行的
+         * @return
+         */
+        public Builder<P> setListener(Consumer<? super SweepResult<P>> listener) {
+            this.listener = listener;
+            return this;
+        }
+    }
+}
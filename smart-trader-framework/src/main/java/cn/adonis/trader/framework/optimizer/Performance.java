@@ -0,0 +1,116 @@
+package cn.adonis.trader.framework.optimizer;
+
+import cn.adonis.trader.framework.model.BackTestParameter;
+import cn.adonis.trader.framework.model.BackTestResult;
+import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.model.Settlement;
+import cn.adonis.trader.framework.util.Statistics;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 回测结果摘要
+ * 净值 = 初始资金 + 累计平仓收益，回撤按每次平仓后的净值计算，夏普比率按每个交易日收盘时的净值计算
+ */
+public class Performance {
+
+    // 排序时较优的在前
+    public static final Comparator<Performance> BY_PROFIT = Comparator.comparing(Performance::getProfit).reversed();
+    public static final Comparator<Performance> BY_SHARPE = Comparator.comparingDouble(Performance::getSharpe).reversed();
+    public static final Comparator<Performance> BY_MAX_DRAWDOWN_RATE = Comparator.comparingDouble(Performance::getMaxDrawdownRate);
+
+    private final BigDecimal profit;
+    private final int transactionCount;
+    private final double maxDrawdown; // 最大回撤金额，非负
+    private final double maxDrawdownRate; // 最大回撤比例，非负
+    private final double sharpe; // 年化夏普比率，交易日不足或净值无波动时为0
+
+    public static Performance of(BackTestResult result, BackTestParameter parameter) {
+        double initialFunds = parameter.getInitialFunds().doubleValue();
+        List<Settlement> settlements = result.getSettlements();
+
+        // 每次平仓后的净值
+        double[] equities = new double[settlements.size() + 1];
+        equities[0] = initialFunds;
+        for (int i = 0; i < settlements.size(); i++) {
+            equities[i + 1] = equities[i] + settlements.get(i).getProfit().doubleValue();
+        }
+        double[] drawdown = Statistics.drawdown(equities);
+
+        return new Performance(result.getProfit(), result.getTransactions().size(),
+                -drawdown[0], -drawdown[1], sharpe(result, parameter, initialFunds));
+    }
+
+    private static double sharpe(BackTestResult result, BackTestParameter parameter, double initialFunds) {
+        List<Settlement> settlements = result.getSettlements();
+        List<Candle> candles = result.getOriginalData().range(parameter.getStartTime(), null).getSeries().getDataList();
+
+        // 交易日收盘净值，当天及之前的平仓收益都计入
+        double[] dailyEquities = new double[candles.size() + 1];
+        int days = 0;
+        dailyEquities[days++] = initialFunds;
+        double equity = initialFunds;
+        int settlementIndex = 0;
+        LocalDate day = null;
+        for (Candle candle : candles) {
+            LocalDate candleDay = candle.getTime().toLocalDate();
+            if (candleDay.equals(day)) {
+                continue;
+            }
+            if (day != null) {
+                LocalDateTime dayStart = candleDay.atStartOfDay();
+                while (settlementIndex < settlements.size() && settlements.get(settlementIndex).getTime().isBefore(dayStart)) {
+                    equity += settlements.get(settlementIndex++).getProfit().doubleValue();
+                }
+                dailyEquities[days++] = equity;
+            }
+            day = candleDay;
+        }
+        while (settlementIndex < settlements.size()) {
+            equity += settlements.get(settlementIndex++).getProfit().doubleValue();
+        }
+        if (day != null) {
+            dailyEquities[days++] = equity;
+        }
+
+        double[] returns = Statistics.returns(Arrays.copyOf(dailyEquities, days));
+        if (returns.length < 2) {
+            return 0D;
+        }
+        double sharpe = Statistics.sharpe(returns);
+        return Double.isNaN(sharpe) || Double.isInfinite(sharpe) ? 0D : sharpe;
+    }
+
+    private Performance(BigDecimal profit, int transactionCount, double maxDrawdown, double maxDrawdownRate, double sharpe) {
+        this.profit = profit;
+        this.transactionCount = transactionCount;
+        this.maxDrawdown = maxDrawdown;
+        this.maxDrawdownRate = maxDrawdownRate;
+        this.sharpe = sharpe;
+    }
+
+    public BigDecimal getProfit() {
+        return profit;
+    }
+
+    public int getTransactionCount() {
+        return transactionCount;
+    }
+
+    public double getMaxDrawdown() {
+        return maxDrawdown;
+    }
+
+    public double getMaxDrawdownRate() {
+        return maxDrawdownRate;
+    }
+
+    public double getSharpe() {
+        return sharpe;
+    }
+}
@@ -0,0 +1,410 @@
+package cn.adonis.trader.framework.optimizer;
+
+import cn.adonis.trader.framework.BackTestException;
+import cn.adonis.trader.framework.loader.SeriesLoader;
+import cn.adonis.trader.framework.model.BackTestParameter;
+import cn.adonis.trader.framework.strategy.TradingStrategy;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 在参数网格中搜索较优参数，只回测其中一小部分组合
+ * 每轮提出一批参数并发回测，已回测过的组合直接复用结果；连续patience轮最优值没有提升时提前结束
+ * <ul>
+ * <li>GENETIC：遗传算法，从已回测的较优组合中锦标赛选择父代，均匀交叉后按维度变异</li>
+ * <li>BAYESIAN：以高斯过程为代理模型，按UCB(均值 + kappa * 标准差)选点，同一批内用预测均值代替未完成的结果(kriging believer)</li>
+ * </ul>
+ * 随机数由seed决定，相同的seed得到相同的搜索过程
+ *
+ * @param <P> 策略参数
+ */
+public class SearchOptimizer<P> {
+
+    public enum Mode {
+        GENETIC,
+        BAYESIAN
+    }
+
+    private static final double KAPPA = 2.0; // UCB的探索系数
+    private static final int CANDIDATE_COUNT = 1000; // 贝叶斯模式每轮评估UCB的候选点数
+    private static final int MAX_ATTEMPTS = 50; // 随机生成未回测组合的尝试次数
+
+    private final SeriesLoader seriesLoader;
+    private final BackTestParameter backTestParameter;
+    private final Function<? super P, ? extends TradingStrategy> strategyFactory;
+    private final ParameterGrid<?, P> grid;
+    private final ToDoubleFunction<Performance> objective;
+    private final Mode mode;
+    private final int parallelism;
+    private final int batchSize;
+    private final int maxEvaluations;
+    private final int patience;
+    private final double tolerance;
+    private final long seed;
+    private final Consumer<? super SweepResult<P>> listener;
+
+    // 搜索状态，run时初始化
+    private Random random;
+    private Map<Long, SweepResult<P>> evaluated; // 组合下标 -> 结果，按回测顺序
+    private Map<Long, Double> scores;
+
+    public static <P> Builder<P> builder() {
+        return new Builder<>();
+    }
+
+    private SearchOptimizer(Builder<P> builder) {
+        this.seriesLoader = builder.seriesLoader;
+        this.backTestParameter = builder.backTestParameter;
+        this.strategyFactory = builder.strategyFactory;
+        this.grid = builder.grid;
+        this.objective = builder.objective;
+        this.mode = builder.mode;
+        this.parallelism = builder.parallelism;
+        this.batchSize = builder.batchSize > 0 ? builder.batchSize : builder.parallelism;
+        this.maxEvaluations = builder.maxEvaluations;
+        this.patience = builder.patience;
+        this.tolerance = builder.tolerance;
+        this.seed = builder.seed;
+        this.listener = builder.listener;
+    }
+
+    /**
+     * @return 所有回测过的组合，按objective从高到低排序
+     * @throws Exception
+     */
+    public synchronized List<SweepResult<P>> run() throws Exception {
+        random = new Random(seed);
+        evaluated = Maps.newLinkedHashMap();
+        scores = Maps.newHashMap();
+        long spaceSize = grid.size();
+        int initialCount = Math.max(batchSize, 2 * grid.getAxisCount() + 1);
+
+        double best = Double.NEGATIVE_INFINITY;
+        int stale = 0;
+        try (Evaluator<P> evaluator = Evaluator.open(seriesLoader, backTestParameter, strategyFactory, parallelism)) {
+            while (evaluated.size() < maxEvaluations && evaluated.size() < spaceSize) {
+                int count = (int) Math.min(batchSize, Math.min(maxEvaluations, spaceSize) - evaluated.size());
+                List<Long> batch;
+                if (evaluated.size() < initialCount) {
+                    batch = propose(count, this::randomPoint);
+                } else if (mode == Mode.GENETIC) {
+                    batch = propose(count, this::offspring);
+                } else {
+                    batch = proposeBayesian(count);
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                // 各任务只写自己的下标，forEach返回后全部可见
+                List<SweepResult<P>> results = Lists.newArrayList(Collections.nCopies(batch.size(), null));
+                evaluator.forEach(batch.size(), i -> {
+                    P parameter = grid.get(batch.get(i));
+                    SweepResult<P> result = SweepResult.of(batch.get(i), parameter, evaluator.evaluate(parameter));
+                    results.set(i, result);
+                    if (listener != null) {
+                        synchronized (listener) {
+                            listener.accept(result);
+                        }
+                    }
+                });
+
+                double batchBest = Double.NEGATIVE_INFINITY;
+                for (SweepResult<P> result : results) {
+                    double score = objective.applyAsDouble(result.getPerformance());
+                    evaluated.put(result.getIndex(), result);
+                    scores.put(result.getIndex(), score);
+                    batchBest = Math.max(batchBest, score);
+                }
+                if (best == Double.NEGATIVE_INFINITY || batchBest > best + tolerance * Math.abs(best)) {
+                    best = Math.max(best, batchBest);
+                    stale = 0;
+                } else if (++stale >= patience && evaluated.size() >= initialCount) {
+                    break;
+                }
+            }
+        }
+
+        List<SweepResult<P>> ranked = Lists.newArrayList(evaluated.values());
+        ranked.sort(Comparator.comparingDouble((SweepResult<P> result) -> scores.get(result.getIndex())).reversed());
+        return ranked;
+    }
+
+    /**
+     * 生成count个互不相同且未回测过的组合，随机生成失败较多时按顺序补足
+     */
+    private List<Long> propose(int count, Supplier<int[]> generator) {
+        Set<Long> batch = Sets.newLinkedHashSet();
+        for (int attempt = 0; batch.size() < count && attempt < count * MAX_ATTEMPTS; attempt++) {
+            long index = grid.indexOf(generator.get());
+            if (!evaluated.containsKey(index)) {
+                batch.add(index);
+            }
+        }
+        fill(batch, count);
+        return Lists.newArrayList(batch);
+    }
+
+    private void fill(Set<Long> batch, int count) {
+        long spaceSize = grid.size();
+        // 组合数可能超过int，起点取long范围的随机数再取模
+        long start = Math.floorMod(random.nextLong(), spaceSize);
+        for (long i = 0; i < spaceSize && batch.size() < count; i++) {
+            long index = (start + i) % spaceSize;
+            if (!evaluated.containsKey(index)) {
+                batch.add(index);
+            }
+        }
+    }
+
+    private int[] randomPoint() {
+        int[] point = new int[grid.getAxisCount()];
+        for (int i = 0; i < point.length; i++) {
+            point[i] = random.nextInt(grid.getAxisSize(i));
+        }
+        return point;
+    }
+
+    /**
+     * 锦标赛选择两个父代，均匀交叉，每个维度以 1 / 维度数 的概率变异
+     */
+    private int[] offspring() {
+        List<Long> population = topIndexes(Math.max(2 * batchSize, 8));
+        int[] father = grid.coordinatesOf(tournament(population));
+        int[] mother = grid.coordinatesOf(tournament(population));
+        int[] child = new int[father.length];
+        for (int i = 0; i < child.length; i++) {
+            child[i] = random.nextBoolean() ? father[i] : mother[i];
+        }
+        return mutate(child);
+    }
+
+    private long tournament(List<Long> population) {
+        long winner = population.get(random.nextInt(population.size()));
+        for (int i = 1; i < 3; i++) {
+            long challenger = population.get(random.nextInt(population.size()));
+            if (scores.get(challenger) > scores.get(winner)) {
+                winner = challenger;
+            }
+        }
+        return winner;
+    }
+
+    /**
+     * 候选值通常是有序的，变异时多数移动到相邻的值，少数随机取值
+     */
+    private int[] mutate(int[] point) {
+        double probability = 1.0 / point.length;
+        for (int i = 0; i < point.length; i++) {
+            int axisSize = grid.getAxisSize(i);
+            if (axisSize == 1 || random.nextDouble() >= probability) {
+                continue;
+            }
+            if (random.nextDouble() < 0.8) {
+                int step = 1 + (random.nextDouble() < 0.3 ? 1 : 0);
+                int value = point[i] + (random.nextBoolean() ? step : -step);
+                point[i] = Math.max(0, Math.min(axisSize - 1, value));
+            } else {
+                point[i] = random.nextInt(axisSize);
+            }
+        }
+        return point;
+    }
+
+    private List<Long> topIndexes(int count) {
+        List<Long> indexes = Lists.newArrayList(evaluated.keySet());
+        indexes.sort(Comparator.comparingDouble((Long index) -> scores.get(index)).reversed());
+        return indexes.subList(0, Math.min(count, indexes.size()));
+    }
+
+    /**
+     * 候选点为随机点及较优组合的变异，按UCB逐个选取；选中的点以预测均值加入样本后重新拟合
+     */
+    private List<Long> proposeBayesian(int count) {
+        List<double[]> x = Lists.newArrayList();
+        List<Double> y = Lists.newArrayList();
+        for (Long index : evaluated.keySet()) {
+            x.add(normalize(grid.coordinatesOf(index)));
+            y.add(scores.get(index));
+        }
+
+        Set<Long> candidates = Sets.newLinkedHashSet();
+        for (int i = 0; i < CANDIDATE_COUNT / 2; i++) {
+            candidates.add(grid.indexOf(randomPoint()));
+        }
+        List<Long> top = topIndexes(10);
+        for (int i = 0; i < CANDIDATE_COUNT / 2; i++) {
+            candidates.add(grid.indexOf(mutate(grid.coordinatesOf(top.get(i % top.size())))));
+        }
+        candidates.removeAll(evaluated.keySet());
+
+        Set<Long> batch = Sets.newLinkedHashSet();
+        while (batch.size() < count && !candidates.isEmpty()) {
+            GaussianProcess model = GaussianProcess.fit(x.toArray(new double[0][]), y.stream().mapToDouble(Double::doubleValue).toArray());
+            long chosen = -1;
+            double chosenMean = 0;
+            double bestUcb = Double.NEGATIVE_INFINITY;
+            for (Long candidate : candidates) {
+                double[] prediction = model.predict(normalize(grid.coordinatesOf(candidate)));
+                double ucb = prediction[0] + KAPPA * prediction[1];
+                if (ucb > bestUcb) {
+                    bestUcb = ucb;
+                    chosen = candidate;
+                    chosenMean = prediction[0];
+                }
+            }
+            candidates.remove(chosen);
+            batch.add(chosen);
+            x.add(normalize(grid.coordinatesOf(chosen)));
+            y.add(chosenMean);
+        }
+        fill(batch, count);
+        return Lists.newArrayList(batch);
+    }
+
+    private double[] normalize(int[] point) {
+        double[] result = new double[point.length];
+        for (int i = 0; i < point.length; i++) {
+            int axisSize = grid.getAxisSize(i);
+            result[i] = axisSize == 1 ? 0 : (double) point[i] / (axisSize - 1);
+        }
+        return result;
+    }
+
+    public static class Builder<P> {
+        private SeriesLoader seriesLoader;
+        private BackTestParameter backTestParameter;
+        private Function<? super P, ? extends TradingStrategy> strategyFactory;
+        private ParameterGrid<?, P> grid;
+        private ToDoubleFunction<Performance> objective = performance -> performance.getProfit().doubleValue();
+        private Mode mode = Mode.GENETIC;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private int batchSize;
+        private int maxEvaluations = 200;
+        private int patience = 5;
+        private double tolerance = 1e-3;
+        private long seed;
+        private Consumer<? super SweepResult<P>> listener;
+
+        public SearchOptimizer<P> build() {
+            if (seriesLoader == null) {
+                throw new BackTestException("series loader is required");
+            }
+            if (backTestParameter == null) {
+                throw new BackTestException("back test parameter is required");
+            }
+            if (strategyFactory == null) {
+                throw new BackTestException("strategy factory is required");
+            }
+            if (grid == null) {
+                throw new BackTestException("parameter grid is required");
+            }
+            return new SearchOptimizer<>(this);
+        }
+
+        public Builder<P> setSeriesLoader(SeriesLoader seriesLoader) {
+            this.seriesLoader = seriesLoader;
+            return this;
+        }
+
+        public Builder<P> setBackTestParameter(BackTestParameter backTestParameter) {
+            this.backTestParameter = backTestParameter;
+            return this;
+        }
+
+        /**
+         * @param strategyFactory 每次回测调用一次，需返回新的策略实例
+         * @return
+         */
+        public Builder<P> setStrategyFactory(Function<? super P, ? extends TradingStrategy> strategyFactory) {
+            this.strategyFactory = strategyFactory;
+            return this;
+        }
+
+        /**
+         * @param grid 搜索空间
+         * @return
+         */
+        public Builder<P> setParameterGrid(ParameterGrid<?, P> grid) {
+            this.grid = grid;
+            return this;
+        }
+
+        /**
+         * @param objective 优化目标，越大越好，默认为收益
+         * @return
+         */
+        public Builder<P> setObjective(ToDoubleFunction<Performance> objective) {
+            this.objective = objective;
+            return this;
+        }
+
+        public Builder<P> setMode(Mode mode) {
+            this.mode = mode;
+            return this;
+        }
+
+        public Builder<P> setParallelism(int parallelism) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("parallelism must be positive");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * @param batchSize 每轮回测的组合数，默认等于parallelism
+         * @return
+         */
+        public Builder<P> setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * @param maxEvaluations 最多回测的组合数，默认200
+         * @return
+         */
+        public Builder<P> setMaxEvaluations(int maxEvaluations) {
+            this.maxEvaluations = maxEvaluations;
+            return this;
+        }
+
+        /**
+         * @param patience  最优值连续多少轮没有提升时结束，默认5
+         * @param tolerance 视为提升的最小相对幅度，默认0.001
+         * @return
+         */
+        public Builder<P> setConvergence(int patience, double tolerance) {
+            this.patience = patience;
+            this.tolerance = tolerance;
+            return this;
+        }
+
+        public Builder<P> setSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * @param listener 每组参数回测完成时回调，调用是串行的
+         * @return
+         */
+        public Builder<P> setListener(Consumer<? super SweepResult<P>> listener) {
+            this.listener = listener;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package cn.adonis.trader.framework.optimizer;
+
+/**
+ * 一组参数的回测结果摘要
+ *
+ * @param <P> 参数
+ */
+public class SweepResult<P> {
+
+    private final long index;
+    private final P parameter;
+    private final Performance performance;
+
+    static <P> SweepResult<P> of(long index, P parameter, Performance performance) {
+        return new SweepResult<>(index, parameter, performance);
+    }
+
+    private SweepResult(long index, P parameter, Performance performance) {
+        this.index = index;
+        this.parameter = parameter;
+        this.performance = performance;
+    }
+
+    /**
+     * @return 参数在网格或参数列表中的下标
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    public P getParameter() {
+        return parameter;
+    }
+
+    public Performance getPerformance() {
+        return performance;
+    }
+}
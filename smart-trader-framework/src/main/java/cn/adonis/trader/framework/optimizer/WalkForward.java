@@ -0,0 +1,340 @@
+package cn.adonis.trader.framework.optimizer;
+
+import cn.adonis.trader.framework.BackTest;
+import cn.adonis.trader.framework.BackTestException;
+import cn.adonis.trader.framework.loader.SeriesLoader;
+import cn.adonis.trader.framework.model.*;
+import cn.adonis.trader.framework.strategy.TradingStrategy;
+import cn.adonis.trader.framework.util.SeriesUtil;
+import com.google.common.collect.Lists;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 滚动(walk-forward)优化：把 [startTime, endTime] 切分为滚动的样本内、样本外窗口
+ * 每个窗口在样本内优化参数，再用最优参数回测紧随其后的样本外区间，最后把各样本外结果按时间拼接
+ * 数据只加载一次，所有窗口共享；窗口之间相互独立，并发执行
+ *
+ * <pre>
+ * |---- 样本内 ----|-- 样本外 --|
+ *        step     |---- 样本内 ----|-- 样本外 --|
+ * </pre>
+ * 每个样本外区间都从初始资金开始，拼接后的收益为各区间收益之和
+ *
+ * @param <P> 策略参数
+ */
+public class WalkForward<P> {
+
+    private final SeriesLoader seriesLoader;
+    private final BackTestParameter backTestParameter;
+    private final Function<? super P, ? extends TradingStrategy> strategyFactory;
+    private final ParameterGrid<?, P> grid;
+    private final SearchOptimizer.Mode searchMode;
+    private final int maxEvaluations;
+    private final ToDoubleFunction<Performance> objective;
+    private final TimeInterval inSample;
+    private final TimeInterval outOfSample;
+    private final TimeInterval step;
+    private final int parallelism;
+    private final int optimizerParallelism;
+
+    public static <P> Builder<P> builder() {
+        return new Builder<>();
+    }
+
+    private WalkForward(Builder<P> builder) {
+        this.seriesLoader = builder.seriesLoader;
+        this.backTestParameter = builder.backTestParameter;
+        this.strategyFactory = builder.strategyFactory;
+        this.grid = builder.grid;
+        this.searchMode = builder.searchMode;
+        this.maxEvaluations = builder.maxEvaluations;
+        this.objective = builder.objective;
+        this.inSample = builder.inSample;
+        this.outOfSample = builder.outOfSample;
+        this.step = builder.step != null ? builder.step : builder.outOfSample;
+        this.parallelism = builder.parallelism;
+        this.optimizerParallelism = builder.optimizerParallelism;
+    }
+
+    public WalkForwardResult<P> run() throws Exception {
+        // 只加载一次，各窗口的回测都在同一个序列上按范围截取
+        TimeSeries<Candle> series = seriesLoader.load(backTestParameter.getLoadStartTime(), backTestParameter.getEndTime());
+        SeriesLoader sharedLoader = () -> series;
+
+        LocalDateTime endTime = backTestParameter.getEndTime();
+        if (endTime == null) {
+            Candle last = SeriesUtil.getLast(series.getSeries().getDataList());
+            if (last == null) {
+                throw new BackTestException("no data for walk forward");
+            }
+            endTime = last.getTime();
+        }
+        List<LocalDateTime> windowStarts = Lists.newArrayList();
+        for (LocalDateTime start = backTestParameter.getStartTime();
+             !start.plusSeconds(inSample.toSeconds()).isAfter(endTime);
+             start = start.plusSeconds(step.toSeconds())) {
+            windowStarts.add(start);
+        }
+        if (windowStarts.isEmpty()) {
+            throw new BackTestException("the back test range is shorter than the in-sample interval");
+        }
+
+        // 各任务只写自己的下标，invoke返回后全部可见
+        List<WalkForwardResult.Window<P>> windowList = Lists.newArrayList(Collections.nCopies(windowStarts.size(), null));
+        final LocalDateTime lastTime = endTime;
+        List<RecursiveAction> tasks = Lists.newArrayList();
+        for (int i = 0; i < windowStarts.size(); i++) {
+            final int index = i;
+            tasks.add(new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    windowList.set(index, runWindow(sharedLoader, windowStarts.get(index), lastTime));
+                }
+            });
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        } finally {
+            pool.shutdown();
+        }
+
+        BackTestResult stitched = stitch(series, windowList);
+        BackTestParameter outOfSampleParameter = backTestParameter.toBuilder()
+                .setStartTime(windowList.get(0).getOutOfSampleStart())
+                .build();
+        return new WalkForwardResult<>(windowList, stitched, Performance.of(stitched, outOfSampleParameter));
+    }
+
+    private WalkForwardResult.Window<P> runWindow(SeriesLoader sharedLoader, LocalDateTime inSampleStart, LocalDateTime lastTime) {
+        LocalDateTime outOfSampleStart = inSampleStart.plusSeconds(inSample.toSeconds());
+        LocalDateTime inSampleEnd = outOfSampleStart.minusSeconds(1);
+        LocalDateTime outOfSampleEnd = min(outOfSampleStart.plusSeconds(outOfSample.toSeconds()).minusSeconds(1), lastTime);
+
+        BackTestParameter inSampleParameter = backTestParameter.toBuilder()
+                .setStartTime(inSampleStart)
+                .setEndTime(inSampleEnd)
+                .build();
+        BackTestParameter outOfSampleParameter = backTestParameter.toBuilder()
+                .setStartTime(outOfSampleStart)
+                .setEndTime(outOfSampleEnd)
+                .build();
+        try {
+            SweepResult<P> best = optimize(sharedLoader, inSampleParameter);
+            BackTestResult outOfSampleResult = BackTest.builder()
+                    .setSeriesLoader(sharedLoader)
+                    .setParameter(outOfSampleParameter)
+                    .setTradingStrategy(strategyFactory.apply(best.getParameter()))
+                    .build()
+                    .run();
+            return new WalkForwardResult.Window<>(inSampleStart, inSampleEnd, outOfSampleStart, outOfSampleEnd,
+                    best.getParameter(), best.getPerformance(),
+                    outOfSampleResult, Performance.of(outOfSampleResult, outOfSampleParameter));
+        } catch (BackTestException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new BackTestException("walk forward failed for window starting at " + inSampleStart, e);
+        }
+    }
+
+    private SweepResult<P> optimize(SeriesLoader sharedLoader, BackTestParameter inSampleParameter) throws Exception {
+        if (searchMode == null) {
+            return ParameterSweep.<P>builder()
+                    .setSeriesLoader(sharedLoader)
+                    .setBackTestParameter(inSampleParameter)
+                    .setStrategyFactory(strategyFactory)
+                    .setParameterGrid(grid)
+                    .setComparator(Comparator.comparingDouble(objective).reversed())
+                    .setParallelism(optimizerParallelism)
+                    .build()
+                    .run()
+                    .get(0);
+        }
+        return SearchOptimizer.<P>builder()
+                .setSeriesLoader(sharedLoader)
+                .setBackTestParameter(inSampleParameter)
+                .setStrategyFactory(strategyFactory)
+                .setParameterGrid(grid)
+                .setObjective(objective)
+                .setMode(searchMode)
+                .setMaxEvaluations(maxEvaluations)
+                .setParallelism(optimizerParallelism)
+                .build()
+                .run()
+                .get(0);
+    }
+
+    /**
+     * 按时间拼接各样本外区间的交易和结算
+     */
+    private BackTestResult stitch(TimeSeries<Candle> series, List<WalkForwardResult.Window<P>> windows) {
+        List<Transaction> transactions = Lists.newArrayList();
+        List<Settlement> settlements = Lists.newArrayList();
+        BigDecimal profit = BigDecimal.ZERO;
+        for (WalkForwardResult.Window<P> window : windows) {
+            transactions.addAll(window.getOutOfSampleResult().getTransactions());
+            settlements.addAll(window.getOutOfSampleResult().getSettlements());
+            profit = profit.add(window.getOutOfSampleResult().getProfit());
+        }
+        BackTestResult result = new BackTestResult();
+        result.setProfit(profit.setScale(2, RoundingMode.HALF_UP));
+        result.setTransactions(transactions);
+        result.setSettlements(settlements);
+        result.setOriginalData(series.range(windows.get(0).getOutOfSampleStart(), windows.get(windows.size() - 1).getOutOfSampleEnd()));
+        return result;
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    public static class Builder<P> {
+        private SeriesLoader seriesLoader;
+        private BackTestParameter backTestParameter;
+        private Function<? super P, ? extends TradingStrategy> strategyFactory;
+        private ParameterGrid<?, P> grid;
+        private SearchOptimizer.Mode searchMode;
+        private int maxEvaluations = 200;
+        private ToDoubleFunction<Performance> objective = performance -> performance.getProfit().doubleValue();
+        private TimeInterval inSample;
+        private TimeInterval outOfSample;
+        private TimeInterval step;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private int optimizerParallelism = 1;
+
+        public WalkForward<P> build() {
+            if (seriesLoader == null) {
+                throw new BackTestException("series loader is required");
+            }
+            if (backTestParameter == null || backTestParameter.getStartTime() == null) {
+                throw new BackTestException("back test parameter with start time is required");
+            }
+            if (strategyFactory == null) {
+                throw new BackTestException("strategy factory is required");
+            }
+            if (grid == null) {
+                throw new BackTestException("parameter grid is required");
+            }
+            if (inSample == null || outOfSample == null) {
+                throw new BackTestException("in-sample and out-of-sample intervals are required");
+            }
+            if (step != null && step.toSeconds() < outOfSample.toSeconds()) {
+                throw new BackTestException("step must not be shorter than the out-of-sample interval");
+            }
+            return new WalkForward<>(this);
+        }
+
+        public Builder<P> setSeriesLoader(SeriesLoader seriesLoader) {
+            this.seriesLoader = seriesLoader;
+            return this;
+        }
+
+        /**
+         * @param backTestParameter startTime、endTime为整个滚动区间，其余参数用于每个窗口
+         * @return
+         */
+        public Builder<P> setBackTestParameter(BackTestParameter backTestParameter) {
+            this.backTestParameter = backTestParameter;
+            return this;
+        }
+
+        /**
+         * @param strategyFactory 每次回测调用一次，需返回新的策略实例
+         * @return
+         */
+        public Builder<P> setStrategyFactory(Function<? super P, ? extends TradingStrategy> strategyFactory) {
+            this.strategyFactory = strategyFactory;
+            return this;
+        }
+
+        public Builder<P> setParameterGrid(ParameterGrid<?, P> grid) {
+            this.grid = grid;
+            return this;
+        }
+
+        /**
+         * 样本内使用SearchOptimizer搜索，不设置时遍历全部网格
+         *
+         * @param searchMode
+         * @param maxEvaluations 每个窗口最多回测的组合数
+         * @return
+         */
+        public Builder<P> setSearchMode(SearchOptimizer.Mode searchMode, int maxEvaluations) {
+            this.searchMode = searchMode;
+            this.maxEvaluations = maxEvaluations;
+            return this;
+        }
+
+        /**
+         * @param objective 选择样本内最优参数的目标，越大越好，默认为收益
+         * @return
+         */
+        public Builder<P> setObjective(ToDoubleFunction<Performance> objective) {
+            this.objective = objective;
+            return this;
+        }
+
+        /**
+         * @param inSample    样本内区间长度
+         * @param outOfSample 样本外区间长度
+         * @return
+         */
+        public Builder<P> setWindow(TimeInterval inSample, TimeInterval outOfSample) {
+            this.inSample = inSample;
+            this.outOfSample = outOfSample;
+            return this;
+        }
+
+        /**
+         * @param step 相邻窗口起点的间隔，不能小于样本外区间长度，默认相等，使样本外区间首尾相接
+         * @return
+         */
+        public Builder<P> setStep(TimeInterval step) {
+            this.step = step;
+            return this;
+        }
+
+        /**
+         * @param parallelism 并发执行的窗口数，默认为CPU核数
+         * @return
+         */
+        public Builder<P> setParallelism(int parallelism) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("parallelism must be positive");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * @param optimizerParallelism 每个窗口内优化时并发回测的数量，默认为1
+         * @return
+         */
+        public Builder<P> setOptimizerParallelism(int optimizerParallelism) {
+            if (optimizerParallelism <= 0) {
+                throw new IllegalArgumentException("optimizerParallelism must be positive");
+            }
+            this.optimizerParallelism = optimizerParallelism;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package cn.adonis.trader.framework.optimizer;
+
+import cn.adonis.trader.framework.model.BackTestResult;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 滚动优化结果：每个窗口的最优参数及其样本外表现，以及拼接后的样本外结果
+ *
+ * @param <P> 策略参数
+ */
+public class WalkForwardResult<P> {
+
+    private final List<Window<P>> windows;
+    private final BackTestResult outOfSampleResult;
+    private final Performance outOfSamplePerformance;
+
+    WalkForwardResult(List<Window<P>> windows, BackTestResult outOfSampleResult, Performance outOfSamplePerformance) {
+        this.windows = Collections.unmodifiableList(windows);
+        this.outOfSampleResult = outOfSampleResult;
+        this.outOfSamplePerformance = outOfSamplePerformance;
+    }
+
+    /**
+     * @return 各窗口，按时间顺序
+     */
+    public List<Window<P>> getWindows() {
+        return windows;
+    }
+
+    /**
+     * @return 所有样本外区间的交易和结算按时间拼接的结果，收益为各窗口收益之和
+     */
+    public BackTestResult getOutOfSampleResult() {
+        return outOfSampleResult;
+    }
+
+    /**
+     * @return 拼接后样本外结果的摘要
+     */
+    public Performance getOutOfSamplePerformance() {
+        return outOfSamplePerformance;
+    }
+
+    public static class Window<P> {
+        private final LocalDateTime inSampleStart;
+        private final LocalDateTime inSampleEnd;
+        private final LocalDateTime outOfSampleStart;
+        private final LocalDateTime outOfSampleEnd;
+        private final P parameter;
+        private final Performance inSamplePerformance;
+        private final BackTestResult outOfSampleResult;
+        private final Performance outOfSamplePerformance;
+
+        Window(LocalDateTime inSampleStart, LocalDateTime inSampleEnd, LocalDateTime outOfSampleStart, LocalDateTime outOfSampleEnd,
+               P parameter, Performance inSamplePerformance, BackTestResult outOfSampleResult, Performance outOfSamplePerformance) {
+            this.inSampleStart = inSampleStart;
+            this.inSampleEnd = inSampleEnd;
+            this.outOfSampleStart = outOfSampleStart;
+            this.outOfSampleEnd = outOfSampleEnd;
+            this.parameter = parameter;
+            this.inSamplePerformance = inSamplePerformance;
+            this.outOfSampleResult = outOfSampleResult;
+            this.outOfSamplePerformance = outOfSamplePerformance;
+        }
+
+        public LocalDateTime getInSampleStart() {
+            return inSampleStart;
+        }
+
+        public LocalDateTime getInSampleEnd() {
+            return inSampleEnd;
+        }
+
+        public LocalDateTime getOutOfSampleStart() {
+            return outOfSampleStart;
+        }
+
+        public LocalDateTime getOutOfSampleEnd() {
+            return outOfSampleEnd;
+        }
+
+        /**
+         * @return 样本内最优的参数
+         */
+        public P getParameter() {
+            return parameter;
+        }
+
+        public Performance getInSamplePerformance() {
+            return inSamplePerformance;
+        }
+
+        public BackTestResult getOutOfSampleResult() {
+            return outOfSampleResult;
+        }
+
+        public Performance getOutOfSamplePerformance() {
+            return outOfSamplePerformance;
+        }
+    }
+}
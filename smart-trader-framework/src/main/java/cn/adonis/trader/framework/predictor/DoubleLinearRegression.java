@@ -6,21 +6,48 @@ import cn.adonis.trader.framework.util.TimeUtil;
 import org.apache.commons.math3.stat.regression.SimpleRegression;
 
 import java.time.LocalDateTime;
-import java.time.ZoneOffset;
 
 public class DoubleLinearRegression implements TrendPredictor {
 
-    private final SimpleRegression simpleRegressionShort;
+    private final double shortSlope;
 
-    private final SimpleRegression simpleRegressionLong;
+    private final double longSlope;
 
-    private DoubleLinearRegression(SimpleRegression simpleRegressionShort, SimpleRegression simpleRegressionLong) {
-        this.simpleRegressionShort = simpleRegressionShort;
-        this.simpleRegressionLong = simpleRegressionLong;
+    private DoubleLinearRegression(double shortSlope, double longSlope) {
+        this.shortSlope = shortSlope;
+        this.longSlope = longSlope;
     }
 
     public static DoubleLinearRegression fit(Series<Candle> seriesShort, Series<Candle> seriesLong) {
-        return new DoubleLinearRegression(getSimpleRegression(seriesShort), getSimpleRegression(seriesLong));
+        return new DoubleLinearRegression(getSimpleRegression(seriesShort).getSlope(), getSimpleRegression(seriesLong).getSlope());
+    }
+
+    /**
+     * 由已拟合好的短、长周期回归组合，如两个 {@link SlidingLinearRegression}
+     *
+     * @param predictorShort
+     * @param predictorLong
+     * @return
+     */
+    public static DoubleLinearRegression of(TrendPredictor predictorShort, TrendPredictor predictorLong) {
+        return new DoubleLinearRegression(predictorShort.getSlope(), predictorLong.getSlope());
+    }
+
+    /**
+     * 每根K线O(1)，不重新拟合；两个斜率的差在舍入误差以内时视为相等，既不涨也不跌，
+     * 这种情况下涨跌判断可能与 {@link #fit} 不同
+     *
+     * @param regressionShort
+     * @param regressionLong
+     * @return
+     */
+    public static DoubleLinearRegression of(SlidingLinearRegression regressionShort, SlidingLinearRegression regressionLong) {
+        double shortSlope = regressionShort.getSlope();
+        double longSlope = regressionLong.getSlope();
+        if (Math.abs(shortSlope - longSlope) <= SlidingLinearRegression.AMBIGUITY_TOLERANCE * (Math.abs(shortSlope) + Math.abs(longSlope))) {
+            return new DoubleLinearRegression(shortSlope, shortSlope);
+        }
+        return new DoubleLinearRegression(shortSlope, longSlope);
     }
 
     private static SimpleRegression getSimpleRegression(Series<Candle> series) {
@@ -34,17 +61,21 @@ public class DoubleLinearRegression implements TrendPredictor {
         return 0D;
     }
 
+    /**
+     * @return 短周期斜率
+     */
+    @Override
+    public double getSlope() {
+        return shortSlope;
+    }
+
     @Override
     public boolean isGoingUp() {
-        double shortSlope = simpleRegressionShort.getSlope();
-        double longSlope = simpleRegressionLong.getSlope();
         return shortSlope > 0 && shortSlope > longSlope;
     }
 
     @Override
     public boolean isGoingDown() {
-        double shortSlope = simpleRegressionShort.getSlope();
-        double longSlope = simpleRegressionLong.getSlope();
         return shortSlope < 0 && shortSlope < longSlope;
     }
 
@@ -33,6 +33,11 @@ public class LinearRegression implements TrendPredictor {
         return simpleRegression.predict(TimeUtil.toSeconds(dateTime));
     }
 
+    @Override
+    public double getSlope() {
+        return simpleRegression.getSlope();
+    }
+
     @Override
     public boolean isGoingUp() {
         return simpleRegression.getSlope() > 0;
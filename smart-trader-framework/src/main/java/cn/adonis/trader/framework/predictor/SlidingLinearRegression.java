@@ -0,0 +1,230 @@
+package cn.adonis.trader.framework.predictor;
+
+import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.model.TimeInterval;
+import cn.adonis.trader.framework.util.TimeUtil;
+import org.apache.commons.math3.stat.regression.SimpleRegression;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 滑动窗口的一元线性回归，x为时间(epoch秒)，y为收盘价
+ * 维护窗口内x、y、xy、x²的累加和，添加和移出都是O(1)，斜率随时可查
+ * 累加和基于参考点(x0, y0)中心化以减少抵消误差，参考点离窗口过远时以窗口最早的点为新参考点重新求和(均摊O(1))
+ * 斜率的分子在舍入误差的量级以内时视为0(既不涨也不跌)，getSlope始终为O(1)；
+ * 这种情况下SimpleRegression逐点拟合的斜率可能是很小的正数或负数，涨跌判断与逐点拟合不同，需要精确结果时使用 {@link #getFittedSlope()}
+ */
+public class SlidingLinearRegression implements TrendPredictor, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // 远大于累加和的舍入误差，超出时增量计算的斜率与逐点拟合的正负、大小关系一致，以内时视为相等
+    static final double AMBIGUITY_TOLERANCE = 1e-9;
+
+    private final long span; // 按时间滑动时的窗口秒数，<0表示不按时间
+    private final int capacity; // 按个数滑动时的最大点数，<0表示不按个数
+
+    // 窗口内的点，环形数组，满时扩容
+    private double[] xs = new double[16];
+    private double[] ys = new double[16];
+    private int head;
+    private int size;
+
+    // 参考点及中心化后的累加和
+    private double x0;
+    private double y0;
+    private double sumX;
+    private double sumY;
+    private double sumXY;
+    private double sumXX;
+    // 绝对值的累加和，用于估计舍入误差
+    private double sumAbsX;
+    private double sumAbsY;
+    private double sumAbsXY;
+    private int evictedSinceRecenter;
+
+    /**
+     * 保留 [最新时间 - span, 最新时间] 范围内的点
+     */
+    public static SlidingLinearRegression create(TimeInterval span) {
+        return new SlidingLinearRegression(span.toSeconds(), -1);
+    }
+
+    /**
+     * 保留最近capacity个点，为0时不保留任何点，斜率始终为NaN
+     */
+    public static SlidingLinearRegression create(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative");
+        }
+        return new SlidingLinearRegression(-1, capacity);
+    }
+
+    private SlidingLinearRegression(long span, int capacity) {
+        this.span = span;
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return 状态相同的副本，之后与原对象互不影响
+     */
+    public SlidingLinearRegression copy() {
+        SlidingLinearRegression copy = new SlidingLinearRegression(span, capacity);
+        copy.xs = xs.clone();
+        copy.ys = ys.clone();
+        copy.head = head;
+        copy.size = size;
+        copy.x0 = x0;
+        copy.y0 = y0;
+        copy.sumX = sumX;
+        copy.sumY = sumY;
+        copy.sumXY = sumXY;
+        copy.sumXX = sumXX;
+        copy.sumAbsX = sumAbsX;
+        copy.sumAbsY = sumAbsY;
+        copy.sumAbsXY = sumAbsXY;
+        copy.evictedSinceRecenter = evictedSinceRecenter;
+        return copy;
+    }
+
+    public void add(Candle candle) {
+        add(TimeUtil.toSeconds(candle.getTime()), candle.getClose().doubleValue());
+    }
+
+    public void add(double x, double y) {
+        if (size == 0) {
+            x0 = x;
+            y0 = y;
+        }
+        if (size == xs.length) {
+            grow();
+        }
+        int tail = (head + size) % xs.length;
+        xs[tail] = x;
+        ys[tail] = y;
+        size++;
+        accumulate(x - x0, y - y0, 1);
+
+        if (span >= 0) {
+            while (size > 0 && xs[head] < x - span) {
+                evict();
+            }
+        }
+        if (capacity >= 0) {
+            while (size > capacity) {
+                evict();
+            }
+        }
+        if (evictedSinceRecenter > size) {
+            recenter();
+        }
+    }
+
+    private void evict() {
+        accumulate(xs[head] - x0, ys[head] - y0, -1);
+        head = (head + 1) % xs.length;
+        size--;
+        evictedSinceRecenter++;
+    }
+
+    private void accumulate(double dx, double dy, int sign) {
+        sumX += sign * dx;
+        sumY += sign * dy;
+        sumXY += sign * dx * dy;
+        sumXX += sign * dx * dx;
+        sumAbsX += sign * Math.abs(dx);
+        sumAbsY += sign * Math.abs(dy);
+        sumAbsXY += sign * Math.abs(dx * dy);
+    }
+
+    private void recenter() {
+        sumX = 0;
+        sumY = 0;
+        sumXY = 0;
+        sumXX = 0;
+        sumAbsX = 0;
+        sumAbsY = 0;
+        sumAbsXY = 0;
+        evictedSinceRecenter = 0;
+        if (size == 0) {
+            return;
+        }
+        x0 = xs[head];
+        y0 = ys[head];
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) % xs.length;
+            accumulate(xs[index] - x0, ys[index] - y0, 1);
+        }
+    }
+
+    private void grow() {
+        double[] newXs = new double[xs.length * 2];
+        double[] newYs = new double[ys.length * 2];
+        for (int i = 0; i < size; i++) {
+            newXs[i] = xs[(head + i) % xs.length];
+            newYs[i] = ys[(head + i) % ys.length];
+        }
+        xs = newXs;
+        ys = newYs;
+        head = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return 斜率，少于2个点或x全部相同时为NaN，在舍入误差以内时为0
+     */
+    @Override
+    public double getSlope() {
+        if (size < 2) {
+            return Double.NaN;
+        }
+        double denominator = size * sumXX - sumX * sumX;
+        if (denominator == 0) {
+            return Double.NaN;
+        }
+        double numerator = size * sumXY - sumX * sumY;
+        if (Math.abs(numerator) <= AMBIGUITY_TOLERANCE * (size * sumAbsXY + sumAbsX * sumAbsY)) {
+            return 0D;
+        }
+        return numerator / denominator;
+    }
+
+    /**
+     * 对窗口内的点按顺序重新用SimpleRegression拟合，O(n)，只在需要与逐点拟合完全一致时调用
+     *
+     * @return 与逐点拟合完全相同的斜率
+     */
+    public double getFittedSlope() {
+        SimpleRegression simpleRegression = new SimpleRegression();
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) % xs.length;
+            simpleRegression.addData(xs[index], ys[index]);
+        }
+        return simpleRegression.getSlope();
+    }
+
+    @Override
+    public double predict(LocalDateTime dateTime) {
+        double slope = getSlope();
+        if (Double.isNaN(slope)) {
+            return Double.NaN;
+        }
+        double meanX = sumX / size;
+        double meanY = sumY / size;
+        return y0 + meanY + slope * (TimeUtil.toSeconds(dateTime) - x0 - meanX);
+    }
+
+    @Override
+    public boolean isGoingUp() {
+        return getSlope() > 0;
+    }
+
+    @Override
+    public boolean isGoingDown() {
+        return getSlope() < 0;
+    }
+}
@@ -6,6 +6,13 @@ public interface TrendPredictor {
 
     double predict(LocalDateTime dateTime);
 
+    /**
+     * @return 趋势的斜率，不支持时为NaN
+     */
+    default double getSlope() {
+        return Double.NaN;
+    }
+
     boolean isGoingUp();
 
     boolean isGoingDown();
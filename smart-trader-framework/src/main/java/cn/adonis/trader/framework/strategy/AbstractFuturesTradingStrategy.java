@@ -3,6 +3,7 @@ package cn.adonis.trader.framework.strategy;
 import cn.adonis.trader.framework.BackTestException;
 import cn.adonis.trader.framework.model.*;
 import cn.adonis.trader.framework.util.BigDecimalUtil;
+import cn.adonis.trader.framework.util.FixedPoint;
 import com.google.common.collect.Lists;
 
 import java.math.BigDecimal;
@@ -22,6 +23,21 @@ public abstract class AbstractFuturesTradingStrategy implements TradingStrategy
         // 预处理
         preFit(candle, tradingContext);
 
+        // 更新自建仓起的最高、最低点
+        tradingContext.updateSinceEntry(candle);
+
+        // 撮合之前提交的挂单
+        OrderBook orderBook = tradingContext.getOrderBook();
+        if (!orderBook.isEmpty()) {
+            orderBook.match(candle, tradingContext.getParameter().getIntraBarPath(), (order, price) -> {
+                if (!execute(candle, price, order.getDecision(), tradingContext)) {
+                    return false;
+                }
+                onOrderFilled(order, price, candle, tradingContext);
+                return true;
+            });
+        }
+
         // 决策
         Decision decision = makeDecision(candle, tradingContext);
 
@@ -29,19 +45,36 @@ public abstract class AbstractFuturesTradingStrategy implements TradingStrategy
             return;
         }
 
+        // 按收盘价成交
+        execute(candle, candle.getClose(), decision, tradingContext);
+    }
+
+    /**
+     * 按price成交，更新持仓、资金，记录交易
+     * @param candle 成交所在的K线
+     * @param price 成交价
+     * @param decision
+     * @param tradingContext
+     * @return 资金不足时返回false
+     */
+    private boolean execute(Candle candle, BigDecimal price, Decision decision, TradingContext tradingContext) {
+        if (tradingContext.isFixedPoint()) {
+            return executeFixedPoint(candle, price, decision, tradingContext);
+        }
+
         // 更新TradingContext
-        boolean result = updateTradingContext(candle, decision, tradingContext);
+        boolean result = updateTradingContext(price, decision, tradingContext);
 
         if (!result) {
             if (tradingContext.getParameter().isThrowExceptionIfSurplusFundsUnqualified()) {
                 throw new BackTestException("surplus funds is not enough!");
             }
-            return;
+            return false;
         }
 
         // 生成交易信息
         Transaction transaction = Transaction.builder()
-                .setPrice(candle.getClose())
+                .setPrice(price)
                 .setTime(candle.getTime())
                 .setVolume(decision.getVolume())
                 .setDecision(decision)
@@ -54,6 +87,62 @@ public abstract class AbstractFuturesTradingStrategy implements TradingStrategy
 
         // 添加当前交易信息
         tradingContext.addTransaction(transaction);
+        return true;
+    }
+
+    /**
+     * 与 {@link #execute} 相同，数额和单价以定点数计算并记录在交易中，结算时不再转换
+     */
+    private boolean executeFixedPoint(Candle candle, BigDecimal price, Decision decision, TradingContext tradingContext) {
+        final int scale = tradingContext.getFixedPointScale();
+        // 按收盘价成交时使用K线上的定点数，挂单按其他价格成交时才转换
+        final long fixedPrice = price == candle.getClose() ? candle.getFixedClose(scale) : FixedPoint.of(price, scale);
+        final long fixedVolume = decision.getFixedVolume(scale);
+
+        if (!updateFixedPointTradingContext(fixedPrice, fixedVolume, decision.getVolumeScale(), tradingContext)) {
+            if (tradingContext.getParameter().isThrowExceptionIfSurplusFundsUnqualified()) {
+                throw new BackTestException("surplus funds is not enough!");
+            }
+            return false;
+        }
+
+        Transaction transaction = Transaction.builder()
+                .setPrice(price)
+                .setTime(candle.getTime())
+                .setDecision(decision)
+                .setFixedPoint(scale, fixedVolume, fixedPrice)
+                .build();
+
+        if (decision.getReason() == Decision.Reason.ENTRY) {
+            tradingContext.setEntryPoint(candle);
+        }
+
+        tradingContext.addTransaction(transaction);
+        return true;
+    }
+
+    /**
+     * 平掉全部持仓，定点数模式下直接使用定点数持仓数
+     * @param tradingContext
+     * @param reason
+     * @return
+     */
+    protected Decision closePosition(TradingContext tradingContext, Decision.Reason reason) {
+        if (tradingContext.isFixedPoint()) {
+            return Decision.ofFixed(-tradingContext.getFixedHoldVolumes(), tradingContext.getFixedPointScale(),
+                    tradingContext.getHoldVolumeScale(), reason);
+        }
+        return Decision.of(tradingContext.getHoldVolumes().negate(), reason);
+    }
+
+    /**
+     * 挂单成交后调用，可在此提交止损、止盈等后续挂单
+     * @param order
+     * @param price 成交价
+     * @param candle
+     * @param tradingContext
+     */
+    protected void onOrderFilled(Order order, BigDecimal price, Candle candle, TradingContext tradingContext) {
     }
 
     /**
@@ -68,13 +157,12 @@ public abstract class AbstractFuturesTradingStrategy implements TradingStrategy
 
     /**
      * 计算持仓数、金额并更新context
-     * @param candle
+     * @param price 成交价
      * @param decision
      * @param tradingContext
      * @return
      */
-    private boolean updateTradingContext(Candle candle, Decision decision, TradingContext tradingContext) {
-
+    private boolean updateTradingContext(BigDecimal price, Decision decision, TradingContext tradingContext) {
         // 计算新的持仓数
         final BigDecimal oldHoldVolumes = tradingContext.getHoldVolumes();
         final BigDecimal newHoldVolumes = calculateHoldVolumes(decision, oldHoldVolumes);
@@ -105,13 +193,13 @@ public abstract class AbstractFuturesTradingStrategy implements TradingStrategy
         // 加仓数大于0，计算保证金
         BigDecimal deposit = BigDecimal.ZERO;
         if (BigDecimalUtil.greaterThanZero(addVolume)) {
-            deposit = addVolume.multiply(candle.getClose()).multiply(tradingContext.getParameter().getTradingFee().getFee());
+            deposit = addVolume.multiply(price).multiply(tradingContext.getParameter().getTradingFee().getFee());
         }
 
         // 减仓数大于0，计算
         BigDecimal income = BigDecimal.ZERO;
         if (BigDecimalUtil.greaterThanZero(reduceVolume)) {
-            income = reduceVolume.multiply(candle.getClose()).multiply(tradingContext.getParameter().getTradingFee().getFee());
+            income = reduceVolume.multiply(price).multiply(tradingContext.getParameter().getTradingFee().getFee());
         }
 
         // 计算剩余金额
@@ -131,6 +219,51 @@ public abstract class AbstractFuturesTradingStrategy implements TradingStrategy
         return true;
     }
 
+    /**
+     * 与 {@link #updateTradingContext} 相同的计算，使用定点数
+     * @param fixedPrice 定点数成交价
+     * @param volume 定点数数额
+     * @param volumeScale 数额对应BigDecimal的小数位数
+     * @param tradingContext
+     * @return
+     */
+    private boolean updateFixedPointTradingContext(long fixedPrice, long volume, int volumeScale, TradingContext tradingContext) {
+        final int scale = tradingContext.getFixedPointScale();
+        final long oldHoldVolumes = tradingContext.getFixedHoldVolumes();
+        final long newHoldVolumes = Math.addExact(oldHoldVolumes, volume);
+
+        // 加仓、平仓数
+        long addVolume = 0;
+        long reduceVolume = 0;
+        if (Long.signum(newHoldVolumes) == Long.signum(oldHoldVolumes)) {
+            long change = Math.abs(newHoldVolumes) - Math.abs(oldHoldVolumes);
+            if (change > 0) {
+                addVolume = change;
+            } else {
+                reduceVolume = -change;
+            }
+        } else {
+            addVolume = Math.abs(newHoldVolumes);
+            reduceVolume = Math.abs(oldHoldVolumes);
+        }
+
+        final long fee = tradingContext.getFixedFee();
+        long deposit = addVolume > 0 ? FixedPoint.multiply(FixedPoint.multiply(addVolume, fixedPrice, scale), fee, scale) : 0;
+        long income = reduceVolume > 0 ? FixedPoint.multiply(FixedPoint.multiply(reduceVolume, fixedPrice, scale), fee, scale) : 0;
+
+        // 计算剩余金额
+        long surplusFunds = Math.addExact(Math.subtractExact(tradingContext.getFixedSurplusFunds(), deposit), income);
+
+        // 超支过高
+        if (surplusFunds < 0 && -surplusFunds > tradingContext.getFixedOverspendLimit()) {
+            return false;
+        }
+
+        tradingContext.setFixedHoldVolumes(newHoldVolumes, Math.max(tradingContext.getHoldVolumeScale(), volumeScale));
+        tradingContext.setFixedSurplusFunds(surplusFunds);
+        return true;
+    }
+
     protected VolumeType getVolumeType(BigDecimal holdVolume) {
         BigDecimalUtil.CompareResult compare = BigDecimalUtil.compare(holdVolume, BigDecimal.ZERO);
         if (compare == BigDecimalUtil.CompareResult.EQUALS) {
@@ -162,8 +295,19 @@ public abstract class AbstractFuturesTradingStrategy implements TradingStrategy
         EMPTY;
     }
 
+    protected VolumeType getVolumeType(TradingContext tradingContext) {
+        if (tradingContext.isFixedPoint()) {
+            long holdVolumes = tradingContext.getFixedHoldVolumes();
+            if (holdVolumes == 0) {
+                return VolumeType.EMPTY;
+            }
+            return holdVolumes > 0 ? VolumeType.LONG : VolumeType.SHORT;
+        }
+        return getVolumeType(tradingContext.getHoldVolumes());
+    }
+
     protected Decision makeDecision(Candle candle, TradingContext tradingContext) {
-        VolumeType holdVolumeType = getVolumeType(tradingContext.getHoldVolumes());
+        VolumeType holdVolumeType = getVolumeType(tradingContext);
         switch (holdVolumeType) {
             case EMPTY:
                 return entryDecision(candle, tradingContext);
@@ -3,19 +3,25 @@ package cn.adonis.trader.framework.strategy;
 import cn.adonis.trader.framework.BackTestException;
 import cn.adonis.trader.framework.indicator.Average;
 import cn.adonis.trader.framework.predictor.DoubleLinearRegression;
+import cn.adonis.trader.framework.predictor.SlidingLinearRegression;
 import cn.adonis.trader.framework.predictor.TrendPredictor;
 import cn.adonis.trader.framework.model.*;
 import cn.adonis.trader.framework.util.BigDecimalUtil;
-import cn.adonis.trader.framework.util.SeriesUtil;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Optional;
 
-public class AverageStrategy extends AbstractFuturesTradingStrategy {
+public class AverageStrategy extends AbstractFuturesTradingStrategy implements ForkableStrategy, ResumableStrategy {
+
+    private static final long serialVersionUID = 1L;
 
     private final Parameter parameter;
     private int addTimes = 0;
+    // 趋势预测的短、长周期线性回归，随K线滑动，均包含当前时间点
+    private final SlidingLinearRegression linearRegressionShort;
+    private final SlidingLinearRegression linearRegressionLong;
 
     public static AverageStrategy newAverageStrategy(Parameter parameter) {
         return new AverageStrategy(parameter);
@@ -23,11 +29,39 @@ public class AverageStrategy extends AbstractFuturesTradingStrategy {
 
     private AverageStrategy(Parameter parameter) {
         this.parameter = parameter;
+        this.linearRegressionShort = SlidingLinearRegression.create(parameter.getTrendPredictInterval());
+        this.linearRegressionLong = SlidingLinearRegression.create(TimeInterval.seconds(parameter.getTrendPredictInterval().toSeconds() * 10));
+    }
+
+    private AverageStrategy(AverageStrategy source, Parameter parameter) {
+        this.parameter = parameter;
+        this.addTimes = source.addTimes;
+        this.linearRegressionShort = source.linearRegressionShort.copy();
+        this.linearRegressionLong = source.linearRegressionLong.copy();
+    }
+
+    @Override
+    public AverageStrategy fork() {
+        return fork(parameter);
+    }
+
+    /**
+     * 复制当前状态，之后按新参数运行，如从某个时间点起改变止损点
+     *
+     * @param parameter trendPredictInterval需与当前参数相同
+     * @return
+     */
+    public AverageStrategy fork(Parameter parameter) {
+        if (!parameter.getTrendPredictInterval().equals(this.parameter.getTrendPredictInterval())) {
+            throw new BackTestException("trendPredictInterval can not be changed when forking");
+        }
+        return new AverageStrategy(this, parameter);
     }
 
     @Override
     public void preFit(Candle candle, TradingContext tradingContext) {
-        // do nothing
+        linearRegressionShort.add(candle);
+        linearRegressionLong.add(candle);
     }
 
     /**
@@ -43,17 +77,12 @@ public class AverageStrategy extends AbstractFuturesTradingStrategy {
 
         LocalDateTime avgStart = candle.getTime().minusSeconds(parameter.getAvgInterval().toSeconds());
         LocalDateTime avgEnd = candle.getTime().minusSeconds(series.getTimeInterval().toSeconds()); // 均价计算至当前时间点的前一个时间点
-        Series<Candle> historySeries = tradingContext.getOriginalData().getSeries().find(Candle.createFindKey(avgStart), Candle.createFindKey(avgEnd));
+        Series<Candle> historySeries = series.range(avgStart, avgEnd).getSeries();
         // 计算均价
-        BigDecimal avgPrice = Average.calculate(historySeries.getDataList(), Candle::getClose);
+        BigDecimal avgPrice = Average.calculateClose(historySeries);
 
-        LocalDateTime linearRegressionShortStart = candle.getTime().minusSeconds(parameter.getTrendPredictInterval().toSeconds());
-        LocalDateTime linearRegressionLongStart = candle.getTime().minusSeconds(parameter.getTrendPredictInterval().toSeconds() * 10);
-        LocalDateTime linearRegressionEnd = candle.getTime(); // 趋势预测包含当前时间点
-        Series<Candle> linearRegressionSeriesShort = tradingContext.getOriginalData().getSeries().find(Candle.createFindKey(linearRegressionShortStart), Candle.createFindKey(linearRegressionEnd));
-        Series<Candle> linearRegressionSeriesLong = tradingContext.getOriginalData().getSeries().find(Candle.createFindKey(linearRegressionLongStart), Candle.createFindKey(linearRegressionEnd));
         // 线性回归，判断增长趋势
-        TrendPredictor trendPredictor = DoubleLinearRegression.fit(linearRegressionSeriesShort, linearRegressionSeriesLong);
+        TrendPredictor trendPredictor = DoubleLinearRegression.of(linearRegressionShort, linearRegressionLong);
 
         // 当前价格高于均价，且呈增长趋势，则多开
         if (BigDecimalUtil.greaterThan(candle.getClose(), avgPrice)
@@ -84,7 +113,7 @@ public class AverageStrategy extends AbstractFuturesTradingStrategy {
         Decision entryDecision = entryDecision(candle, tradingContext);
         if (entryDecision.isSell()) {
             addTimes = 0;
-            return Decision.sell(tradingContext.getHoldVolumes(), Decision.Reason.STOP_LOSS);
+            return closePosition(tradingContext, Decision.Reason.STOP_LOSS);
         }
 
         Optional<Transaction> lastLong = findLastSpecificTransactionByType(tradingContext, Transaction.Type.BUY);
@@ -103,18 +132,18 @@ public class AverageStrategy extends AbstractFuturesTradingStrategy {
         // 止损：价格相比于上一次多开的价格下跌超过stopLoss
         if (BigDecimalUtil.greaterThanOrEquals(lastLong.get().getPrice().subtract(candle.getClose()), parameter.getStopLoss())) {
             addTimes = 0;
-            return Decision.sell(tradingContext.getHoldVolumes(), Decision.Reason.STOP_LOSS);
+            return closePosition(tradingContext, Decision.Reason.STOP_LOSS);
         }
 
         // 止盈：自持有头寸起，如果价格相比于期间最高价下跌超过stopProfit
         Candle entryPoint = tradingContext.getEntryPoint();
-        Optional<Candle> highestPoint = SeriesUtil.findHighestClosedPrice(tradingContext.getOriginalData(), entryPoint.getTime(), candle.getTime());
+        Optional<Candle> highestPoint = tradingContext.getHighestSinceEntry();
         if (!highestPoint.isPresent()) {
             throw new BackTestException("can not find highest point");
         }
         if (BigDecimalUtil.greaterThanOrEquals(highestPoint.get().getClose().subtract(entryPoint.getClose()), parameter.getStopProfit())) {
             addTimes = 0;
-            return Decision.sell(tradingContext.getHoldVolumes(), Decision.Reason.STOP_PROFIT);
+            return closePosition(tradingContext, Decision.Reason.STOP_PROFIT);
         }
 
         return Decision.DO_NOTHING;
@@ -133,7 +162,7 @@ public class AverageStrategy extends AbstractFuturesTradingStrategy {
         Decision entryDecision = entryDecision(candle, tradingContext);
         if (entryDecision.isBuy()) {
             addTimes = 0;
-            return Decision.buy(tradingContext.getHoldVolumes(), Decision.Reason.STOP_LOSS);
+            return closePosition(tradingContext, Decision.Reason.STOP_LOSS);
         }
 
         Optional<Transaction> lastShort = findLastSpecificTransactionByType(tradingContext, Transaction.Type.SELL);
@@ -152,24 +181,26 @@ public class AverageStrategy extends AbstractFuturesTradingStrategy {
         // 止损：价格相比于上一次多开的价格上涨超过stopLoss
         if (BigDecimalUtil.greaterThanOrEquals(candle.getClose().subtract(lastShort.get().getPrice()), parameter.getStopLoss())) {
             addTimes = 0;
-            return Decision.buy(tradingContext.getHoldVolumes(), Decision.Reason.STOP_LOSS);
+            return closePosition(tradingContext, Decision.Reason.STOP_LOSS);
         }
 
         // 止盈：自持有头寸起，如果价格相比于期间最高价下跌超过stopProfit
         Candle entryPoint = tradingContext.getEntryPoint();
-        Optional<Candle> lowestPoint = SeriesUtil.findLowestClosedPrice(tradingContext.getOriginalData(), entryPoint.getTime(), candle.getTime());
+        Optional<Candle> lowestPoint = tradingContext.getLowestSinceEntry();
         if (!lowestPoint.isPresent()) {
             throw new BackTestException("can not find lowest point");
         }
         if (BigDecimalUtil.greaterThanOrEquals(entryPoint.getClose().subtract(lowestPoint.get().getClose()), parameter.getStopProfit())) {
             addTimes = 0;
-            return Decision.buy(tradingContext.getHoldVolumes(), Decision.Reason.STOP_PROFIT);
+            return closePosition(tradingContext, Decision.Reason.STOP_PROFIT);
         }
 
         return Decision.DO_NOTHING;
     }
 
-    public static class Parameter {
+    public static class Parameter implements Serializable {
+
+        private static final long serialVersionUID = 1L;
 
         private final TimeInterval avgInterval;
         private final TimeInterval trendPredictInterval;
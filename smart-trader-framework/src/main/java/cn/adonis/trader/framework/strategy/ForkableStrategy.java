@@ -0,0 +1,11 @@
+package cn.adonis.trader.framework.strategy;
+
+public interface ForkableStrategy extends TradingStrategy {
+    /**
+     * 复制策略及其指标的当前状态，用于从回测中途分叉出多个后续场景
+     * 副本与原策略互不影响，原策略在分叉后只读，可在多个线程中同时fork
+     *
+     * @return
+     */
+    ForkableStrategy fork();
+}
@@ -0,0 +1,14 @@
+package cn.adonis.trader.framework.strategy;
+
+import cn.adonis.trader.framework.model.PrecomputedColumns;
+
+public interface PrecomputeStrategy {
+    /**
+     * 声明需要预先计算的指标列，回测开始前对整个序列计算，运行时通过
+     * {@link cn.adonis.trader.framework.model.TradingContext#getPrecomputed(String)} 按当前K线下标读取
+     * 流式回测不支持
+     *
+     * @param builder
+     */
+    void precompute(PrecomputedColumns.Builder builder);
+}
@@ -0,0 +1,19 @@
+package cn.adonis.trader.framework.strategy;
+
+import cn.adonis.trader.framework.model.TradingContext;
+
+import java.io.Serializable;
+
+/**
+ * 可写入checkpoint的策略，策略及其指标的状态通过Java序列化保存
+ * 与数据关联的字段(如原始序列、预计算结果)应声明为transient，在 {@link #resume(TradingContext)} 中重新关联
+ */
+public interface ResumableStrategy extends TradingStrategy, Serializable {
+    /**
+     * 从checkpoint恢复后、继续运行前调用，代替 {@link InitializeStrategy#init(TradingContext)}
+     *
+     * @param tradingContext 恢复后的tradingContext，originalData为新加载的数据
+     */
+    default void resume(TradingContext tradingContext) {
+    }
+}
@@ -1,25 +1,29 @@
 package cn.adonis.trader.framework.strategy;
 
 import cn.adonis.trader.framework.BackTestException;
+import cn.adonis.trader.framework.indicator.IndicatorCache;
 import cn.adonis.trader.framework.indicator.MovingAverage;
 import cn.adonis.trader.framework.model.*;
-import cn.adonis.trader.framework.predictor.LinearRegression;
+import cn.adonis.trader.framework.predictor.SlidingLinearRegression;
 import cn.adonis.trader.framework.predictor.TrendPredictor;
 import cn.adonis.trader.framework.util.BigDecimalUtil;
 import cn.adonis.trader.framework.util.SeriesUtil;
-import com.google.common.collect.Lists;
-import org.apache.commons.collections4.CollectionUtils;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
-import java.util.List;
 import java.util.Optional;
 
-public class StrainerStrategy extends AbstractFuturesTradingStrategy implements InitializeStrategy {
+public class StrainerStrategy extends AbstractFuturesTradingStrategy implements InitializeStrategy, ForkableStrategy, ResumableStrategy {
+
+    private static final long serialVersionUID = 1L;
 
     private final Parameter parameter;
 
     private MovingAverage dailyMa20;
     private MovingAverage fiveMinutesMa60;
+    // 最近trendPredictPreviousCount个均线点的线性回归
+    private SlidingLinearRegression dailyMa20Regression;
+    private SlidingLinearRegression fiveMinutesMa60Regression;
 
     public static StrainerStrategy newStrainerStrategy(StrainerStrategy.Parameter parameter) {
         return new StrainerStrategy(parameter);
@@ -29,25 +33,63 @@ public class StrainerStrategy extends AbstractFuturesTradingStrategy implements
         this.parameter = parameter;
     }
 
+    private StrainerStrategy(StrainerStrategy source, StrainerStrategy.Parameter parameter) {
+        this.parameter = parameter;
+        this.dailyMa20 = source.dailyMa20.copy();
+        this.fiveMinutesMa60 = source.fiveMinutesMa60.copy();
+        this.dailyMa20Regression = source.dailyMa20Regression.copy();
+        this.fiveMinutesMa60Regression = source.fiveMinutesMa60Regression.copy();
+    }
+
+    @Override
+    public StrainerStrategy fork() {
+        return fork(parameter);
+    }
+
+    /**
+     * 复制当前状态，之后按新参数运行，如从某个时间点起改变止损点
+     *
+     * @param parameter trendPredictPreviousCount需与当前参数相同
+     * @return
+     */
+    public StrainerStrategy fork(StrainerStrategy.Parameter parameter) {
+        if (dailyMa20 == null) {
+            throw new BackTestException("strategy has not been initialized");
+        }
+        if (parameter.getTrendPredictPreviousCount() != this.parameter.getTrendPredictPreviousCount()) {
+            throw new BackTestException("trendPredictPreviousCount can not be changed when forking");
+        }
+        return new StrainerStrategy(this, parameter);
+    }
+
     @Override
     public void preFit(Candle candle, TradingContext tradingContext) {
         // 日线ma20
-        dailyMa20.add(candle);
+        addMovingAverage(dailyMa20, dailyMa20Regression, candle);
         // 5min线ma60
-        fiveMinutesMa60.add(candle);
+        addMovingAverage(fiveMinutesMa60, fiveMinutesMa60Regression, candle);
+    }
+
+    private void addMovingAverage(MovingAverage movingAverage, SlidingLinearRegression regression, Candle candle) {
+        TimeDataPoint last = SeriesUtil.getLast(movingAverage.getDataList());
+        TimeDataPoint point = movingAverage.add(candle);
+        // 同一时间重复添加时不产生新的结果
+        if (SeriesUtil.getLast(movingAverage.getDataList()) != last) {
+            regression.add(point.getX(), point.getY());
+        }
     }
 
     @Override
     protected Decision entryDecision(Candle candle, TradingContext tradingContext) {
 
-        TrendPredictor longTrendPredictor = LinearRegression.fit(subListForPredictor(dailyMa20));
-        TrendPredictor shortTrendPredictor = LinearRegression.fit(subListForPredictor(fiveMinutesMa60));
+        TrendPredictor longTrendPredictor = checkPredictor(dailyMa20Regression);
+        TrendPredictor shortTrendPredictor = checkPredictor(fiveMinutesMa60Regression);
 
         // 日线ma20上涨，只做多
         if (longTrendPredictor.isGoingUp()) {
             return Decision.buy(parameter.getEnterVolumes(), Decision.Reason.ENTRY);
         } else if (shortTrendPredictor.isGoingDown()
-                && BigDecimalUtil.lessThan(candle.getClose(), fiveMinutesMa60.getDataList().last().getValue())) {
+                && BigDecimalUtil.lessThan(candle.getClose(), SeriesUtil.getLast(fiveMinutesMa60.getDataList()).getValue())) {
             // 5min ma60下跌，且当前价格跌破当前ma60线时，只做空
             return Decision.sell(parameter.getEnterVolumes(), Decision.Reason.ENTRY);
         }
@@ -64,18 +106,18 @@ public class StrainerStrategy extends AbstractFuturesTradingStrategy implements
 
         // 止损：价格相比于上一次多开的价格下跌超过stopLoss 或 价格跌破5min ma60时
         if (BigDecimalUtil.greaterThanOrEquals(lastLong.get().getPrice().subtract(candle.getClose()), parameter.getStopLoss())
-                || BigDecimalUtil.lessThan(candle.getClose(), fiveMinutesMa60.getDataList().last().getValue())) {
-            return Decision.sell(tradingContext.getHoldVolumes(), Decision.Reason.STOP_LOSS);
+                || BigDecimalUtil.lessThan(candle.getClose(), SeriesUtil.getLast(fiveMinutesMa60.getDataList()).getValue())) {
+            return closePosition(tradingContext, Decision.Reason.STOP_LOSS);
         }
 
         // 止盈：自持有头寸起，如果价格相比于期间最高价下跌超过stopProfit
         Candle entryPoint = tradingContext.getEntryPoint();
-        Optional<Candle> highestPoint = SeriesUtil.findHighestClosedPrice(tradingContext.getOriginalData(), entryPoint.getTime(), candle.getTime());
+        Optional<Candle> highestPoint = tradingContext.getHighestSinceEntry();
         if (!highestPoint.isPresent()) {
             throw new BackTestException("can not find highest point");
         }
         if (BigDecimalUtil.greaterThanOrEquals(highestPoint.get().getClose().subtract(entryPoint.getClose()), parameter.getStopProfit())) {
-            return Decision.sell(tradingContext.getHoldVolumes(), Decision.Reason.STOP_PROFIT);
+            return closePosition(tradingContext, Decision.Reason.STOP_PROFIT);
         }
         return Decision.DO_NOTHING;
     }
@@ -91,35 +133,50 @@ public class StrainerStrategy extends AbstractFuturesTradingStrategy implements
 
         // 止损：价格相比于上一次多开的价格上涨超过stopLoss 或 价格涨破5min ma60时
         if (BigDecimalUtil.greaterThanOrEquals(candle.getClose().subtract(lastShort.get().getPrice()), parameter.getStopLoss())
-                || BigDecimalUtil.greaterThan(candle.getClose(), fiveMinutesMa60.getDataList().last().getValue())) {
-            return Decision.buy(tradingContext.getHoldVolumes(), Decision.Reason.STOP_LOSS);
+                || BigDecimalUtil.greaterThan(candle.getClose(), SeriesUtil.getLast(fiveMinutesMa60.getDataList()).getValue())) {
+            return closePosition(tradingContext, Decision.Reason.STOP_LOSS);
         }
 
         // 止盈：自持有头寸起，如果价格相比于期间最高价下跌超过stopProfit
         Candle entryPoint = tradingContext.getEntryPoint();
-        Optional<Candle> lowestPoint = SeriesUtil.findLowestClosedPrice(tradingContext.getOriginalData(), entryPoint.getTime(), candle.getTime());
+        Optional<Candle> lowestPoint = tradingContext.getLowestSinceEntry();
         if (!lowestPoint.isPresent()) {
             throw new BackTestException("can not find lowest point");
         }
         if (BigDecimalUtil.greaterThanOrEquals(entryPoint.getClose().subtract(lowestPoint.get().getClose()), parameter.getStopProfit())) {
-            return Decision.buy(tradingContext.getHoldVolumes(), Decision.Reason.STOP_PROFIT);
+            return closePosition(tradingContext, Decision.Reason.STOP_PROFIT);
         }
 
         return Decision.DO_NOTHING;
     }
 
-    private List<TimeDataPoint> subListForPredictor(MovingAverage movingAverage) {
-        if (CollectionUtils.size(movingAverage.getDataList()) < parameter.getTrendPredictPreviousCount()) {
+    private SlidingLinearRegression checkPredictor(SlidingLinearRegression regression) {
+        if (regression.size() < parameter.getTrendPredictPreviousCount()) {
             throw new BackTestException("there is no enough point to predict the trend!");
         }
-        List<TimeDataPoint> dataList = Lists.newArrayList(movingAverage.getDataList());
-        return dataList.subList(dataList.size() - parameter.getTrendPredictPreviousCount(), dataList.size());
+        return regression;
     }
 
     @Override
     public void init(TradingContext tradingContext) {
-        this.dailyMa20 = MovingAverage.create(tradingContext.getOriginalData(), MovingAverage.Type.of(20, TimeInterval.ONE_DAY));
-        this.fiveMinutesMa60 = MovingAverage.create(tradingContext.getOriginalData(), MovingAverage.Type.of(60, TimeInterval.FIVE_MINUTES));
+        // 同一份数据上的多次回测共享预先计算的均线，未设置缓存时逐根计算
+        IndicatorCache cache = tradingContext.getIndicatorCache();
+        this.dailyMa20 = MovingAverage.create(tradingContext.getOriginalData(), MovingAverage.Type.of(20, TimeInterval.ONE_DAY), cache);
+        this.fiveMinutesMa60 = MovingAverage.create(tradingContext.getOriginalData(), MovingAverage.Type.of(60, TimeInterval.FIVE_MINUTES), cache);
+        this.dailyMa20Regression = SlidingLinearRegression.create(parameter.getTrendPredictPreviousCount());
+        this.fiveMinutesMa60Regression = SlidingLinearRegression.create(parameter.getTrendPredictPreviousCount());
+        if (tradingContext.isStreaming()) {
+            // 策略只读取最近的均线点，趋势由线性回归维护，流式回测时不保留全部历史
+            this.dailyMa20.setRetainCount(Math.max(parameter.getTrendPredictPreviousCount(), 1));
+            this.fiveMinutesMa60.setRetainCount(Math.max(parameter.getTrendPredictPreviousCount(), 1));
+        }
+    }
+
+    @Override
+    public void resume(TradingContext tradingContext) {
+        // 均线关联新加载的数据，保留checkpoint中的计算状态逐根计算，不按缩短的数据重新预计算；线性回归的状态保留
+        this.dailyMa20 = dailyMa20.rebind(tradingContext.getOriginalData(), null);
+        this.fiveMinutesMa60 = fiveMinutesMa60.rebind(tradingContext.getOriginalData(), null);
     }
 
     public MovingAverage getDailyMa20() {
@@ -130,7 +187,9 @@ public class StrainerStrategy extends AbstractFuturesTradingStrategy implements
         return fiveMinutesMa60;
     }
 
-    public static class Parameter {
+    public static class Parameter implements Serializable {
+
+        private static final long serialVersionUID = 1L;
 
         private final int trendPredictPreviousCount;
         private final BigDecimal enterVolumes; // 建仓手数
@@ -191,6 +250,9 @@ public class StrainerStrategy extends AbstractFuturesTradingStrategy implements
             }
 
             public StrainerStrategy.Parameter build() {
+                if (trendPredictPreviousCount < 0) {
+                    throw new BackTestException("trendPredictPreviousCount must not be negative: " + trendPredictPreviousCount);
+                }
                 return new StrainerStrategy.Parameter(trendPredictPreviousCount, Optional.ofNullable(enterVolumes).map(BigDecimal::new).orElse(BigDecimal.ZERO), Optional.ofNullable(stopProfit).map(BigDecimal::new).orElse(BigDecimal.ZERO), Optional.ofNullable(stopLoss).map(BigDecimal::new).orElse(BigDecimal.ZERO));
             }
         }
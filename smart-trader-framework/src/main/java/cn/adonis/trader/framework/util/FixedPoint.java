@@ -0,0 +1,134 @@
+package cn.adonis.trader.framework.util;
+
+import cn.adonis.trader.framework.BackTestException;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 定点数运算，数值以 value * 10^scale 的long表示
+ * 乘法按HALF_UP舍入到scale位，中间结果超出long范围时改用BigDecimal计算
+ */
+public final class FixedPoint {
+
+    public static final int MAX_SCALE = 18;
+
+    private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_SCALE; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private FixedPoint() {
+    }
+
+    public static long factor(int scale) {
+        if (scale < 0 || scale > MAX_SCALE) {
+            throw new BackTestException("fixed point scale must be between 0 and " + MAX_SCALE + ": " + scale);
+        }
+        return POWERS_OF_TEN[scale];
+    }
+
+    /**
+     * BigDecimal转定点数，小数位多于scale时按HALF_UP舍入
+     */
+    public static long of(BigDecimal value, int scale) {
+        factor(scale);
+        try {
+            return value.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new BackTestException("fixed point overflow: " + value + ", scale: " + scale);
+        }
+    }
+
+    /**
+     * 定点数转BigDecimal，去掉多余的0，但不使用科学计数法
+     */
+    public static BigDecimal toBigDecimal(long value, int scale) {
+        BigDecimal result = BigDecimal.valueOf(value, scale).stripTrailingZeros();
+        return result.scale() < 0 ? result.setScale(0) : result;
+    }
+
+    /**
+     * 从fromScale转换到toScale，位数减少时按HALF_UP舍入，结果与 {@link #of} 相同
+     */
+    public static long rescale(long value, int fromScale, int toScale) {
+        if (fromScale == toScale) {
+            return value;
+        }
+        if (toScale > fromScale) {
+            try {
+                return Math.multiplyExact(value, factor(toScale - fromScale));
+            } catch (ArithmeticException e) {
+                throw new BackTestException("fixed point overflow: " + BigDecimal.valueOf(value, fromScale) + ", scale: " + toScale);
+            }
+        }
+        long factor = factor(fromScale - toScale);
+        long quotient = value / factor;
+        long remainder = value % factor;
+        if (Math.abs(remainder) * 2 >= factor) {
+            quotient += Long.signum(value);
+        }
+        return quotient;
+    }
+
+    public static long multiply(long a, long b, int scale) {
+        long factor = factor(scale);
+        long product;
+        try {
+            product = Math.multiplyExact(a, b);
+        } catch (ArithmeticException e) {
+            return of(BigDecimal.valueOf(a, scale).multiply(BigDecimal.valueOf(b, scale)), scale);
+        }
+        long quotient = product / factor;
+        long remainder = product % factor;
+        if (Math.abs(remainder) * 2 >= factor) {
+            quotient += Long.signum(product);
+        }
+        return quotient;
+    }
+
+    /**
+     * 精确表示的定点数，之后转换到任意scale都不再创建BigDecimal
+     * 字段均为final，可在线程间共享
+     */
+    public static final class Exact implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long value;
+        private final int scale;
+
+        public static Exact of(long value, int scale) {
+            factor(scale);
+            return new Exact(value, scale);
+        }
+
+        /**
+         * @return 小数位数不在[0, MAX_SCALE]内或超出long范围时返回null
+         */
+        public static Exact of(BigDecimal value) {
+            if (value.scale() < 0 || value.scale() > MAX_SCALE || value.precision() > MAX_SCALE) {
+                return null;
+            }
+            return new Exact(value.unscaledValue().longValue(), value.scale());
+        }
+
+        private Exact(long value, int scale) {
+            this.value = value;
+            this.scale = scale;
+        }
+
+        public long to(int scale) {
+            return rescale(value, this.scale, scale);
+        }
+
+        public int signum() {
+            return Long.signum(value);
+        }
+    }
+}
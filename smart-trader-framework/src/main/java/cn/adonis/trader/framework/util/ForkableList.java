@@ -0,0 +1,99 @@
+package cn.adonis.trader.framework.util;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 只追加的列表，fork后与原列表共享已有元素，双方各自继续追加互不影响
+ * 共享同一数组的多个列表中，第一个在末尾追加的直接写入原数组(CAS占用下一个位置)，其他列表追加时才复制已有元素(写时复制)
+ * 数组只在被占用的位置之后写入，共享的前缀只读，不同线程中的fork可以并发追加
+ *
+ * @param <T>
+ */
+public final class ForkableList<T> extends AbstractList<T> implements RandomAccess, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private static final class Storage {
+        private final Object[] elements;
+        private final AtomicInteger claimed; // 已被某个列表占用的长度
+
+        private Storage(Object[] elements, int claimed) {
+            this.elements = elements;
+            this.claimed = new AtomicInteger(claimed);
+        }
+    }
+
+    // 只序列化已有元素，反序列化后独占新数组
+    private transient Storage storage;
+    private transient int size;
+
+    public ForkableList() {
+        this(new Storage(new Object[DEFAULT_CAPACITY], 0), 0);
+    }
+
+    private ForkableList(Storage storage, int size) {
+        this.storage = storage;
+        this.size = size;
+    }
+
+    /**
+     * @return 与当前列表共享已有元素的新列表，O(1)
+     */
+    public ForkableList<T> fork() {
+        return new ForkableList<>(storage, size);
+    }
+
+    @Override
+    public boolean add(T element) {
+        if (size == storage.elements.length || !storage.claimed.compareAndSet(size, size + 1)) {
+            // 数组已满，或其他列表已在此处追加，复制已有元素
+            Object[] elements = new Object[Math.max(DEFAULT_CAPACITY, size + (size >> 1) + 1)];
+            System.arraycopy(storage.elements, 0, elements, 0, size);
+            storage = new Storage(elements, size + 1);
+        }
+        storage.elements[size++] = element;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        return (T) storage.elements[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeObject(storage.elements[i]);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int count = in.readInt();
+        Object[] elements = new Object[Math.max(DEFAULT_CAPACITY, count)];
+        for (int i = 0; i < count; i++) {
+            elements[i] = in.readObject();
+        }
+        storage = new Storage(elements, count);
+        size = count;
+    }
+}
@@ -2,12 +2,13 @@ package cn.adonis.trader.framework.util;
 
 import cn.adonis.trader.framework.BackTestException;
 import cn.adonis.trader.framework.model.*;
+import com.google.common.collect.Lists;
 import org.apache.commons.collections4.CollectionUtils;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.function.BiFunction;
-import java.util.stream.Collectors;
 
 public class SeriesUtil {
 
@@ -26,6 +27,35 @@ public class SeriesUtil {
         return null;
     };
 
+    /**
+     * 合并为完整的OHLC：首根开盘价、最高价、最低价、末根收盘价，成交量和成交笔数求和
+     */
+    public static BiFunction<LocalDateTime, List<Candle>, Candle> MERGE_CANDLE_OHLC = (time, list) -> {
+        if (CollectionUtils.isEmpty(list)) {
+            return null;
+        }
+        Candle first = list.get(0);
+        BigDecimal high = first.getHigh();
+        BigDecimal low = first.getLow();
+        BigDecimal volume = BigDecimal.ZERO;
+        long tradeCount = 0;
+        for (Candle candle : list) {
+            high = candle.getHigh().compareTo(high) > 0 ? candle.getHigh() : high;
+            low = candle.getLow().compareTo(low) < 0 ? candle.getLow() : low;
+            volume = candle.getVolume() == null ? volume : volume.add(candle.getVolume());
+            tradeCount += candle.getTradeCount();
+        }
+        return Candle.create(first.getOpen(), getLast(list).getClose(), high, low, time, volume, tradeCount);
+    };
+
+    /**
+     * 转换为更大的周期，一次遍历按周期分段合并；流式场景使用 {@link cn.adonis.trader.framework.indicator.Resampler}
+     *
+     * @param timeSeries   按时间有序
+     * @param timeInterval 新的周期
+     * @param mergeFunction 合并同一周期内的数据
+     * @return
+     */
     public static <T extends TimeDataPoint> TimeSeries<T> changeInterval(TimeSeries<T> timeSeries, TimeInterval timeInterval, BiFunction<LocalDateTime, List<T>, T> mergeFunction) {
         if (timeInterval.toSeconds() < timeSeries.getTimeInterval().toSeconds()) {
             throw new BackTestException("can not change timeSeries interval");
@@ -33,25 +63,74 @@ public class SeriesUtil {
             return timeSeries;
         }
 
-        Map<Long, List<T>> candleMap = timeSeries.getSeries().stream()
-                .collect(Collectors.groupingBy(p -> TimeUtil.toSeconds(p.getTime()) / timeInterval.toSeconds()));
-
-        List<T> candleList = candleMap.entrySet().stream()
-                .map(entry -> {
-                    long period = entry.getKey();
-                    return mergeFunction.apply(TimeUtil.toLocalDateTime(period * timeInterval.toSeconds()), entry.getValue());
-                }).collect(Collectors.toList());
+        // 数据按时间有序，同一周期的数据连续，逐段合并即可
+        long intervalSeconds = timeInterval.toSeconds();
+        List<T> dataList = timeSeries.getSeries().getDataList();
+        List<T> candleList = Lists.newArrayList();
+        int groupStart = 0;
+        for (int i = 1; i <= dataList.size(); i++) {
+            long period = TimeUtil.toSeconds(dataList.get(groupStart).getTime()) / intervalSeconds;
+            if (i == dataList.size() || TimeUtil.toSeconds(dataList.get(i).getTime()) / intervalSeconds != period) {
+                T merged = mergeFunction.apply(TimeUtil.toLocalDateTime(period * intervalSeconds), dataList.subList(groupStart, i));
+                if (merged != null) {
+                    candleList.add(merged);
+                }
+                groupStart = i;
+            }
+        }
 
-        return TimeSeries.create(Series.create(candleList, timeSeries.getSeries().getName()), timeInterval);
+        // candleList在此新建且有序，不再修改，直接转移给Series
+        return TimeSeries.create(Series.adopt(candleList, timeSeries.getSeries().getName()), timeInterval);
     }
 
     public static Optional<Candle> findHighestClosedPrice(TimeSeries<Candle> timeSeries, LocalDateTime startTime, LocalDateTime endTime) {
-        Series<Candle> series = timeSeries.getSeries().find(Candle.createFindKey(startTime), Candle.createFindKey(endTime));
+        Series<Candle> series = timeSeries.range(startTime, endTime).getSeries();
+        if (series instanceof CandleColumnSeries) {
+            return findExtremeClose((CandleColumnSeries) series, true);
+        }
         return series.stream().max(Comparator.comparing(Candle::getClose));
     }
 
     public static Optional<Candle> findLowestClosedPrice(TimeSeries<Candle> timeSeries, LocalDateTime startTime, LocalDateTime endTime) {
-        Series<Candle> series = timeSeries.getSeries().find(Candle.createFindKey(startTime), Candle.createFindKey(endTime));
+        Series<Candle> series = timeSeries.range(startTime, endTime).getSeries();
+        if (series instanceof CandleColumnSeries) {
+            return findExtremeClose((CandleColumnSeries) series, false);
+        }
         return series.stream().min(Comparator.comparing(Candle::getClose));
     }
+
+    /**
+     * 直接扫描收盘价列，只为结果创建Candle；相同价格取最早的一根，与stream的max/min一致
+     */
+    private static Optional<Candle> findExtremeClose(CandleColumnSeries series, boolean highest) {
+        CandleColumns columns = series.getColumns();
+        int from = series.getFromIndex();
+        int to = series.getToIndex();
+        if (from >= to) {
+            return Optional.empty();
+        }
+        int extremeIndex = from;
+        long extreme = columns.getClose(from);
+        for (int i = from + 1; i < to; i++) {
+            long close = columns.getClose(i);
+            if (highest ? close > extreme : close < extreme) {
+                extreme = close;
+                extremeIndex = i;
+            }
+        }
+        return Optional.of(series.getDataList().get(extremeIndex - from));
+    }
+
+    /**
+     * 转换为基本类型数组存储的序列，内存占用远小于Candle对象列表
+     *
+     * @param timeSeries
+     * @return
+     */
+    public static TimeSeries<Candle> toColumnar(TimeSeries<Candle> timeSeries) {
+        if (timeSeries.getSeries() instanceof CandleColumnSeries) {
+            return timeSeries;
+        }
+        return TimeSeries.create(CandleColumnSeries.copyOf(timeSeries.getSeries()), timeSeries.getTimeInterval());
+    }
 }
@@ -0,0 +1,75 @@
+package cn.adonis.trader.framework.util;
+
+/**
+ * 固定窗口的滑动最大值/最小值，单调队列实现，每次add均摊O(1)，get为O(1)
+ * 队列保存在环形数组中，不分配对象
+ */
+public final class SlidingWindowExtremum {
+
+    private final int window;
+    private final boolean max;
+    private long count; // 已添加的值的个数，同时作为序号
+
+    // 单调队列：求最大值时递减，求最小值时递增
+    private final long[] indexes;
+    private final double[] values;
+    private int head;
+    private int size;
+
+    public static SlidingWindowExtremum max(int window) {
+        return new SlidingWindowExtremum(window, true);
+    }
+
+    public static SlidingWindowExtremum min(int window) {
+        return new SlidingWindowExtremum(window, false);
+    }
+
+    private SlidingWindowExtremum(int window, boolean max) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("window must be positive");
+        }
+        this.window = window;
+        this.max = max;
+        this.indexes = new long[window];
+        this.values = new double[window];
+    }
+
+    public void add(double value) {
+        long index = count++;
+        // 移除滑出窗口的值
+        if (size > 0 && indexes[head] <= index - window) {
+            head = (head + 1) % window;
+            size--;
+        }
+        // 移除不可能再成为极值的值
+        while (size > 0 && dominates(value, values[(head + size - 1) % window])) {
+            size--;
+        }
+        int tail = (head + size) % window;
+        indexes[tail] = index;
+        values[tail] = value;
+        size++;
+    }
+
+    private boolean dominates(double value, double other) {
+        return max ? value >= other : value <= other;
+    }
+
+    /**
+     * @return 窗口内的极值，尚无数据时为NaN
+     */
+    public double get() {
+        return size == 0 ? Double.NaN : values[head];
+    }
+
+    /**
+     * @return 已添加的值是否填满窗口
+     */
+    public boolean isFull() {
+        return count >= window;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+}
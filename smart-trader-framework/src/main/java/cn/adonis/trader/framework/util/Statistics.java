@@ -3,10 +3,18 @@ package cn.adonis.trader.framework.util;
 import org.apache.commons.math3.stat.StatUtils;
 
 public class Statistics {
+    /**
+     * @param series 净值序列
+     * @return {最大回撤金额, 最大回撤比例}，均为非正数，序列为空时为0
+     */
     public static double[] drawdown(double[] series) {
-        double max = Double.MIN_VALUE;
-        double ddPct = Double.MAX_VALUE;
-        double dd = Double.MAX_VALUE;
+        if (series.length == 0) {
+            return new double[]{0, 0};
+        }
+        // 以第一个值为初始最高点(Double.MIN_VALUE是最小的正数，不能作为初始值)
+        double max = series[0];
+        double ddPct = 0;
+        double dd = 0;
 
         for (double x : series) {
             dd = Math.min(x - max, dd);
@@ -0,0 +1,135 @@
+package cn.adonis.trader.framework;
+
+import cn.adonis.trader.framework.model.BackTestResult;
+import cn.adonis.trader.framework.model.Settlement;
+import cn.adonis.trader.framework.model.TimeInterval;
+import cn.adonis.trader.framework.model.TradingContext;
+import cn.adonis.trader.framework.model.Transaction;
+import cn.adonis.trader.framework.strategy.AverageStrategy;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 快照分叉：不改参数的分叉与直接运行一致，分叉之间互不影响，快照本身不受分叉影响
+ */
+public class BackTestSnapshotTest {
+
+    private static final LocalDateTime SNAPSHOT_TIME = LocalDateTime.of(2020, 4, 15, 14, 55);
+
+    @Test
+    public void identityForkMatchesStraightRun() throws Exception {
+        BackTestResult straight = backTest().run();
+        BackTestSnapshot snapshot = backTest().runUntil(SNAPSHOT_TIME);
+
+        assertEquals(SNAPSHOT_TIME, snapshot.getTime());
+        List<BackTestResult> forks = snapshot.<AverageStrategy>fork(Lists.newArrayList(AverageStrategy::fork));
+        assertSameResult(straight, forks.get(0));
+        assertSameResult(straight, snapshot.resume());
+    }
+
+    @Test
+    public void forksAreIndependent() throws Exception {
+        BackTestSnapshot snapshot = backTest().runUntil(SNAPSHOT_TIME);
+        TradingContext context = snapshot.getTradingContext();
+        int transactionCount = context.getTransactions().size();
+        Transaction lastTransaction = context.getTransactions().get(transactionCount - 1);
+        BigDecimal surplusFunds = context.getSurplusFunds();
+        BigDecimal holdVolumes = context.getHoldVolumes();
+        assertTrue(transactionCount > 0);
+
+        List<Function<AverageStrategy, AverageStrategy>> branches = Lists.newArrayList(
+                AverageStrategy::fork,
+                s -> s.fork(parameter("0.2")));
+        List<BackTestResult> parallel = snapshot.fork(branches, 2);
+        List<BackTestResult> sequential = snapshot.fork(branches);
+        // 单独运行第二个分叉，不受第一个分叉的影响
+        List<BackTestResult> alone = snapshot.fork(branches.subList(1, 2));
+
+        assertNotEquals(parallel.get(0).getProfit(), parallel.get(1).getProfit());
+        for (int i = 0; i < branches.size(); i++) {
+            assertSameResult(sequential.get(i), parallel.get(i));
+        }
+        assertSameResult(sequential.get(1), alone.get(0));
+
+        // 分叉包含快照之前的交易，并在之后各自追加
+        for (BackTestResult result : parallel) {
+            assertTrue(result.getTransactions().size() > transactionCount);
+            assertEquals(lastTransaction, result.getTransactions().get(transactionCount - 1));
+        }
+
+        // 快照的状态不变
+        assertEquals(transactionCount, context.getTransactions().size());
+        assertEquals(surplusFunds, context.getSurplusFunds());
+        assertEquals(holdVolumes, context.getHoldVolumes());
+    }
+
+    @Test
+    public void transactionsAreReadOnly() throws Exception {
+        BackTestSnapshot snapshot = backTest().runUntil(SNAPSHOT_TIME);
+        List<Transaction> transactions = snapshot.getTradingContext().getTransactions();
+        try {
+            transactions.remove(0);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // 预期
+        }
+        try {
+            transactions.set(0, transactions.get(1));
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // 预期
+        }
+    }
+
+    private static BackTest backTest() {
+        return BackTest.builder()
+                .setSeriesLoader(SampleData.loader())
+                .setParameter(SampleData.parameter().build())
+                .setTradingStrategy(AverageStrategy.newAverageStrategy(SampleData.averageParameter()))
+                .build();
+    }
+
+    /**
+     * 与 {@link SampleData#averageParameter()} 相同，只修改止损
+     */
+    private static AverageStrategy.Parameter parameter(String stopLoss) {
+        return AverageStrategy.Parameter.builder()
+                .setAvgInterval(TimeInterval.days(10))
+                .setTrendPredictInterval(TimeInterval.minutes(10))
+                .setEnterVolumes("5")
+                .setAddInterval("0.15")
+                .setMaxAddTimes(4)
+                .setStopLoss(stopLoss)
+                .setStopProfit("0.5")
+                .build();
+    }
+
+    private static void assertSameResult(BackTestResult expected, BackTestResult actual) {
+        assertEquals(expected.getProfit(), actual.getProfit());
+        assertEquals(expected.getTransactions().size(), actual.getTransactions().size());
+        for (int i = 0; i < expected.getTransactions().size(); i++) {
+            Transaction e = expected.getTransactions().get(i);
+            Transaction a = actual.getTransactions().get(i);
+            assertEquals(e.getTime(), a.getTime());
+            assertEquals(e.getPrice(), a.getPrice());
+            assertEquals(e.getVolume(), a.getVolume());
+        }
+        assertEquals(expected.getSettlements().size(), actual.getSettlements().size());
+        for (int i = 0; i < expected.getSettlements().size(); i++) {
+            Settlement e = expected.getSettlements().get(i);
+            Settlement a = actual.getSettlements().get(i);
+            assertEquals(e.getTime(), a.getTime());
+            assertEquals(e.getProfit(), a.getProfit());
+        }
+    }
+}
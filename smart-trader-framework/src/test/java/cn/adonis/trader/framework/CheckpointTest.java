@@ -0,0 +1,105 @@
+package cn.adonis.trader.framework;
+
+import cn.adonis.trader.framework.model.BackTestParameter;
+import cn.adonis.trader.framework.model.BackTestResult;
+import cn.adonis.trader.framework.model.FuturesTradingFee;
+import cn.adonis.trader.framework.model.IntraBarPath;
+import cn.adonis.trader.framework.model.TimeInterval;
+import cn.adonis.trader.framework.model.Transaction;
+import cn.adonis.trader.framework.strategy.StrainerStrategy;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 从checkpoint继续运行的结果与完整运行一致，参数不同或文件中有不允许的类时拒绝恢复
+ */
+public class CheckpointTest {
+
+    private static final LocalDateTime CHECKPOINT_TIME = LocalDateTime.of(2020, 5, 15, 0, 0);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void resumeMatchesFullRun() throws Exception {
+        assertResumeMatchesFullRun(SampleData.parameter().setWarmUpInterval(TimeInterval.days(40)));
+        // 未设置预热时加载全部历史
+        assertResumeMatchesFullRun(SampleData.parameter());
+    }
+
+    @Test
+    public void rejectsChangedParameter() throws Exception {
+        Path file = folder.newFile().toPath();
+        Files.delete(file);
+        run(SampleData.parameter().setEndTime(CHECKPOINT_TIME), file);
+
+        assertRejected(SampleData.parameter().setInitialFunds("6000000"), file);
+        assertRejected(SampleData.parameter().setIntraBarPath(IntraBarPath.OPEN_LOW_HIGH_CLOSE), file);
+        assertRejected(SampleData.parameter().setTradingFee(FuturesTradingFee.of("10000", "0.03")), file);
+    }
+
+    @Test
+    public void rejectsClassesOutsideAllowedPackages() throws Exception {
+        Path file = folder.newFile().toPath();
+        try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(file))) {
+            out.writeObject(new ConcurrentHashMap<String, String>());
+        }
+        try {
+            Checkpoint.load(file);
+            fail();
+        } catch (BackTestException e) {
+            assertTrue(e.getMessage().startsWith("invalid checkpoint file"));
+        }
+    }
+
+    private void assertResumeMatchesFullRun(BackTestParameter.Builder parameter) throws Exception {
+        BackTestResult expected = run(parameter, null);
+
+        Path file = folder.newFile().toPath();
+        Files.delete(file);
+        run(parameter.setEndTime(CHECKPOINT_TIME), file);
+        assertTrue(Files.exists(file));
+        BackTestResult actual = run(parameter.setEndTime(null), file);
+
+        assertEquals(expected.getProfit(), actual.getProfit());
+        assertEquals(expected.getTransactions().size(), actual.getTransactions().size());
+        for (int i = 0; i < expected.getTransactions().size(); i++) {
+            Transaction e = expected.getTransactions().get(i);
+            Transaction a = actual.getTransactions().get(i);
+            assertEquals(e.getTime(), a.getTime());
+            assertEquals(e.getPrice(), a.getPrice());
+            assertEquals(e.getVolume(), a.getVolume());
+        }
+        assertEquals(expected.getSettlements().size(), actual.getSettlements().size());
+    }
+
+    private void assertRejected(BackTestParameter.Builder parameter, Path file) throws Exception {
+        try {
+            run(parameter, file);
+            fail();
+        } catch (BackTestException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("does not match"));
+        }
+    }
+
+    private static BackTestResult run(BackTestParameter.Builder parameter, Path checkpointFile) throws Exception {
+        return BackTest.builder()
+                .setSeriesLoader(SampleData.loader())
+                .setParameter(parameter.build())
+                .setTradingStrategy(StrainerStrategy.newStrainerStrategy(SampleData.strainerParameter()))
+                .setCheckpointFile(checkpointFile)
+                .build()
+                .run();
+    }
+}
@@ -0,0 +1,83 @@
+package cn.adonis.trader.framework;
+
+import cn.adonis.trader.framework.model.BackTestResult;
+import cn.adonis.trader.framework.model.Settlement;
+import cn.adonis.trader.framework.model.TimeInterval;
+import cn.adonis.trader.framework.model.Transaction;
+import cn.adonis.trader.framework.strategy.AverageStrategy;
+import cn.adonis.trader.framework.strategy.StrainerStrategy;
+import cn.adonis.trader.framework.strategy.TradingStrategy;
+import org.junit.Test;
+
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 定点数与BigDecimal的回测结果一致
+ */
+public class FixedPointParityTest {
+
+    // 价格3位小数、保证金系数2位小数，6位时定点数运算没有舍入
+    private static final int SCALE = 6;
+
+    @Test
+    public void averageStrategy() throws Exception {
+        assertParity(() -> AverageStrategy.newAverageStrategy(SampleData.averageParameter()));
+    }
+
+    @Test
+    public void strainerStrategy() throws Exception {
+        assertParity(() -> StrainerStrategy.newStrainerStrategy(SampleData.strainerParameter()));
+    }
+
+    /**
+     * 数额带小数位时BigDecimal累加结果为0.0，equalsZero不成立，两种模式都不结算
+     */
+    @Test
+    public void scaledVolumes() throws Exception {
+        BackTestResult result = assertParity(() -> AverageStrategy.newAverageStrategy(AverageStrategy.Parameter.builder()
+                .setAvgInterval(TimeInterval.days(10))
+                .setTrendPredictInterval(TimeInterval.minutes(10))
+                .setEnterVolumes("5.0")
+                .setAddInterval("0.15")
+                .setMaxAddTimes(4)
+                .setStopLoss("0.5")
+                .setStopProfit("0.5")
+                .build()));
+        assertEquals(0, result.getSettlements().size());
+    }
+
+    private static BackTestResult assertParity(Supplier<TradingStrategy> strategy) throws Exception {
+        BackTestResult expected = BackTest.builder()
+                .setSeriesLoader(SampleData.loader())
+                .setParameter(SampleData.parameter().build())
+                .setTradingStrategy(strategy.get())
+                .build().run();
+        BackTestResult actual = BackTest.builder()
+                .setSeriesLoader(SampleData.loader())
+                .setParameter(SampleData.parameter().setFixedPointScale(SCALE).build())
+                .setTradingStrategy(strategy.get())
+                .build().run();
+        assertTrue(expected.getTransactions().size() > 0);
+        assertEquals(expected.getProfit(), actual.getProfit());
+        assertEquals(expected.getTransactions().size(), actual.getTransactions().size());
+        for (int i = 0; i < expected.getTransactions().size(); i++) {
+            Transaction e = expected.getTransactions().get(i);
+            Transaction a = actual.getTransactions().get(i);
+            assertEquals(e.getTime(), a.getTime());
+            assertEquals(e.getPrice(), a.getPrice());
+            assertEquals(e.getVolume(), a.getVolume());
+            assertEquals(e.getType(), a.getType());
+        }
+        assertEquals(expected.getSettlements().size(), actual.getSettlements().size());
+        for (int i = 0; i < expected.getSettlements().size(); i++) {
+            Settlement e = expected.getSettlements().get(i);
+            Settlement a = actual.getSettlements().get(i);
+            assertEquals(e.getTime(), a.getTime());
+            assertEquals(0, e.getProfit().compareTo(a.getProfit()));
+        }
+        return actual;
+    }
+}
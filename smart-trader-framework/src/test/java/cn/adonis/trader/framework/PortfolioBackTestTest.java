@@ -0,0 +1,236 @@
+package cn.adonis.trader.framework;
+
+import cn.adonis.trader.framework.loader.SeriesLoader;
+import cn.adonis.trader.framework.model.BackTestParameter;
+import cn.adonis.trader.framework.model.BackTestResult;
+import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.model.Decision;
+import cn.adonis.trader.framework.model.FuturesTradingFee;
+import cn.adonis.trader.framework.model.PortfolioResult;
+import cn.adonis.trader.framework.model.Series;
+import cn.adonis.trader.framework.model.Settlement;
+import cn.adonis.trader.framework.model.TimeInterval;
+import cn.adonis.trader.framework.model.TimeSeries;
+import cn.adonis.trader.framework.model.TradingContext;
+import cn.adonis.trader.framework.model.Transaction;
+import cn.adonis.trader.framework.strategy.AbstractFuturesTradingStrategy;
+import cn.adonis.trader.framework.strategy.TradingStrategy;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * 组合回测：K线按时间(秒)、再按品种顺序归并，资金和保证金共用一个账户，结果按品种拆分
+ */
+public class PortfolioBackTestTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2020, 3, 2, 9, 0);
+
+    @Test
+    public void mergesByTimeThenSymbolOrder() throws Exception {
+        List<String> calls = Lists.newArrayList();
+        PortfolioBackTest.builder()
+                .setParameter(parameter().setStartTime(TIME.plusMinutes(1)).build())
+                // 添加顺序决定同一时间的处理顺序，与品种名无关
+                .addSymbol("b", loader(0, 1, 4), new RecordingStrategy("b", calls))
+                .addSymbol("a", loader(0, 2, 4), new RecordingStrategy("a", calls))
+                .addSymbol("c", loader(3), new RecordingStrategy("c", calls))
+                .build()
+                .run();
+
+        assertEquals(Lists.newArrayList("preFit b 0", "preFit a 0", "fit b 1", "fit a 2", "fit c 3", "fit b 4", "fit a 4"), calls);
+    }
+
+    @Test
+    public void sharesAccountFundsAndMargin() throws Exception {
+        // a的保证金为 价格 * 1，b为 价格 * 2
+        ScriptedStrategy a = new ScriptedStrategy()
+                .at(0, Decision.buy(new BigDecimal("5000"), Decision.Reason.ENTRY))
+                .at(2, Decision.sell(new BigDecimal("5000"), Decision.Reason.STOP_PROFIT));
+        ScriptedStrategy b = new ScriptedStrategy()
+                .at(1, Decision.buy(new BigDecimal("3000"), Decision.Reason.ENTRY))
+                .at(3, Decision.buy(new BigDecimal("3000"), Decision.Reason.ENTRY))
+                .at(4, Decision.sell(new BigDecimal("3000"), Decision.Reason.STOP_LOSS));
+        PortfolioResult result = PortfolioBackTest.builder()
+                .setParameter(parameter().build())
+                .addSymbol("a", loader(new int[]{0, 2}, new String[]{"100", "110"}), a)
+                .addSymbol("b", loader(new int[]{1, 3, 4}, new String[]{"100", "100", "90"}), b, FuturesTradingFee.of("10", "0.2"))
+                .build()
+                .run();
+
+        // 09:01 a占用了500000，b需要600000，资金不足不成交；a平仓后b在09:03成交
+        assertEquals(Lists.newArrayList(TIME.plusMinutes(3), TIME.plusMinutes(4)), timesOf(result.getResult("b").getTransactions()));
+        assertEquals(Lists.newArrayList(TIME, TIME.plusMinutes(2)), timesOf(result.getResult("a").getTransactions()));
+        // 1000000 - 500000 + 550000 - 600000 + 540000
+        assertEquals(0, new BigDecimal("990000").compareTo(result.getSurplusFunds()));
+
+        // 单独回测b时资金足够，09:01即可成交
+        PortfolioResult alone = PortfolioBackTest.builder()
+                .setParameter(parameter().build())
+                .addSymbol("b", loader(new int[]{1, 3, 4}, new String[]{"100", "100", "90"}), new ScriptedStrategy()
+                        .at(1, Decision.buy(new BigDecimal("3000"), Decision.Reason.ENTRY))
+                        .at(4, Decision.sell(new BigDecimal("3000"), Decision.Reason.STOP_LOSS)), FuturesTradingFee.of("10", "0.2"))
+                .build()
+                .run();
+        assertEquals(Lists.newArrayList(TIME.plusMinutes(1), TIME.plusMinutes(4)), timesOf(alone.getResult("b").getTransactions()));
+    }
+
+    @Test
+    public void splitsResultsBySymbol() throws Exception {
+        PortfolioResult result = PortfolioBackTest.builder()
+                .setParameter(parameter().build())
+                .addSymbol("b", loader(new int[]{0, 2}, new String[]{"100", "90"}), new ScriptedStrategy()
+                        .at(0, Decision.buy(new BigDecimal("1000"), Decision.Reason.ENTRY))
+                        .at(2, Decision.sell(new BigDecimal("1000"), Decision.Reason.STOP_LOSS)))
+                .addSymbol("a", loader(new int[]{0, 1, 2}, new String[]{"50", "55", "60"}), new ScriptedStrategy()
+                        .at(0, Decision.sell(new BigDecimal("2000"), Decision.Reason.ENTRY))
+                        .at(1, Decision.buy(new BigDecimal("2000"), Decision.Reason.STOP_LOSS))
+                        .at(2, Decision.buy(new BigDecimal("2000"), Decision.Reason.ENTRY)))
+                .build()
+                .run();
+
+        assertEquals(Lists.newArrayList("b", "a"), Lists.newArrayList(result.getResults().keySet()));
+        BackTestResult b = result.getResult("b");
+        BackTestResult a = result.getResult("a");
+        assertEquals(2, b.getTransactions().size());
+        assertEquals(3, a.getTransactions().size());
+        // 收益 = -(价格 * 数量之和) * 乘数
+        assertEquals(new BigDecimal("-100000.00"), b.getProfit());
+        assertEquals(new BigDecimal("-100000.00"), a.getProfit());
+        assertEquals(new BigDecimal("-200000.00"), result.getProfit());
+
+        // 合并后的平仓记录按时间排序，a在09:01平仓，b在09:02平仓，a在09:02的持仓未平
+        List<Settlement> settlements = result.getSettlements();
+        assertEquals(Lists.newArrayList(TIME.plusMinutes(1), TIME.plusMinutes(2)),
+                settlements.stream().map(Settlement::getTime).collect(Collectors.toList()));
+        assertEquals(a.getSettlements().get(0).getProfit(), settlements.get(0).getProfit());
+        assertEquals(b.getSettlements().get(0).getProfit(), settlements.get(1).getProfit());
+
+        try {
+            settlements.clear();
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // 预期
+        }
+        try {
+            result.getResults().remove("a");
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // 预期
+        }
+    }
+
+    /**
+     * 初始资金1000000，乘数10，保证金比例0.1，即保证金为 价格 * 数量
+     */
+    private static BackTestParameter.Builder parameter() {
+        return BackTestParameter.builder()
+                .setStartTime(TIME)
+                .setInitialFunds("1000000")
+                .setTradingFee(FuturesTradingFee.of("10", "0.1"));
+    }
+
+    /**
+     * 在TIME之后的指定分钟各一根K线，价格均为100
+     */
+    private static TimeSeriesLoader loader(int... minutes) {
+        String[] prices = new String[minutes.length];
+        Arrays.fill(prices, "100");
+        return loader(minutes, prices);
+    }
+
+    private static TimeSeriesLoader loader(int[] minutes, String[] prices) {
+        List<Candle> candleList = Lists.newArrayList();
+        for (int i = 0; i < minutes.length; i++) {
+            BigDecimal price = new BigDecimal(prices[i]);
+            candleList.add(Candle.create(price, price, price, price, TIME.plusMinutes(minutes[i])));
+        }
+        return new TimeSeriesLoader(TimeSeries.create(Series.create(candleList, "s"), TimeInterval.minutes(1)));
+    }
+
+    private static List<LocalDateTime> timesOf(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getTime).collect(Collectors.toList());
+    }
+
+    private static final class TimeSeriesLoader implements SeriesLoader {
+        private final TimeSeries<Candle> series;
+
+        private TimeSeriesLoader(TimeSeries<Candle> series) {
+            this.series = series;
+        }
+
+        @Override
+        public TimeSeries<Candle> load() {
+            return series;
+        }
+    }
+
+    /**
+     * 记录调用顺序：方法 品种 距TIME的分钟数
+     */
+    private static final class RecordingStrategy implements TradingStrategy {
+        private final String name;
+        private final List<String> calls;
+
+        private RecordingStrategy(String name, List<String> calls) {
+            this.name = name;
+            this.calls = calls;
+        }
+
+        @Override
+        public void preFit(Candle candle, TradingContext tradingContext) {
+            calls.add("preFit " + name + " " + minuteOf(candle));
+        }
+
+        @Override
+        public void fit(Candle candle, TradingContext tradingContext) {
+            calls.add("fit " + name + " " + minuteOf(candle));
+        }
+
+        private static long minuteOf(Candle candle) {
+            return Duration.between(TIME, candle.getTime()).toMinutes();
+        }
+    }
+
+    /**
+     * 在指定分钟按收盘价执行预先设定的决策
+     */
+    private static final class ScriptedStrategy extends AbstractFuturesTradingStrategy {
+        private final Map<LocalDateTime, Decision> script = Maps.newHashMap();
+
+        private ScriptedStrategy at(int minute, Decision decision) {
+            script.put(TIME.plusMinutes(minute), decision);
+            return this;
+        }
+
+        @Override
+        public void preFit(Candle candle, TradingContext tradingContext) {
+        }
+
+        @Override
+        protected Decision entryDecision(Candle candle, TradingContext tradingContext) {
+            return script.getOrDefault(candle.getTime(), Decision.DO_NOTHING);
+        }
+
+        @Override
+        protected Decision longPositionDecision(Candle candle, TradingContext tradingContext) {
+            return script.getOrDefault(candle.getTime(), Decision.DO_NOTHING);
+        }
+
+        @Override
+        protected Decision shortPositionDecision(Candle candle, TradingContext tradingContext) {
+            return script.getOrDefault(candle.getTime(), Decision.DO_NOTHING);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package cn.adonis.trader.framework;
+
+import cn.adonis.trader.framework.loader.CSVLoader;
+import cn.adonis.trader.framework.model.BackTestParameter;
+import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.model.FuturesTradingFee;
+import cn.adonis.trader.framework.model.TimeInterval;
+import cn.adonis.trader.framework.strategy.AverageStrategy;
+import cn.adonis.trader.framework.strategy.StrainerStrategy;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+/**
+ * 测试用的样例数据：半年的5分钟K线(随机游走，种子固定)，格式与国债期货数据相同
+ * 每个交易日 09:00-11:25、13:00-14:55 共54根
+ */
+public final class SampleData {
+
+    public static final LocalDateTime START_TIME = LocalDateTime.of(2020, 3, 1, 0, 0);
+
+    private static Path file;
+
+    private SampleData() {
+    }
+
+    public static synchronized Path file() {
+        if (file == null) {
+            try {
+                file = write();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return file;
+    }
+
+    public static CSVLoader loader() {
+        return CSVLoader.newCSVLoader(file().toString())
+                .addColumnSchema(Candle.Schema.OPEN_PRICE, CSVLoader.Column.ofBigDecimal(3))
+                .addColumnSchema(Candle.Schema.CLOSE_PRICE, CSVLoader.Column.ofBigDecimal(6))
+                .addColumnSchema(Candle.Schema.HIGH_PRICE, CSVLoader.Column.ofBigDecimal(4))
+                .addColumnSchema(Candle.Schema.LOW_PRICE, CSVLoader.Column.ofBigDecimal(5))
+                .addColumnSchema(Candle.Schema.TIME, CSVLoader.Column.ofTime(2, "yyyy-MM-dd HH:mm"));
+    }
+
+    public static BackTestParameter.Builder parameter() {
+        return BackTestParameter.builder()
+                .setStartTime(START_TIME)
+                .setInitialFunds("5000000")
+                .setTradingFee(FuturesTradingFee.of("10000", "0.02"));
+    }
+
+    public static AverageStrategy.Parameter averageParameter() {
+        return AverageStrategy.Parameter.builder()
+                .setAvgInterval(TimeInterval.days(10))
+                .setTrendPredictInterval(TimeInterval.minutes(10))
+                .setEnterVolumes("5")
+                .setAddInterval("0.15")
+                .setMaxAddTimes(4)
+                .setStopLoss("0.5")
+                .setStopProfit("0.5")
+                .build();
+    }
+
+    public static StrainerStrategy.Parameter strainerParameter() {
+        return StrainerStrategy.Parameter.builder()
+                .setTrendPredictPreviousCount(5)
+                .setEnterVolumes("10")
+                .setStopLoss("0.5")
+                .setStopProfit("0.5")
+                .build();
+    }
+
+    private static Path write() throws IOException {
+        Path path = Files.createTempFile("sample-5min", ".csv");
+        path.toFile().deleteOnExit();
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+        Random random = new Random(20200102L);
+        long price = 100000; // 价格 * 1000
+        double drift = 0;
+        int index = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (LocalDate date = LocalDate.of(2020, 1, 2); !date.isAfter(LocalDate.of(2020, 6, 30)); date = date.plusDays(1)) {
+                if (date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY) {
+                    continue;
+                }
+                // 每天换一次趋势
+                drift = 0.5 * drift + random.nextGaussian() * 4;
+                for (int bar = 0; bar < 54; bar++) {
+                    LocalTime time = bar < 30 ? LocalTime.of(9, 0).plusMinutes(5L * bar) : LocalTime.of(13, 0).plusMinutes(5L * (bar - 30));
+                    long open = price;
+                    long close = open + Math.round(drift + random.nextGaussian() * 25);
+                    long high = Math.max(open, close) + Math.round(Math.abs(random.nextGaussian()) * 15);
+                    long low = Math.min(open, close) - Math.round(Math.abs(random.nextGaussian()) * 15);
+                    writer.write("T," + index++ + "," + LocalDateTime.of(date, time).format(formatter) + ","
+                            + toPrice(open) + "," + toPrice(high) + "," + toPrice(low) + "," + toPrice(close) + ",100\n");
+                    price = close;
+                }
+            }
+        }
+        return path;
+    }
+
+    private static String toPrice(long value) {
+        return BigDecimal.valueOf(value, 3).toPlainString();
+    }
+}
@@ -0,0 +1,74 @@
+package cn.adonis.trader.framework;
+
+import cn.adonis.trader.framework.model.BackTestResult;
+import cn.adonis.trader.framework.model.TimeInterval;
+import cn.adonis.trader.framework.strategy.AverageStrategy;
+import cn.adonis.trader.framework.strategy.StrainerStrategy;
+import cn.adonis.trader.framework.strategy.TradingStrategy;
+import org.junit.Test;
+
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 流式回测与一次性加载的回测结果一致
+ */
+public class StreamingBackTestTest {
+
+    @Test
+    public void averageStrategy() throws Exception {
+        assertStreamingMatches(() -> AverageStrategy.newAverageStrategy(SampleData.averageParameter()), TimeInterval.days(30));
+    }
+
+    @Test
+    public void strainerStrategy() throws Exception {
+        // 日线MA20需要至少20个交易日的历史
+        assertStreamingMatches(() -> StrainerStrategy.newStrainerStrategy(SampleData.strainerParameter()), TimeInterval.days(40));
+    }
+
+    @Test
+    public void streamingKeepsMovingAveragesBounded() throws Exception {
+        StrainerStrategy strategy = StrainerStrategy.newStrainerStrategy(SampleData.strainerParameter());
+        BackTest.builder()
+                .setStreamingSeriesLoader(SampleData.loader(), TimeInterval.days(40))
+                .setParameter(SampleData.parameter().build())
+                .setTradingStrategy(strategy)
+                .build().run();
+        // 只保留线性回归需要的最近几个点，不随K线数量增长
+        int retainCount = SampleData.strainerParameter().getTrendPredictPreviousCount();
+        assertTrue(strategy.getFiveMinutesMa60().getDataList().size() < retainCount * 2);
+        assertTrue(strategy.getDailyMa20().getDataList().size() < retainCount * 2);
+
+        // 一次性加载时保留全部结果
+        StrainerStrategy inMemory = StrainerStrategy.newStrainerStrategy(SampleData.strainerParameter());
+        BackTestResult result = BackTest.builder()
+                .setSeriesLoader(SampleData.loader())
+                .setParameter(SampleData.parameter().build())
+                .setTradingStrategy(inMemory)
+                .build().run();
+        assertEquals(result.getOriginalData().getSeries().size(), inMemory.getFiveMinutesMa60().getDataList().size());
+    }
+
+    private static void assertStreamingMatches(Supplier<TradingStrategy> strategy, TimeInterval lookback) throws Exception {
+        BackTestResult expected = BackTest.builder()
+                .setSeriesLoader(SampleData.loader())
+                .setParameter(SampleData.parameter().build())
+                .setTradingStrategy(strategy.get())
+                .build().run();
+        BackTestResult actual = BackTest.builder()
+                .setStreamingSeriesLoader(SampleData.loader(), lookback)
+                .setParameter(SampleData.parameter().build())
+                .setTradingStrategy(strategy.get())
+                .build().run();
+        assertTrue(expected.getTransactions().size() > 0);
+        assertEquals(expected.getProfit(), actual.getProfit());
+        assertEquals(expected.getTransactions().size(), actual.getTransactions().size());
+        for (int i = 0; i < expected.getTransactions().size(); i++) {
+            assertEquals(expected.getTransactions().get(i).getTime(), actual.getTransactions().get(i).getTime());
+            assertEquals(expected.getTransactions().get(i).getPrice(), actual.getTransactions().get(i).getPrice());
+            assertEquals(expected.getTransactions().get(i).getVolume(), actual.getTransactions().get(i).getVolume());
+        }
+    }
+}
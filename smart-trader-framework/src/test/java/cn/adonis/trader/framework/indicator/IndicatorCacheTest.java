@@ -0,0 +1,84 @@
+package cn.adonis.trader.framework.indicator;
+
+import cn.adonis.trader.framework.SampleData;
+import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.model.Series;
+import cn.adonis.trader.framework.model.TimeSeries;
+import cn.adonis.trader.framework.util.SeriesUtil;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 同一份数据上截取的相同区间共享指标列，数据被回收后列被移除
+ */
+public class IndicatorCacheTest {
+
+    @Test
+    public void slicesOfSameRangeHit() throws Exception {
+        TimeSeries<Candle> timeSeries = SampleData.loader().load();
+        assertSlicesShareColumns(timeSeries);
+        assertSlicesShareColumns(SeriesUtil.toColumnar(timeSeries));
+    }
+
+    @Test
+    public void removesColumnsOfCollectedSeries() throws Exception {
+        IndicatorCache cache = IndicatorCache.create(1_000_000);
+        TimeSeries<Candle> timeSeries = SampleData.loader().load();
+        TimeSeries<Candle> copy = copy(timeSeries);
+        cache.get(copy, "spec", () -> new long[10]);
+        cache.get(slice(copy, 0, 5), "spec", () -> new long[5]);
+        cache.get(timeSeries, "spec", () -> new long[10]);
+        assertEquals(3, cache.size());
+
+        // 不依赖GC，直接把引用放入回收队列，同一份底层数据上的列全部移除
+        cache.enqueueCollected(copy.getSeries().getStorage());
+        assertEquals(1, cache.size());
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(timeSeries, "spec", () -> {
+            loads.incrementAndGet();
+            return new long[10];
+        });
+        assertEquals(0, loads.get());
+    }
+
+    private static void assertSlicesShareColumns(TimeSeries<Candle> timeSeries) {
+        IndicatorCache cache = IndicatorCache.create(1_000_000);
+        AtomicInteger loads = new AtomicInteger();
+        long[] first = cache.get(slice(timeSeries, 100, 2000), "spec", () -> {
+            loads.incrementAndGet();
+            return new long[1900];
+        });
+        long[] second = cache.get(slice(timeSeries, 100, 2000), "spec", () -> {
+            loads.incrementAndGet();
+            return new long[1900];
+        });
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+
+        // 区间或参数不同时不命中
+        cache.get(slice(timeSeries, 100, 2001), "spec", () -> {
+            loads.incrementAndGet();
+            return new long[1901];
+        });
+        cache.get(slice(timeSeries, 100, 2000), "other", () -> {
+            loads.incrementAndGet();
+            return new long[1900];
+        });
+        assertEquals(3, loads.get());
+    }
+
+    private static TimeSeries<Candle> copy(TimeSeries<Candle> timeSeries) {
+        List<Candle> candleList = Lists.newArrayList(timeSeries.getSeries().getDataList());
+        return TimeSeries.create(Series.create(candleList, "copy"), timeSeries.getTimeInterval());
+    }
+
+    private static TimeSeries<Candle> slice(TimeSeries<Candle> timeSeries, int from, int to) {
+        return TimeSeries.create(timeSeries.getSeries().slice(from, to), timeSeries.getTimeInterval());
+    }
+}
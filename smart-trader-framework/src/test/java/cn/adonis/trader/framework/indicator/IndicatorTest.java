@@ -0,0 +1,324 @@
+package cn.adonis.trader.framework.indicator;
+
+import cn.adonis.trader.framework.SampleData;
+import cn.adonis.trader.framework.model.Candle;
+import com.google.common.collect.Lists;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 增量指标与逐窗口重新计算的结果一致，并与参考数据的已知值一致
+ */
+public class IndicatorTest {
+
+    private static final int N = 20;
+
+    // StockCharts RSI示例的33个收盘价，再补充7个，使MACD的signal线就绪
+    private static final double[] REFERENCE_CLOSES = {44.34, 44.09, 44.15, 43.61, 44.33, 44.83, 45.10, 45.42, 45.84, 46.08,
+            45.89, 46.03, 45.61, 46.28, 46.28, 46.00, 46.03, 46.41, 46.22, 45.64,
+            46.21, 46.25, 45.71, 46.45, 45.78, 45.35, 44.03, 44.18, 44.22, 44.57,
+            43.42, 42.66, 43.13, 43.55, 44.01, 44.20, 43.87, 44.35, 44.62, 44.90};
+
+    @Test
+    public void simpleMovingAverageMatchesAverage() throws Exception {
+        List<Candle> candleList = candles();
+        SimpleMovingAverage sma = SimpleMovingAverage.of(N);
+        for (int i = 0; i < candleList.size(); i++) {
+            sma.update(candleList.get(i));
+            if (i < N - 1) {
+                assertFalse(sma.isReady());
+                continue;
+            }
+            // Average保留2位小数
+            BigDecimal expected = Average.calculate(candleList.subList(i - N + 1, i + 1), Candle::getClose);
+            assertEquals(expected.doubleValue(), sma.value(), 0.005 + 1e-9);
+        }
+    }
+
+    @Test
+    public void weightedMovingAverage() throws Exception {
+        List<Candle> candleList = candles();
+        WeightedMovingAverage wma = WeightedMovingAverage.of(N);
+        for (int i = 0; i < candleList.size(); i++) {
+            wma.update(candleList.get(i));
+            if (i >= N - 1) {
+                assertEquals(weightedAverage(candleList, i), wma.value(), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void standardDeviation() throws Exception {
+        List<Candle> candleList = candles();
+        StandardDeviation stdDev = StandardDeviation.of(N);
+        for (int i = 0; i < candleList.size(); i++) {
+            stdDev.update(candleList.get(i));
+            if (i >= N - 1) {
+                assertEquals(standardDeviation(candleList, i), stdDev.value(), 1e-9);
+            }
+        }
+    }
+
+    /**
+     * 均值远大于波动时，递推超过重新求和的间隔后仍不漂移
+     */
+    @Test
+    public void noDriftOverLongRuns() {
+        int n = 50;
+        double[] prices = new double[3 * DoubleWindow.RESUM_INTERVAL];
+        Random random = new Random(12L);
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = 1e6 + random.nextGaussian();
+        }
+        WeightedMovingAverage wma = WeightedMovingAverage.of(n);
+        StandardDeviation stdDev = StandardDeviation.of(n);
+        for (int i = 0; i < prices.length; i++) {
+            wma.update(prices[i]);
+            stdDev.update(prices[i]);
+        }
+        double numerator = 0;
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            double price = prices[prices.length - n + i];
+            numerator += (i + 1) * price;
+            sum += price;
+        }
+        double mean = sum / n;
+        double m2 = 0;
+        for (int i = 0; i < n; i++) {
+            double deviation = prices[prices.length - n + i] - mean;
+            m2 += deviation * deviation;
+        }
+        assertEquals(numerator / (n * (n + 1) / 2.0), wma.value(), 1e-6);
+        assertEquals(Math.sqrt(m2 / n), stdDev.value(), 1e-6);
+    }
+
+    @Test
+    public void updateFromCandleDoesNotAllocate() throws Exception {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled());
+
+        // 数组遍历，避免迭代器本身的分配
+        Candle[] candles = candles().toArray(new Candle[0]);
+        Indicator[] indicators = {SimpleMovingAverage.of(N), WeightedMovingAverage.of(N),
+                StandardDeviation.of(N), ExponentialMovingAverage.of(N)};
+        // 预热，使快速路径完成编译
+        for (int round = 0; round < 3; round++) {
+            update(candles, indicators);
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        update(candles, indicators);
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+        assertTrue("allocated " + allocated + " bytes", allocated < 4096);
+    }
+
+    /**
+     * StockCharts的14日RSI示例数据，参考值为全精度计算后保留2位小数
+     */
+    @Test
+    public void relativeStrengthIndexMatchesReference() {
+        double[] expected = {70.46, 66.25, 66.48, 69.35, 66.29, 57.92, 62.88, 63.21, 56.01, 62.34,
+                54.67, 50.39, 40.02, 41.49, 41.90, 45.50, 37.32, 33.09, 37.79};
+        RelativeStrengthIndex rsi = RelativeStrengthIndex.of(14);
+        for (int i = 0; i < 33; i++) {
+            rsi.update(REFERENCE_CLOSES[i]);
+            if (i < 14) {
+                assertFalse(rsi.isReady());
+            } else {
+                assertEquals(expected[i - 14], rsi.value(), 0.005);
+            }
+        }
+    }
+
+    /**
+     * StockCharts的10日EMA示例数据，以前10个值的简单平均为初始值
+     */
+    @Test
+    public void exponentialMovingAverageMatchesReference() {
+        double[] prices = {22.27, 22.19, 22.08, 22.17, 22.18, 22.13, 22.23, 22.43, 22.24, 22.29,
+                22.15, 22.39, 22.38, 22.61, 23.36, 24.05, 23.75, 23.83, 23.95, 23.63,
+                23.82, 23.87, 23.65, 23.19, 23.10, 23.33, 22.68, 23.10, 22.40, 22.17};
+        double[] expected = {22.22, 22.21, 22.24, 22.27, 22.33, 22.52, 22.80, 22.97, 23.13, 23.28,
+                23.34, 23.43, 23.51, 23.53, 23.47, 23.40, 23.39, 23.26, 23.23, 23.08, 22.92};
+        ExponentialMovingAverage ema = ExponentialMovingAverage.of(10);
+        for (int i = 0; i < prices.length; i++) {
+            ema.update(prices[i]);
+            if (i < 9) {
+                assertFalse(ema.isReady());
+            } else {
+                assertEquals(expected[i - 9], ema.value(), 0.005);
+            }
+        }
+    }
+
+    /**
+     * 参考值由分数精确计算：MACD(12, 26, 9)，macd从第26个值起，signal再需要9个macd值
+     */
+    @Test
+    public void macdMatchesReference() {
+        double[][] expected = {
+                {33, -0.498094, -0.147997},
+                {34, -0.474062, -0.213210},
+                {35, -0.434674, -0.257503},
+                {36, -0.425185, -0.291039},
+                {37, -0.374615, -0.307755},
+                {38, -0.309187, -0.308041},
+                {39, -0.232067, -0.292846}};
+        MACD macd = MACD.of(12, 26, 9);
+        for (int i = 0; i < REFERENCE_CLOSES.length; i++) {
+            macd.update(REFERENCE_CLOSES[i]);
+            if (i == 25) {
+                assertEquals(0.306689, macd.value(), 1e-6);
+            }
+            assertEquals(i >= 33, macd.isReady());
+        }
+        MACD replay = MACD.of(12, 26, 9);
+        int row = 0;
+        for (int i = 0; i < REFERENCE_CLOSES.length; i++) {
+            replay.update(REFERENCE_CLOSES[i]);
+            if (row < expected.length && i == (int) expected[row][0]) {
+                assertEquals(expected[row][1], replay.value(), 1e-6);
+                assertEquals(expected[row][2], replay.getSignal(), 1e-6);
+                assertEquals(expected[row][1] - expected[row][2], replay.getHistogram(), 2e-6);
+                row++;
+            }
+        }
+        assertEquals(expected.length, row);
+    }
+
+    /**
+     * 参考值由分数精确计算：ATR(14)，第一根的真实波幅为 high - low
+     */
+    @Test
+    public void averageTrueRangeMatchesReference() {
+        AverageTrueRange atr = AverageTrueRange.of(14);
+        double[] expected = new double[REFERENCE_CLOSES.length];
+        expected[13] = 0.744286;
+        expected[18] = 0.717895;
+        expected[23] = 0.774837;
+        expected[28] = 0.798863;
+        expected[33] = 0.854155;
+        expected[38] = 0.819707;
+        expected[39] = 0.804013;
+        for (Candle candle : referenceCandles()) {
+            atr.update(candle);
+        }
+        AverageTrueRange replay = AverageTrueRange.of(14);
+        List<Candle> candleList = referenceCandles();
+        for (int i = 0; i < candleList.size(); i++) {
+            replay.update(candleList.get(i));
+            assertEquals(i >= 13, replay.isReady());
+            if (expected[i] != 0) {
+                assertEquals(expected[i], replay.value(), 1e-6);
+            }
+        }
+        assertEquals(expected[39], atr.value(), 1e-6);
+    }
+
+    /**
+     * 参考值由分数精确计算：BollingerBands(20, 2)，总体标准差
+     */
+    @Test
+    public void bollingerBandsMatchReference() {
+        double[][] expected = {
+                {19, 45.409000, 47.115328, 43.702672},
+                {24, 45.903000, 46.736021, 45.069979},
+                {29, 45.657000, 47.179276, 44.134724},
+                {34, 44.991000, 47.410404, 42.571596},
+                {39, 44.573000, 46.678679, 42.467321}};
+        BollingerBands bands = BollingerBands.of(20, 2);
+        int row = 0;
+        for (int i = 0; i < REFERENCE_CLOSES.length; i++) {
+            bands.update(REFERENCE_CLOSES[i]);
+            assertEquals(i >= 19, bands.isReady());
+            if (row < expected.length && i == (int) expected[row][0]) {
+                assertEquals(expected[row][1], bands.value(), 1e-6);
+                assertEquals(expected[row][2], bands.getUpper(), 1e-6);
+                assertEquals(expected[row][3], bands.getLower(), 1e-6);
+                row++;
+            }
+        }
+        assertEquals(expected.length, row);
+    }
+
+    @Test
+    public void rejectsNonPositivePeriod() {
+        List<Runnable> factories = Lists.newArrayList(
+                () -> SimpleMovingAverage.of(0),
+                () -> WeightedMovingAverage.of(0),
+                () -> StandardDeviation.of(-1),
+                () -> BollingerBands.of(0, 2),
+                () -> ExponentialMovingAverage.of(0),
+                () -> RelativeStrengthIndex.of(0),
+                () -> AverageTrueRange.of(0));
+        for (Runnable factory : factories) {
+            try {
+                factory.run();
+                fail();
+            } catch (IllegalArgumentException e) {
+                // 预期
+            }
+        }
+    }
+
+    /**
+     * 收盘价为REFERENCE_CLOSES，最高价 = 收盘 + 0.25 + (i % 3) * 0.1，最低价 = 收盘 - 0.2 - (i % 4) * 0.05
+     */
+    private static List<Candle> referenceCandles() {
+        List<Candle> candleList = Lists.newArrayList();
+        LocalDateTime time = LocalDateTime.of(2020, 3, 2, 9, 0);
+        for (int i = 0; i < REFERENCE_CLOSES.length; i++) {
+            BigDecimal close = BigDecimal.valueOf(REFERENCE_CLOSES[i]);
+            BigDecimal high = close.add(new BigDecimal("0.25")).add(BigDecimal.valueOf(i % 3, 1));
+            BigDecimal low = close.subtract(new BigDecimal("0.20")).subtract(BigDecimal.valueOf(i % 4 * 5, 2));
+            candleList.add(Candle.create(close, close, high, low, time.plusDays(i)));
+        }
+        return candleList;
+    }
+
+    private static void update(Candle[] candles, Indicator[] indicators) {
+        for (int i = 0; i < candles.length; i++) {
+            for (int j = 0; j < indicators.length; j++) {
+                indicators[j].update(candles[i]);
+            }
+        }
+    }
+
+    private static List<Candle> candles() throws Exception {
+        return Lists.newArrayList(SampleData.loader().load().getSeries().getDataList());
+    }
+
+    private static double weightedAverage(List<Candle> candleList, int end) {
+        BigDecimal numerator = BigDecimal.ZERO;
+        for (int i = 0; i < N; i++) {
+            numerator = numerator.add(candleList.get(end - N + 1 + i).getClose().multiply(BigDecimal.valueOf(i + 1)));
+        }
+        return numerator.divide(BigDecimal.valueOf(N * (N + 1) / 2), MathContext.DECIMAL64).doubleValue();
+    }
+
+    private static double standardDeviation(List<Candle> candleList, int end) {
+        List<Candle> window = candleList.subList(end - N + 1, end + 1);
+        BigDecimal sum = window.stream().map(Candle::getClose).reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal mean = sum.divide(BigDecimal.valueOf(N), MathContext.DECIMAL128);
+        BigDecimal m2 = BigDecimal.ZERO;
+        for (Candle candle : window) {
+            BigDecimal deviation = candle.getClose().subtract(mean);
+            m2 = m2.add(deviation.multiply(deviation));
+        }
+        return Math.sqrt(m2.divide(BigDecimal.valueOf(N), MathContext.DECIMAL128).doubleValue());
+    }
+}
@@ -0,0 +1,196 @@
+package cn.adonis.trader.framework.indicator;
+
+import cn.adonis.trader.framework.BackTestException;
+import cn.adonis.trader.framework.SampleData;
+import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.model.Series;
+import cn.adonis.trader.framework.model.TimeInterval;
+import cn.adonis.trader.framework.model.TimeSeries;
+import cn.adonis.trader.framework.util.SeriesUtil;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * 流式重采样：多个周期同时合成，正在形成与已完成的K线，容量淘汰，完成回调，flush之后的K线
+ */
+public class ResamplerTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2020, 3, 2, 9, 0);
+
+    @Test
+    public void buildsSeveralTimeframesInOnePass() {
+        List<Candle> candleList = minutes(120);
+        Resampler resampler = Resampler.create();
+        Resampler.Frame fiveMinutes = resampler.addFrame(TimeInterval.minutes(5));
+        Resampler.Frame fifteenMinutes = resampler.addFrame(TimeInterval.minutes(15));
+        Resampler.Frame hourly = resampler.addFrame(TimeInterval.hours(1));
+        candleList.forEach(resampler::update);
+        resampler.flush();
+
+        TimeSeries<Candle> base = TimeSeries.create(Series.create(candleList, "s"), TimeInterval.minutes(1));
+        for (Resampler.Frame frame : resampler.getFrames()) {
+            // 与一次性合并整个序列的结果一致
+            List<Candle> expected = SeriesUtil.changeInterval(base, frame.getTimeInterval(), SeriesUtil.MERGE_CANDLE_OHLC).getSeries().getDataList();
+            assertCandlesEqual(expected, frame.getCompleted());
+            assertNull(frame.getForming());
+        }
+        assertEquals(24, fiveMinutes.getCompleted().size());
+        assertEquals(8, fifteenMinutes.getCompleted().size());
+        assertEquals(2, hourly.getCompleted().size());
+
+        Candle firstHour = hourly.getCompleted().get(0);
+        assertEquals(START, firstHour.getTime());
+        assertEquals(candleList.get(0).getOpen(), firstHour.getOpen());
+        assertEquals(candleList.get(59).getClose(), firstHour.getClose());
+        assertEquals(new BigDecimal("60"), firstHour.getVolume());
+        assertEquals(60, firstHour.getTradeCount());
+    }
+
+    @Test
+    public void separatesFormingAndCompleted() {
+        List<Candle> candleList = minutes(7);
+        Resampler resampler = Resampler.create();
+        Resampler.Frame frame = resampler.addFrame(TimeInterval.minutes(5));
+
+        for (int i = 0; i < 3; i++) {
+            resampler.update(candleList.get(i));
+        }
+        assertEquals(0, frame.getCompleted().size());
+        assertNull(frame.getLastCompleted());
+        Candle forming = frame.getForming();
+        assertEquals(START, forming.getTime());
+        assertEquals(candleList.get(2).getClose(), forming.getClose());
+        assertSame(forming, frame.getForming());
+
+        // 跨入下一个周期时上一根完成，新的一根开始形成
+        for (int i = 3; i < 7; i++) {
+            resampler.update(candleList.get(i));
+        }
+        assertEquals(1, frame.getCompleted().size());
+        assertEquals(candleList.get(4).getClose(), frame.getLastCompleted().getClose());
+        assertEquals(START.plusMinutes(5), frame.getForming().getTime());
+        assertEquals(candleList.get(6).getClose(), frame.getForming().getClose());
+    }
+
+    @Test
+    public void evictsBeyondCapacity() {
+        Resampler resampler = Resampler.create();
+        Resampler.Frame frame = resampler.addFrame(TimeInterval.minutes(5), 3);
+        minutes(100).forEach(resampler::update);
+
+        // 19根已完成，只保留最近3根
+        List<Candle> completed = frame.getCompleted();
+        assertEquals(3, completed.size());
+        assertEquals(START.plusMinutes(80), completed.get(0).getTime());
+        assertEquals(START.plusMinutes(90), completed.get(2).getTime());
+        assertSame(completed.get(2), frame.getLastCompleted());
+        try {
+            completed.add(completed.get(0));
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // 预期
+        }
+    }
+
+    @Test
+    public void notifiesListenersOnCompletion() {
+        List<Candle> notified = Lists.newArrayList();
+        Resampler resampler = Resampler.create();
+        Resampler.Frame frame = resampler.addFrame(TimeInterval.minutes(5), 2).addListener(notified::add);
+        minutes(23).forEach(resampler::update);
+
+        // 容量不影响回调，每根完成时回调一次
+        assertEquals(4, notified.size());
+        for (int i = 0; i < notified.size(); i++) {
+            assertEquals(START.plusMinutes(5 * i), notified.get(i).getTime());
+        }
+        resampler.flush();
+        assertEquals(5, notified.size());
+        assertSame(frame.getLastCompleted(), notified.get(4));
+        // 没有正在形成的K线时flush不回调
+        resampler.flush();
+        assertEquals(5, notified.size());
+    }
+
+    @Test
+    public void rejectsCandlesOfFlushedPeriod() {
+        List<Candle> candleList = minutes(12);
+        Resampler resampler = Resampler.create();
+        Resampler.Frame frame = resampler.addFrame(TimeInterval.minutes(5));
+        for (int i = 0; i < 7; i++) {
+            resampler.update(candleList.get(i));
+        }
+        resampler.flush();
+        assertEquals(2, frame.getCompleted().size());
+
+        // 已完成周期内的K线不再生成重复的K线
+        try {
+            resampler.update(candleList.get(7));
+            fail();
+        } catch (BackTestException e) {
+            // 预期
+        }
+        try {
+            resampler.update(candleList.get(3));
+            fail();
+        } catch (BackTestException e) {
+            // 预期
+        }
+        assertEquals(2, frame.getCompleted().size());
+        assertNull(frame.getForming());
+
+        // 之后的周期可以继续
+        for (int i = 10; i < 12; i++) {
+            resampler.update(candleList.get(i));
+        }
+        assertEquals(START.plusMinutes(10), frame.getForming().getTime());
+    }
+
+    @Test
+    public void movingAverageSeriesIsOhlc() throws Exception {
+        TimeSeries<Candle> timeSeries = SampleData.loader().load();
+        MovingAverage movingAverage = MovingAverage.create(timeSeries, MovingAverage.Type.of(20, TimeInterval.ONE_DAY));
+        TimeSeries<Candle> daily = movingAverage.getSeries();
+
+        assertEquals(TimeInterval.ONE_DAY.toSeconds(), daily.getTimeInterval().toSeconds());
+        assertCandlesEqual(SeriesUtil.changeInterval(timeSeries, TimeInterval.ONE_DAY, SeriesUtil.MERGE_CANDLE_OHLC).getSeries().getDataList(),
+                daily.getSeries().getDataList());
+    }
+
+    /**
+     * 每分钟一根，价格起伏，成交量为1
+     */
+    private static List<Candle> minutes(int count) {
+        List<Candle> candleList = Lists.newArrayList();
+        for (int i = 0; i < count; i++) {
+            BigDecimal open = BigDecimal.valueOf(100 + (i * 7) % 11);
+            BigDecimal close = BigDecimal.valueOf(100 + (i * 5) % 13);
+            BigDecimal high = open.max(close).add(BigDecimal.valueOf(i % 3));
+            BigDecimal low = open.min(close).subtract(BigDecimal.valueOf(i % 4));
+            candleList.add(Candle.create(open, close, high, low, START.plusMinutes(i), BigDecimal.ONE, 1));
+        }
+        return candleList;
+    }
+
+    private static void assertCandlesEqual(List<Candle> expected, List<Candle> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getTime(), actual.get(i).getTime());
+            assertEquals(expected.get(i).getOpen(), actual.get(i).getOpen());
+            assertEquals(expected.get(i).getHigh(), actual.get(i).getHigh());
+            assertEquals(expected.get(i).getLow(), actual.get(i).getLow());
+            assertEquals(expected.get(i).getClose(), actual.get(i).getClose());
+            assertEquals(0, expected.get(i).getVolume().compareTo(actual.get(i).getVolume()));
+            assertEquals(expected.get(i).getTradeCount(), actual.get(i).getTradeCount());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package cn.adonis.trader.framework.loader;
+
+import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.model.Series;
+import cn.adonis.trader.framework.model.TimeInterval;
+import cn.adonis.trader.framework.model.TimeSeries;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 从二进制文件读出的K线与写入时的K线各字段相等，包括小数位数
+ */
+public class BinaryCandleLoaderTest {
+
+    private Path file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = Files.createTempFile("binary-candle-test", ".bin");
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void keepsEveryField() throws Exception {
+        LocalDateTime time = LocalDateTime.of(2020, 1, 2, 9, 0);
+        List<Candle> candles = Lists.newArrayList(
+                Candle.create(new BigDecimal("100.5"), new BigDecimal("100.25"), new BigDecimal("101"), new BigDecimal("99.125"),
+                        time, new BigDecimal("12.5"), 7),
+                Candle.create(new BigDecimal("100.250"), new BigDecimal("100.000"), new BigDecimal("100.500"), new BigDecimal("99.000"),
+                        time.plusMinutes(5), new BigDecimal("300"), 42),
+                Candle.create(new BigDecimal("1E+2"), new BigDecimal("100"), new BigDecimal("100"), new BigDecimal("100"),
+                        time.plusMinutes(10), null, 0));
+        assertRoundTrip(candles);
+    }
+
+    @Test
+    public void keepsCSVCandles() throws Exception {
+        LocalDateTime time = LocalDateTime.of(2020, 1, 2, 9, 0);
+        List<Candle> candles = Lists.newArrayList();
+        for (int i = 0; i < 3000; i++) {
+            BigDecimal price = BigDecimal.valueOf(100000 + i * 7, 3);
+            candles.add(Candle.create(price, price, price, price, time.plusMinutes(5L * i)));
+        }
+        assertRoundTrip(candles);
+    }
+
+    private void assertRoundTrip(List<Candle> candles) throws Exception {
+        TimeSeries<Candle> source = TimeSeries.create(Series.create(candles, "test"), TimeInterval.minutes(5));
+        BinaryCandleLoader loader = BinaryCandleLoader.convert(() -> source, file.toString());
+        TimeSeries<Candle> loaded = loader.load();
+        assertEquals(TimeInterval.minutes(5).toMilliseconds(), loaded.getTimeInterval().toMilliseconds());
+        assertEquals("test", loaded.getSeries().getName());
+        List<Candle> actual = loaded.getSeries().getDataList();
+        assertEquals(candles.size(), actual.size());
+        for (int i = 0; i < candles.size(); i++) {
+            Candle e = candles.get(i);
+            Candle a = actual.get(i);
+            assertEquals(e.getTime(), a.getTime());
+            assertEquals(e.getOpen(), a.getOpen());
+            assertEquals(e.getClose(), a.getClose());
+            assertEquals(e.getHigh(), a.getHigh());
+            assertEquals(e.getLow(), a.getLow());
+            assertEquals(e.getVolume(), a.getVolume());
+            assertEquals(e.getTradeCount(), a.getTradeCount());
+        }
+    }
+}
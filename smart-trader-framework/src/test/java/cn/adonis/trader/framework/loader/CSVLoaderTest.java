@@ -0,0 +1,114 @@
+package cn.adonis.trader.framework.loader;
+
+import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.model.TimeSeries;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 内存映射并行读取与逐行读取的结果一致
+ */
+public class CSVLoaderTest {
+
+    private static Path file;
+
+    @BeforeClass
+    public static void writeFile() throws IOException {
+        file = Files.createTempFile("csv-loader-test", ".csv");
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+        LocalDateTime time = LocalDateTime.of(2020, 1, 2, 9, 0);
+        Random random = new Random(1);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < 20000; i++) {
+                String row = "T," + i + "," + time.plusMinutes(5L * i).format(formatter) + ","
+                        + price(random) + "," + price(random) + "," + price(random) + "," + price(random) + ",100";
+                switch (i % 97) {
+                    case 3:
+                        // 字段不足的行
+                        writer.write("T," + i + "," + time.plusMinutes(5L * i).format(formatter) + ",100.000,100.000,100.000");
+                        break;
+                    case 5:
+                        writer.write("  " + row + " \r");
+                        break;
+                    case 7:
+                        writer.write(row.replace(",", ",,"));
+                        break;
+                    case 11:
+                        writer.write("");
+                        break;
+                    default:
+                        writer.write(row);
+                }
+                writer.write('\n');
+            }
+        }
+    }
+
+    @AfterClass
+    public static void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private static String price(Random random) {
+        return String.format(Locale.ROOT, "%.3f", 90 + random.nextInt(20000) / 1000.0);
+    }
+
+    private static CSVLoader loader() {
+        return CSVLoader.newCSVLoader(file.toString())
+                .addColumnSchema(Candle.Schema.OPEN_PRICE, CSVLoader.Column.ofBigDecimal(3))
+                .addColumnSchema(Candle.Schema.CLOSE_PRICE, CSVLoader.Column.ofBigDecimal(6))
+                .addColumnSchema(Candle.Schema.HIGH_PRICE, CSVLoader.Column.ofBigDecimal(4))
+                .addColumnSchema(Candle.Schema.LOW_PRICE, CSVLoader.Column.ofBigDecimal(5))
+                .addColumnSchema(Candle.Schema.TIME, CSVLoader.Column.ofTime(2, "yyyy-MM-dd HH:mm"));
+    }
+
+    @Test
+    public void parallelMatchesLines() throws IOException {
+        TimeSeries<Candle> lines = loader().load();
+        TimeSeries<Candle> mapped = loader().parallel(4).load();
+        // 空行和字段不足的行被跳过
+        assertTrue(lines.getSeries().size() < 20000);
+        assertSame(lines, mapped);
+    }
+
+    @Test
+    public void parallelMatchesLinesInRange() throws IOException {
+        LocalDateTime start = LocalDateTime.of(2020, 1, 10, 13, 0);
+        LocalDateTime end = LocalDateTime.of(2020, 2, 1, 0, 0);
+        TimeSeries<Candle> lines = loader().load(start, end);
+        TimeSeries<Candle> mapped = loader().parallel(3).load(start, end);
+        assertSame(lines, mapped);
+        assertEquals(start, lines.getSeries().getDataList().get(0).getTime());
+    }
+
+    private static void assertSame(TimeSeries<Candle> expected, TimeSeries<Candle> actual) {
+        List<Candle> expectedList = expected.getSeries().getDataList();
+        List<Candle> actualList = actual.getSeries().getDataList();
+        assertEquals(expectedList.size(), actualList.size());
+        for (int i = 0; i < expectedList.size(); i++) {
+            Candle e = expectedList.get(i);
+            Candle a = actualList.get(i);
+            assertEquals(e.getTime(), a.getTime());
+            assertEquals(e.getOpen(), a.getOpen());
+            assertEquals(e.getClose(), a.getClose());
+            assertEquals(e.getHigh(), a.getHigh());
+            assertEquals(e.getLow(), a.getLow());
+        }
+        assertEquals(expected.getTimeInterval(), actual.getTimeInterval());
+    }
+}
@@ -0,0 +1,144 @@
+package cn.adonis.trader.framework.loader;
+
+import cn.adonis.trader.framework.BackTest;
+import cn.adonis.trader.framework.SampleData;
+import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.model.TimeInterval;
+import cn.adonis.trader.framework.model.TimeSeries;
+import cn.adonis.trader.framework.model.TradingContext;
+import cn.adonis.trader.framework.strategy.TradingStrategy;
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 夜盘存放在下一交易日的文件中：分区范围按sessionOffsetDays放宽，边界上的K线不丢失，范围外的分区不打开
+ */
+public class PartitionedSeriesLoaderTest {
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<String> opened = Lists.newArrayList();
+
+    @Before
+    public void writePartitions() throws IOException {
+        for (LocalDate date = LocalDate.of(2020, 3, 2); !date.isAfter(LocalDate.of(2020, 3, 6)); date = date.plusDays(1)) {
+            writePartition(date);
+        }
+    }
+
+    @Test
+    public void keepsNightSessionAtBoundaries() throws Exception {
+        TimeSeries<Candle> series = loader().load(time("2020-03-03 09:00"), time("2020-03-04 21:30"));
+
+        // 03-04 21:00 的夜盘在 20200305 的文件中
+        assertEquals(Lists.newArrayList(time("2020-03-03 09:00"), time("2020-03-03 10:00"),
+                time("2020-03-03 21:00"), time("2020-03-03 22:00"),
+                time("2020-03-04 09:00"), time("2020-03-04 10:00"), time("2020-03-04 21:00")), timesOf(series));
+        // 只打开前后各放宽1天的分区
+        assertEquals(Lists.newArrayList("20200302.csv", "20200303.csv", "20200304.csv", "20200305.csv"), opened);
+        assertEquals(TimeInterval.hours(1).toSeconds(), series.getTimeInterval().toSeconds());
+    }
+
+    @Test
+    public void widensBySessionOffset() throws Exception {
+        loader().setSessionOffsetDays(2).load(time("2020-03-05 09:00"), time("2020-03-05 10:00"));
+        assertEquals(Lists.newArrayList("20200303.csv", "20200304.csv", "20200305.csv", "20200306.csv"), opened);
+    }
+
+    @Test
+    public void cachesPartitionIndexUntilRefresh() throws Exception {
+        PartitionedSeriesLoader loader = loader();
+        assertEquals(20, loader.load().getSeries().size());
+
+        writePartition(LocalDate.of(2020, 3, 9));
+        assertEquals(20, loader.load().getSeries().size());
+        loader.refresh();
+        assertEquals(24, loader.load().getSeries().size());
+    }
+
+    @Test
+    public void loadsWarmUpAcrossPartitions() throws Exception {
+        List<LocalDateTime> preFit = Lists.newArrayList();
+        List<LocalDateTime> fit = Lists.newArrayList();
+        BackTest.builder()
+                .setSeriesLoader(loader())
+                .setParameter(SampleData.parameter()
+                        .setStartTime(time("2020-03-05 00:00"))
+                        .setWarmUpInterval(TimeInterval.days(1))
+                        .setEndTime(time("2020-03-05 12:00"))
+                        .build())
+                .setTradingStrategy(new TradingStrategy() {
+                    @Override
+                    public void preFit(Candle candle, TradingContext tradingContext) {
+                        preFit.add(candle.getTime());
+                    }
+
+                    @Override
+                    public void fit(Candle candle, TradingContext tradingContext) {
+                        fit.add(candle.getTime());
+                    }
+                })
+                .build()
+                .run();
+
+        // 预热从 03-04 00:00 开始，03-04 的夜盘在 20200305 的文件中
+        assertEquals(Lists.newArrayList(time("2020-03-04 09:00"), time("2020-03-04 10:00"),
+                time("2020-03-04 21:00"), time("2020-03-04 22:00")), preFit);
+        assertEquals(Lists.newArrayList(time("2020-03-05 09:00"), time("2020-03-05 10:00")), fit);
+    }
+
+    private PartitionedSeriesLoader loader() {
+        return PartitionedSeriesLoader.newPartitionedSeriesLoader(folder.getRoot().toString(), "yyyy/yyyyMMdd'.csv'", path -> {
+            opened.add(path.substring(path.length() - "yyyyMMdd.csv".length()));
+            return CSVLoader.newCSVLoader(path)
+                    .addColumnSchema(Candle.Schema.OPEN_PRICE, CSVLoader.Column.ofBigDecimal(2))
+                    .addColumnSchema(Candle.Schema.CLOSE_PRICE, CSVLoader.Column.ofBigDecimal(2))
+                    .addColumnSchema(Candle.Schema.HIGH_PRICE, CSVLoader.Column.ofBigDecimal(2))
+                    .addColumnSchema(Candle.Schema.LOW_PRICE, CSVLoader.Column.ofBigDecimal(2))
+                    .addColumnSchema(Candle.Schema.TIME, CSVLoader.Column.ofTime(1, "yyyy-MM-dd HH:mm"));
+        });
+    }
+
+    /**
+     * 一个交易日的文件：前一天 21:00、22:00 的夜盘和当天 09:00、10:00 的日盘
+     */
+    private void writePartition(LocalDate date) throws IOException {
+        Path directory = folder.getRoot().toPath().resolve(String.valueOf(date.getYear()));
+        Files.createDirectories(directory);
+        Path file = directory.resolve(date.format(DateTimeFormatter.BASIC_ISO_DATE) + ".csv");
+        LocalDateTime night = date.minusDays(1).atTime(21, 0);
+        LocalDateTime day = date.atTime(9, 0);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (LocalDateTime time : Lists.newArrayList(night, night.plusHours(1), day, day.plusHours(1))) {
+                writer.write("T," + time.format(TIME_FORMATTER) + ",100.000\n");
+            }
+        }
+    }
+
+    private static List<LocalDateTime> timesOf(TimeSeries<Candle> series) {
+        return series.getSeries().getDataList().stream().map(Candle::getTime).collect(Collectors.toList());
+    }
+
+    private static LocalDateTime time(String text) {
+        return LocalDateTime.parse(text, TIME_FORMATTER);
+    }
+}
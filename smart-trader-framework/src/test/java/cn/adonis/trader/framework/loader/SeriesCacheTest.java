@@ -0,0 +1,70 @@
+package cn.adonis.trader.framework.loader;
+
+import cn.adonis.trader.framework.BackTestException;
+import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.model.Series;
+import cn.adonis.trader.framework.model.TimeSeries;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * 加载时的异常不被缓存包装
+ */
+public class SeriesCacheTest {
+
+    @Test
+    public void rethrowsRuntimeException() throws Exception {
+        BackTestException thrown = new BackTestException("broken");
+        try {
+            SeriesCache.create(100).get("key", () -> {
+                throw thrown;
+            });
+            fail();
+        } catch (BackTestException e) {
+            assertSame(thrown, e);
+        }
+    }
+
+    @Test
+    public void rethrowsCheckedException() throws Exception {
+        IOException thrown = new IOException("missing");
+        try {
+            SeriesCache.create(100).get("key", () -> {
+                throw thrown;
+            });
+            fail();
+        } catch (IOException e) {
+            assertSame(thrown, e);
+        }
+    }
+
+    @Test
+    public void rethrowsError() throws Exception {
+        AssertionError thrown = new AssertionError("error");
+        try {
+            SeriesCache.create(100).get("key", () -> {
+                throw thrown;
+            });
+            fail();
+        } catch (AssertionError e) {
+            assertSame(thrown, e);
+        }
+    }
+
+    @Test
+    public void loadsOnce() throws Exception {
+        SeriesCache cache = SeriesCache.create(100);
+        TimeSeries<Candle> first = cache.get("key", () -> TimeSeries.create(Series.create(Collections.<Candle>emptyList(), "empty"), null));
+        TimeSeries<Candle> second = cache.get("key", () -> {
+            throw new IllegalStateException("should be cached");
+        });
+        assertSame(first, second);
+        assertEquals(1, cache.stats().hitCount());
+    }
+}
@@ -0,0 +1,120 @@
+package cn.adonis.trader.framework.loader;
+
+import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.model.TimeInterval;
+import cn.adonis.trader.framework.model.TimeSeries;
+import com.google.common.collect.Lists;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 逐笔成交聚合成K线：周期边界、OHLC、成交量、成交笔数、无成交的周期和时间范围过滤
+ */
+public class TickCSVLoaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void aggregatesTicksIntoBars() throws Exception {
+        Path file = write(
+                "2020-03-02 09:00:00,100.0,2",
+                "2020-03-02 09:00:20,101.5,1",
+                "2020-03-02 09:00:40,99.5,3",
+                // 恰好在周期边界上的成交属于下一根K线
+                "2020-03-02 09:01:00,100.5,0.5",
+                " 2020-03-02 09:01:59,,100.0,,1 \r",
+                "",
+                // 09:02 没有成交，不生成K线
+                "2020-03-02 09:03:10,102.0,4");
+
+        List<Candle> candles = loader(file).load().getSeries().getDataList();
+
+        assertEquals(3, candles.size());
+        assertCandle(candles.get(0), "2020-03-02T09:00", "100.0", "101.5", "99.5", "99.5", "6", 3);
+        assertCandle(candles.get(1), "2020-03-02T09:01", "100.5", "100.5", "100.0", "100.0", "1.5", 2);
+        assertCandle(candles.get(2), "2020-03-02T09:03", "102.0", "102.0", "102.0", "102.0", "4", 1);
+    }
+
+    @Test
+    public void filtersByTimeAndStopsAfterEnd() throws Exception {
+        Path file = write(
+                "2020-03-02 09:00:10,100.0,1",
+                "2020-03-02 09:00:50,100.2,1",
+                "2020-03-02 09:01:10,100.4,1",
+                "2020-03-02 09:01:30,100.6,1",
+                "2020-03-02 09:02:10,100.8,1",
+                // 晚于endTime之后不再读取，无法解析的行不会报错
+                "not a time,100.0,1");
+
+        TimeSeries<Candle> series = loader(file).load(LocalDateTime.of(2020, 3, 2, 9, 0, 30), LocalDateTime.of(2020, 3, 2, 9, 1, 20));
+        List<Candle> candles = series.getSeries().getDataList();
+
+        assertEquals(2, candles.size());
+        assertCandle(candles.get(0), "2020-03-02T09:00", "100.2", "100.2", "100.2", "100.2", "1", 1);
+        assertCandle(candles.get(1), "2020-03-02T09:01", "100.4", "100.4", "100.4", "100.4", "1", 1);
+        assertEquals(60, series.getTimeInterval().toSeconds());
+    }
+
+    @Test
+    public void streamsSameBarsAsLoad() throws Exception {
+        List<String> lines = Lists.newArrayList();
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        LocalDateTime time = LocalDateTime.of(2020, 3, 2, 9, 0);
+        for (int i = 0; i < 1000; i++) {
+            lines.add(time.plusSeconds(7L * i).format(formatter) + "," + (100 + i % 13) + "." + (i % 10) + "," + (i % 5 + 1));
+        }
+        Path file = write(lines.toArray(new String[0]));
+
+        List<Candle> loaded = loader(file).load().getSeries().getDataList();
+        List<Candle> streamed = Lists.newArrayList();
+        try (CandleCursor cursor = loader(file).open()) {
+            cursor.forEachRemaining(streamed::add);
+        }
+        assertEquals(loaded.size(), streamed.size());
+        for (int i = 0; i < loaded.size(); i++) {
+            assertEquals(loaded.get(i).getTime(), streamed.get(i).getTime());
+            assertEquals(loaded.get(i).getClose(), streamed.get(i).getClose());
+            assertEquals(loaded.get(i).getVolume(), streamed.get(i).getVolume());
+            assertEquals(loaded.get(i).getTradeCount(), streamed.get(i).getTradeCount());
+        }
+        // 1000笔成交全部计入
+        assertEquals(1000, loaded.stream().mapToLong(Candle::getTradeCount).sum());
+    }
+
+    private static TickCSVLoader loader(Path file) {
+        return TickCSVLoader.newTickCSVLoader(file.toString(), TimeInterval.minutes(1))
+                .addColumnSchema(TickCSVLoader.Schema.TIME, CSVLoader.Column.ofTime(0))
+                .addColumnSchema(TickCSVLoader.Schema.PRICE, CSVLoader.Column.ofBigDecimal(1))
+                .addColumnSchema(TickCSVLoader.Schema.SIZE, CSVLoader.Column.ofBigDecimal(2));
+    }
+
+    private Path write(String... lines) throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, Lists.newArrayList(lines), StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static void assertCandle(Candle candle, String time, String open, String high, String low, String close,
+                                     String volume, long tradeCount) {
+        assertEquals(LocalDateTime.parse(time), candle.getTime());
+        assertEquals(new BigDecimal(open), candle.getOpen());
+        assertEquals(new BigDecimal(high), candle.getHigh());
+        assertEquals(new BigDecimal(low), candle.getLow());
+        assertEquals(new BigDecimal(close), candle.getClose());
+        assertEquals(new BigDecimal(volume), candle.getVolume());
+        assertEquals(tradeCount, candle.getTradeCount());
+    }
+}
@@ -0,0 +1,220 @@
+package cn.adonis.trader.framework.model;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 挂单撮合：跳空按开盘价成交，K线内按价格路径成交，STOP_LIMIT触发后挂单，撤单，同一段内的成交顺序，回调中提交的挂单
+ */
+public class OrderBookTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2020, 3, 2, 9, 0);
+
+    private final OrderBook orderBook = new OrderBook();
+    private final List<String> fills = Lists.newArrayList();
+
+    @Test
+    public void gapFillsAtOpen() {
+        Order buyLimit = submit(Order.limit(buy(), price("100")));
+        Order sellStop = submit(Order.stop(sell(), price("99")));
+        Order buyStop = submit(Order.stop(buy(), price("95")));
+        Order sellLimit = submit(Order.limit(sell(), price("110")));
+
+        // 开盘98，低于买入限价和卖出止损价，高于买入止损价
+        match(candle("98", "101", "97", "99"), IntraBarPath.OPEN_HIGH_LOW_CLOSE);
+
+        assertEquals(Lists.newArrayList(fill(buyLimit, "98"), fill(sellStop, "98"), fill(buyStop, "98")), fills);
+        assertEquals(price("98"), buyLimit.getFillPrice());
+        assertEquals(TIME, buyLimit.getFillTime());
+        assertEquals(Order.Status.FILLED, buyLimit.getStatus());
+        assertTrue(sellLimit.isOpen());
+        assertEquals(1, orderBook.size());
+    }
+
+    @Test
+    public void fillsAlongOpenHighLowClose() {
+        Order sellLimit = submit(Order.limit(sell(), price("104")));
+        Order buyLimit = submit(Order.limit(buy(), price("96")));
+        Order buyStop = submit(Order.stop(buy(), price("103")));
+        Order sellStop = submit(Order.stop(sell(), price("97")));
+
+        match(candle("100", "105", "95", "101"), IntraBarPath.OPEN_HIGH_LOW_CLOSE);
+
+        // 先上涨到105，再下跌到95，限价单和止损单都按自己的价格成交
+        assertEquals(Lists.newArrayList(fill(buyStop, "103"), fill(sellLimit, "104"), fill(sellStop, "97"), fill(buyLimit, "96")), fills);
+        assertTrue(orderBook.isEmpty());
+    }
+
+    @Test
+    public void fillsAlongOpenLowHighClose() {
+        Order sellLimit = submit(Order.limit(sell(), price("104")));
+        Order buyLimit = submit(Order.limit(buy(), price("96")));
+        Order buyStop = submit(Order.stop(buy(), price("103")));
+        Order sellStop = submit(Order.stop(sell(), price("97")));
+
+        match(candle("100", "105", "95", "101"), IntraBarPath.OPEN_LOW_HIGH_CLOSE);
+
+        assertEquals(Lists.newArrayList(fill(sellStop, "97"), fill(buyLimit, "96"), fill(buyStop, "103"), fill(sellLimit, "104")), fills);
+    }
+
+    @Test
+    public void stopLimitRestsAfterTrigger() {
+        // 上涨到103时触发，103高于限价102不能成交，作为限价单挂单，回落到102时成交
+        Order filled = submit(Order.stopLimit(buy(), price("103"), price("102")));
+        // 触发后回落没有到达限价101，继续挂单
+        Order resting = submit(Order.stopLimit(buy(), price("103"), price("101")));
+        // 触发价满足限价，立即按触发价成交
+        Order marketable = submit(Order.stopLimit(buy(), price("103"), price("104")));
+
+        match(candle("100", "105", "101.5", "104"), IntraBarPath.OPEN_HIGH_LOW_CLOSE);
+
+        assertEquals(Lists.newArrayList(fill(marketable, "103"), fill(filled, "102")), fills);
+        assertTrue(resting.isOpen());
+        assertTrue(resting.isTriggered());
+        assertTrue(resting.isLimit());
+
+        // 已触发的挂单按限价撮合，下一根K线开盘低于限价时按开盘价成交
+        fills.clear();
+        match(candle("100.5", "102", "100", "101"), IntraBarPath.OPEN_HIGH_LOW_CLOSE);
+        assertEquals(Lists.newArrayList(fill(resting, "100.5")), fills);
+    }
+
+    @Test
+    public void cancelsOrders() {
+        Order first = submit(Order.limit(sell(), price("104")));
+        Order second = submit(Order.limit(sell(), price("104")));
+        Order third = submit(Order.stop(sell(), price("96")));
+
+        assertTrue(orderBook.cancel(first.getId()));
+        assertFalse(orderBook.cancel(first.getId()));
+        assertEquals(Order.Status.CANCELED, first.getStatus());
+        assertEquals(2, orderBook.size());
+
+        match(candle("100", "105", "99", "101"), IntraBarPath.OPEN_HIGH_LOW_CLOSE);
+        assertEquals(Lists.newArrayList(fill(second, "104")), fills);
+        // 已成交的挂单不能撤销
+        assertFalse(orderBook.cancel(second.getId()));
+
+        orderBook.cancelAll();
+        assertTrue(orderBook.isEmpty());
+        assertEquals(Order.Status.CANCELED, third.getStatus());
+        fills.clear();
+        match(candle("100", "105", "90", "95"), IntraBarPath.OPEN_HIGH_LOW_CLOSE);
+        assertTrue(fills.isEmpty());
+    }
+
+    @Test
+    public void fillsSegmentByPriceThenSubmission() {
+        Order high = submit(Order.limit(sell(), price("103")));
+        Order low = submit(Order.limit(sell(), price("102")));
+        Order highLater = submit(Order.limit(sell(), price("103")));
+        Order stop = submit(Order.stop(buy(), price("102")));
+        Order buyHigh = submit(Order.limit(buy(), price("99")));
+        Order buyLow = submit(Order.limit(buy(), price("98")));
+
+        match(candle("100", "104", "97", "100"), IntraBarPath.OPEN_HIGH_LOW_CLOSE);
+
+        // 上涨段按价格从低到高，同一价格按提交顺序；下跌段按价格从高到低
+        assertEquals(Lists.newArrayList(fill(low, "102"), fill(stop, "102"), fill(high, "103"), fill(highLater, "103"),
+                fill(buyHigh, "99"), fill(buyLow, "98")), fills);
+    }
+
+    @Test
+    public void rejectedOrdersAreClosed() {
+        Order order = submit(Order.limit(sell(), price("104")));
+        orderBook.match(candle("100", "105", "99", "101"), IntraBarPath.OPEN_HIGH_LOW_CLOSE, (o, p) -> false);
+        assertEquals(Order.Status.REJECTED, order.getStatus());
+        assertNull(order.getFillPrice());
+        assertTrue(orderBook.isEmpty());
+    }
+
+    @Test
+    public void ordersSubmittedFromCallbackContinueOnPath() {
+        Order entry = submit(Order.limit(sell(), price("102")));
+        List<Order> submitted = Lists.newArrayList();
+        orderBook.match(candle("100", "105", "95", "101"), IntraBarPath.OPEN_HIGH_LOW_CLOSE, (order, price) -> {
+            fills.add(fill(order, price.toPlainString()));
+            if (order == entry) {
+                // 102时已可成交的限价单立即按102成交，不等到下一根K线
+                submitted.add(submit(Order.limit(buy(), price("106"))));
+                // 当前段剩余部分(102, 105]内的挂单在本段成交
+                submitted.add(submit(Order.limit(sell(), price("104"))));
+                // 下跌段才到达的挂单
+                submitted.add(submit(Order.stop(sell(), price("98"))));
+                // 当前K线不会到达的挂单
+                submitted.add(submit(Order.limit(sell(), price("110"))));
+            }
+            return true;
+        });
+
+        assertEquals(Lists.newArrayList(fill(entry, "102"), fill(submitted.get(0), "102"), fill(submitted.get(1), "104"),
+                fill(submitted.get(2), "98")), fills);
+        assertTrue(submitted.get(3).isOpen());
+        assertEquals(1, orderBook.size());
+    }
+
+    @Test
+    public void callbackCanCancelSiblingOrder() {
+        // 建仓后同时挂止盈和止损单，一个成交后撤销另一个
+        Order entry = submit(Order.limit(buy(), price("96")));
+        List<Order> exits = Lists.newArrayList();
+        orderBook.match(candle("100", "105", "95", "101"), IntraBarPath.OPEN_LOW_HIGH_CLOSE, (order, price) -> {
+            fills.add(fill(order, price.toPlainString()));
+            if (order == entry) {
+                exits.add(submit(Order.limit(sell(), price("104"))));
+                exits.add(submit(Order.stop(sell(), price("95.5"))));
+            } else {
+                for (Order exit : exits) {
+                    orderBook.cancel(exit.getId());
+                }
+            }
+            return true;
+        });
+
+        // 止损单在96到95的剩余下跌段中成交，止盈单被撤销
+        assertEquals(Lists.newArrayList(fill(entry, "96"), fill(exits.get(1), "95.5")), fills);
+        assertEquals(Order.Status.CANCELED, exits.get(0).getStatus());
+        assertTrue(orderBook.isEmpty());
+    }
+
+    private Order submit(Order order) {
+        orderBook.submit(order);
+        return order;
+    }
+
+    private void match(Candle candle, IntraBarPath path) {
+        orderBook.match(candle, path, (order, price) -> {
+            fills.add(fill(order, price.toPlainString()));
+            return true;
+        });
+    }
+
+    private static String fill(Order order, String price) {
+        return order.getId() + "@" + price;
+    }
+
+    private static Candle candle(String open, String high, String low, String close) {
+        return Candle.create(price(open), price(close), price(high), price(low), TIME);
+    }
+
+    private static BigDecimal price(String price) {
+        return new BigDecimal(price);
+    }
+
+    private static Decision buy() {
+        return Decision.buy(BigDecimal.ONE, Decision.Reason.ENTRY);
+    }
+
+    private static Decision sell() {
+        return Decision.sell(BigDecimal.ONE, Decision.Reason.ENTRY);
+    }
+}
@@ -0,0 +1,88 @@
+package cn.adonis.trader.framework.model;
+
+import cn.adonis.trader.framework.BackTest;
+import cn.adonis.trader.framework.BackTestException;
+import cn.adonis.trader.framework.SampleData;
+import cn.adonis.trader.framework.indicator.DonchianChannel;
+import cn.adonis.trader.framework.indicator.Indicator;
+import cn.adonis.trader.framework.indicator.SimpleMovingAverage;
+import cn.adonis.trader.framework.strategy.PrecomputeStrategy;
+import cn.adonis.trader.framework.strategy.TradingStrategy;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 分块并行计算的列与整列顺序计算一致，累加和只有舍入上的差别；回测中只能读取不晚于当前K线的值
+ */
+public class PrecomputedColumnsTest {
+
+    @Test
+    public void chunksMatchSequential() throws Exception {
+        TimeSeries<Candle> series = SampleData.loader().load();
+        PrecomputedColumns chunked = PrecomputedColumns.builder()
+                .add("sma", Indicator.column(() -> SimpleMovingAverage.of(20)), 19)
+                .add("donchian", Indicator.column(() -> DonchianChannel.of(20)), 19)
+                .setChunkSize(100)
+                .setParallelism(4)
+                .build(series);
+        PrecomputedColumns sequential = PrecomputedColumns.builder()
+                .add("sma", Indicator.column(() -> SimpleMovingAverage.of(20)))
+                .add("donchian", Indicator.column(() -> DonchianChannel.of(20)))
+                .build(series);
+        for (int i = 19; i < series.getSeries().size(); i++) {
+            assertEquals(sequential.get("sma", i), chunked.get("sma", i), 1e-9);
+            // 极值不涉及累加，逐位相等
+            assertEquals(sequential.get("donchian", i), chunked.get("donchian", i), 0);
+        }
+    }
+
+    @Test
+    public void rejectsFutureReads() throws Exception {
+        TimeSeries<Candle> series = SampleData.loader().load();
+        PrecomputedColumns expected = PrecomputedColumns.builder()
+                .add("sma", Indicator.column(() -> SimpleMovingAverage.of(20)))
+                .build(series);
+        AtomicInteger bars = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        class LookAheadStrategy implements TradingStrategy, PrecomputeStrategy {
+            @Override
+            public void precompute(PrecomputedColumns.Builder builder) {
+                builder.add("sma", Indicator.column(() -> SimpleMovingAverage.of(20)));
+            }
+
+            @Override
+            public void preFit(Candle candle, TradingContext tradingContext) {
+            }
+
+            @Override
+            public void fit(Candle candle, TradingContext tradingContext) {
+                int index = tradingContext.getBarIndex();
+                bars.incrementAndGet();
+                assertEquals(expected.get("sma", index), tradingContext.getPrecomputed("sma"), 0);
+                if (index > 0) {
+                    assertEquals(expected.get("sma", index - 1), tradingContext.getPrecomputed("sma", index - 1), 0);
+                }
+                try {
+                    tradingContext.getPrecomputed("sma", index + 1);
+                    fail();
+                } catch (BackTestException e) {
+                    rejected.incrementAndGet();
+                }
+            }
+        }
+        BackTest.builder()
+                .setSeriesLoader(SampleData.loader())
+                .setParameter(SampleData.parameter().build())
+                .setTradingStrategy(new LookAheadStrategy())
+                .build()
+                .run();
+
+        assertTrue(bars.get() > 0);
+        assertEquals(bars.get(), rejected.get());
+    }
+}
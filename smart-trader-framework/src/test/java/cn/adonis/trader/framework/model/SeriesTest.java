@@ -0,0 +1,135 @@
+package cn.adonis.trader.framework.model;
+
+import cn.adonis.trader.framework.BackTestException;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * 截取出的Series是共享底层数据的视图，create复制传入的数据
+ */
+public class SeriesTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2020, 3, 2, 9, 0);
+
+    @Test
+    public void sliceOfSliceSharesStorage() {
+        Series<TimeDataPoint> series = Series.create(points(10), "s");
+        Series<TimeDataPoint> slice = series.slice(2, 8);
+        Series<TimeDataPoint> inner = slice.slice(1, 4);
+
+        assertEquals(3, inner.size());
+        assertSame(series.getDataList().get(3), inner.getDataList().get(0));
+        assertSame(series.getDataList().get(5), inner.getDataList().get(2));
+        // 嵌套截取仍直接引用最初的数据，下标相对于底层数据
+        assertSame(series.getStorage(), inner.getStorage());
+        assertEquals(3, inner.getStorageOffset());
+        assertEquals(4, inner.slice(1, 2).getStorageOffset());
+
+        // find和subSeries同样返回视图
+        Series<TimeDataPoint> found = slice.find(point(3), point(5));
+        assertEquals(3, found.size());
+        assertEquals(3, found.getStorageOffset());
+        Series<TimeDataPoint> before = slice.subSeries(point(6), 2);
+        assertEquals(2, before.size());
+        assertEquals(4, before.getStorageOffset());
+    }
+
+    @Test
+    public void viewBoundsAreRelativeToTheView() {
+        Series<TimeDataPoint> slice = Series.create(points(10), "s").slice(2, 8);
+
+        assertOutOfBounds(() -> slice.slice(-1, 2));
+        assertOutOfBounds(() -> slice.slice(0, 7));
+        assertOutOfBounds(() -> slice.slice(4, 3));
+        assertOutOfBounds(() -> slice.getDataList().get(6));
+        assertOutOfBounds(() -> slice.getDataList().get(-1));
+        assertOutOfBounds(() -> slice.slice(1, 4).getDataList().get(3));
+        // 空区间合法
+        assertEquals(0, slice.slice(6, 6).size());
+        // 视图只读
+        try {
+            slice.getDataList().set(0, point(0));
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // 预期
+        }
+    }
+
+    @Test
+    public void viewSeesBackingData() {
+        List<TimeDataPoint> root = points(5);
+        Series<TimeDataPoint> view = Series.view(root, 1, 4, "s");
+        Series<TimeDataPoint> adopted = Series.adopt(root, "s");
+
+        TimeDataPoint replaced = TimeDataPoint.of(BigDecimal.TEN, TIME.plusMinutes(2));
+        root.set(2, replaced);
+        assertSame(replaced, view.getDataList().get(1));
+        assertSame(replaced, adopted.getDataList().get(2));
+
+        // 在末尾追加不改变已有区间
+        root.add(point(5));
+        assertEquals(3, view.size());
+        assertEquals(5, adopted.size());
+    }
+
+    @Test
+    public void createCopies() {
+        List<TimeDataPoint> source = points(5);
+        Series<TimeDataPoint> created = Series.create(source, "s");
+        Series<TimeDataPoint> unchecked = Series.createUncheck(source, "s");
+        TimeDataPoint original = source.get(2);
+
+        source.set(2, TimeDataPoint.of(BigDecimal.TEN, TIME.plusMinutes(2)));
+        source.add(point(5));
+        assertSame(original, created.getDataList().get(2));
+        assertSame(original, unchecked.getDataList().get(2));
+        assertEquals(5, created.size());
+        assertEquals(5, unchecked.size());
+    }
+
+    @Test
+    public void createSortsAndRejectsDuplicates() {
+        List<TimeDataPoint> source = points(5);
+        Series<TimeDataPoint> sorted = Series.create(Lists.reverse(source), "s");
+        for (int i = 0; i < source.size(); i++) {
+            assertSame(source.get(i), sorted.getDataList().get(i));
+        }
+
+        source.add(point(4));
+        try {
+            Series.create(source, "s");
+            fail();
+        } catch (BackTestException e) {
+            // 预期
+        }
+    }
+
+    private static List<TimeDataPoint> points(int count) {
+        List<TimeDataPoint> points = Lists.newArrayList();
+        for (int i = 0; i < count; i++) {
+            points.add(point(i));
+        }
+        return points;
+    }
+
+    private static TimeDataPoint point(int minute) {
+        return TimeDataPoint.of(BigDecimal.valueOf(minute), TIME.plusMinutes(minute));
+    }
+
+    private static void assertOutOfBounds(Runnable runnable) {
+        try {
+            runnable.run();
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            // 预期
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package cn.adonis.trader.framework.model;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 时间索引的查找结果与二分查找一致：规则序列、有缺口的序列、落在两点之间、早于第一个点和晚于最后一个点的时间
+ */
+public class TimeIndexTest {
+
+    private static final long INTERVAL = 60;
+
+    @Test
+    public void regularSeries() {
+        long[] times = new long[100];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = 1_000_000 + i * INTERVAL;
+        }
+        TimeIndex index = build(times);
+        assertNotNull(index);
+        for (int i = 0; i < times.length; i++) {
+            assertEquals(i, index.indexOf(times[i]));
+        }
+        assertMatchesBinarySearch(index, times);
+    }
+
+    @Test
+    public void seriesWithGaps() {
+        // 每天两段交易时间，段之间和日之间都有缺口
+        List<Long> timeList = Lists.newArrayList();
+        for (int day = 0; day < 5; day++) {
+            long dayStart = 1_000_000 + day * 86400L;
+            for (int i = 0; i < 30; i++) {
+                timeList.add(dayStart + i * INTERVAL);
+            }
+            for (int i = 0; i < 20; i++) {
+                timeList.add(dayStart + 14400 + i * INTERVAL);
+            }
+        }
+        long[] times = timeList.stream().mapToLong(Long::longValue).toArray();
+        TimeIndex index = build(times);
+        assertNotNull(index);
+        // 缺口内的时间不存在，lowerBound指向下一段的开始
+        assertEquals(-1, index.indexOf(1_000_000 + 30 * INTERVAL));
+        assertEquals(30, index.lowerBound(1_000_000 + 30 * INTERVAL));
+        assertEquals(30, index.upperBound(1_000_000 + 14399));
+        assertMatchesBinarySearch(index, times);
+    }
+
+    @Test
+    public void randomGaps() {
+        Random random = new Random(3);
+        for (int round = 0; round < 20; round++) {
+            int size = 1 + random.nextInt(500);
+            long[] times = new long[size];
+            times[0] = random.nextInt(10000);
+            for (int i = 1; i < size; i++) {
+                // 大部分相邻，偶尔跳过若干个周期
+                times[i] = times[i - 1] + INTERVAL * (random.nextInt(10) == 0 ? 2 + random.nextInt(50) : 1);
+            }
+            TimeIndex index = build(times);
+            if (index != null) {
+                assertMatchesBinarySearch(index, times);
+            }
+        }
+    }
+
+    @Test
+    public void rejectsUnalignedTimes() {
+        long[] times = new long[100];
+        for (int i = 1; i < times.length; i++) {
+            times[i] = times[i - 1] + INTERVAL + (i % 2);
+        }
+        // 段数超过点数一半，不构建
+        assertNull(build(times));
+        assertNull(TimeIndex.build(i -> 0, 0, INTERVAL));
+    }
+
+    @Test
+    public void buildsLazilyAfterThreshold() {
+        int size = 2048;
+        TimeSeries<TimeDataPoint> series = series(size);
+        int threshold = TimeSeries.buildThreshold(size);
+        assertTrue(threshold > 1);
+
+        LocalDateTime start = LocalDateTime.of(2020, 3, 2, 9, 0);
+        for (int i = 1; i < threshold; i++) {
+            assertEquals(i, series.indexOf(start.plusMinutes(i)));
+        }
+        assertFalse(series.isTimeIndexBuilt());
+        assertEquals(5, series.indexOf(start.plusMinutes(5)));
+        assertTrue(series.isTimeIndexBuilt());
+        assertEquals(size - 1, series.indexOf(start.plusMinutes(size - 1)));
+        assertEquals(-1, series.indexOf(start.plusMinutes(size)));
+        assertEquals(-1, series.indexOf(start.plusSeconds(30)));
+    }
+
+    @Test
+    public void concurrentLookupsBuildOnce() throws Exception {
+        int size = 4096;
+        TimeSeries<TimeDataPoint> series = series(size);
+        LocalDateTime start = LocalDateTime.of(2020, 3, 2, 9, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Callable<Boolean>> tasks = Lists.newArrayList();
+            for (int t = 0; t < 4; t++) {
+                int offset = t;
+                tasks.add(() -> {
+                    for (int i = offset; i < size; i += 4) {
+                        if (series.indexOf(start.plusMinutes(i)) != i) {
+                            return false;
+                        }
+                    }
+                    return true;
+                });
+            }
+            for (Future<Boolean> future : executor.invokeAll(tasks)) {
+                assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(series.isTimeIndexBuilt());
+    }
+
+    private static TimeIndex build(long[] times) {
+        return TimeIndex.build(i -> times[i], times.length, INTERVAL);
+    }
+
+    /**
+     * 从第一个点之前到最后一个点之后，每半个周期检查一次
+     */
+    private static void assertMatchesBinarySearch(TimeIndex index, long[] times) {
+        for (long time = times[0] - 2 * INTERVAL; time <= times[times.length - 1] + 2 * INTERVAL; time += INTERVAL / 2) {
+            int lower = 0;
+            while (lower < times.length && times[lower] < time) {
+                lower++;
+            }
+            int upper = lower;
+            while (upper < times.length && times[upper] <= time) {
+                upper++;
+            }
+            int expected = lower < times.length && times[lower] == time ? lower : -1;
+            assertEquals("indexOf " + time, expected, index.indexOf(time));
+            assertEquals("lowerBound " + time, lower, index.lowerBound(time));
+            assertEquals("upperBound " + time, upper, index.upperBound(time));
+        }
+    }
+
+    private static TimeSeries<TimeDataPoint> series(int size) {
+        List<TimeDataPoint> points = Lists.newArrayList();
+        LocalDateTime start = LocalDateTime.of(2020, 3, 2, 9, 0);
+        for (int i = 0; i < size; i++) {
+            points.add(TimeDataPoint.of(BigDecimal.ONE, start.plusMinutes(i)));
+        }
+        return TimeSeries.create(Series.create(points, "s"), TimeInterval.minutes(1));
+    }
+}
@@ -0,0 +1,34 @@
+package cn.adonis.trader.framework.optimizer;
+
+import cn.adonis.trader.framework.SampleData;
+import cn.adonis.trader.framework.indicator.IndicatorCache;
+import cn.adonis.trader.framework.strategy.StrainerStrategy;
+import com.google.common.cache.CacheStats;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 重抽样重建的序列只回测一次，不写入全局的指标缓存
+ */
+public class MonteCarloTest {
+
+    @Test
+    public void bootstrapBypassesIndicatorCache() throws Exception {
+        CacheStats before = IndicatorCache.getDefault().stats();
+        MonteCarlo.builder()
+                .setSeriesLoader(SampleData.loader())
+                .setBackTestParameter(SampleData.parameter().build())
+                .setStrategyFactory(() -> StrainerStrategy.newStrainerStrategy(SampleData.strainerParameter()))
+                .setMode(MonteCarlo.Mode.BLOCK_BOOTSTRAP)
+                .setRuns(8)
+                .setSeed(1L)
+                .setParallelism(2)
+                .build()
+                .run();
+        CacheStats stats = IndicatorCache.getDefault().stats().minus(before);
+
+        // 只有原始回测的两条均线访问缓存
+        assertEquals(2, stats.requestCount());
+    }
+}
@@ -0,0 +1,43 @@
+package cn.adonis.trader.framework.optimizer;
+
+import cn.adonis.trader.framework.SampleData;
+import cn.adonis.trader.framework.strategy.StrainerStrategy;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 每组参数回调一次listener，返回的结果按收益排序
+ */
+public class ParameterSweepTest {
+
+    @Test
+    public void ranksAllResults() throws Exception {
+        ParameterGrid<StrainerStrategy.Parameter.Builder, StrainerStrategy.Parameter> grid = ParameterGrid
+                .create(() -> StrainerStrategy.Parameter.builder().setTrendPredictPreviousCount(5).setEnterVolumes("10"),
+                        StrainerStrategy.Parameter.Builder::build)
+                .addAxis("stopLoss", Arrays.asList("0.3", "0.5"), StrainerStrategy.Parameter.Builder::setStopLoss)
+                .addAxis("stopProfit", Arrays.asList("0.3", "0.5"), StrainerStrategy.Parameter.Builder::setStopProfit);
+        List<SweepResult<StrainerStrategy.Parameter>> notified = Lists.newArrayList();
+        List<SweepResult<StrainerStrategy.Parameter>> ranked = ParameterSweep.<StrainerStrategy.Parameter>builder()
+                .setSeriesLoader(SampleData.loader())
+                .setBackTestParameter(SampleData.parameter().build())
+                .setStrategyFactory(StrainerStrategy::newStrainerStrategy)
+                .setParameterGrid(grid)
+                .setParallelism(2)
+                .setListener(notified::add)
+                .build()
+                .run();
+
+        assertEquals(grid.size(), ranked.size());
+        assertEquals(grid.size(), notified.size());
+        for (int i = 1; i < ranked.size(); i++) {
+            assertTrue(ranked.get(i - 1).getPerformance().getProfit().compareTo(ranked.get(i).getPerformance().getProfit()) >= 0);
+        }
+    }
+}
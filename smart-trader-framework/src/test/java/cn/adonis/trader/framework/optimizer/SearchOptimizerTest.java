@@ -0,0 +1,59 @@
+package cn.adonis.trader.framework.optimizer;
+
+import cn.adonis.trader.framework.SampleData;
+import cn.adonis.trader.framework.strategy.StrainerStrategy;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 组合数超过int范围时仍能按下标取值和搜索
+ */
+public class SearchOptimizerTest {
+
+    @Test
+    public void searchesGridLargerThanInt() throws Exception {
+        ParameterGrid<StrainerStrategy.Parameter.Builder, StrainerStrategy.Parameter> grid = ParameterGrid
+                .create(() -> StrainerStrategy.Parameter.builder().setTrendPredictPreviousCount(5).setEnterVolumes("10"),
+                        StrainerStrategy.Parameter.Builder::build)
+                .addAxis("stopLoss", Arrays.asList("0.3", "0.5"), StrainerStrategy.Parameter.Builder::setStopLoss)
+                .addAxis("stopProfit", Arrays.asList("0.3", "0.5"), StrainerStrategy.Parameter.Builder::setStopProfit);
+        // 不影响参数的维度，只用来放大组合数
+        List<Integer> padding = Lists.newArrayList();
+        for (int i = 0; i < 1000; i++) {
+            padding.add(i);
+        }
+        for (int i = 0; i < 4; i++) {
+            grid.addAxis("padding" + i, padding, (builder, value) -> {
+            });
+        }
+        assertEquals(4_000_000_000_000L, grid.size());
+
+        long last = grid.size() - 1;
+        int[] coordinates = grid.coordinatesOf(last);
+        assertArrayEquals(new int[]{1, 1, 999, 999, 999, 999}, coordinates);
+        assertEquals(last, grid.indexOf(coordinates));
+
+        List<SweepResult<StrainerStrategy.Parameter>> ranked = SearchOptimizer.<StrainerStrategy.Parameter>builder()
+                .setSeriesLoader(SampleData.loader())
+                .setBackTestParameter(SampleData.parameter().build())
+                .setStrategyFactory(StrainerStrategy::newStrainerStrategy)
+                .setParameterGrid(grid)
+                .setParallelism(2)
+                .setBatchSize(4)
+                .setMaxEvaluations(16)
+                .setSeed(7L)
+                .build()
+                .run();
+        assertTrue(ranked.size() > 0 && ranked.size() <= 16);
+        for (SweepResult<StrainerStrategy.Parameter> result : ranked) {
+            assertTrue(result.getIndex() >= 0 && result.getIndex() < grid.size());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package cn.adonis.trader.framework.optimizer;
+
+import cn.adonis.trader.framework.SampleData;
+import cn.adonis.trader.framework.indicator.IndicatorCache;
+import cn.adonis.trader.framework.model.TimeInterval;
+import cn.adonis.trader.framework.strategy.StrainerStrategy;
+import com.google.common.cache.CacheStats;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 截取相同区间的回测共享指标列，每个区间上的指标只计算一次
+ */
+public class WalkForwardTest {
+
+    @Test
+    public void windowsShareIndicatorColumns() throws Exception {
+        ParameterGrid<StrainerStrategy.Parameter.Builder, StrainerStrategy.Parameter> grid = ParameterGrid
+                .create(() -> StrainerStrategy.Parameter.builder().setTrendPredictPreviousCount(5).setEnterVolumes("10"),
+                        StrainerStrategy.Parameter.Builder::build)
+                .addAxis("stopLoss", Arrays.asList("0.3", "0.5"), StrainerStrategy.Parameter.Builder::setStopLoss)
+                .addAxis("stopProfit", Arrays.asList("0.3", "0.5"), StrainerStrategy.Parameter.Builder::setStopProfit);
+
+        CacheStats before = IndicatorCache.getDefault().stats();
+        WalkForwardResult<StrainerStrategy.Parameter> result = WalkForward.<StrainerStrategy.Parameter>builder()
+                .setSeriesLoader(SampleData.loader())
+                .setBackTestParameter(SampleData.parameter().build())
+                .setStrategyFactory(StrainerStrategy::newStrainerStrategy)
+                .setParameterGrid(grid)
+                .setWindow(TimeInterval.days(60), TimeInterval.days(30))
+                .setParallelism(2)
+                .setOptimizerParallelism(2)
+                .build()
+                .run();
+        CacheStats stats = IndicatorCache.getDefault().stats().minus(before);
+
+        // 未设置预热时每次回测的数据都从序列开头截取到区间结束，样本外区间与下一个窗口的样本内区间结束时间相同
+        // 不同的区间共 windows + 1 个，每个区间上两条均线各计算一次
+        int windows = result.getWindows().size();
+        assertEquals(3, windows);
+        assertEquals((windows + 1) * 2, stats.loadCount());
+        // 每个窗口 grid.size() 次样本内回测加一次样本外回测，每次取两条均线，其余的访问都复用已有的列
+        // 并发回测同时访问正在计算的列时等待其完成，guava计为miss而不是hit，因此只检查访问总数
+        assertEquals(windows * (grid.size() + 1) * 2, stats.requestCount());
+    }
+}
@@ -0,0 +1,114 @@
+package cn.adonis.trader.framework.predictor;
+
+import cn.adonis.trader.framework.BackTest;
+import cn.adonis.trader.framework.SampleData;
+import cn.adonis.trader.framework.model.BackTestResult;
+import cn.adonis.trader.framework.model.Candle;
+import cn.adonis.trader.framework.model.Series;
+import cn.adonis.trader.framework.model.TimeInterval;
+import cn.adonis.trader.framework.strategy.StrainerStrategy;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 滑动窗口的涨跌判断与每次重新拟合的结果一致，只在舍入误差以内视为持平时不同
+ */
+public class SlidingLinearRegressionTest {
+
+    @Test
+    public void matchesRefitOverTimeWindows() throws Exception {
+        Series<Candle> series = SampleData.loader().load().getSeries();
+        List<Candle> candleList = series.getDataList();
+        TimeInterval shortSpan = TimeInterval.minutes(10);
+        TimeInterval longSpan = TimeInterval.minutes(100);
+        SlidingLinearRegression regressionShort = SlidingLinearRegression.create(shortSpan);
+        SlidingLinearRegression regressionLong = SlidingLinearRegression.create(longSpan);
+        int mismatches = 0;
+        for (Candle candle : candleList) {
+            regressionShort.add(candle);
+            regressionLong.add(candle);
+
+            Series<Candle> seriesShort = series.find(Candle.createFindKey(candle.getTime().minusSeconds(shortSpan.toSeconds())), candle);
+            Series<Candle> seriesLong = series.find(Candle.createFindKey(candle.getTime().minusSeconds(longSpan.toSeconds())), candle);
+            DoubleLinearRegression expected = DoubleLinearRegression.fit(seriesShort, seriesLong);
+            DoubleLinearRegression actual = DoubleLinearRegression.of(regressionShort, regressionLong);
+            if (expected.isGoingUp() != actual.isGoingUp() || expected.isGoingDown() != actual.isGoingDown()) {
+                // 只允许在舍入误差以内不同，此时视为持平
+                assertFalse(candle.getTime().toString(), actual.isGoingUp() || actual.isGoingDown());
+                mismatches++;
+            }
+
+            LinearRegression refit = LinearRegression.fit(seriesShort.getDataList());
+            if (refit.isGoingUp() != regressionShort.isGoingUp() || refit.isGoingDown() != regressionShort.isGoingDown()) {
+                assertEquals(candle.getTime().toString(), 0, regressionShort.getSlope(), 0);
+                assertEquals(0, refit.getSlope(), 1e-12);
+                mismatches++;
+            }
+        }
+        // 样本数据中价格不变的窗口约占1%，逐点拟合在这些窗口上得到正负不定的极小斜率
+        assertTrue(mismatches + " / " + candleList.size(), mismatches * 50 < candleList.size());
+    }
+
+    @Test
+    public void flatWindowIsNeitherUpNorDown() {
+        SlidingLinearRegression regression = SlidingLinearRegression.create(5);
+        for (int i = 0; i < 20; i++) {
+            regression.add(1_600_000_000 + i * 300, 97.486);
+        }
+        assertEquals(0, regression.getSlope(), 0);
+        assertEquals(0, regression.getFittedSlope(), 1e-12);
+        assertFalse(regression.isGoingUp());
+        assertFalse(regression.isGoingDown());
+        DoubleLinearRegression combined = DoubleLinearRegression.of(regression, regression.copy());
+        assertFalse(combined.isGoingUp());
+        assertFalse(combined.isGoingDown());
+    }
+
+    @Test
+    public void slopeDefaultsToNaN() {
+        TrendPredictor predictor = new TrendPredictor() {
+            @Override
+            public double predict(LocalDateTime dateTime) {
+                return 0D;
+            }
+
+            @Override
+            public boolean isGoingUp() {
+                return false;
+            }
+
+            @Override
+            public boolean isGoingDown() {
+                return false;
+            }
+        };
+        assertTrue(Double.isNaN(predictor.getSlope()));
+    }
+
+    @Test
+    public void zeroCapacityNeverPredicts() throws Exception {
+        SlidingLinearRegression regression = SlidingLinearRegression.create(0);
+        regression.add(1, 1);
+        regression.add(2, 2);
+        assertEquals(0, regression.size());
+        assertTrue(Double.isNaN(regression.getSlope()));
+
+        // 与原来一样，trendPredictPreviousCount为0时不建仓
+        BackTestResult result = BackTest.builder()
+                .setSeriesLoader(SampleData.loader())
+                .setParameter(SampleData.parameter().build())
+                .setTradingStrategy(StrainerStrategy.newStrainerStrategy(StrainerStrategy.Parameter.builder()
+                        .setEnterVolumes("10")
+                        .setStopLoss("0.5")
+                        .setStopProfit("0.5")
+                        .build()))
+                .build().run();
+        assertEquals(0, result.getTransactions().size());
+    }
+}
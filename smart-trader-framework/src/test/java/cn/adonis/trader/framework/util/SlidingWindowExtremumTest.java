@@ -0,0 +1,108 @@
+package cn.adonis.trader.framework.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 滑动极值与逐窗口暴力求解的结果一致：随机数据、大量相等值、窗口为1和窗口与数据等长，环形数组多次回绕
+ */
+public class SlidingWindowExtremumTest {
+
+    @Test
+    public void matchesBruteForceOnRandomInput() {
+        Random random = new Random(7);
+        double[] values = new double[2000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextGaussian();
+        }
+        for (int window : new int[]{1, 2, 3, 7, 64, 500}) {
+            // 数据量远大于窗口，环形数组会回绕多次
+            assertMatchesBruteForce(values, window);
+        }
+    }
+
+    @Test
+    public void matchesBruteForceWithEqualValues() {
+        Random random = new Random(11);
+        double[] values = new double[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(3);
+        }
+        for (int window : new int[]{1, 2, 5, 50}) {
+            assertMatchesBruteForce(values, window);
+        }
+        double[] constant = new double[100];
+        for (int window : new int[]{1, 10, 100}) {
+            assertMatchesBruteForce(constant, window);
+        }
+    }
+
+    @Test
+    public void monotonicInputWrapsAround() {
+        // 递增时最小值队列保留整个窗口，递减时最大值队列保留整个窗口
+        double[] increasing = new double[300];
+        double[] decreasing = new double[300];
+        for (int i = 0; i < increasing.length; i++) {
+            increasing[i] = i;
+            decreasing[i] = -i;
+        }
+        for (int window : new int[]{1, 4, 17, 300}) {
+            assertMatchesBruteForce(increasing, window);
+            assertMatchesBruteForce(decreasing, window);
+        }
+    }
+
+    @Test
+    public void windowOfWholeInput() {
+        Random random = new Random(13);
+        double[] values = new double[256];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble();
+        }
+        // 窗口与数据等长时等价于前缀极值
+        assertMatchesBruteForce(values, values.length);
+    }
+
+    @Test
+    public void reportsFullAndEmpty() {
+        SlidingWindowExtremum max = SlidingWindowExtremum.max(3);
+        assertTrue(Double.isNaN(max.get()));
+        max.add(1);
+        max.add(2);
+        assertFalse(max.isFull());
+        max.add(0);
+        assertTrue(max.isFull());
+        assertEquals(2, max.get(), 0);
+        assertEquals(3, max.getWindow());
+        try {
+            SlidingWindowExtremum.min(0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // 预期
+        }
+    }
+
+    private static void assertMatchesBruteForce(double[] values, int window) {
+        SlidingWindowExtremum max = SlidingWindowExtremum.max(window);
+        SlidingWindowExtremum min = SlidingWindowExtremum.min(window);
+        for (int i = 0; i < values.length; i++) {
+            max.add(values[i]);
+            min.add(values[i]);
+            double expectedMax = Double.NEGATIVE_INFINITY;
+            double expectedMin = Double.POSITIVE_INFINITY;
+            for (int j = Math.max(0, i - window + 1); j <= i; j++) {
+                expectedMax = Math.max(expectedMax, values[j]);
+                expectedMin = Math.min(expectedMin, values[j]);
+            }
+            assertEquals("max window " + window + " at " + i, expectedMax, max.get(), 0);
+            assertEquals("min window " + window + " at " + i, expectedMin, min.get(), 0);
+            assertEquals(i + 1 >= window, max.isFull());
+        }
+    }
+}